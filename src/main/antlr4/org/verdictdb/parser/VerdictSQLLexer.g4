@@ -13,6 +13,7 @@ SCRAMBLES:                       S C R A M B L E S;
 STREAM:                          S T R E A M;
 GET:                             G E T;
 APPEND:                          A P P E N D;
+PARALLELISM:                     P A R A L L E L I S M;
 
 
 
@@ -847,6 +848,7 @@ BIT_XOR:             '^';
 BIT_CONCAT:          '||';
 BIT_LSHIFT:          '<<';
 BIT_RSHIFT:          '>>';
+QUESTION:            '?';
 
 
 fragment LETTER:       [a-zA-Z_];
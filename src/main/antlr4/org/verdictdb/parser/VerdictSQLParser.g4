@@ -52,6 +52,7 @@ verdict_statement
     : select_statement
     | stream_select_statement
     | create_scramble_statement
+    | create_scrambles_statement
     | insert_scramble_statement
     | drop_scramble_statement
     | drop_all_scrambles_statement
@@ -75,8 +76,22 @@ create_scramble_statement
       (BLOCKSIZE blocksize=DECIMAL)?
     ;
 
+// Scrambles many tables concurrently. Each scramble is named after its original table with the
+// suffix '_scrambled', and is placed in the given schema (or in the schema of the original table).
+create_scrambles_statement
+    : CREATE SCRAMBLES (INTO scramble_schema=id)?
+      FROM original_tables+=table_name (',' original_tables+=table_name)*
+      (METHOD method=scrambling_method_name)?
+      ((SIZE | RATIO) percent=FLOAT)?
+      (BLOCKSIZE blocksize=DECIMAL)?
+      (PARALLELISM parallelism=DECIMAL)?
+    ;
+
 insert_scramble_statement
-	: (APPEND|INSERT) SCRAMBLE scrambled_table=table_name WHERE where=search_condition
+	: (APPEND|INSERT) SCRAMBLE scrambled_table=table_name
+	  ( WHERE where=search_condition
+	  | PARTITION '(' partition_columns+=column_name '=' partition_values+=constant
+	        (',' partition_columns+=column_name '=' partition_values+=constant)* ')' )
 	;
 
 scrambling_method_name
@@ -307,6 +322,7 @@ expression
     : NULL                                                     #primitive_expression
     | LOCAL_ID                                                 #primitive_expression
     | constant                                                 #primitive_expression
+    | QUESTION                                                 #parameter_expression  // of prepared statements
     | true_orfalse                                             #primitive_expression
     | case_expr                                                #case_expression
     | full_column_name                                         #column_ref_expression
@@ -985,6 +1001,7 @@ simple_id
     | TIMESTAMP
     | VARIANCE
     | WEEKOFYEAR
+    | PARALLELISM
     ;
 
 // https://msdn.microsoft.com/en-us/library/ms188074.aspx
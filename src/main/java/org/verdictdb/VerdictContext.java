@@ -19,9 +19,11 @@ package org.verdictdb;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.verdictdb.commons.VerdictDBLogger;
@@ -32,8 +34,10 @@ import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.JdbcConnection;
 import org.verdictdb.connection.SparkConnection;
 import org.verdictdb.coordinator.ExecutionContext;
+import org.verdictdb.coordinator.QueryCache;
+import org.verdictdb.coordinator.ScratchpadManager;
+import org.verdictdb.core.execplan.NodeExecutionService;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
-import org.verdictdb.core.sqlobject.CreateSchemaQuery;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.metastore.CachedScrambleMetaStore;
@@ -43,8 +47,24 @@ import org.verdictdb.sqlsyntax.MysqlSyntax;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 import org.verdictdb.sqlsyntax.SqlSyntaxList;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 public class VerdictContext {
 
+  // runs the clean-up of the asynchronous queries on the threads of the node execution service;
+  // falls back to the calling thread if the service no longer accepts tasks.
+  private final Executor asyncCleanUpExecutor =
+      new Executor() {
+        @Override
+        public void execute(Runnable command) {
+          try {
+            executionService.submit(command);
+          } catch (RejectedExecutionException e) {
+            command.run();
+          }
+        }
+      };
+
   private DbmsConnection conn;
 
   private boolean isClosed = false;
@@ -57,32 +77,53 @@ public class VerdictContext {
 
   private VerdictOption options;
 
+  /**
+   * The threads shared by all the queries of this context for running execution plans.
+   */
+  private NodeExecutionService executionService;
+
+  /**
+   * The standardized select queries shared by all the queries of this context; null if disabled.
+   */
+  private QueryCache queryCache;
+
+  /**
+   * Creates the scratchpad schema and drops the temp tables of all the queries of this context.
+   */
+  private ScratchpadManager scratchpadManager;
+
   private static final VerdictDBLogger log = VerdictDBLogger.getLogger(VerdictContext.class);
 
   /**
    * Maintains the list of open executions. Each query is processed on a separate execution context.
    */
-  private List<ExecutionContext> executionContexts = new LinkedList<>();
+  // the contexts of the asynchronous queries are removed by the threads running the queries.
+  private List<ExecutionContext> executionContexts = new CopyOnWriteArrayList<>();
 
   public VerdictContext(DbmsConnection conn) throws VerdictDBException {
     this.conn = new CachedDbmsConnection(conn);
     this.contextId = RandomStringUtils.randomAlphanumeric(5);
     this.options = new VerdictOption();
+    this.executionService = NodeExecutionService.fromOption(this.options);
+    this.queryCache = QueryCache.fromOption(this.options);
     this.metaStore = getCachedMetaStore(conn, options);
     initialize(options);
   }
 
   public VerdictContext(DbmsConnection conn, VerdictOption options) throws VerdictDBException {
-    this.conn = new CachedDbmsConnection(conn);
+    this.conn = new CachedDbmsConnection(conn, options);
     this.contextId = RandomStringUtils.randomAlphanumeric(5);
     this.options = options;
+    this.executionService = NodeExecutionService.fromOption(this.options);
+    this.queryCache = QueryCache.fromOption(this.options);
     this.metaStore = getCachedMetaStore(conn, options);
     initialize(options);
   }
 
   private VerdictMetaStore getCachedMetaStore(DbmsConnection conn, VerdictOption option) {
     CachedScrambleMetaStore metaStore =
-        new CachedScrambleMetaStore(new ScrambleMetaStore(conn, options));
+        new CachedScrambleMetaStore(
+            new ScrambleMetaStore(conn, options), options.getMetaStoreCheckIntervalMillis());
     metaStore.refreshCache();
     return metaStore;
   }
@@ -94,9 +135,9 @@ public class VerdictContext {
    */
   private void initialize(VerdictOption option) throws VerdictDBException {
     String schema = option.getVerdictTempSchemaName();
-    CreateSchemaQuery query = new CreateSchemaQuery(schema);
-    query.setIfNotExists(true);
-    conn.execute(query);
+    scratchpadManager = ScratchpadManager.fromOption(conn, option);
+    scratchpadManager.ensureSchemaExists(schema);
+    scratchpadManager.dropOrphanedTablesInBackground(schema);
   }
 
   /**
@@ -154,7 +195,8 @@ public class VerdictContext {
     if (SqlSyntaxList.getSyntaxFromConnectionString(jdbcConnectionString) instanceof MysqlSyntax) {
       return new VerdictContext(JdbcConnection.create(jdbcConnectionString), options);
     } else {
-      return new VerdictContext(ConcurrentJdbcConnection.create(jdbcConnectionString), options);
+      return new VerdictContext(
+          ConcurrentJdbcConnection.create(jdbcConnectionString, null, options), options);
     }
   }
 
@@ -182,7 +224,8 @@ public class VerdictContext {
     if (SqlSyntaxList.getSyntaxFromConnectionString(jdbcConnectionString) instanceof MysqlSyntax) {
       return new VerdictContext(JdbcConnection.create(jdbcConnectionString, info), options);
     } else {
-      return new VerdictContext(ConcurrentJdbcConnection.create(jdbcConnectionString, info), options);
+      return new VerdictContext(
+          ConcurrentJdbcConnection.create(jdbcConnectionString, info, options), options);
     }
     //    Connection jdbcConn = DriverManager.getConnection(jdbcConnectionString, info);
     //    return fromJdbcConnection(jdbcConn);
@@ -214,7 +257,8 @@ public class VerdictContext {
     if (SqlSyntaxList.getSyntaxFromConnectionString(jdbcConnectionString) instanceof MysqlSyntax) {
       return new VerdictContext(JdbcConnection.create(jdbcConnectionString, info), options);
     } else {
-      return new VerdictContext(ConcurrentJdbcConnection.create(jdbcConnectionString, info), options);
+      return new VerdictContext(
+          ConcurrentJdbcConnection.create(jdbcConnectionString, info, options), options);
     }
   }
 
@@ -226,7 +270,8 @@ public class VerdictContext {
     if (SqlSyntaxList.getSyntaxFromConnectionString(jdbcConnectionString) instanceof MysqlSyntax) {
       return new VerdictContext(JdbcConnection.create(jdbcConnectionString), options);
     } else {
-      return new VerdictContext(ConcurrentJdbcConnection.create(jdbcConnectionString), options);
+      return new VerdictContext(
+          ConcurrentJdbcConnection.create(jdbcConnectionString, null, options), options);
     }
   }
   
@@ -261,7 +306,8 @@ public class VerdictContext {
     if (SqlSyntaxList.getSyntaxFromConnectionString(jdbcConnectionString) instanceof MysqlSyntax) {
       return new VerdictContext(JdbcConnection.create(jdbcConnectionString, info), options);
     } else {
-      return new VerdictContext(ConcurrentJdbcConnection.create(jdbcConnectionString, info), options);
+      return new VerdictContext(
+          ConcurrentJdbcConnection.create(jdbcConnectionString, info, options), options);
     }
   }
 
@@ -297,6 +343,8 @@ public class VerdictContext {
 
   public void close() {
     this.abort(); // terminates all ExecutionContexts first.
+    scratchpadManager.shutdown(); // waits for the temp tables to be dropped.
+    executionService.shutdown();
     conn.close();
     isClosed = true;
   }
@@ -331,13 +379,31 @@ public class VerdictContext {
     return options;
   }
 
+  public NodeExecutionService getNodeExecutionService() {
+    return executionService;
+  }
+
+  /** @return null if the query cache is disabled. */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
   public ExecutionContext createNewExecutionContext() {
     long execSerialNumber = getNextExecutionSerialNumber();
     ExecutionContext exec = null;
 //      exec =
 //          new ExecutionContext(conn.copy(), metaStore, contextId, execSerialNumber, options.copy());
       // Yongjoo: testing without copy().
-    exec = new ExecutionContext(conn, metaStore, contextId, execSerialNumber, options.copy());
+    exec =
+        new ExecutionContext(
+            conn,
+            metaStore,
+            contextId,
+            execSerialNumber,
+            options.copy(),
+            executionService,
+            queryCache,
+            scratchpadManager);
     executionContexts.add(exec);
     return exec;
   }
@@ -355,6 +421,11 @@ public class VerdictContext {
     return metaStore;
   }
 
+  /** @return The number of the execution contexts not removed yet */
+  int getExecutionContextCount() {
+    return executionContexts.size();
+  }
+
   private void removeExecutionContext(ExecutionContext exec) {
     exec.terminate();
     executionContexts.remove(exec);
@@ -401,4 +472,49 @@ public class VerdictContext {
     VerdictResultStream stream = exec.streamsql(query);
     return stream;
   }
+
+  /**
+   * The non-blocking counterpart of sql(). This method returns immediately; the query runs on the
+   * threads of the node execution service, and no thread is blocked while waiting for its
+   * answers.
+   *
+   * @param query Either a select query or a create-scramble query
+   * @return The future of the result that sql() would return. Cancelling the future stops the
+   *     query.
+   */
+  public ListenableFuture<VerdictSingleResult> sqlAsync(String query) {
+    final ExecutionContext exec = createNewExecutionContext();
+    ListenableFuture<VerdictSingleResult> future = exec.sqlAsync(query);
+    // the future is usually completed by a thread running the plan; the context, which aborts the
+    // plan and drops the temp tables when removed, is removed on another thread.
+    future.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            removeExecutionContext(exec);
+          }
+        },
+        asyncCleanUpExecutor);
+    return future;
+  }
+
+  /**
+   * The non-blocking counterpart of streamsql(). The progressive answers are pushed to the
+   * subscriber as they are computed.
+   *
+   * @param query A select query
+   * @return The publisher of the answers; the query starts when a subscriber subscribes. The
+   *     execution context of the query is removed once the subscription ends.
+   */
+  public VerdictResultPublisher streamsqlAsync(String query) {
+    final ExecutionContext exec = createNewExecutionContext();
+    return exec.streamsqlAsync(
+        query,
+        new Runnable() {
+          @Override
+          public void run() {
+            removeExecutionContext(exec);
+          }
+        });
+  }
 }
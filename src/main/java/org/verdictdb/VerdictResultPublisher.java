@@ -0,0 +1,33 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb;
+
+/**
+ * A push-based source of the progressive answers of a query, shaped after the Publisher of
+ * reactive streams (i.e., java.util.concurrent.Flow.Publisher) so that it can be adapted to any
+ * reactive library. The query starts when a subscriber subscribes; no thread is blocked while
+ * the answers are computed.
+ */
+public interface VerdictResultPublisher {
+
+  /**
+   * Starts the query. Each publisher accepts at most one subscriber; the later subscribers receive
+   * onError() with an IllegalStateException.
+   *
+   * @param subscriber
+   */
+  void subscribe(VerdictResultSubscriber subscriber);
+}
@@ -0,0 +1,40 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb;
+
+/**
+ * Receives the progressive answers from VerdictResultPublisher. The methods are called serially,
+ * either on the threads that run the query or on the thread that calls
+ * VerdictResultSubscription.request(); thus, the implementations must not block.
+ */
+public interface VerdictResultSubscriber {
+
+  /** Called first; no answers are sent until the subscriber requests them. */
+  void onSubscribe(VerdictResultSubscription subscription);
+
+  /**
+   * Called for every requested answer. Each answer is more accurate than the previous ones. If the
+   * answers are produced faster than they are requested, only the latest answer is kept; that is,
+   * the intermediate answers are skipped.
+   */
+  void onNext(VerdictSingleResult result);
+
+  /** Called once if the query fails. */
+  void onError(Throwable t);
+
+  /** Called once after the last (i.e., the most accurate) answer has been sent. */
+  void onComplete();
+}
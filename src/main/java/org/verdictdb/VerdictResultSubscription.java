@@ -0,0 +1,30 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb;
+
+/** The link between VerdictResultPublisher and its subscriber. */
+public interface VerdictResultSubscription {
+
+  /**
+   * Requests more answers.
+   *
+   * @param n A positive number
+   */
+  void request(long n);
+
+  /** Stops the query. No more methods of the subscriber are called afterwards. */
+  void cancel();
+}
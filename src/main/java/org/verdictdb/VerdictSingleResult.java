@@ -21,6 +21,8 @@ import java.sql.SQLException;
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
 import org.verdictdb.commons.DBTablePrinter;
 import org.verdictdb.commons.DataTypeConverter;
+import org.verdictdb.commons.NormalDistribution;
+import org.verdictdb.commons.StudentTDistribution;
 import org.verdictdb.commons.VerdictResultPrinter;
 import org.verdictdb.connection.DbmsQueryResultMetaData;
 import org.verdictdb.jdbc41.VerdictResultSet;
@@ -90,6 +92,65 @@ public abstract class VerdictSingleResult extends AttributeValueRetrievalHelper
   public abstract Object getValue(int index);
 
   public abstract boolean wasNull() throws SQLException;
+
+  /**
+   * @return True if some aggregate values of this result come with their standard errors (i.e.,
+   *     the result is an approximate answer from a progressive aggregation).
+   */
+  public boolean hasStandardErrors() {
+    return false;
+  }
+
+  /**
+   * @return The number of the blocks from which the standard errors are estimated; 0 if this
+   *     result has no standard errors.
+   */
+  public int getStandardErrorBlockCount() {
+    return 0;
+  }
+
+  /**
+   * @return True if some values are count-distinct estimates computed with the HyperLogLog
+   *     sketches of only part of the blocks. Such values are not extrapolated to the entire data;
+   *     thus, the answer is not regarded as accurate until all the blocks are read.
+   */
+  public boolean hasPartialSketchEstimates() {
+    return false;
+  }
+
+  /**
+   * @param index zero-based index
+   * @return The standard error of the value at the current row; null if unknown (e.g., the value is
+   *     exact, is not a sum, count, or avg, or is computed from fewer than two blocks).
+   */
+  public Double getStandardError(int index) {
+    return null;
+  }
+
+  /**
+   * The half width of the confidence interval of the value at the current row. Since the standard
+   * error is estimated from the variation among a few blocks, the quantile of Student's t
+   * distribution with (block count - 1) degrees of freedom is used; the normal quantile is used
+   * only if the block count is unknown.
+   *
+   * @param index zero-based index
+   * @param confidenceLevel e.g., 0.95
+   * @return null if the standard error is unknown.
+   */
+  public Double getErrorBound(int index, double confidenceLevel) {
+    Double standardError = getStandardError(index);
+    if (standardError == null) {
+      return null;
+    }
+    int blockCount = getStandardErrorBlockCount();
+    if (blockCount >= 2) {
+      return StudentTDistribution.tScore(confidenceLevel, blockCount - 1) * standardError;
+    }
+    return NormalDistribution.zScore(confidenceLevel) * standardError;
+  }
+
+  /** Releases the database resources (e.g., an open cursor) held by this result, if any. */
+  public void close() {}
   
   public String toCsv() {
     return VerdictResultPrinter.SingleResultToCSV(this);
@@ -0,0 +1,80 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.commons;
+
+/**
+ * The quantiles of Student's t-distribution, used for the confidence intervals computed from the
+ * variances of a few blocks. The quantiles are computed by Hill's algorithm (CACM Algorithm 396),
+ * whose relative error is below 1e-5 for one or more degrees of freedom; the cases of one and two
+ * degrees of freedom are exact.
+ */
+public class StudentTDistribution {
+
+  /**
+   * @param confidenceLevel e.g., 0.95
+   * @param degreesOfFreedom One or more
+   * @return The multiplier of the standard error for the two-sided confidence interval (e.g.,
+   *     4.30 for 0.95 and two degrees of freedom)
+   */
+  public static double tScore(double confidenceLevel, int degreesOfFreedom) {
+    if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+      throw new IllegalArgumentException(
+          "The confidence level must be in (0, 1): " + confidenceLevel);
+    }
+    if (degreesOfFreedom < 1) {
+      throw new IllegalArgumentException(
+          "The degrees of freedom must be one or more: " + degreesOfFreedom);
+    }
+
+    // the probability of the two tails
+    double p = 1 - confidenceLevel;
+    double n = degreesOfFreedom;
+    if (degreesOfFreedom == 1) {
+      double angle = p * Math.PI / 2;
+      return Math.cos(angle) / Math.sin(angle);
+    }
+    if (degreesOfFreedom == 2) {
+      return Math.sqrt(2 / (p * (2 - p)) - 2);
+    }
+
+    double a = 1 / (n - 0.5);
+    double b = 48 / (a * a);
+    double c = ((20700 * a / b - 98) * a - 16) * a + 96.36;
+    double d = ((94.5 / (b + c) - 3) / b + 1) * Math.sqrt(a * Math.PI / 2) * n;
+    double x = d * p;
+    double y = Math.pow(x, 2 / n);
+    if (y > 0.05 + a) {
+      // asymptotic expansion around the normal quantile
+      x = NormalDistribution.inverseCdf(0.5 * p);
+      y = x * x;
+      if (degreesOfFreedom < 5) {
+        c += 0.3 * (n - 4.5) * (x + 0.6);
+      }
+      c = (((0.05 * d * x - 5) * x - 7) * x - 2) * x + b + c;
+      y = (((((0.4 * y + 6.3) * y + 36) * y + 94.5) / c - y - 3) / b + 1) * x;
+      y = a * y * y;
+      y = (y > 0.002) ? Math.exp(y) - 1 : 0.5 * y * y + y;
+    } else {
+      y =
+          ((1 / (((n + 6) / (n * y) - 0.089 * d - 0.822) * (n + 2) * 3) + 0.5 / (n + 4)) * y - 1)
+                  * (n + 1)
+                  / (n + 2)
+              + 1 / y;
+    }
+    return Math.sqrt(n * y);
+  }
+}
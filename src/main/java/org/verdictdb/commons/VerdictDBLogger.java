@@ -35,6 +35,13 @@ public class VerdictDBLogger implements org.slf4j.Logger {
 
   private static final String VERDICT_LOGGER_NAME = "org.verdictdb";
 
+  /**
+   * The MDC key under which the id of the query being processed is stored. The id is propagated to
+   * the threads running the nodes of the query (see NodeExecutionService) so that the log lines of
+   * concurrent queries can be told apart.
+   */
+  public static final String QUERY_ID_MDC_KEY = "verdictdbQueryId";
+
   private VerdictDBLogger(org.slf4j.Logger logger) {
     this.logger = logger;
   }
@@ -169,9 +176,7 @@ public class VerdictDBLogger implements org.slf4j.Logger {
 
   @Override
   public void debug(String s) {
-    synchronized (VerdictDBLogger.class) {
-      logger.debug(s);
-    }
+    logger.debug(s);
   }
 
   @Override
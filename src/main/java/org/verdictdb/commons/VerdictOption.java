@@ -32,10 +32,73 @@ public class VerdictOption {
   private static final String DEFAULT_CONSOLE_LOG_LEVEL = "info";
   private static final String DEFAULT_FILE_LOG_LEVEL = "debug";
 
+  private static final int DEFAULT_NODE_EXECUTION_POOL_SIZE =
+      Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+  private static final int DEFAULT_RESULT_FETCH_SIZE = 1000;
+
+  private static final long DEFAULT_METADATA_CACHE_TTL_SECONDS = 600;
+  private static final long DEFAULT_METADATA_CACHE_SIZE = 10000;
+
+  private static final int DEFAULT_CONNECTION_POOL_MIN_SIZE = 1;
+  private static final int DEFAULT_CONNECTION_POOL_MAX_SIZE = 10;
+  private static final long DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_SECONDS = 300;
+  private static final long DEFAULT_CONNECTION_POOL_WAIT_TIMEOUT_SECONDS = 600;
+
+  private static final int DEFAULT_BLOCK_CONCURRENCY = 10;
+  private static final int DEFAULT_MIN_BLOCK_CONCURRENCY = 1;
+  private static final int DEFAULT_MAX_BLOCK_CONCURRENCY = 32;
+
+  private static final long DEFAULT_QUERY_CACHE_SIZE = 1000;
+
+  private static final String DEFAULT_AGG_COMBINING_STRATEGY = "linear";
+
+  private static final long DEFAULT_TEMP_TABLE_MAX_AGE_SECONDS = 86400;
+
+  private static final int DEFAULT_SCRAMBLE_PARALLELISM = 4;
+
+  private static final double DEFAULT_TARGET_RELATIVE_ERROR = 0;
+
+  private static final long DEFAULT_TIME_LIMIT_MILLIS = 0;
+
+  private static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+
+  private static final double DEFAULT_STATISTICS_SAMPLING_RATIO = 1.0;
+
+  private static final long DEFAULT_METASTORE_CHECK_INTERVAL_MILLIS = 1000;
+
   private String verdictMetaSchemaName = DEFAULT_META_SCHEMA_NAME;
   private String verdictTempSchemaName = DEFAULT_TEMP_SCHEMA_NAME;
   private String verdictConsoleLogLevel = DEFAULT_CONSOLE_LOG_LEVEL;
   private String verdictFileLogLevel = DEFAULT_FILE_LOG_LEVEL;
+  private int nodeExecutionPoolSize = DEFAULT_NODE_EXECUTION_POOL_SIZE;
+  private boolean useVirtualThreadForExecution = false;
+  private int resultFetchSize = DEFAULT_RESULT_FETCH_SIZE;
+  private long metaDataCacheTtlSeconds = DEFAULT_METADATA_CACHE_TTL_SECONDS;
+  private long metaDataCacheSize = DEFAULT_METADATA_CACHE_SIZE;
+  private boolean metaDataCacheRefreshAhead = false;
+  private int connectionPoolMinSize = DEFAULT_CONNECTION_POOL_MIN_SIZE;
+  private int connectionPoolMaxSize = DEFAULT_CONNECTION_POOL_MAX_SIZE;
+  private long connectionPoolIdleTimeoutSeconds = DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_SECONDS;
+  private long connectionPoolWaitTimeoutSeconds = DEFAULT_CONNECTION_POOL_WAIT_TIMEOUT_SECONDS;
+  private String connectionValidationQuery = null;
+  private int blockConcurrency = DEFAULT_BLOCK_CONCURRENCY;
+  private int minBlockConcurrency = DEFAULT_MIN_BLOCK_CONCURRENCY;
+  private int maxBlockConcurrency = DEFAULT_MAX_BLOCK_CONCURRENCY;
+  private boolean adaptiveBlockConcurrency = true;
+  private long queryCacheSize = DEFAULT_QUERY_CACHE_SIZE;
+  private String aggCombiningStrategy = DEFAULT_AGG_COMBINING_STRATEGY;
+  private long tempTableMaxAgeSeconds = DEFAULT_TEMP_TABLE_MAX_AGE_SECONDS;
+  private int scrambleParallelism = DEFAULT_SCRAMBLE_PARALLELISM;
+  private double targetRelativeError = DEFAULT_TARGET_RELATIVE_ERROR;
+  private long timeLimitMillis = DEFAULT_TIME_LIMIT_MILLIS;
+  private double confidenceLevel = DEFAULT_CONFIDENCE_LEVEL;
+
+  private double statisticsSamplingRatio = DEFAULT_STATISTICS_SAMPLING_RATIO;
+
+  private long metaStoreCheckIntervalMillis = DEFAULT_METASTORE_CHECK_INTERVAL_MILLIS;
+
+  private boolean autoScrambleReplacement = false;
 
   public VerdictOption() {}
 
@@ -82,6 +145,357 @@ public class VerdictOption {
     this.verdictTempSchemaName = verdictTempSchemaName;
   }
 
+  public int getNodeExecutionPoolSize() {
+    return nodeExecutionPoolSize;
+  }
+
+  /**
+   * Sets the maximum number of threads that run the nodes of execution plans. The threads are
+   * shared by all the queries of a single VerdictContext.
+   *
+   * @param nodeExecutionPoolSize a positive integer
+   */
+  public void setNodeExecutionPoolSize(int nodeExecutionPoolSize) {
+    this.nodeExecutionPoolSize = nodeExecutionPoolSize;
+  }
+
+  public boolean getUseVirtualThreadForExecution() {
+    return useVirtualThreadForExecution;
+  }
+
+  /**
+   * If set, the node runners use virtual threads when the JVM supports them (JDK 21+).
+   *
+   * @param useVirtualThreadForExecution
+   */
+  public void setUseVirtualThreadForExecution(boolean useVirtualThreadForExecution) {
+    this.useVirtualThreadForExecution = useVirtualThreadForExecution;
+  }
+
+  public int getResultFetchSize() {
+    return resultFetchSize;
+  }
+
+  /**
+   * Sets the number of rows fetched at a time when the result of a query that does not use
+   * scrambles is streamed to the client.
+   *
+   * @param resultFetchSize a non-negative integer; zero lets the JDBC driver decide.
+   */
+  public void setResultFetchSize(int resultFetchSize) {
+    this.resultFetchSize = resultFetchSize;
+  }
+
+  public long getMetaDataCacheTtlSeconds() {
+    return metaDataCacheTtlSeconds;
+  }
+
+  /**
+   * Sets how long the metadata (e.g., the columns of a table) retrieved from the database is
+   * cached.
+   *
+   * @param metaDataCacheTtlSeconds zero or a negative number means that the entries never expire.
+   */
+  public void setMetaDataCacheTtlSeconds(long metaDataCacheTtlSeconds) {
+    this.metaDataCacheTtlSeconds = metaDataCacheTtlSeconds;
+  }
+
+  public long getMetaDataCacheSize() {
+    return metaDataCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of cached entries for each kind of metadata (schemas, tables, columns,
+   * and partitions). The least recently used entries are evicted first.
+   *
+   * @param metaDataCacheSize a positive integer
+   */
+  public void setMetaDataCacheSize(long metaDataCacheSize) {
+    this.metaDataCacheSize = metaDataCacheSize;
+  }
+
+  public boolean getMetaDataCacheRefreshAhead() {
+    return metaDataCacheRefreshAhead;
+  }
+
+  /**
+   * If set, the cached metadata is reloaded in the background after half of its time-to-live.
+   *
+   * @param metaDataCacheRefreshAhead
+   */
+  public void setMetaDataCacheRefreshAhead(boolean metaDataCacheRefreshAhead) {
+    this.metaDataCacheRefreshAhead = metaDataCacheRefreshAhead;
+  }
+
+  public int getConnectionPoolMinSize() {
+    return connectionPoolMinSize;
+  }
+
+  /**
+   * Sets the number of JDBC connections opened in advance and kept open while idle.
+   *
+   * @param connectionPoolMinSize a non-negative integer
+   */
+  public void setConnectionPoolMinSize(int connectionPoolMinSize) {
+    this.connectionPoolMinSize = connectionPoolMinSize;
+  }
+
+  public int getConnectionPoolMaxSize() {
+    return connectionPoolMaxSize;
+  }
+
+  /**
+   * Sets the maximum number of JDBC connections opened for concurrent query processing.
+   *
+   * @param connectionPoolMaxSize a positive integer
+   */
+  public void setConnectionPoolMaxSize(int connectionPoolMaxSize) {
+    this.connectionPoolMaxSize = connectionPoolMaxSize;
+  }
+
+  public long getConnectionPoolIdleTimeoutSeconds() {
+    return connectionPoolIdleTimeoutSeconds;
+  }
+
+  /**
+   * Sets how long a JDBC connection may stay idle before it is closed (as long as at least the
+   * minimum number of connections remain).
+   *
+   * @param connectionPoolIdleTimeoutSeconds zero or a negative number means that idle connections
+   *     are never closed.
+   */
+  public void setConnectionPoolIdleTimeoutSeconds(long connectionPoolIdleTimeoutSeconds) {
+    this.connectionPoolIdleTimeoutSeconds = connectionPoolIdleTimeoutSeconds;
+  }
+
+  public long getConnectionPoolWaitTimeoutSeconds() {
+    return connectionPoolWaitTimeoutSeconds;
+  }
+
+  /**
+   * Sets how long a query waits for a JDBC connection when every connection is busy.
+   *
+   * @param connectionPoolWaitTimeoutSeconds a positive integer
+   */
+  public void setConnectionPoolWaitTimeoutSeconds(long connectionPoolWaitTimeoutSeconds) {
+    this.connectionPoolWaitTimeoutSeconds = connectionPoolWaitTimeoutSeconds;
+  }
+
+  public String getConnectionValidationQuery() {
+    return connectionValidationQuery;
+  }
+
+  /**
+   * Sets the query (e.g., "select 1") issued to check that an idle JDBC connection is still usable.
+   *
+   * @param connectionValidationQuery If null, Connection.isValid() is used instead.
+   */
+  public void setConnectionValidationQuery(String connectionValidationQuery) {
+    this.connectionValidationQuery = connectionValidationQuery;
+  }
+
+  public int getBlockConcurrency() {
+    return blockConcurrency;
+  }
+
+  /**
+   * Sets the number of block aggregations of a query run at the same time. If the adaptive block
+   * concurrency is enabled, this is the initial number.
+   *
+   * @param blockConcurrency a positive integer
+   */
+  public void setBlockConcurrency(int blockConcurrency) {
+    this.blockConcurrency = blockConcurrency;
+  }
+
+  public int getMinBlockConcurrency() {
+    return minBlockConcurrency;
+  }
+
+  /**
+   * Sets the lowest number of concurrent block aggregations the adaptive limit can decrease to.
+   *
+   * @param minBlockConcurrency a positive integer
+   */
+  public void setMinBlockConcurrency(int minBlockConcurrency) {
+    this.minBlockConcurrency = minBlockConcurrency;
+  }
+
+  public int getMaxBlockConcurrency() {
+    return maxBlockConcurrency;
+  }
+
+  /**
+   * Sets the highest number of concurrent block aggregations the adaptive limit can increase to.
+   *
+   * @param maxBlockConcurrency a positive integer
+   */
+  public void setMaxBlockConcurrency(int maxBlockConcurrency) {
+    this.maxBlockConcurrency = maxBlockConcurrency;
+  }
+
+  public boolean getAdaptiveBlockConcurrency() {
+    return adaptiveBlockConcurrency;
+  }
+
+  /**
+   * If set, the number of concurrent block aggregations is adjusted based on their latencies and
+   * errors (see AdaptiveConcurrencyLimit).
+   *
+   * @param adaptiveBlockConcurrency
+   */
+  public void setAdaptiveBlockConcurrency(boolean adaptiveBlockConcurrency) {
+    this.adaptiveBlockConcurrency = adaptiveBlockConcurrency;
+  }
+
+  public long getQueryCacheSize() {
+    return queryCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of select queries whose standardized forms are cached (see
+   * QueryCache).
+   *
+   * @param queryCacheSize zero disables the cache.
+   */
+  public void setQueryCacheSize(long queryCacheSize) {
+    this.queryCacheSize = queryCacheSize;
+  }
+
+  public String getAggCombiningStrategy() {
+    return aggCombiningStrategy;
+  }
+
+  /**
+   * Sets how the results of blocks are combined for nested aggregate queries (see
+   * AggCombiningStrategy).
+   *
+   * @param aggCombiningStrategy either "linear" or "tree"
+   */
+  public void setAggCombiningStrategy(String aggCombiningStrategy) {
+    this.aggCombiningStrategy = aggCombiningStrategy;
+  }
+
+  public long getTempTableMaxAgeSeconds() {
+    return tempTableMaxAgeSeconds;
+  }
+
+  /**
+   * Sets the age after which the temp tables left in the scratchpad schema (e.g., by crashed
+   * processes) are dropped when a VerdictContext starts (see ScratchpadManager).
+   *
+   * @param tempTableMaxAgeSeconds zero disables dropping such tables.
+   */
+  public void setTempTableMaxAgeSeconds(long tempTableMaxAgeSeconds) {
+    this.tempTableMaxAgeSeconds = tempTableMaxAgeSeconds;
+  }
+
+  public int getScrambleParallelism() {
+    return scrambleParallelism;
+  }
+
+  /**
+   * Sets the maximum number of the scrambling queries issued concurrently by CREATE SCRAMBLES (see
+   * BulkScramblingCoordinator).
+   *
+   * @param scrambleParallelism the number of tables or partitions scrambled at the same time
+   */
+  public void setScrambleParallelism(int scrambleParallelism) {
+    this.scrambleParallelism = scrambleParallelism;
+  }
+
+  public double getTargetRelativeError() {
+    return targetRelativeError;
+  }
+
+  /**
+   * Sets the relative error at which a query stops launching more blocks and returns its answer
+   * (see ExecutionBudget). The relative error is the half width of the confidence interval
+   * divided by the value if the answer has standard errors; otherwise, it is estimated from the
+   * differences between the consecutive answers.
+   *
+   * @param targetRelativeError e.g., 0.01 for 1%; zero uses the default convergence threshold,
+   *     which only checks the differences between the consecutive answers (without the confidence
+   *     intervals).
+   */
+  public void setTargetRelativeError(double targetRelativeError) {
+    this.targetRelativeError = targetRelativeError;
+  }
+
+  public long getTimeLimitMillis() {
+    return timeLimitMillis;
+  }
+
+  /**
+   * Sets the time after which a query launches no more blocks and returns its latest answer (see
+   * ExecutionBudget).
+   *
+   * @param timeLimitMillis zero means no time limit.
+   */
+  public void setTimeLimitMillis(long timeLimitMillis) {
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  public double getConfidenceLevel() {
+    return confidenceLevel;
+  }
+
+  /**
+   * Sets the confidence level of the error bounds used for deciding whether an approximate answer
+   * is accurate enough; used only if a target relative error is set.
+   *
+   * @param confidenceLevel e.g., 0.95
+   */
+  public void setConfidenceLevel(double confidenceLevel) {
+    this.confidenceLevel = confidenceLevel;
+  }
+
+  public double getStatisticsSamplingRatio() {
+    return statisticsSamplingRatio;
+  }
+
+  /**
+   * Sets the fraction of a table read for computing the statistics needed for scrambling (e.g.,
+   * outlier bounds of fastconverge scrambles). The row count is taken from the catalog of the
+   * database if available.
+   *
+   * @param statisticsSamplingRatio 1.0 (default) means that the statistics are computed from the
+   *     entire table.
+   */
+  public void setStatisticsSamplingRatio(double statisticsSamplingRatio) {
+    this.statisticsSamplingRatio = statisticsSamplingRatio;
+  }
+
+  public long getMetaStoreCheckIntervalMillis() {
+    return metaStoreCheckIntervalMillis;
+  }
+
+  /**
+   * Sets how often the cached scramble meta checks the version of the metastore to pick up the
+   * scrambles created or dropped by other processes.
+   *
+   * @param metaStoreCheckIntervalMillis 0 means checking for every query.
+   */
+  public void setMetaStoreCheckIntervalMillis(long metaStoreCheckIntervalMillis) {
+    this.metaStoreCheckIntervalMillis = metaStoreCheckIntervalMillis;
+  }
+
+  public boolean getAutoScrambleReplacement() {
+    return autoScrambleReplacement;
+  }
+
+  /**
+   * If set, the original tables in aggregate queries are replaced with their scrambles; among the
+   * scrambles of the same table, the one that is expected to reach the target accuracy most
+   * quickly is chosen (see ScrambleCostModel). Otherwise, only the scrambles named directly in the
+   * queries are used.
+   *
+   * @param autoScrambleReplacement
+   */
+  public void setAutoScrambleReplacement(boolean autoScrambleReplacement) {
+    this.autoScrambleReplacement = autoScrambleReplacement;
+  }
+
   public static String getVerdictTempTablePrefix() {
     return VERDICT_TEMP_TABLE_PREFIX;
   }
@@ -102,9 +516,90 @@ public class VerdictOption {
     return DEFAULT_FILE_LOG_LEVEL;
   }
 
+  public static int getDefaultNodeExecutionPoolSize() {
+    return DEFAULT_NODE_EXECUTION_POOL_SIZE;
+  }
+
+  public static int getDefaultResultFetchSize() {
+    return DEFAULT_RESULT_FETCH_SIZE;
+  }
+
+  public static long getDefaultMetaDataCacheTtlSeconds() {
+    return DEFAULT_METADATA_CACHE_TTL_SECONDS;
+  }
+
+  public static long getDefaultMetaDataCacheSize() {
+    return DEFAULT_METADATA_CACHE_SIZE;
+  }
+
+  public static int getDefaultConnectionPoolMinSize() {
+    return DEFAULT_CONNECTION_POOL_MIN_SIZE;
+  }
+
+  public static int getDefaultConnectionPoolMaxSize() {
+    return DEFAULT_CONNECTION_POOL_MAX_SIZE;
+  }
+
+  public static long getDefaultConnectionPoolIdleTimeoutSeconds() {
+    return DEFAULT_CONNECTION_POOL_IDLE_TIMEOUT_SECONDS;
+  }
+
+  public static long getDefaultConnectionPoolWaitTimeoutSeconds() {
+    return DEFAULT_CONNECTION_POOL_WAIT_TIMEOUT_SECONDS;
+  }
+
+  public static int getDefaultBlockConcurrency() {
+    return DEFAULT_BLOCK_CONCURRENCY;
+  }
+
+  public static int getDefaultMinBlockConcurrency() {
+    return DEFAULT_MIN_BLOCK_CONCURRENCY;
+  }
+
+  public static int getDefaultMaxBlockConcurrency() {
+    return DEFAULT_MAX_BLOCK_CONCURRENCY;
+  }
+
+  public static long getDefaultQueryCacheSize() {
+    return DEFAULT_QUERY_CACHE_SIZE;
+  }
+
+  public static String getDefaultAggCombiningStrategy() {
+    return DEFAULT_AGG_COMBINING_STRATEGY;
+  }
+
+  public static long getDefaultTempTableMaxAgeSeconds() {
+    return DEFAULT_TEMP_TABLE_MAX_AGE_SECONDS;
+  }
+
+  public static int getDefaultScrambleParallelism() {
+    return DEFAULT_SCRAMBLE_PARALLELISM;
+  }
+
+  public static double getDefaultTargetRelativeError() {
+    return DEFAULT_TARGET_RELATIVE_ERROR;
+  }
+
+  public static long getDefaultTimeLimitMillis() {
+    return DEFAULT_TIME_LIMIT_MILLIS;
+  }
+
+  public static double getDefaultConfidenceLevel() {
+    return DEFAULT_CONFIDENCE_LEVEL;
+  }
+
+  public static double getDefaultStatisticsSamplingRatio() {
+    return DEFAULT_STATISTICS_SAMPLING_RATIO;
+  }
+
+  public static long getDefaultMetaStoreCheckIntervalMillis() {
+    return DEFAULT_METASTORE_CHECK_INTERVAL_MILLIS;
+  }
+
   public void parseConnectionString(String str) {
     String[] tokens = str.split("[&;?]");
-    String pattern = "\\w+=\\w+";
+    // the values may include decimal points (e.g., target_error=0.01).
+    String pattern = "\\w+=[\\w.]+";
     Pattern p = Pattern.compile(pattern);
     for (String token : tokens) {
       Matcher m = p.matcher(token);
@@ -123,6 +618,78 @@ public class VerdictOption {
           case "file_loglevel":
             this.setVerdictFileLogLevel(option[1]);
             break;
+          case "execution_threads":
+            this.setNodeExecutionPoolSize(Integer.valueOf(option[1]));
+            break;
+          case "use_virtual_threads":
+            this.setUseVirtualThreadForExecution(Boolean.valueOf(option[1]));
+            break;
+          case "fetch_size":
+            this.setResultFetchSize(Integer.valueOf(option[1]));
+            break;
+          case "metadata_cache_ttl":
+            this.setMetaDataCacheTtlSeconds(Long.valueOf(option[1]));
+            break;
+          case "metadata_cache_size":
+            this.setMetaDataCacheSize(Long.valueOf(option[1]));
+            break;
+          case "metadata_cache_refresh_ahead":
+            this.setMetaDataCacheRefreshAhead(Boolean.valueOf(option[1]));
+            break;
+          case "pool_min_size":
+            this.setConnectionPoolMinSize(Integer.valueOf(option[1]));
+            break;
+          case "pool_max_size":
+            this.setConnectionPoolMaxSize(Integer.valueOf(option[1]));
+            break;
+          case "pool_idle_timeout":
+            this.setConnectionPoolIdleTimeoutSeconds(Long.valueOf(option[1]));
+            break;
+          case "pool_wait_timeout":
+            this.setConnectionPoolWaitTimeoutSeconds(Long.valueOf(option[1]));
+            break;
+          case "block_concurrency":
+            this.setBlockConcurrency(Integer.valueOf(option[1]));
+            break;
+          case "block_concurrency_min":
+            this.setMinBlockConcurrency(Integer.valueOf(option[1]));
+            break;
+          case "block_concurrency_max":
+            this.setMaxBlockConcurrency(Integer.valueOf(option[1]));
+            break;
+          case "adaptive_block_concurrency":
+            this.setAdaptiveBlockConcurrency(Boolean.valueOf(option[1]));
+            break;
+          case "query_cache_size":
+            this.setQueryCacheSize(Long.valueOf(option[1]));
+            break;
+          case "agg_combining":
+            this.setAggCombiningStrategy(option[1]);
+            break;
+          case "temp_table_max_age":
+            this.setTempTableMaxAgeSeconds(Long.valueOf(option[1]));
+            break;
+          case "scramble_parallelism":
+            this.setScrambleParallelism(Integer.valueOf(option[1]));
+            break;
+          case "target_error":
+            this.setTargetRelativeError(Double.valueOf(option[1]));
+            break;
+          case "time_limit":
+            this.setTimeLimitMillis(Long.valueOf(option[1]));
+            break;
+          case "confidence_level":
+            this.setConfidenceLevel(Double.valueOf(option[1]));
+            break;
+          case "statistics_sampling_ratio":
+            this.setStatisticsSamplingRatio(Double.valueOf(option[1]));
+            break;
+          case "metastore_check_interval":
+            this.setMetaStoreCheckIntervalMillis(Long.valueOf(option[1]));
+            break;
+          case "auto_scramble_replacement":
+            this.setAutoScrambleReplacement(Boolean.valueOf(option[1]));
+            break;
           default:
             break;
         }
@@ -134,9 +701,73 @@ public class VerdictOption {
     // Get properties here
     String newVerdictMetaSchemaName = prop.getProperty("verdictdbmetaschema");
     String newVerdictTempSchemaName = prop.getProperty("verdictdbtempschema");
+    String newNodeExecutionPoolSize = prop.getProperty("execution_threads");
+    String newUseVirtualThreads = prop.getProperty("use_virtual_threads");
+    String newResultFetchSize = prop.getProperty("fetch_size");
+    String newMetaDataCacheTtl = prop.getProperty("metadata_cache_ttl");
+    String newMetaDataCacheSize = prop.getProperty("metadata_cache_size");
+    String newMetaDataCacheRefreshAhead = prop.getProperty("metadata_cache_refresh_ahead");
+    String newPoolMinSize = prop.getProperty("pool_min_size");
+    String newPoolMaxSize = prop.getProperty("pool_max_size");
+    String newPoolIdleTimeout = prop.getProperty("pool_idle_timeout");
+    String newPoolWaitTimeout = prop.getProperty("pool_wait_timeout");
+    // the query includes spaces; thus, it can only be set with properties.
+    String newValidationQuery = prop.getProperty("pool_validation_query");
+    String newBlockConcurrency = prop.getProperty("block_concurrency");
+    String newMinBlockConcurrency = prop.getProperty("block_concurrency_min");
+    String newMaxBlockConcurrency = prop.getProperty("block_concurrency_max");
+    String newAdaptiveBlockConcurrency = prop.getProperty("adaptive_block_concurrency");
+    String newQueryCacheSize = prop.getProperty("query_cache_size");
+    String newAggCombiningStrategy = prop.getProperty("agg_combining");
+    String newTempTableMaxAge = prop.getProperty("temp_table_max_age");
+    String newScrambleParallelism = prop.getProperty("scramble_parallelism");
+    String newTargetRelativeError = prop.getProperty("target_error");
+    String newTimeLimit = prop.getProperty("time_limit");
+    String newConfidenceLevel = prop.getProperty("confidence_level");
+    String newStatisticsSamplingRatio = prop.getProperty("statistics_sampling_ratio");
+    String newMetaStoreCheckInterval = prop.getProperty("metastore_check_interval");
+    String newAutoScrambleReplacement = prop.getProperty("auto_scramble_replacement");
 
     // Set them if properties exist
     if (newVerdictMetaSchemaName != null) verdictMetaSchemaName = newVerdictMetaSchemaName;
     if (newVerdictTempSchemaName != null) verdictTempSchemaName = newVerdictTempSchemaName;
+    if (newNodeExecutionPoolSize != null)
+      nodeExecutionPoolSize = Integer.valueOf(newNodeExecutionPoolSize);
+    if (newUseVirtualThreads != null)
+      useVirtualThreadForExecution = Boolean.valueOf(newUseVirtualThreads);
+    if (newResultFetchSize != null) resultFetchSize = Integer.valueOf(newResultFetchSize);
+    if (newMetaDataCacheTtl != null) metaDataCacheTtlSeconds = Long.valueOf(newMetaDataCacheTtl);
+    if (newMetaDataCacheSize != null) metaDataCacheSize = Long.valueOf(newMetaDataCacheSize);
+    if (newMetaDataCacheRefreshAhead != null)
+      metaDataCacheRefreshAhead = Boolean.valueOf(newMetaDataCacheRefreshAhead);
+    if (newPoolMinSize != null) connectionPoolMinSize = Integer.valueOf(newPoolMinSize);
+    if (newPoolMaxSize != null) connectionPoolMaxSize = Integer.valueOf(newPoolMaxSize);
+    if (newPoolIdleTimeout != null)
+      connectionPoolIdleTimeoutSeconds = Long.valueOf(newPoolIdleTimeout);
+    if (newPoolWaitTimeout != null)
+      connectionPoolWaitTimeoutSeconds = Long.valueOf(newPoolWaitTimeout);
+    if (newValidationQuery != null) connectionValidationQuery = newValidationQuery;
+    if (newBlockConcurrency != null) blockConcurrency = Integer.valueOf(newBlockConcurrency);
+    if (newMinBlockConcurrency != null)
+      minBlockConcurrency = Integer.valueOf(newMinBlockConcurrency);
+    if (newMaxBlockConcurrency != null)
+      maxBlockConcurrency = Integer.valueOf(newMaxBlockConcurrency);
+    if (newAdaptiveBlockConcurrency != null)
+      adaptiveBlockConcurrency = Boolean.valueOf(newAdaptiveBlockConcurrency);
+    if (newQueryCacheSize != null) queryCacheSize = Long.valueOf(newQueryCacheSize);
+    if (newAggCombiningStrategy != null) aggCombiningStrategy = newAggCombiningStrategy;
+    if (newTempTableMaxAge != null) tempTableMaxAgeSeconds = Long.valueOf(newTempTableMaxAge);
+    if (newScrambleParallelism != null)
+      scrambleParallelism = Integer.valueOf(newScrambleParallelism);
+    if (newTargetRelativeError != null)
+      targetRelativeError = Double.valueOf(newTargetRelativeError);
+    if (newTimeLimit != null) timeLimitMillis = Long.valueOf(newTimeLimit);
+    if (newConfidenceLevel != null) confidenceLevel = Double.valueOf(newConfidenceLevel);
+    if (newStatisticsSamplingRatio != null)
+      statisticsSamplingRatio = Double.valueOf(newStatisticsSamplingRatio);
+    if (newMetaStoreCheckInterval != null)
+      metaStoreCheckIntervalMillis = Long.valueOf(newMetaStoreCheckInterval);
+    if (newAutoScrambleReplacement != null)
+      autoScrambleReplacement = Boolean.valueOf(newAutoScrambleReplacement);
   }
 }
@@ -16,12 +16,10 @@
 
 package org.verdictdb.connection;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictOption;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 
@@ -35,13 +33,51 @@ public class CachedDbmsConnection extends DbmsConnection implements MetaDataProv
 
   DbmsConnection originalConn;
 
+  private VerdictOption options;
+
+  // shared by all the threads that use this connection.
+  private MetaDataCache cache;
+
   public DbmsConnection getOriginalConn() {
     return originalConn;
   }
 
   public CachedDbmsConnection(DbmsConnection conn) {
+    this(conn, new VerdictOption());
+  }
+
+  /**
+   * @param conn The connection to the database
+   * @param options Determines the time-to-live, the size limit, and refresh-ahead of the cache.
+   */
+  public CachedDbmsConnection(DbmsConnection conn, VerdictOption options) {
     //    super(conn);
     this.originalConn = conn;
+    this.options = options;
+    this.cache = new MetaDataCache(conn, options);
+  }
+
+  /** The connection checked out of a pooled connection shares the cache with this object. */
+  private CachedDbmsConnection(DbmsConnection conn, CachedDbmsConnection source) {
+    this.originalConn = conn;
+    this.options = source.options;
+    this.cache = source.cache;
+  }
+
+  @Override
+  public DbmsConnection checkout() throws VerdictDBDbmsException {
+    DbmsConnection leased = originalConn.checkout();
+    if (leased == originalConn) {
+      return this;
+    }
+    return new CachedDbmsConnection(leased, this);
+  }
+
+  @Override
+  public void checkin(DbmsConnection connection) {
+    if (connection != this && connection instanceof CachedDbmsConnection) {
+      originalConn.checkin(((CachedDbmsConnection) connection).originalConn);
+    }
   }
 
   @Override
@@ -49,6 +85,12 @@ public class CachedDbmsConnection extends DbmsConnection implements MetaDataProv
     return originalConn.execute(query);
   }
 
+  @Override
+  public DbmsQueryResult executeStreaming(String query, int fetchSize)
+      throws VerdictDBDbmsException {
+    return originalConn.executeStreaming(query, fetchSize);
+  }
+
   @Override
   public SqlSyntax getSyntax() {
     return originalConn.getSyntax();
@@ -61,6 +103,7 @@ public class CachedDbmsConnection extends DbmsConnection implements MetaDataProv
 
   @Override
   public void close() {
+    cache.close();
     originalConn.close();
   }
 
@@ -70,74 +113,61 @@ public class CachedDbmsConnection extends DbmsConnection implements MetaDataProv
 
   @Override
   public DbmsConnection copy() throws VerdictDBDbmsException {
-    CachedDbmsConnection newConn = new CachedDbmsConnection(originalConn.copy());
+    CachedDbmsConnection newConn = new CachedDbmsConnection(originalConn.copy(), options);
     return newConn;
   }
 
-  //  private String defaultSchema = null;
-
-  private List<String> schemaCache = new ArrayList<>();
+  /**
+   * Removes every cached entry. Used when the statements issued through this connection may change
+   * metadata.
+   */
+  public void clearCache() {
+    cache.invalidateAll();
+  }
 
-  private HashMap<String, List<String>> tablesCache = new HashMap<>();
+  /**
+   * Removes the cached list of schemas and the cached list of the tables in the schema; used when
+   * the schema or a table in it is created or dropped.
+   *
+   * @param schema The schema
+   */
+  public void invalidateCache(String schema) {
+    cache.invalidate(schema);
+  }
 
-  private HashMap<Pair<String, String>, List<String>> partitionCache = new HashMap<>();
+  /**
+   * Removes the cached entries related to the table.
+   *
+   * @param schema The schema of the table
+   * @param table The table
+   */
+  public void invalidateCache(String schema, String table) {
+    cache.invalidate(schema, table);
+  }
 
-  // Get column name and type
-  private HashMap<Pair<String, String>, List<Pair<String, String>>> columnsCache = new HashMap<>();
-  
-  
-  public void clearCache() {
-    schemaCache.clear();
-    tablesCache.clear();
-    partitionCache.clear();
-    columnsCache.clear();
+  public MetaDataCache getCache() {
+    return cache;
   }
 
   @Override
   public List<String> getSchemas() throws VerdictDBDbmsException {
-    if (!schemaCache.isEmpty()) {
-      return schemaCache;
-    }
-    synchronized (this) {
-      List<String> schemas = new ArrayList<>();
-      schemaCache.clear();
-      schemaCache.addAll(originalConn.getSchemas());
-      schemas.addAll(schemaCache);
-      return schemas;
-    }
+    return cache.getSchemas();
   }
 
   @Override
   public List<String> getTables(String schema) throws VerdictDBDbmsException {
-    if (tablesCache.containsKey(schema) && !tablesCache.get(schema).isEmpty()) {
-      return tablesCache.get(schema);
-    }
-    return getTablesWithoutCaching(schema);
+    return cache.getTables(schema);
   }
-  
-  public List<String> getTablesWithoutCaching(String schema) 
-      throws VerdictDBDbmsException {
-    synchronized (this) {
-      List<String> tables = new ArrayList<>();
-      tablesCache.put(schema, originalConn.getTables(schema));
-      tables.addAll(tablesCache.get(schema));
-      return tables;
-    }
+
+  public List<String> getTablesWithoutCaching(String schema) throws VerdictDBDbmsException {
+    cache.invalidate(schema);
+    return cache.getTables(schema);
   }
 
   @Override
   public List<Pair<String, String>> getColumns(String schema, String table)
       throws VerdictDBDbmsException {
-    Pair<String, String> key = new ImmutablePair<>(schema, table);
-    if (columnsCache.containsKey(key) && !columnsCache.get(key).isEmpty()) {
-      return columnsCache.get(key);
-    }
-    synchronized (this) {
-      List<Pair<String, String>> columns = new ArrayList<>();
-      columnsCache.put(key, originalConn.getColumns(schema, table));
-      columns.addAll(columnsCache.get(key));
-      return columns;
-    }
+    return cache.getColumns(schema, table);
   }
 
   /**
@@ -154,16 +184,7 @@ public class CachedDbmsConnection extends DbmsConnection implements MetaDataProv
     //    if (!syntax.doesSupportTablePartitioning()) {
     //      throw new VerdictDBDbmsException("Database does not support table partitioning");
     //    }
-    Pair<String, String> key = new ImmutablePair<>(schema, table);
-    if (columnsCache.containsKey(key) && !partitionCache.isEmpty()) {
-      return partitionCache.get(key);
-    }
-    synchronized (this) {
-      List<String> columns = new ArrayList<>();
-      partitionCache.put(key, originalConn.getPartitionColumns(schema, table));
-      columns.addAll(partitionCache.get(key));
-      return columns;
-    }
+    return cache.getPartitionColumns(schema, table);
   }
 
   public String getDefaultSchema() {
@@ -0,0 +1,392 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the rows of a materialized query result column by column.
+ *
+ * <p>The storage of each column is decided by the class of its first non-null value:
+ *
+ * <ol>
+ *   <li>Byte, Short, Integer, and Long values are kept in a long[].
+ *   <li>Float and Double values are kept in a double[].
+ *   <li>Strings are dictionary-encoded (an int[] of codes), which helps the grouping attributes of
+ *       aggregate results. If the number of distinct strings becomes large relative to the number
+ *       of rows, the column falls back to the object storage.
+ *   <li>Other values are kept in an Object[].
+ * </ol>
+ *
+ * Nulls are recorded in a bitmap. getValue() returns a value of the same class as the one added; if
+ * a column receives values of different classes, the column is converted to the object storage.
+ */
+public class ColumnarResultStore implements Serializable {
+
+  private static final long serialVersionUID = -6143577426412102458L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // dictionary encoding is given up if the dictionary grows beyond this size and beyond half of the
+  // number of rows.
+  private static final int MIN_DICTIONARY_SIZE_TO_GIVE_UP = 1024;
+
+  enum StorageType {
+    UNDECIDED,
+    LONG,
+    DOUBLE,
+    DICTIONARY,
+    OBJECT
+  }
+
+  private final Column[] columns;
+
+  private int rowCount = 0;
+
+  public ColumnarResultStore(int columnCount) {
+    columns = new Column[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      columns[i] = new Column();
+    }
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Appends a row. The array is not retained; thus, it can be reused by the caller.
+   *
+   * @param row The values of the row; its length must be equal to the number of columns.
+   */
+  public void addRow(Object[] row) {
+    if (row.length != columns.length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The number of values (%d) does not match the number of columns (%d).",
+              row.length, columns.length));
+    }
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].add(rowCount, row[i]);
+    }
+    rowCount++;
+  }
+
+  public boolean isNull(int row, int column) {
+    checkRow(row);
+    return columns[column].nulls.get(row);
+  }
+
+  /**
+   * @param row zero-based row index
+   * @param column zero-based column index
+   * @return The value in the same class as the one added (e.g., Integer for an Integer).
+   */
+  public Object getValue(int row, int column) {
+    checkRow(row);
+    return columns[column].get(row);
+  }
+
+  /** @return True if getLong() and getDouble() can read the column without boxing. */
+  public boolean isNumericColumn(int column) {
+    StorageType type = columns[column].type;
+    return type == StorageType.LONG || type == StorageType.DOUBLE;
+  }
+
+  /**
+   * Reads a value of a numeric column (see isNumericColumn()). A null is read as zero.
+   *
+   * @param row zero-based row index
+   * @param column zero-based column index
+   */
+  public long getLong(int row, int column) {
+    checkRow(row);
+    Column c = columns[column];
+    if (c.type == StorageType.LONG) {
+      return c.longs[row];
+    } else if (c.type == StorageType.DOUBLE) {
+      return (long) c.doubles[row];
+    }
+    throw new IllegalStateException("The column is not numeric: " + column);
+  }
+
+  /**
+   * Reads a value of a numeric column (see isNumericColumn()). A null is read as zero.
+   *
+   * @param row zero-based row index
+   * @param column zero-based column index
+   */
+  public double getDouble(int row, int column) {
+    checkRow(row);
+    Column c = columns[column];
+    if (c.type == StorageType.DOUBLE) {
+      return c.doubles[row];
+    } else if (c.type == StorageType.LONG) {
+      return c.longs[row];
+    }
+    throw new IllegalStateException("The column is not numeric: " + column);
+  }
+
+  /**
+   * Returns a read-only, row-oriented view of the leading columns. Nothing is copied; a value is
+   * boxed only when it is read through the view. Rows appended later are visible in the view.
+   *
+   * @param columnCount The number of leading columns visible in the view
+   */
+  public List<List<Object>> asRows(final int columnCount) {
+    if (columnCount > columns.length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The view cannot have more columns (%d) than the store (%d).",
+              columnCount, columns.length));
+    }
+    return new AbstractList<List<Object>>() {
+      @Override
+      public List<Object> get(final int row) {
+        checkRow(row);
+        return new AbstractList<Object>() {
+          @Override
+          public Object get(int column) {
+            if (column < 0 || column >= columnCount) {
+              throw new IndexOutOfBoundsException("Column index: " + column);
+            }
+            return columns[column].get(row);
+          }
+
+          @Override
+          public int size() {
+            return columnCount;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return rowCount;
+      }
+    };
+  }
+
+  StorageType getStorageType(int column) {
+    return columns[column].type;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException(
+          String.format("Row index %d is out of range [0, %d).", row, rowCount));
+    }
+  }
+
+  /** A single column. Only the arrays for its storage type are allocated. */
+  private static class Column implements Serializable {
+
+    private static final long serialVersionUID = 5398036853398211587L;
+
+    StorageType type = StorageType.UNDECIDED;
+
+    // the class of the values; used to return the values as they were added.
+    Class<?> valueClass = null;
+
+    BitSet nulls = new BitSet();
+
+    long[] longs;
+
+    double[] doubles;
+
+    int[] codes;
+
+    List<String> dictionary;
+
+    // lazily rebuilt after deserialization
+    transient Map<String, Integer> dictionaryIndex;
+
+    Object[] objects;
+
+    void add(int row, Object value) {
+      if (value == null) {
+        nulls.set(row);
+        if (type != StorageType.UNDECIDED) {
+          ensureCapacity(row + 1);
+        }
+        return;
+      }
+
+      if (type == StorageType.UNDECIDED) {
+        decideType(value, row + 1);
+      } else if (type != StorageType.OBJECT && value.getClass() != valueClass) {
+        convertToObjects(row);
+      }
+
+      ensureCapacity(row + 1);
+      switch (type) {
+        case LONG:
+          longs[row] = ((Number) value).longValue();
+          break;
+        case DOUBLE:
+          doubles[row] = ((Number) value).doubleValue();
+          break;
+        case DICTIONARY:
+          codes[row] = encode((String) value);
+          if (dictionary.size() > MIN_DICTIONARY_SIZE_TO_GIVE_UP && dictionary.size() > row / 2) {
+            convertToObjects(row + 1);
+          }
+          break;
+        default:
+          objects[row] = value;
+      }
+    }
+
+    Object get(int row) {
+      if (nulls.get(row)) {
+        return null;
+      }
+      switch (type) {
+        case LONG:
+          return boxLong(longs[row]);
+        case DOUBLE:
+          return (valueClass == Float.class) ? (Object) (float) doubles[row] : doubles[row];
+        case DICTIONARY:
+          return dictionary.get(codes[row]);
+        case OBJECT:
+          return objects[row];
+        default:
+          return null;
+      }
+    }
+
+    private Object boxLong(long v) {
+      if (valueClass == Integer.class) {
+        return (int) v;
+      } else if (valueClass == Short.class) {
+        return (short) v;
+      } else if (valueClass == Byte.class) {
+        return (byte) v;
+      }
+      return v;
+    }
+
+    private void decideType(Object value, int capacity) {
+      valueClass = value.getClass();
+      int size = Math.max(INITIAL_CAPACITY, capacity);
+      if (value instanceof Long
+          || value instanceof Integer
+          || value instanceof Short
+          || value instanceof Byte) {
+        type = StorageType.LONG;
+        longs = new long[size];
+      } else if (value instanceof Double || value instanceof Float) {
+        type = StorageType.DOUBLE;
+        doubles = new double[size];
+      } else if (value instanceof String) {
+        type = StorageType.DICTIONARY;
+        codes = new int[size];
+        dictionary = new ArrayList<>();
+        dictionaryIndex = new HashMap<>();
+      } else {
+        type = StorageType.OBJECT;
+        objects = new Object[size];
+      }
+    }
+
+    private int encode(String value) {
+      if (dictionaryIndex == null) {
+        dictionaryIndex = new HashMap<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+          dictionaryIndex.put(dictionary.get(i), i);
+        }
+      }
+      Integer code = dictionaryIndex.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.add(value);
+        dictionaryIndex.put(value, code);
+      }
+      return code;
+    }
+
+    /**
+     * Boxes the values of the first rowCount rows into an Object[].
+     *
+     * @param rowCount The number of rows stored so far
+     */
+    private void convertToObjects(int rowCount) {
+      Object[] converted = new Object[Math.max(INITIAL_CAPACITY, currentCapacity())];
+      for (int r = 0; r < rowCount; r++) {
+        converted[r] = get(r);
+      }
+      type = StorageType.OBJECT;
+      valueClass = null;
+      objects = converted;
+      longs = null;
+      doubles = null;
+      codes = null;
+      dictionary = null;
+      dictionaryIndex = null;
+    }
+
+    private int currentCapacity() {
+      switch (type) {
+        case LONG:
+          return longs.length;
+        case DOUBLE:
+          return doubles.length;
+        case DICTIONARY:
+          return codes.length;
+        case OBJECT:
+          return objects.length;
+        default:
+          return 0;
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      int current = currentCapacity();
+      if (capacity <= current) {
+        return;
+      }
+      int newCapacity = Math.max(capacity, current * 2);
+      switch (type) {
+        case LONG:
+          longs = Arrays.copyOf(longs, newCapacity);
+          break;
+        case DOUBLE:
+          doubles = Arrays.copyOf(doubles, newCapacity);
+          break;
+        case DICTIONARY:
+          codes = Arrays.copyOf(codes, newCapacity);
+          break;
+        case OBJECT:
+          objects = Arrays.copyOf(objects, newCapacity);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+}
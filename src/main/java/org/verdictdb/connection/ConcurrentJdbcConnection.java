@@ -16,15 +16,12 @@
 
 package org.verdictdb.connection;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import java.sql.DatabaseMetaData;
 import java.util.List;
 import java.util.Properties;
 
 import org.apache.commons.lang3.tuple.Pair;
-import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 import org.verdictdb.sqlsyntax.SqlSyntaxList;
@@ -33,159 +30,274 @@ import org.verdictdb.sqlsyntax.SqlSyntaxList;
  * Maintains a pool of multiple java.sql.Connections to provide concurrent execution of queries to
  * the backend database.
  *
+ * <p>Each call checks out a connection from a JdbcConnectionPool and checks it back in when the
+ * call returns. A streamed result keeps its connection until the result is read to its end or
+ * closed. The callers that issue several statements in a row (e.g., ExecutableNodeRunner) can hold
+ * a single connection with checkout() and checkin(); while a thread holds a connection, the calls
+ * made by the thread through this object use that connection.
+ *
  * @author Yongjoo Park
  */
 public class ConcurrentJdbcConnection extends DbmsConnection {
 
-  private static final int CONNECTION_POOL_SIZE = 10;
+  private JdbcConnectionPool pool;
 
-  private List<JdbcConnection> connections = new ArrayList<>();
+  // the connection checked out by the current thread, if any
+  private final ThreadLocal<JdbcConnection> heldConnection = new ThreadLocal<>();
 
-  private int nextConnectionIndex = 0;
+  private SqlSyntax syntax = null;
 
-  private String url;
+  public ConcurrentJdbcConnection(List<JdbcConnection> connections) {
+    this(new JdbcConnectionPool(connections));
+  }
 
-  private Properties info;
+  public ConcurrentJdbcConnection(String url, Properties info, SqlSyntax syntax)
+      throws VerdictDBDbmsException {
+    this(url, info, syntax, new VerdictOption());
+  }
 
-  private VerdictDBLogger logger = VerdictDBLogger.getLogger(getClass());
+  /**
+   * @param url JDBC connection string
+   * @param info Connection properties; can be null.
+   * @param syntax Not used; the syntax is determined by the connections.
+   * @param options Determines the size, the timeouts, and the validation query of the pool.
+   * @throws VerdictDBDbmsException
+   */
+  public ConcurrentJdbcConnection(
+      String url, Properties info, SqlSyntax syntax, VerdictOption options)
+      throws VerdictDBDbmsException {
+    this(
+        new JdbcConnectionPool(
+            url,
+            info,
+            options.getConnectionPoolMinSize(),
+            options.getConnectionPoolMaxSize(),
+            options.getConnectionPoolIdleTimeoutSeconds() * 1000,
+            options.getConnectionPoolWaitTimeoutSeconds() * 1000,
+            options.getConnectionValidationQuery()));
+  }
 
-  public ConcurrentJdbcConnection(List<JdbcConnection> connections) {
-    this.connections.addAll(connections);
+  private ConcurrentJdbcConnection(JdbcConnectionPool pool) {
+    this.pool = pool;
   }
 
-  public ConcurrentJdbcConnection(String url, Properties info, SqlSyntax syntax)
+  public static ConcurrentJdbcConnection create(
+      String connectionString, Properties info, VerdictOption options)
       throws VerdictDBDbmsException {
-    logger.debug(
-        String.format("Creating %d JDBC connections with this url: " + url, CONNECTION_POOL_SIZE));
-    this.url = url;
-    this.info = info;
-    for (int i = 0; i < CONNECTION_POOL_SIZE; i++) {
-      try {
-        Connection c;
-        if (info == null) {
-          c = DriverManager.getConnection(url);
-        } else {
-          c = DriverManager.getConnection(url, info);
-        }
-        connections.add(JdbcConnection.create(c));
-      } catch (SQLException e) {
-        throw new VerdictDBDbmsException(e);
-      }
-    }
+    SqlSyntax syntax = SqlSyntaxList.getSyntaxFromConnectionString(connectionString);
+    return new ConcurrentJdbcConnection(connectionString, info, syntax, options);
   }
 
   public static ConcurrentJdbcConnection create(String connectionString, Properties info)
       throws VerdictDBDbmsException {
-    SqlSyntax syntax = SqlSyntaxList.getSyntaxFromConnectionString(connectionString);
-    return new ConcurrentJdbcConnection(connectionString, info, syntax);
+    return create(connectionString, info, new VerdictOption());
   }
 
   public static ConcurrentJdbcConnection create(String connectionString)
       throws VerdictDBDbmsException {
-    SqlSyntax syntax = SqlSyntaxList.getSyntaxFromConnectionString(connectionString);
-    return new ConcurrentJdbcConnection(connectionString, null, syntax);
+    return create(connectionString, null, new VerdictOption());
   }
 
-  public JdbcConnection getNextConnection() {
-    JdbcConnection c;
-    // prevent multiple thread increase index at same time
-    synchronized (this) {
-      c = connections.get(nextConnectionIndex);
-      nextConnectionIndex++;
-      if (nextConnectionIndex >= connections.size()) {
-        nextConnectionIndex = 0;
-      }
+  public JdbcConnectionPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Reads the metadata of the database through a connection checked out of the pool; the connection
+   * is checked in before this method returns. The returned object is only for reading the
+   * properties of the database; the queries should be issued through this object instead.
+   *
+   * @return The metadata of the database
+   */
+  public DatabaseMetaData getMetadata() throws VerdictDBDbmsException {
+    JdbcConnection c = acquire();
+    try {
+      return c.getMetadata();
+    } finally {
+      release(c);
     }
+  }
+
+  /**
+   * Checks out a connection for the exclusive use of the current thread until checkin() is called.
+   * Nested checkouts by the same thread return the same connection.
+   */
+  @Override
+  public DbmsConnection checkout() throws VerdictDBDbmsException {
+    JdbcConnection held = heldConnection.get();
+    if (held != null) {
+      return held;
+    }
+    JdbcConnection c = pool.checkout();
+    heldConnection.set(c);
     return c;
   }
 
+  @Override
+  public void checkin(DbmsConnection connection) {
+    if (connection == this) {
+      return;
+    }
+    if (heldConnection.get() == connection) {
+      heldConnection.remove();
+      pool.checkin((JdbcConnection) connection);
+    }
+  }
+
+  private JdbcConnection acquire() throws VerdictDBDbmsException {
+    JdbcConnection held = heldConnection.get();
+    return (held != null) ? held : pool.checkout();
+  }
+
+  private void release(JdbcConnection c) {
+    if (heldConnection.get() != c) {
+      pool.checkin(c);
+    }
+  }
+
   @Override
   public List<String> getSchemas() throws VerdictDBDbmsException {
-    return getNextConnection().getSchemas();
+    JdbcConnection c = acquire();
+    try {
+      return c.getSchemas();
+    } finally {
+      release(c);
+    }
   }
 
   @Override
   public List<String> getTables(String schema) throws VerdictDBDbmsException {
-    return getNextConnection().getTables(schema);
+    JdbcConnection c = acquire();
+    try {
+      return c.getTables(schema);
+    } finally {
+      release(c);
+    }
   }
 
   @Override
   public List<Pair<String, String>> getColumns(String schema, String table)
       throws VerdictDBDbmsException {
-    return getNextConnection().getColumns(schema, table);
+    JdbcConnection c = acquire();
+    try {
+      return c.getColumns(schema, table);
+    } finally {
+      release(c);
+    }
   }
 
   @Override
   public List<String> getPartitionColumns(String schema, String table)
       throws VerdictDBDbmsException {
-    return getNextConnection().getPartitionColumns(schema, table);
+    JdbcConnection c = acquire();
+    try {
+      return c.getPartitionColumns(schema, table);
+    } finally {
+      release(c);
+    }
   }
 
   @Override
   public String getDefaultSchema() {
-    return getNextConnection().getDefaultSchema();
+    try {
+      JdbcConnection c = acquire();
+      try {
+        return c.getDefaultSchema();
+      } finally {
+        release(c);
+      }
+    } catch (VerdictDBDbmsException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   @Override
   public void setDefaultSchema(String schema) throws VerdictDBDbmsException {
-    for (JdbcConnection c : connections) {
-      c.setDefaultSchema(schema);
-    }
+    pool.setDefaultSchema(schema);
   }
 
   @Override
   public List<String> getPrimaryKey(String schema, String table) throws VerdictDBDbmsException {
-    return getNextConnection().getPrimaryKey(schema, table);
+    JdbcConnection c = acquire();
+    try {
+      return c.getPrimaryKey(schema, table);
+    } finally {
+      release(c);
+    }
   }
 
   @Override
   public DbmsQueryResult execute(String query) throws VerdictDBDbmsException {
-    return getNextConnection().execute(query);
+    JdbcConnection c = acquire();
+    try {
+      return c.execute(query);
+    } finally {
+      release(c);
+    }
+  }
+
+  /** The connection is checked in when the returned result is read to its end or closed. */
+  @Override
+  public DbmsQueryResult executeStreaming(String query, int fetchSize)
+      throws VerdictDBDbmsException {
+    final JdbcConnection c = acquire();
+    DbmsQueryResult result = null;
+    try {
+      result = c.executeStreaming(query, fetchSize);
+    } finally {
+      if (result instanceof StreamingJdbcQueryResult && heldConnection.get() != c) {
+        ((StreamingJdbcQueryResult) result)
+            .addCloseListener(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    pool.checkin(c);
+                  }
+                });
+      } else {
+        release(c);
+      }
+    }
+    return result;
   }
 
   @Override
   public SqlSyntax getSyntax() {
-    return getNextConnection().getSyntax();
+    if (syntax == null) {
+      try {
+        JdbcConnection c = acquire();
+        try {
+          syntax = c.getSyntax();
+        } finally {
+          release(c);
+        }
+      } catch (VerdictDBDbmsException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return syntax;
   }
 
+  /** Aborts the statements running on the connections that are checked out. */
   @Override
   public void abort() {
-    for (JdbcConnection c : connections) {
-      c.abort();
-    }
+    pool.abort();
   }
 
   @Override
   public void close() {
-    for (JdbcConnection c : connections) {
-      c.close();
-    }
+    pool.close();
   }
 
   @Override
   public DbmsConnection copy() {
-    ConcurrentJdbcConnection copy = new ConcurrentJdbcConnection(connections);
-    copy.url = url;
-    copy.info = info;
+    ConcurrentJdbcConnection copy = new ConcurrentJdbcConnection(pool);
+    copy.syntax = syntax;
     return copy;
   }
 
+  /** Replaces the idle connections that are no longer valid. */
   public void reinitiateConnection() throws VerdictDBDbmsException {
-    for (JdbcConnection connection : connections) {
-      try {
-        // Timeout 1s
-        if (!connection.getConnection().isValid(1)) {
-          Connection c;
-          if (info != null) {
-            c = DriverManager.getConnection(url, info);
-          } else {
-            c = DriverManager.getConnection(url);
-          }
-          connections.set(connections.indexOf(connection), JdbcConnection.create(c));
-        }
-      } catch (SQLException e) {
-        logger.info("Failed to reinitiate connection");
-      }
-    }
+    pool.revalidateIdleConnections();
   }
 }
@@ -42,6 +42,72 @@ public abstract class DbmsConnection implements MetaDataProvider {
     return result;
   }
 
+  /**
+   * Executes a single query whose result may be read lazily. The connections that cannot stream
+   * results return a fully materialized result as execute() does.
+   *
+   * @param sql A single query
+   * @param fetchSize A hint for the number of rows fetched from the database at a time. Zero lets
+   *     the driver decide.
+   * @return The result, which must be read to its end or closed (if it is a
+   *     StreamingJdbcQueryResult) to release the database resources.
+   * @throws VerdictDBDbmsException
+   */
+  public DbmsQueryResult executeStreaming(String sql, int fetchSize)
+      throws VerdictDBDbmsException {
+    return execute(sql);
+  }
+
+  public DbmsQueryResult executeStreaming(SqlConvertible query, int fetchSize)
+      throws VerdictDBException {
+    String sql = QueryToSql.convert(getSyntax(), query);
+    return executeStreaming(sql, fetchSize);
+  }
+
+  /**
+   * Obtains a connection for the exclusive use of the caller until it is passed to checkin(). The
+   * connections that do not pool their underlying connections return themselves.
+   *
+   * @return A connection through which a series of statements can be issued
+   * @throws VerdictDBDbmsException If no connection becomes available in time
+   */
+  public DbmsConnection checkout() throws VerdictDBDbmsException {
+    return this;
+  }
+
+  /**
+   * Returns a connection obtained by checkout().
+   *
+   * @param connection The connection returned by checkout()
+   */
+  public void checkin(DbmsConnection connection) {}
+
+  /**
+   * Reads the number of the rows of a table from the catalog of the database (see
+   * SqlSyntax.getTableRowCountCommand()). The table is not scanned; thus, the value may be an
+   * estimate or stale.
+   *
+   * @return The row count; null if the database does not keep the statistic, if it is unknown, or
+   *     if the catalog cannot be read.
+   */
+  public Long getTableRowCount(String schema, String table) {
+    String sql = getSyntax().getTableRowCountCommand(schema, table);
+    if (sql == null) {
+      return null;
+    }
+    DbmsQueryResult result;
+    try {
+      result = execute(sql);
+    } catch (VerdictDBDbmsException e) {
+      return null;
+    }
+    if (result == null || !result.next() || result.getValue(0) == null) {
+      return null;
+    }
+    long rowCount = (long) result.getDouble(0);
+    return (rowCount > 0) ? rowCount : null;
+  }
+
   //  /**
   //   *
   //   * @param sql
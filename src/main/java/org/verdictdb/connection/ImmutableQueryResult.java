@@ -0,0 +1,32 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+/**
+ * A query result whose rows do not change once they are in memory. Only its cursor changes as it
+ * is read; thus, multiple readers can share the rows as long as each of them has its own cursor.
+ */
+public interface ImmutableQueryResult extends DbmsQueryResult {
+
+  /**
+   * Creates a result that shares the rows, the column information, and the metadata with this
+   * result. Its cursor is independent of this result's cursor and is placed before the first row.
+   *
+   * @return A snapshot of this result, which is much cheaper than a deep copy
+   */
+  public ImmutableQueryResult snapshot();
+}
@@ -40,8 +40,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 public class JdbcConnection extends DbmsConnection {
 
@@ -57,6 +59,9 @@ public class JdbcConnection extends DbmsConnection {
 
   protected Statement runningStatement = null;
 
+  // the streaming results whose statements are still open; guarded by this.
+  private final Set<StreamingJdbcQueryResult> streamingResults = new LinkedHashSet<>();
+
   protected VerdictDBLogger log;
 
   protected boolean isAborting = false;
@@ -144,10 +149,22 @@ public class JdbcConnection extends DbmsConnection {
     this.log = VerdictDBLogger.getLogger(this.getClass());
   }
 
+  /**
+   * Cancels the running statement, if any, and the statements of the streaming results that are
+   * still being read.
+   */
   @Override
   public void abort() {
     log.trace("Aborts a statement if running.");
     isAborting = true;
+    List<StreamingJdbcQueryResult> openResults;
+    synchronized (this) {
+      openResults = new ArrayList<>(streamingResults);
+    }
+    // cancelled without the lock since a closing result removes itself from streamingResults
+    for (StreamingJdbcQueryResult result : openResults) {
+      result.cancel();
+    }
     try {
       synchronized (this) {
         // having isClosed() check seems to block this statement.
@@ -201,7 +218,7 @@ public class JdbcConnection extends DbmsConnection {
   }
 
   public DbmsQueryResult executeSingle(String sql) throws VerdictDBDbmsException {
-    log.debug("Issues the following query to DBMS: " + sql);
+    log.debug("Issues the following query to DBMS: {}", sql);
 
     try {
       Statement stmt = conn.createStatement();
@@ -228,6 +245,72 @@ public class JdbcConnection extends DbmsConnection {
     }
   }
 
+  /**
+   * Issues a single query using a forward-only cursor. The returned result reads rows from the
+   * database as it is advanced; it owns the statement, which is closed when the last row is read.
+   *
+   * <p>Some drivers need additional settings to actually fetch rows in batches (e.g., PostgreSQL
+   * only uses a cursor when auto-commit is off); otherwise, the driver itself may still buffer the
+   * rows.
+   *
+   * @param sql A single query
+   * @param fetchSize The number of rows fetched at a time; zero lets the driver decide.
+   * @return null if the query does not return a result set.
+   */
+  @Override
+  public DbmsQueryResult executeStreaming(String sql, int fetchSize)
+      throws VerdictDBDbmsException {
+    log.debug("Issues the following query to DBMS (streaming): {}", sql);
+
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      if (fetchSize > 0) {
+        stmt.setFetchSize(fetchSize);
+      }
+      setRunningStatement(stmt);
+      boolean doesResultExist = stmt.execute(sql);
+      if (doesResultExist) {
+        // the statement is cancelled through the result from now on (see abort()).
+        final StreamingJdbcQueryResult result =
+            new StreamingJdbcQueryResult(stmt, stmt.getResultSet());
+        synchronized (this) {
+          runningStatement = null;
+          streamingResults.add(result);
+        }
+        result.addCloseListener(
+            new Runnable() {
+              @Override
+              public void run() {
+                synchronized (JdbcConnection.this) {
+                  streamingResults.remove(result);
+                }
+              }
+            });
+        return result;
+      } else {
+        setRunningStatement(null);
+        stmt.close();
+        return null;
+      }
+    } catch (SQLException e) {
+      setRunningStatement(null);
+      try {
+        if (stmt != null) {
+          stmt.close();
+        }
+      } catch (SQLException e1) {
+        log.debug(e1.getMessage());
+      }
+      if (isAborting) {
+        return null;
+      } else {
+        String msg = "Issued the following query: " + sql + "\n" + e.getMessage();
+        throw new VerdictDBDbmsException(msg);
+      }
+    }
+  }
+
   public DbmsQueryResult executeQuery(String sql) throws VerdictDBDbmsException {
     return execute(sql);
   }
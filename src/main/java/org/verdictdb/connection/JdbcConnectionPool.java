@@ -0,0 +1,420 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+/**
+ * A pool of JdbcConnections from which a connection is checked out for exclusive use and checked
+ * back in afterwards.
+ *
+ * <ol>
+ *   <li>The pool starts with minSize connections and grows up to maxSize on demand.
+ *   <li>The connections idle for longer than idleTimeoutMillis are closed, as long as at least
+ *       minSize connections remain.
+ *   <li>A connection that has been idle for a while is validated before it is handed out, either
+ *       with the validation query or with Connection.isValid().
+ *   <li>If every connection is busy and the pool cannot grow, checkout() waits up to
+ *       waitTimeoutMillis.
+ * </ol>
+ *
+ * The idle connections are handed out in LIFO order so that the rarely used ones can expire.
+ */
+public class JdbcConnectionPool {
+
+  // the connections idle for a shorter time are handed out without validation.
+  private static final long VALIDATION_INTERVAL_MILLIS = 5000;
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+  private final String url;
+
+  private final Properties info;
+
+  private final int minSize;
+
+  private final int maxSize;
+
+  private final long idleTimeoutMillis;
+
+  private final long waitTimeoutMillis;
+
+  private final String validationQuery;
+
+  private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+  private final Set<JdbcConnection> busyConnections = new HashSet<>();
+
+  // the number of connections being opened outside the lock
+  private int pendingCount = 0;
+
+  private String defaultSchema = null;
+
+  private boolean closed = false;
+
+  private VerdictDBLogger log = VerdictDBLogger.getLogger(getClass());
+
+  /**
+   * @param url JDBC connection string
+   * @param info Connection properties; can be null.
+   * @param minSize The number of connections opened eagerly and kept open while idle.
+   * @param maxSize The maximum number of connections.
+   * @param idleTimeoutMillis A connection idle for longer than this is closed.
+   * @param waitTimeoutMillis The maximum time checkout() waits for a connection.
+   * @param validationQuery Issued to validate idle connections. If null, Connection.isValid() is
+   *     used.
+   * @throws VerdictDBDbmsException If the initial connections cannot be opened.
+   */
+  public JdbcConnectionPool(
+      String url,
+      Properties info,
+      int minSize,
+      int maxSize,
+      long idleTimeoutMillis,
+      long waitTimeoutMillis,
+      String validationQuery)
+      throws VerdictDBDbmsException {
+    if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+      throw new IllegalArgumentException(
+          String.format("Invalid pool size: min=%d, max=%d", minSize, maxSize));
+    }
+    this.url = url;
+    this.info = info;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.waitTimeoutMillis = waitTimeoutMillis;
+    this.validationQuery = validationQuery;
+
+    log.debug(String.format("Opening %d JDBC connections with this url: %s", minSize, url));
+    for (int i = 0; i < minSize; i++) {
+      idleConnections.push(new IdleConnection(openConnection()));
+    }
+  }
+
+  /**
+   * Creates a fixed-size pool of the given connections. The pool cannot replace invalid
+   * connections since it does not know how to open new ones.
+   *
+   * @param connections The connections to be pooled
+   */
+  public JdbcConnectionPool(List<JdbcConnection> connections) {
+    this.url = null;
+    this.info = null;
+    this.minSize = connections.size();
+    this.maxSize = connections.size();
+    this.idleTimeoutMillis = 0;
+    this.waitTimeoutMillis = Long.MAX_VALUE;
+    this.validationQuery = null;
+    for (JdbcConnection c : connections) {
+      idleConnections.push(new IdleConnection(c));
+    }
+  }
+
+  /**
+   * Checks out a connection for exclusive use. The caller must check it in when done.
+   *
+   * @return A valid connection
+   * @throws VerdictDBDbmsException If no connection becomes available within the wait timeout, or
+   *     if a new connection cannot be opened.
+   */
+  public JdbcConnection checkout() throws VerdictDBDbmsException {
+    long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+    if (deadline < 0) {
+      deadline = Long.MAX_VALUE; // overflow
+    }
+
+    while (true) {
+      IdleConnection idle = null;
+      boolean shouldOpen = false;
+
+      synchronized (this) {
+        while (true) {
+          if (closed) {
+            throw new VerdictDBDbmsException("The connection pool has been closed.");
+          }
+          evictIdleConnections();
+          if (!idleConnections.isEmpty()) {
+            idle = idleConnections.pop();
+            break;
+          }
+          if (getTotalCount() < maxSize) {
+            pendingCount++;
+            shouldOpen = true;
+            break;
+          }
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            throw new VerdictDBDbmsException(
+                String.format(
+                    "Timed out after %d ms while waiting for one of %d busy connections.",
+                    waitTimeoutMillis, busyConnections.size()));
+          }
+          try {
+            wait(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VerdictDBDbmsException("Interrupted while waiting for a connection.");
+          }
+        }
+      }
+
+      // opening and validating connections take place outside the lock.
+      if (shouldOpen) {
+        JdbcConnection opened = null;
+        try {
+          opened = openConnection();
+        } finally {
+          synchronized (this) {
+            pendingCount--;
+            if (opened != null) {
+              busyConnections.add(opened);
+            } else {
+              notifyAll();
+            }
+          }
+        }
+        return opened;
+      }
+
+      if (!idle.needsValidation() || isValid(idle.connection)) {
+        synchronized (this) {
+          busyConnections.add(idle.connection);
+        }
+        return idle.connection;
+      }
+
+      // the invalid connection is discarded and another one is tried.
+      log.debug("Discards an invalid pooled connection.");
+      idle.connection.close();
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns a connection checked out from this pool.
+   *
+   * @param connection The connection returned by checkout()
+   */
+  public void checkin(JdbcConnection connection) {
+    synchronized (this) {
+      if (!busyConnections.remove(connection)) {
+        log.debug("Ignores a connection that was not checked out from this pool.");
+        return;
+      }
+      if (!closed) {
+        idleConnections.push(new IdleConnection(connection));
+        notifyAll();
+        return;
+      }
+    }
+    connection.close();
+  }
+
+  /**
+   * Sets the default schema of every pooled connection including the ones opened later.
+   *
+   * @param schema The new default schema
+   * @throws VerdictDBDbmsException
+   */
+  public synchronized void setDefaultSchema(String schema) throws VerdictDBDbmsException {
+    defaultSchema = schema;
+    for (JdbcConnection c : getAllConnections()) {
+      c.setDefaultSchema(schema);
+    }
+  }
+
+  /** Aborts the statements running on the checked-out connections. */
+  public void abort() {
+    List<JdbcConnection> busy;
+    synchronized (this) {
+      busy = new ArrayList<>(busyConnections);
+    }
+    for (JdbcConnection c : busy) {
+      c.abort();
+    }
+  }
+
+  /** Closes the idle connections now, and the busy connections when they are checked in. */
+  public void close() {
+    List<IdleConnection> idle;
+    synchronized (this) {
+      closed = true;
+      idle = new ArrayList<>(idleConnections);
+      idleConnections.clear();
+      notifyAll();
+    }
+    for (IdleConnection c : idle) {
+      c.connection.close();
+    }
+  }
+
+  /**
+   * Replaces the idle connections that are no longer valid (e.g., closed by the database due to a
+   * timeout).
+   */
+  public void revalidateIdleConnections() {
+    List<IdleConnection> idle;
+    synchronized (this) {
+      idle = new ArrayList<>(idleConnections);
+      idleConnections.clear();
+    }
+    List<IdleConnection> valid = new ArrayList<>();
+    for (IdleConnection c : idle) {
+      if (isValid(c.connection)) {
+        valid.add(c);
+      } else {
+        c.connection.close();
+        if (url != null) {
+          try {
+            valid.add(new IdleConnection(openConnection()));
+          } catch (VerdictDBDbmsException e) {
+            log.info("Failed to reinitiate connection");
+          }
+        }
+      }
+    }
+    synchronized (this) {
+      idleConnections.addAll(valid);
+      notifyAll();
+    }
+  }
+
+  public synchronized int getTotalCount() {
+    return idleConnections.size() + busyConnections.size() + pendingCount;
+  }
+
+  public synchronized int getBusyCount() {
+    return busyConnections.size();
+  }
+
+  public synchronized int getIdleCount() {
+    return idleConnections.size();
+  }
+
+  public int getMinSize() {
+    return minSize;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** @return Both idle and busy connections. */
+  synchronized List<JdbcConnection> getAllConnections() {
+    List<JdbcConnection> all = new ArrayList<>();
+    for (IdleConnection c : idleConnections) {
+      all.add(c.connection);
+    }
+    all.addAll(busyConnections);
+    return all;
+  }
+
+  /** Closes the connections idle for too long, keeping at least minSize connections. */
+  private void evictIdleConnections() {
+    if (idleTimeoutMillis <= 0 || url == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    // the least recently used connections are at the tail.
+    Iterator<IdleConnection> iter = idleConnections.descendingIterator();
+    while (iter.hasNext() && getTotalCount() > minSize) {
+      IdleConnection c = iter.next();
+      if (now - c.idleSince < idleTimeoutMillis) {
+        break;
+      }
+      iter.remove();
+      log.debug("Closes a connection idle for " + (now - c.idleSince) + " ms.");
+      c.connection.close();
+    }
+  }
+
+  private JdbcConnection openConnection() throws VerdictDBDbmsException {
+    if (url == null) {
+      throw new VerdictDBDbmsException("This pool cannot open new connections.");
+    }
+    try {
+      Connection c;
+      if (info == null) {
+        c = DriverManager.getConnection(url);
+      } else {
+        c = DriverManager.getConnection(url, info);
+      }
+      JdbcConnection jdbcConn = JdbcConnection.create(c);
+      String schema;
+      synchronized (this) {
+        schema = defaultSchema;
+      }
+      if (schema != null) {
+        jdbcConn.setDefaultSchema(schema);
+      }
+      return jdbcConn;
+    } catch (SQLException e) {
+      throw new VerdictDBDbmsException(e);
+    }
+  }
+
+  private boolean isValid(JdbcConnection connection) {
+    try {
+      if (validationQuery == null) {
+        return connection.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+      }
+      Statement stmt = connection.getConnection().createStatement();
+      try {
+        stmt.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+        stmt.execute(validationQuery);
+      } finally {
+        stmt.close();
+      }
+      return true;
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private static class IdleConnection {
+
+    final JdbcConnection connection;
+
+    final long idleSince;
+
+    IdleConnection(JdbcConnection connection) {
+      this.connection = connection;
+      this.idleSince = System.currentTimeMillis();
+    }
+
+    boolean needsValidation() {
+      return System.currentTimeMillis() - idleSince > VALIDATION_INTERVAL_MILLIS;
+    }
+  }
+}
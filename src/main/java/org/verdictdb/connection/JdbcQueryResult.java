@@ -24,7 +24,8 @@ import java.util.List;
 
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
 
-public class JdbcQueryResult extends AttributeValueRetrievalHelper implements DbmsQueryResult {
+public class JdbcQueryResult extends AttributeValueRetrievalHelper
+    implements ImmutableQueryResult {
 
   private static final long serialVersionUID = 2576550992419489091L;
 
@@ -36,13 +37,44 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   //  ResultSet resultSet;
 
-  List<List<Object>> result = new ArrayList<>();
+  // the rows are stored column by column so that numeric values are not boxed.
+  ColumnarResultStore result;
 
   int cursor = -1;
 
   DbmsQueryResultMetaData dbmsQueryResultMetaData = new DbmsQueryResultMetaData();
 
+  // the index of the column (in the store) holding the standard error of each visible column;
+  // -1 if none. null if this result has no standard errors.
+  int[] standardErrorColumns = null;
+
+  int standardErrorBlockCount = 0;
+
+  boolean partialSketchEstimates = false;
+
   public JdbcQueryResult(ResultSet resultSet) throws SQLException {
+    this(resultSet.getMetaData());
+
+    int columnCount = getColumnCount();
+    Object[] row = new Object[columnCount];
+    while (resultSet.next()) {
+      for (int i = 0; i < columnCount; i++) {
+        //        if (resultSet.getMetaData().getColumnType(i+1) == BIT) {
+        //          row.add(resultSet.getString(i+1));
+        //        } else {
+        row[i] = resultSet.getObject(i + 1);
+        //        }
+      }
+      result.addRow(row);
+    }
+  }
+
+  /**
+   * Only reads the column information; the rows are filled by subclasses.
+   *
+   * @param meta The metadata of the ResultSet to be read
+   */
+  protected JdbcQueryResult(ResultSetMetaData meta) throws SQLException {
     List<Boolean> isCurrency = new ArrayList<>();
     List<Integer> isNullable = new ArrayList<>();
     List<Integer> precision = new ArrayList<>();
@@ -51,7 +83,6 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     List<Boolean> isAutoIncrement = new ArrayList<>();
     List<String> columnClassName = new ArrayList<>();
 
-    ResultSetMetaData meta = resultSet.getMetaData();
     int columnCount = meta.getColumnCount();
     for (int i = 0; i < columnCount; i++) {
       columnNames.add(meta.getColumnLabel(i + 1));
@@ -73,18 +104,122 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     dbmsQueryResultMetaData.scale = scale;
     dbmsQueryResultMetaData.columnClassName = columnClassName;
 
-    while (resultSet.next()) {
-      List<Object> row = new ArrayList<>();
-      for (int i = 0; i < columnCount; i++) {
-        //        if (resultSet.getMetaData().getColumnType(i+1) == BIT) {
-        //          row.add(resultSet.getString(i+1));
-        //        } else {
-        Object value = resultSet.getObject(i + 1);
-        row.add(value);
-        //        }
+    result = new ColumnarResultStore(columnCount);
+  }
+
+  /**
+   * Shares every field of the source except for the cursor.
+   *
+   * @param source A result whose rows are no longer appended
+   */
+  protected JdbcQueryResult(JdbcQueryResult source) {
+    this.columnNames = source.columnNames;
+    this.columnTypes = source.columnTypes;
+    this.columnTypeNames = source.columnTypeNames;
+    this.result = source.result;
+    this.dbmsQueryResultMetaData = source.dbmsQueryResultMetaData;
+    this.standardErrorColumns = source.standardErrorColumns;
+    this.standardErrorBlockCount = source.standardErrorBlockCount;
+    this.partialSketchEstimates = source.partialSketchEstimates;
+  }
+
+  /**
+   * Creates a result in which the trailing columns of this result are regarded as the standard
+   * errors of the leading columns. The rows are shared with this result.
+   *
+   * @param columnCount The number of the leading (i.e., visible) columns
+   * @param standardErrorColumns The index of the column holding the standard error of each
+   *     visible column; -1 if the visible column has no standard error.
+   * @param blockCount The number of the blocks from which the standard errors are estimated
+   * @return A result that has only the visible columns
+   */
+  public JdbcQueryResult withStandardErrors(
+      int columnCount, int[] standardErrorColumns, int blockCount) {
+    JdbcQueryResult trimmed = new JdbcQueryResult(this);
+    trimmed.columnNames = firstElements(columnNames, columnCount);
+    trimmed.columnTypes = firstElements(columnTypes, columnCount);
+    trimmed.columnTypeNames = firstElements(columnTypeNames, columnCount);
+
+    DbmsQueryResultMetaData meta = new DbmsQueryResultMetaData();
+    meta.isCurrency = firstElements(dbmsQueryResultMetaData.isCurrency, columnCount);
+    meta.isNullable = firstElements(dbmsQueryResultMetaData.isNullable, columnCount);
+    meta.precision = firstElements(dbmsQueryResultMetaData.precision, columnCount);
+    meta.scale = firstElements(dbmsQueryResultMetaData.scale, columnCount);
+    meta.columnDisplaySize = firstElements(dbmsQueryResultMetaData.columnDisplaySize, columnCount);
+    meta.isAutoIncrement = firstElements(dbmsQueryResultMetaData.isAutoIncrement, columnCount);
+    meta.columnClassName = firstElements(dbmsQueryResultMetaData.columnClassName, columnCount);
+    meta.isAggregate = firstElements(dbmsQueryResultMetaData.isAggregate, columnCount);
+    trimmed.dbmsQueryResultMetaData = meta;
+
+    trimmed.standardErrorColumns = standardErrorColumns.clone();
+    trimmed.standardErrorBlockCount = blockCount;
+    return trimmed;
+  }
+
+  /**
+   * Creates a result whose count-distinct values are marked as estimated from the sketches of only
+   * part of the blocks (see hasPartialSketchEstimates()). The rows are shared with this result.
+   */
+  public JdbcQueryResult withPartialSketchEstimates() {
+    JdbcQueryResult marked = new JdbcQueryResult(this);
+    marked.partialSketchEstimates = true;
+    return marked;
+  }
+
+  /**
+   * @return True if some values are the count-distinct estimates from the sketches of only part of
+   *     the blocks. Those estimates are not scaled up to the entire data; thus, their accuracy is
+   *     unknown until all the blocks are read.
+   */
+  public boolean hasPartialSketchEstimates() {
+    return partialSketchEstimates;
+  }
+
+  private static <T> List<T> firstElements(List<T> list, int count) {
+    return new ArrayList<>(list.subList(0, Math.min(count, list.size())));
+  }
+
+  /** @return True if some columns of this result have standard errors. */
+  public boolean hasStandardErrors() {
+    if (standardErrorColumns == null) {
+      return false;
+    }
+    for (int column : standardErrorColumns) {
+      if (column >= 0) {
+        return true;
       }
-      result.add(row);
     }
+    return false;
+  }
+
+  /**
+   * @return The number of the blocks from which the standard errors are estimated; 0 if this
+   *     result has no standard errors.
+   */
+  public int getStandardErrorBlockCount() {
+    return hasStandardErrors() ? standardErrorBlockCount : 0;
+  }
+
+  /**
+   * @param index zero-based column index
+   * @return The standard error of the value at the current row; null if unknown.
+   */
+  public Double getStandardError(int index) {
+    if (standardErrorColumns == null
+        || index >= standardErrorColumns.length
+        || standardErrorColumns[index] < 0) {
+      return null;
+    }
+    Object value = result.getValue(cursor, standardErrorColumns[index]);
+    if (value == null) {
+      return null;
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  @Override
+  public JdbcQueryResult snapshot() {
+    return new JdbcQueryResult(this);
   }
 
   @Override
@@ -114,7 +249,7 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   @Override
   public boolean next() {
-    if (cursor < result.size() - 1) {
+    if (cursor < result.getRowCount() - 1) {
       cursor++;
       return true;
     } else {
@@ -127,7 +262,7 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
     Object value = null;
     try {
-      value = (Object) result.get(cursor).get(index);
+      value = result.getValue(cursor, index);
       // value = resultSet.getObject(index + 1);
     } catch (Exception e) {
       e.printStackTrace();
@@ -174,8 +309,43 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     cursor = oldCursor;
   }
 
+  @Override
+  public int getInt(int index) {
+    if (isCursorOnStore()
+        && result.getStorageType(index) == ColumnarResultStore.StorageType.LONG) {
+      return (int) result.getLong(cursor, index);
+    }
+    return super.getInt(index);
+  }
+
+  @Override
+  public long getLong(int index) {
+    if (isCursorOnStore() && result.isNumericColumn(index)) {
+      return result.getLong(cursor, index);
+    }
+    return super.getLong(index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    if (isCursorOnStore() && result.isNumericColumn(index)) {
+      return result.getDouble(cursor, index);
+    }
+    return super.getDouble(index);
+  }
+
+  /** @return True if the current row is read from the columnar store (i.e., result). */
+  boolean isCursorOnStore() {
+    return true;
+  }
+
+  /**
+   * @return A read-only, row-oriented view of the result. The rows are not copied, but every value
+   *     read through the view is boxed; thus, the getters of this class should be preferred for
+   *     large results.
+   */
   public List<List<Object>> getResult() {
-    return result;
+    return result.asRows(getColumnCount());
   }
 
   @Override
@@ -185,6 +355,6 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   @Override
   public long getRowCount() {
-    return result.size();
+    return result.getRowCount();
   }
 }
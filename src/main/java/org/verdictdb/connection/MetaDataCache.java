@@ -0,0 +1,306 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A thread-safe cache of the schemas, tables, columns, and partition columns retrieved from a
+ * MetaDataProvider. Used by CachedDbmsConnection and CachedMetaDataProvider.
+ *
+ * <p>Each kind of metadata is kept in its own cache, which
+ *
+ * <ol>
+ *   <li>expires an entry when the time-to-live has passed since the entry was loaded;
+ *   <li>keeps at most a fixed number of entries, evicting the least recently used ones;
+ *   <li>optionally reloads an entry in the background once half of its time-to-live has passed
+ *       (refresh-ahead), while the old value keeps being served.
+ * </ol>
+ *
+ * <p>As before, empty lists are not kept so that the objects created after the first lookup can be
+ * found.
+ */
+public class MetaDataCache {
+
+  private static final String SCHEMA_KEY = "schemas";
+
+  private final MetaDataProvider source;
+
+  private final long ttlSeconds;
+
+  private final long maximumSize;
+
+  private final boolean refreshAhead;
+
+  private ExecutorService refresher = null;
+
+  private final LoadingCache<String, List<String>> schemaCache;
+
+  private final LoadingCache<String, List<String>> tablesCache;
+
+  private final LoadingCache<Pair<String, String>, List<Pair<String, String>>> columnsCache;
+
+  private final LoadingCache<Pair<String, String>, List<String>> partitionCache;
+
+  private static final VerdictDBLogger log = VerdictDBLogger.getLogger(MetaDataCache.class);
+
+  public MetaDataCache(MetaDataProvider source) {
+    this(source, new VerdictOption());
+  }
+
+  public MetaDataCache(MetaDataProvider source, VerdictOption options) {
+    this(
+        source,
+        options.getMetaDataCacheTtlSeconds(),
+        options.getMetaDataCacheSize(),
+        options.getMetaDataCacheRefreshAhead());
+  }
+
+  /**
+   * @param source The provider the metadata is retrieved from on cache misses.
+   * @param ttlSeconds Time-to-live of each entry in seconds. Zero or a negative number means that
+   *     entries do not expire.
+   * @param maximumSize The maximum number of entries kept for each kind of metadata.
+   * @param refreshAhead If true (and ttlSeconds is positive), the entries are reloaded in the
+   *     background after half of their time-to-live.
+   */
+  public MetaDataCache(
+      MetaDataProvider source, long ttlSeconds, long maximumSize, boolean refreshAhead) {
+    this.source = source;
+    this.ttlSeconds = ttlSeconds;
+    this.maximumSize = maximumSize;
+    this.refreshAhead = refreshAhead && ttlSeconds > 0;
+    if (this.refreshAhead) {
+      refresher = Executors.newSingleThreadExecutor(new RefresherThreadFactory());
+    }
+
+    schemaCache =
+        newCache(
+            new Loader<String, List<String>>() {
+              @Override
+              List<String> retrieve(String key) throws VerdictDBDbmsException {
+                return MetaDataCache.this.source.getSchemas();
+              }
+            });
+    tablesCache =
+        newCache(
+            new Loader<String, List<String>>() {
+              @Override
+              List<String> retrieve(String schema) throws VerdictDBDbmsException {
+                return MetaDataCache.this.source.getTables(schema);
+              }
+            });
+    columnsCache =
+        newCache(
+            new Loader<Pair<String, String>, List<Pair<String, String>>>() {
+              @Override
+              List<Pair<String, String>> retrieve(Pair<String, String> key)
+                  throws VerdictDBDbmsException {
+                return MetaDataCache.this.source.getColumns(key.getLeft(), key.getRight());
+              }
+            });
+    partitionCache =
+        newCache(
+            new Loader<Pair<String, String>, List<String>>() {
+              @Override
+              List<String> retrieve(Pair<String, String> key) throws VerdictDBDbmsException {
+                return MetaDataCache.this.source.getPartitionColumns(
+                    key.getLeft(), key.getRight());
+              }
+            });
+  }
+
+  private <K, V> LoadingCache<K, V> newCache(CacheLoader<K, V> loader) {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats();
+    if (ttlSeconds > 0) {
+      builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+      if (refreshAhead) {
+        builder.refreshAfterWrite(Math.max(1, ttlSeconds / 2), TimeUnit.SECONDS);
+      }
+    }
+    return builder.build(loader);
+  }
+
+  public List<String> getSchemas() throws VerdictDBDbmsException {
+    return lookup(schemaCache, SCHEMA_KEY);
+  }
+
+  public List<String> getTables(String schema) throws VerdictDBDbmsException {
+    return lookup(tablesCache, schema);
+  }
+
+  public List<Pair<String, String>> getColumns(String schema, String table)
+      throws VerdictDBDbmsException {
+    return lookup(columnsCache, new ImmutablePair<>(schema, table));
+  }
+
+  public List<String> getPartitionColumns(String schema, String table)
+      throws VerdictDBDbmsException {
+    return lookup(partitionCache, new ImmutablePair<>(schema, table));
+  }
+
+  /** Removes every cached entry. */
+  public void invalidateAll() {
+    schemaCache.invalidateAll();
+    tablesCache.invalidateAll();
+    columnsCache.invalidateAll();
+    partitionCache.invalidateAll();
+  }
+
+  /**
+   * Removes the entries that may change when a schema is created or dropped, or when a table is
+   * created or dropped in the schema.
+   */
+  public void invalidate(String schema) {
+    schemaCache.invalidateAll();
+    tablesCache.invalidate(schema);
+  }
+
+  /**
+   * Removes the entries that may change when the table is created, dropped, or altered.
+   *
+   * @param schema The schema of the table
+   * @param table The table
+   */
+  public void invalidate(String schema, String table) {
+    Pair<String, String> key = new ImmutablePair<>(schema, table);
+    tablesCache.invalidate(schema);
+    columnsCache.invalidate(key);
+    partitionCache.invalidate(key);
+  }
+
+  public long getHitCount() {
+    long count = 0;
+    for (CacheStats stats : allStats()) {
+      count += stats.hitCount();
+    }
+    return count;
+  }
+
+  public long getMissCount() {
+    long count = 0;
+    for (CacheStats stats : allStats()) {
+      count += stats.missCount();
+    }
+    return count;
+  }
+
+  /** @return The number of cached entries of all kinds. */
+  public long size() {
+    return schemaCache.size() + tablesCache.size() + columnsCache.size() + partitionCache.size();
+  }
+
+  /** Stops the background refreshes, if any. The cache itself can still be used. */
+  public void close() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+    }
+  }
+
+  private List<CacheStats> allStats() {
+    List<CacheStats> stats = new ArrayList<>();
+    stats.add(schemaCache.stats());
+    stats.add(tablesCache.stats());
+    stats.add(columnsCache.stats());
+    stats.add(partitionCache.stats());
+    return stats;
+  }
+
+  /** Returns a copy so that callers cannot alter the cached lists. */
+  private <K, E> List<E> lookup(LoadingCache<K, List<E>> cache, K key)
+      throws VerdictDBDbmsException {
+    try {
+      List<E> value = cache.get(key);
+      if (value.isEmpty()) {
+        cache.invalidate(key);
+      }
+      return new ArrayList<>(value);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof VerdictDBDbmsException) {
+        throw (VerdictDBDbmsException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new VerdictDBDbmsException(String.valueOf(cause));
+    }
+  }
+
+  /**
+   * Loads an entry from the source. If refresh-ahead is enabled, reloads run on the refresher
+   * thread; if a reload fails, the old value is kept until it expires.
+   */
+  private abstract class Loader<K, V> extends CacheLoader<K, V> {
+
+    abstract V retrieve(K key) throws VerdictDBDbmsException;
+
+    @Override
+    public V load(K key) throws VerdictDBDbmsException {
+      return retrieve(key);
+    }
+
+    @Override
+    public ListenableFuture<V> reload(final K key, V oldValue) throws Exception {
+      if (refresher == null || refresher.isShutdown()) {
+        return super.reload(key, oldValue);
+      }
+      ListenableFutureTask<V> task =
+          ListenableFutureTask.create(
+              new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                  log.trace("Refreshes cached metadata for {}", key);
+                  return retrieve(key);
+                }
+              });
+      refresher.execute(task);
+      return task;
+    }
+  }
+
+  private static class RefresherThreadFactory implements ThreadFactory {
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "verdictdb-metadata-refresher");
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
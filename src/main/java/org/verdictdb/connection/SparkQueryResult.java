@@ -27,7 +27,8 @@ import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.StructField;
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
 
-public class SparkQueryResult extends AttributeValueRetrievalHelper implements DbmsQueryResult {
+public class SparkQueryResult extends AttributeValueRetrievalHelper
+    implements ImmutableQueryResult {
 
   private static final long serialVersionUID = 668595110560739261L;
 
@@ -37,7 +38,8 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
 
   List<String> columnTypeNames = new ArrayList<>();
 
-  List<Row> result = new ArrayList<>();
+  // the rows are stored column by column so that numeric values are not boxed.
+  ColumnarResultStore result;
 
   DbmsQueryResultMetaData dbmsQueryResultMetaData = new DbmsQueryResultMetaData();
 
@@ -61,7 +63,30 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
     }
     dbmsQueryResultMetaData.isNullable = nullable;
     dbmsQueryResultMetaData.columnClassName = columnClassName;
-    result = dataset.collectAsList();
+
+    int columnCount = columnNames.size();
+    result = new ColumnarResultStore(columnCount);
+    Object[] values = new Object[columnCount];
+    for (Row row : dataset.collectAsList()) {
+      for (int i = 0; i < columnCount; i++) {
+        values[i] = row.get(i);
+      }
+      result.addRow(values);
+    }
+  }
+
+  /** Shares every field of the source except for the cursor. */
+  private SparkQueryResult(SparkQueryResult source) {
+    this.columnNames = source.columnNames;
+    this.columnTypes = source.columnTypes;
+    this.columnTypeNames = source.columnTypeNames;
+    this.result = source.result;
+    this.dbmsQueryResultMetaData = source.dbmsQueryResultMetaData;
+  }
+
+  @Override
+  public SparkQueryResult snapshot() {
+    return new SparkQueryResult(this);
   }
 
   @Override
@@ -91,7 +116,7 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
 
   @Override
   public boolean next() {
-    if (cursor < result.size() - 1) {
+    if (cursor < result.getRowCount() - 1) {
       cursor++;
       return true;
     } else {
@@ -103,7 +128,7 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
   public Object getValue(int index) {
     Object value = null;
     try {
-      value = (Object) result.get(cursor).get(index);
+      value = result.getValue(cursor, index);
       // value = resultSet.getObject(index + 1);
     } catch (Exception e) {
       e.printStackTrace();
@@ -111,6 +136,22 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
     return value;
   }
 
+  @Override
+  public long getLong(int index) {
+    if (result.isNumericColumn(index)) {
+      return result.getLong(cursor, index);
+    }
+    return super.getLong(index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    if (result.isNumericColumn(index)) {
+      return result.getDouble(cursor, index);
+    }
+    return super.getDouble(index);
+  }
+
   @Override
   public void printContent() {
     StringBuilder row;
@@ -151,6 +192,6 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
 
   @Override
   public long getRowCount() {
-    return result.size();
+    return result.getRowCount();
   }
 }
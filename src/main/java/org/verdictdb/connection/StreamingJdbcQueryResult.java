@@ -0,0 +1,264 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.verdictdb.commons.VerdictDBLogger;
+
+/**
+ * A forward-only query result that reads rows from an open JDBC ResultSet as next() is called, so
+ * that only the current row is kept on the heap.
+ *
+ * <p>The rows are copied into memory (i.e., materialized) only when a caller needs them all; that
+ * is, when getRowCount(), getResult(), or rewind() is called, or when this object is serialized.
+ * A materialization that takes place after some rows have already been consumed only keeps the
+ * remaining rows; thus, rewind() fails in that case.
+ *
+ * <p>The underlying statement is closed when the last row is read, when the rows are materialized,
+ * or when close() or cancel() is called.
+ */
+public class StreamingJdbcQueryResult extends JdbcQueryResult {
+
+  private static final long serialVersionUID = -2402327563014497581L;
+
+  private transient volatile Statement statement;
+
+  private transient ResultSet resultSet;
+
+  // the values of the current row while streaming; reused for every row.
+  private Object[] currentRow;
+
+  private boolean isOnRow = false;
+
+  private long streamedRowCount = 0;
+
+  // the number of rows that have been consumed and are not kept in memory.
+  private long discardedRowCount = 0;
+
+  // invoked once when the underlying statement is released; null once deserialized
+  private transient List<Runnable> closeListeners = new ArrayList<>();
+
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(StreamingJdbcQueryResult.class);
+
+  /**
+   * @param statement The statement that produced resultSet. It is closed together with resultSet.
+   * @param resultSet An open result set positioned before its first row
+   * @throws SQLException
+   */
+  public StreamingJdbcQueryResult(Statement statement, ResultSet resultSet) throws SQLException {
+    super(resultSet.getMetaData());
+    this.statement = statement;
+    this.resultSet = resultSet;
+    this.currentRow = new Object[getColumnCount()];
+  }
+
+  /**
+   * Adds a callback invoked once the underlying statement is released, e.g., to return the
+   * connection that produced this result to its pool. The callback runs immediately if the
+   * statement has already been released.
+   */
+  public void addCloseListener(Runnable closeListener) {
+    synchronized (this) {
+      if (!isMaterialized() && closeListeners != null) {
+        closeListeners.add(closeListener);
+        return;
+      }
+    }
+    closeListener.run();
+  }
+
+  /** @return True if the rows are read from memory, not from the underlying ResultSet. */
+  public boolean isMaterialized() {
+    return resultSet == null;
+  }
+
+  @Override
+  public boolean next() {
+    if (isMaterialized()) {
+      return super.next();
+    }
+
+    try {
+      if (resultSet.next()) {
+        readCurrentRow();
+        isOnRow = true;
+        streamedRowCount++;
+        return true;
+      }
+    } catch (SQLException e) {
+      close();
+      throw new RuntimeException(e);
+    }
+
+    // every row has been consumed
+    isOnRow = false;
+    discardedRowCount = streamedRowCount;
+    close();
+    return false;
+  }
+
+  @Override
+  public Object getValue(int index) {
+    if (isMaterialized()) {
+      return super.getValue(index);
+    }
+    return isOnRow ? currentRow[index] : null;
+  }
+
+  @Override
+  boolean isCursorOnStore() {
+    return isMaterialized();
+  }
+
+  /**
+   * Rewinding a result that has not been read yet is a no-op. Otherwise, no row but the current one
+   * may have been consumed before the rows were materialized; the current row is kept by the
+   * materialization.
+   */
+  @Override
+  public void rewind() {
+    if (!isMaterialized() && streamedRowCount == 0) {
+      return;
+    }
+    materialize();
+    if (discardedRowCount > 0) {
+      throw new IllegalStateException(
+          String.format(
+              "This result is forward-only, and %d rows have already been consumed.",
+              discardedRowCount));
+    }
+    super.rewind();
+  }
+
+  /** Reads every remaining row into memory. The cursor position does not change. */
+  @Override
+  public long getRowCount() {
+    materialize();
+    return discardedRowCount + result.getRowCount();
+  }
+
+  @Override
+  public List<List<Object>> getResult() {
+    materialize();
+    return super.getResult();
+  }
+
+  /**
+   * Copies the remaining rows (including the current row) into memory and releases the underlying
+   * ResultSet. Successive calls are no-ops.
+   */
+  public void materialize() {
+    try {
+      synchronized (this) {
+        if (isMaterialized()) {
+          return;
+        }
+
+        if (isOnRow) {
+          result.addRow(currentRow);
+          cursor = 0;
+          discardedRowCount = streamedRowCount - 1;
+        } else {
+          cursor = -1;
+          discardedRowCount = streamedRowCount;
+        }
+        isOnRow = false;
+
+        while (resultSet.next()) {
+          readCurrentRow();
+          result.addRow(currentRow);
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Materializes the remaining rows and shares them. The rows that have already been consumed are
+   * not included in the snapshot.
+   */
+  @Override
+  public JdbcQueryResult snapshot() {
+    materialize();
+    return super.snapshot();
+  }
+
+  /** Releases the underlying ResultSet and Statement without reading the remaining rows. */
+  public void close() {
+    List<Runnable> listeners;
+    synchronized (this) {
+      try {
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        if (statement != null) {
+          statement.close();
+        }
+      } catch (SQLException e) {
+        log.debug("Closing a streaming result failed: {}", e.getMessage());
+      }
+      resultSet = null;
+      statement = null;
+      listeners = closeListeners;
+      closeListeners = new ArrayList<>();
+    }
+    // run without holding the lock since the listeners may lock the connection of this result
+    if (listeners != null) {
+      for (Runnable listener : listeners) {
+        listener.run();
+      }
+    }
+  }
+
+  /**
+   * Cancels the statement that may still be fetching rows and releases it. Unlike close(), this
+   * method may be called while another thread is reading this result; the reading thread then
+   * fails with a RuntimeException.
+   */
+  public void cancel() {
+    Statement stmt = statement;
+    if (stmt != null) {
+      try {
+        stmt.cancel();
+      } catch (SQLException e) {
+        log.debug("Cancelling a streaming result failed: {}", e.getMessage());
+      }
+    }
+    close();
+  }
+
+  private void readCurrentRow() throws SQLException {
+    for (int i = 0; i < currentRow.length; i++) {
+      currentRow[i] = resultSet.getObject(i + 1);
+    }
+  }
+
+  /** The rows are materialized since an open ResultSet cannot be serialized. */
+  private Object writeReplace() {
+    materialize();
+    return this;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb.coordinator;
+
+import org.verdictdb.VerdictSingleResult;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.core.execplan.ExecutionBudget;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+/**
+ * Decides which of the progressive answers of a select query is returned by sql(). By default, the
+ * answers are checked with the differences between the consecutive answers. If a target relative
+ * error is set (see VerdictOption.setTargetRelativeError()), the answers with standard errors are
+ * checked with their error bounds instead; the differences are still checked if some aggregate
+ * columns (e.g., max/min) have no standard errors. The answers with count-distinct estimates from
+ * the sketches of only part of the blocks are never accurate enough, since the estimates are not
+ * extrapolated to the entire data; such a query returns its answer from all the blocks (or the
+ * blocks read within its time limit).
+ *
+ * <p>The answers are passed one by one in the order they are produced; thus, the same logic is
+ * used whether the answers are pulled from a stream or pushed by the threads running the plan.
+ */
+class AnswerConvergenceChecker {
+
+  private final QueryResultAccuracyEstimatorFromDifference accEst;
+
+  private final QueryResultAccuracyEstimatorFromErrorBound boundEst;
+
+  private final ExecutionBudget budget;
+
+  private final boolean usesErrorBounds;
+
+  private final VerdictDBLogger log = VerdictDBLogger.getLogger(getClass());
+
+  /**
+   * @param selectQuery The standardized query; used for identifying the aggregate columns
+   * @param options
+   * @param budget The budget to which the relative errors of the answers are reported; null if
+   *     none.
+   */
+  AnswerConvergenceChecker(
+      SelectQuery selectQuery, VerdictOption options, ExecutionBudget budget) {
+    this.budget = budget;
+    double confidenceLevel =
+        (options == null) ? VerdictOption.getDefaultConfidenceLevel() : options.getConfidenceLevel();
+    accEst = new QueryResultAccuracyEstimatorFromDifference(selectQuery);
+    boundEst = new QueryResultAccuracyEstimatorFromErrorBound(selectQuery, confidenceLevel);
+    // only the last answer is returned; the earlier answers are not kept.
+    accEst.setRetainsAllAnswers(false);
+    boundEst.setRetainsAllAnswers(false);
+    usesErrorBounds = budget != null && budget.hasTargetRelativeError();
+    if (usesErrorBounds) {
+      accEst.setValueError(budget.getTargetRelativeError());
+      boundEst.setRelativeErrorBound(budget.getTargetRelativeError());
+    }
+  }
+
+  /**
+   * @param rs The next answer
+   * @return True if the answer is accurate enough or the time limit has passed; that is, the
+   *     answer should be returned without waiting for more answers.
+   */
+  boolean isFinalAnswer(VerdictSingleResult rs) {
+    accEst.add(rs);
+    boundEst.add(rs);
+    boolean isAccurate;
+    double relativeError;
+    if (rs.hasPartialSketchEstimates()) {
+      isAccurate = false;
+      relativeError = Double.POSITIVE_INFINITY;
+    } else if (usesErrorBounds && rs.hasStandardErrors() && rs.getRowCount() > 0) {
+      isAccurate = boundEst.isLastResultAccurate();
+      relativeError = boundEst.getLastRelativeError();
+      if (boundEst.hasUncoveredAggregates()) {
+        isAccurate &= accEst.isLastResultAccurate();
+        relativeError = Math.max(relativeError, accEst.getLastRelativeDifference());
+      }
+    } else {
+      isAccurate = accEst.isLastResultAccurate();
+      relativeError = accEst.getLastRelativeDifference();
+    }
+    if (budget != null) {
+      // the blocks not launched yet are launched only if they are still needed; the target is
+      // marked first since reporting the answer may launch the deferred blocks.
+      if (isAccurate) {
+        budget.markTargetReached();
+      }
+      budget.reportAnswer(accEst.getAnswerCount(), relativeError);
+      if (budget.isTimeLimitPassed() && !rs.hasPartialSketchEstimates()) {
+        log.debug("The time limit has passed. The latest answer is returned.");
+        return true;
+      }
+    }
+    return isAccurate;
+  }
+
+  /** @return The answer passed most recently; null if none. */
+  VerdictSingleResult getLastAnswer() {
+    return accEst.getLastAnswer();
+  }
+}
@@ -0,0 +1,578 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScramblingMethod;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.CreateScrambleQuery;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.metastore.ScrambleMetaStore;
+import org.verdictdb.sqlsyntax.SqlSyntax;
+
+/**
+ * Creates the scrambles of many tables concurrently (i.e., CREATE SCRAMBLES). At most
+ * 'parallelism' scrambling queries are issued at the same time.
+ *
+ * <p>A table partitioned in the database is scrambled partition by partition. The scramble is first
+ * created from its largest partition; then, the other partitions are appended to it by parallel
+ * INSERTs (see ScramblingCoordinator.appendScramble()). Thus, the block count of such a scramble is
+ * determined by its largest partition.
+ *
+ * <p>A partition is a distinct combination of the values of all the partition columns. The metadata
+ * of a scramble is stored as soon as the scramble is created, and each partition is logged in the
+ * metastore once it has been appended (see ScrambleMetaStore.addCompletedPartition()). If some
+ * tables or partitions fail, running the same statement again resumes the work: the scrambles that
+ * already exist are not created again, and only the partitions not logged are appended. A
+ * partition that is not logged but has rows in the scramble (e.g., an INSERT failed halfway on a
+ * non-transactional database) is reported as a failure instead of being appended again.
+ */
+public class BulkScramblingCoordinator {
+
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(BulkScramblingCoordinator.class);
+
+  private static final String PARTITION_VALUE_ALIAS = "verdictdbpartition";
+
+  private static final String PARTITION_COUNT_ALIAS = "verdictdbcount";
+
+  private DbmsConnection conn;
+
+  private String scratchpadSchema;
+
+  private ScrambleMetaStore metaStore;
+
+  private int parallelism;
+
+  private double statisticsSamplingRatio = VerdictOption.getDefaultStatisticsSamplingRatio();
+
+  /**
+   * @param conn The connection on which the scrambles are created
+   * @param scratchpadSchema The schema for the temporary tables of scrambling methods
+   * @param metaStore The store to which the metadata of the new scrambles is added
+   * @param parallelism The maximum number of the scrambling queries issued concurrently
+   */
+  public BulkScramblingCoordinator(
+      DbmsConnection conn, String scratchpadSchema, ScrambleMetaStore metaStore, int parallelism) {
+    this.conn = conn;
+    this.scratchpadSchema = scratchpadSchema;
+    this.metaStore = metaStore;
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  public static BulkScramblingCoordinator fromOption(DbmsConnection conn, VerdictOption options) {
+    BulkScramblingCoordinator coordinator =
+        new BulkScramblingCoordinator(
+            conn,
+            options.getVerdictTempSchemaName(),
+            new ScrambleMetaStore(conn, options),
+            options.getScrambleParallelism());
+    coordinator.setStatisticsSamplingRatio(options.getStatisticsSamplingRatio());
+    return coordinator;
+  }
+
+  /** @see ScramblingCoordinator#setStatisticsSamplingRatio(double) */
+  public void setStatisticsSamplingRatio(double statisticsSamplingRatio) {
+    this.statisticsSamplingRatio = statisticsSamplingRatio;
+  }
+
+  /**
+   * Creates (or completes) the scrambles. The failure of a table does not stop the others.
+   *
+   * @param queries The scrambles to create. The existing partition columns must have been set.
+   * @return The metadata of the scrambles completed without errors
+   * @throws VerdictDBException if any table or partition failed. Running this method again with the
+   *     same queries resumes the work.
+   */
+  public List<ScrambleMeta> scramble(List<CreateScrambleQuery> queries)
+      throws VerdictDBException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(parallelism, new ScramblerThreadFactory());
+    final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+    try {
+      // 1. creates the scrambles (from the largest partitions for partitioned tables)
+      List<Future<ScrambleProgress>> creations = new ArrayList<>();
+      for (final CreateScrambleQuery query : queries) {
+        creations.add(
+            executor.submit(
+                new Callable<ScrambleProgress>() {
+                  @Override
+                  public ScrambleProgress call() throws VerdictDBException {
+                    return createScramble(query);
+                  }
+                }));
+      }
+
+      List<ScrambleProgress> progresses = new ArrayList<>();
+      int partitionCount = 0;
+      for (int i = 0; i < queries.size(); i++) {
+        CreateScrambleQuery query = queries.get(i);
+        try {
+          ScrambleProgress progress = creations.get(i).get();
+          progresses.add(progress);
+          partitionCount += progress.remainingPartitions.size();
+        } catch (ExecutionException e) {
+          failures.add(describeFailure(query, null, e.getCause()));
+        }
+      }
+
+      // 2. appends the remaining partitions
+      final int totalPartitionCount = partitionCount;
+      final AtomicInteger appendedPartitionCount = new AtomicInteger(0);
+      List<Future<?>> appends = new ArrayList<>();
+      for (final ScrambleProgress progress : progresses) {
+        for (List<Object> partition : progress.partialPartitions) {
+          progress.failed = true;
+          failures.add(
+              describeFailure(
+                  progress.query,
+                  describePartition(progress.partitionColumns, partition),
+                  new VerdictDBValueException(
+                      "The partition may have been appended partially. Drop the scramble and "
+                          + "run the statement again.")));
+        }
+        for (final List<Object> partition : progress.remainingPartitions) {
+          appends.add(
+              executor.submit(
+                  new Callable<Void>() {
+                    @Override
+                    public Void call() throws VerdictDBException {
+                      try {
+                        appendPartition(progress, partition);
+                      } catch (VerdictDBException | RuntimeException e) {
+                        progress.failed = true;
+                        failures.add(
+                            describeFailure(
+                                progress.query,
+                                describePartition(progress.partitionColumns, partition),
+                                e));
+                        return null;
+                      }
+                      log.info(
+                          String.format(
+                              "Appended %s to %s.%s (%d/%d partitions)",
+                              describePartition(progress.partitionColumns, partition),
+                              progress.query.getNewSchema(),
+                              progress.query.getNewTable(),
+                              appendedPartitionCount.incrementAndGet(),
+                              totalPartitionCount));
+                      return null;
+                    }
+                  }));
+        }
+      }
+      for (Future<?> append : appends) {
+        append.get();
+      }
+
+      List<ScrambleMeta> metas = new ArrayList<>();
+      for (ScrambleProgress progress : progresses) {
+        if (!progress.failed) {
+          metas.add(progress.meta);
+        }
+      }
+
+      if (!failures.isEmpty()) {
+        for (String failure : failures) {
+          log.error(failure);
+        }
+        throw new VerdictDBException(
+            String.format(
+                "Failed to scramble %d tables or partitions (completed scrambles: %d of %d). "
+                    + "Running the same statement again resumes from the completed partitions. "
+                    + "The first failure: %s",
+                failures.size(), metas.size(), queries.size(), failures.get(0)));
+      }
+      return metas;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VerdictDBException("Interrupted while creating scrambles.");
+    } catch (ExecutionException e) {
+      // appendPartition() never throws; thus, this is unexpected.
+      throw new VerdictDBException(e.getCause().toString());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Creates a scramble, or finds the partitions not yet appended to an existing scramble.
+   *
+   * @param query The scramble to create
+   * @return The partitions yet to be appended to the scramble
+   * @throws VerdictDBException
+   */
+  ScrambleProgress createScramble(CreateScrambleQuery query) throws VerdictDBException {
+    String newSchema = query.getNewSchema();
+    String newTable = query.getNewTable();
+    ScrambleMeta existingMeta = metaStore.retrieveExistingScramble(newSchema, newTable);
+    boolean exists =
+        existingMeta != null
+            && conn.getSchemas().contains(newSchema)
+            && conn.getTables(newSchema).contains(newTable);
+    List<String> partitionColumns = getPartitionColumns(query);
+    List<List<Object>> noPartitions = new ArrayList<>();
+
+    // the tables not partitioned are scrambled at once.
+    if (partitionColumns == null) {
+      if (exists) {
+        log.info(String.format("Skips the existing scramble %s.%s", newSchema, newTable));
+        return new ScrambleProgress(query, existingMeta, null, null, noPartitions, noPartitions);
+      }
+      ScrambleMeta meta = createScramblingCoordinator(query).scramble(query);
+      metaStore.addToStore(meta);
+      return new ScrambleProgress(query, meta, null, null, noPartitions, noPartitions);
+    }
+
+    List<List<Object>> partitions =
+        getPartitionsByRowCount(
+            query.getOriginalSchema(), query.getOriginalTable(), partitionColumns);
+    ScrambleMeta meta;
+    String creation = null;
+    List<List<Object>> partialPartitions = new ArrayList<>();
+    if (exists) {
+      Set<String> scrambledPartitions = new HashSet<>();
+      for (List<Object> partition : getPartitionsByRowCount(newSchema, newTable, partitionColumns)) {
+        scrambledPartitions.add(partitionKey(partitionColumns, partition));
+      }
+      Pair<String, Set<String>> completedPartitions =
+          metaStore.retrieveCompletedPartitions(newSchema, newTable);
+      Set<String> completed;
+      if (completedPartitions == null) {
+        // created by an older version, which did not log the partitions; the partitions found in
+        // the scramble are regarded as completed from now on.
+        log.info(
+            String.format(
+                "No partition log is found for %s.%s; the partitions with rows are regarded as "
+                    + "completed.",
+                newSchema, newTable));
+        creation = metaStore.addScrambleCreation(newSchema, newTable);
+        for (String partitionKey : scrambledPartitions) {
+          metaStore.addCompletedPartition(newSchema, newTable, creation, partitionKey);
+        }
+        completed = scrambledPartitions;
+      } else {
+        creation = completedPartitions.getLeft();
+        completed = completedPartitions.getRight();
+      }
+
+      List<List<Object>> missingPartitions = new ArrayList<>();
+      for (List<Object> partition : partitions) {
+        String partitionKey = partitionKey(partitionColumns, partition);
+        if (completed.contains(partitionKey)) {
+          continue;
+        }
+        if (scrambledPartitions.contains(partitionKey)) {
+          partialPartitions.add(partition);
+        } else {
+          missingPartitions.add(partition);
+        }
+      }
+      log.info(
+          String.format(
+              "Resumes the existing scramble %s.%s: %d of %d partitions are missing, and %d "
+                  + "partitions may have been appended partially.",
+              newSchema,
+              newTable,
+              missingPartitions.size(),
+              partitions.size(),
+              partialPartitions.size()));
+      meta = existingMeta;
+      partitions = missingPartitions;
+
+    } else if (partitions.isEmpty()) {
+      meta = createScramblingCoordinator(query).scramble(query);
+      metaStore.addToStore(meta);
+
+    } else {
+      List<Object> largestPartition = partitions.remove(0);
+      log.info(
+          String.format(
+              "Creates %s.%s from the partition %s; %d more partitions will be appended.",
+              newSchema,
+              newTable,
+              describePartition(partitionColumns, largestPartition),
+              partitions.size()));
+      CreateScrambleQuery partitionQuery =
+          copyWithWhere(
+              query, partitionFilter(partitionColumns, largestPartition, conn.getSyntax()));
+      meta = createScramblingCoordinator(partitionQuery).scramble(partitionQuery);
+      metaStore.addToStore(meta);
+      creation = metaStore.addScrambleCreation(newSchema, newTable);
+      metaStore.addCompletedPartition(
+          newSchema, newTable, creation, partitionKey(partitionColumns, largestPartition));
+    }
+    return new ScrambleProgress(
+        query, meta, partitionColumns, creation, partitions, partialPartitions);
+  }
+
+  private void appendPartition(ScrambleProgress progress, List<Object> partition)
+      throws VerdictDBException {
+    ScramblingMethod method = progress.meta.getScramblingMethod();
+    if (method == null) {
+      throw new VerdictDBValueException(
+          String.format(
+              "The scrambling method of %s.%s is unknown.",
+              progress.meta.getSchemaName(), progress.meta.getTableName()));
+    }
+    CreateScrambleQuery appendQuery =
+        copyWithWhere(
+            progress.query,
+            partitionFilter(progress.partitionColumns, partition, conn.getSyntax()));
+    appendQuery.setMethod(progress.meta.getMethod());
+    appendQuery.setHashColumnName(progress.meta.getHashColumn());
+    appendQuery.setScramblingMethod(method);
+    createScramblingCoordinator(appendQuery).appendScramble(appendQuery);
+
+    // logged even if no row has been sampled, so that the partition is not appended again.
+    metaStore.addCompletedPartition(
+        progress.query.getNewSchema(),
+        progress.query.getNewTable(),
+        progress.creation,
+        partitionKey(progress.partitionColumns, partition));
+  }
+
+  private ScramblingCoordinator createScramblingCoordinator(CreateScrambleQuery query) {
+    ScramblingCoordinator coordinator =
+        new ScramblingCoordinator(
+            conn,
+            query.getNewSchema(),
+            scratchpadSchema,
+            query.getBlockSize(),
+            query.getExistingPartitionColumns());
+    coordinator.setStatisticsSamplingRatio(statisticsSamplingRatio);
+    return coordinator;
+  }
+
+  /**
+   * @return The partition columns by which the table is scrambled partition by partition; null if
+   *     the table is not partitioned or if only some rows are scrambled.
+   */
+  static List<String> getPartitionColumns(CreateScrambleQuery query) {
+    List<String> partitionColumns = query.getExistingPartitionColumns();
+    if (query.getWhere() != null || partitionColumns == null || partitionColumns.isEmpty()) {
+      return null;
+    }
+    return partitionColumns;
+  }
+
+  /**
+   * @return The distinct combinations of the values of the columns, in the decreasing order of
+   *     their row counts.
+   */
+  private List<List<Object>> getPartitionsByRowCount(
+      String schema, String table, List<String> columns) throws VerdictDBException {
+    List<SelectItem> selectList = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      selectList.add(new AliasedColumn(new BaseColumn(columns.get(i)), PARTITION_VALUE_ALIAS + i));
+    }
+    selectList.add(new AliasedColumn(ColumnOp.count(), PARTITION_COUNT_ALIAS));
+    SelectQuery query = SelectQuery.create(selectList, new BaseTable(schema, table));
+    for (String column : columns) {
+      query.addGroupby(new BaseColumn(column));
+    }
+    DbmsQueryResult result = conn.execute(query);
+
+    List<Pair<List<Object>, Long>> partitions = new ArrayList<>();
+    while (result.next()) {
+      List<Object> values = new ArrayList<>();
+      for (int i = 0; i < columns.size(); i++) {
+        values.add(result.getValue(i));
+      }
+      partitions.add(Pair.of(values, result.getLong(columns.size())));
+    }
+    Collections.sort(
+        partitions,
+        new Comparator<Pair<List<Object>, Long>>() {
+          @Override
+          public int compare(Pair<List<Object>, Long> p1, Pair<List<Object>, Long> p2) {
+            return Long.compare(p2.getRight(), p1.getRight());
+          }
+        });
+
+    List<List<Object>> values = new ArrayList<>();
+    for (Pair<List<Object>, Long> p : partitions) {
+      values.add(p.getLeft());
+    }
+    return values;
+  }
+
+  /**
+   * @return The predicate that selects the partition, i.e., the conjunction of the equalities (or
+   *     the null checks) on all the partition columns.
+   * @throws VerdictDBValueException If a value cannot be written as a literal of the dialect
+   */
+  static UnnamedColumn partitionFilter(
+      List<String> columns, List<Object> values, SqlSyntax syntax)
+      throws VerdictDBValueException {
+    UnnamedColumn filter = null;
+    for (int i = 0; i < columns.size(); i++) {
+      UnnamedColumn predicate = partitionFilter(columns.get(i), values.get(i), syntax);
+      filter = (filter == null) ? predicate : ColumnOp.and(filter, predicate);
+    }
+    return filter;
+  }
+
+  static UnnamedColumn partitionFilter(String column, Object value, SqlSyntax syntax)
+      throws VerdictDBValueException {
+    if (value == null) {
+      return ColumnOp.rightisnull(new BaseColumn(column));
+    }
+    ConstantColumn constant;
+    if (value instanceof Number) {
+      constant = ConstantColumn.valueOf(value.toString());
+    } else {
+      constant = ConstantColumn.valueOf(syntax.quoteStringLiteral(value.toString()));
+    }
+    return ColumnOp.equal(new BaseColumn(column), constant);
+  }
+
+  /**
+   * @return The key with which the partition is logged in the metastore, e.g., year=2018/region=CA.
+   *     The names and the values are URL-encoded; a null value is written without '='.
+   */
+  static String partitionKey(List<String> columns, List<Object> values) {
+    StringBuilder key = new StringBuilder();
+    try {
+      for (int i = 0; i < columns.size(); i++) {
+        if (i > 0) {
+          key.append("/");
+        }
+        key.append(URLEncoder.encode(columns.get(i), "UTF-8"));
+        if (values.get(i) != null) {
+          key.append("=").append(URLEncoder.encode(String.valueOf(values.get(i)), "UTF-8"));
+        }
+      }
+    } catch (UnsupportedEncodingException e) {
+      // UTF-8 is always supported
+      throw new RuntimeException(e);
+    }
+    return key.toString();
+  }
+
+  private static String describePartition(List<String> columns, List<Object> values) {
+    List<String> equalities = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      equalities.add(columns.get(i) + " = " + values.get(i));
+    }
+    return StringUtils.join(equalities, ", ");
+  }
+
+  private static CreateScrambleQuery copyWithWhere(CreateScrambleQuery query, UnnamedColumn where) {
+    CreateScrambleQuery copied =
+        new CreateScrambleQuery(
+            query.getNewSchema(),
+            query.getNewTable(),
+            query.getOriginalSchema(),
+            query.getOriginalTable(),
+            query.getMethod(),
+            query.getSize(),
+            query.getBlockSize(),
+            query.getHashColumnName(),
+            where);
+    copied.setExistingPartitionColumns(query.getExistingPartitionColumns());
+    return copied;
+  }
+
+  private static String describeFailure(
+      CreateScrambleQuery query, String partition, Throwable cause) {
+    String target = query.getNewSchema() + "." + query.getNewTable();
+    if (partition != null) {
+      target += String.format(" (partition %s)", partition);
+    }
+    return String.format("Failed to scramble %s: %s", target, cause);
+  }
+
+  /** The state of a scramble between its creation and the appends of its other partitions. */
+  static class ScrambleProgress {
+
+    final CreateScrambleQuery query;
+
+    final ScrambleMeta meta;
+
+    final List<String> partitionColumns;
+
+    // identifies the creation of the scramble in the partition log of the metastore
+    final String creation;
+
+    final List<List<Object>> remainingPartitions;
+
+    // the partitions that have rows in the scramble but have not been logged as completed
+    final List<List<Object>> partialPartitions;
+
+    volatile boolean failed = false;
+
+    ScrambleProgress(
+        CreateScrambleQuery query,
+        ScrambleMeta meta,
+        List<String> partitionColumns,
+        String creation,
+        List<List<Object>> remainingPartitions,
+        List<List<Object>> partialPartitions) {
+      this.query = query;
+      this.meta = meta;
+      this.partitionColumns = partitionColumns;
+      this.creation = creation;
+      this.remainingPartitions = remainingPartitions;
+      this.partialPartitions = partialPartitions;
+    }
+  }
+
+  private static class ScramblerThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "verdictdb-scrambler-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
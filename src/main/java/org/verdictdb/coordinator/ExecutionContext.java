@@ -18,6 +18,8 @@ package org.verdictdb.coordinator;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.MDC;
+import org.verdictdb.VerdictResultPublisher;
 import org.verdictdb.VerdictResultStream;
 import org.verdictdb.VerdictSingleResult;
 import org.verdictdb.commons.DataTypeConverter;
@@ -25,18 +27,25 @@ import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.commons.VerdictOption;
 import org.verdictdb.connection.CachedDbmsConnection;
 import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.MetaDataProvider;
 import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.execplan.ExecutionBudget;
+import org.verdictdb.core.execplan.NodeExecutionService;
+import org.verdictdb.core.resulthandler.ExecutionResultListener;
 import org.verdictdb.core.resulthandler.ExecutionResultReader;
 import org.verdictdb.core.scrambling.FastConvergeScramblingMethod;
 import org.verdictdb.core.scrambling.HashScramblingMethod;
 import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
 import org.verdictdb.core.scrambling.ScramblingMethod;
+import org.verdictdb.core.scrambling.ScramblingMethodBase;
 import org.verdictdb.core.scrambling.UniformScramblingMethod;
 import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.BaseColumn;
 import org.verdictdb.core.sqlobject.BaseTable;
 import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
 import org.verdictdb.core.sqlobject.CreateScrambleQuery;
 import org.verdictdb.core.sqlobject.JoinTable;
 import org.verdictdb.core.sqlobject.SelectQuery;
@@ -57,10 +66,17 @@ import org.verdictdb.sqlreader.RelationGen;
 import org.verdictdb.sqlreader.RelationStandardizer;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.verdictdb.coordinator.VerdictSingleResultFromListData.createWithSingleColumn;
 
@@ -71,6 +87,15 @@ import static org.verdictdb.coordinator.VerdictSingleResultFromListData.createWi
  */
 public class ExecutionContext {
 
+  // runs the listeners of the futures on the threads completing the futures.
+  private static final Executor SAME_THREAD_EXECUTOR =
+      new Executor() {
+        @Override
+        public void execute(Runnable command) {
+          command.run();
+        }
+      };
+
   private DbmsConnection conn;
 
   private VerdictMetaStore metaStore;
@@ -81,13 +106,25 @@ public class ExecutionContext {
 
   private final long serialNumber;
 
+  // numbers the queries issued through this context; part of the query ids in the logs
+  private final AtomicLong querySequence = new AtomicLong(0);
+
   private final VerdictDBLogger log = VerdictDBLogger.getLogger(getClass());
 
   private VerdictOption options;
 
+  private NodeExecutionService executionService;
+
+  // shared within the VerdictContext; null if the queries are not cached.
+  private QueryCache queryCache;
+
+  // shared within the VerdictContext; null if the temp tables are dropped on the calling thread.
+  private ScratchpadManager scratchpadManager;
+
   public enum QueryType {
     select,
     scrambling,
+    bulk_scrambling,
     insert_scramble,
     drop_scramble,
     drop_all_scrambles,
@@ -111,17 +148,107 @@ public class ExecutionContext {
       String contextId,
       long serialNumber,
       VerdictOption options) {
+    this(conn, metaStore, contextId, serialNumber, options, NodeExecutionService.getDefault());
+  }
+
+  /**
+   * @param conn DbmsConnection
+   * @param contextId parent's context id
+   * @param serialNumber serial number of this ExecutionContext
+   * @param options
+   * @param executionService the threads on which the nodes of execution plans run
+   */
+  public ExecutionContext(
+      DbmsConnection conn,
+      VerdictMetaStore metaStore,
+      String contextId,
+      long serialNumber,
+      VerdictOption options,
+      NodeExecutionService executionService) {
+    this(conn, metaStore, contextId, serialNumber, options, executionService, null);
+  }
+
+  /**
+   * @param conn DbmsConnection
+   * @param contextId parent's context id
+   * @param serialNumber serial number of this ExecutionContext
+   * @param options
+   * @param executionService the threads on which the nodes of execution plans run
+   * @param queryCache the cache of standardized select queries; null to disable caching
+   */
+  public ExecutionContext(
+      DbmsConnection conn,
+      VerdictMetaStore metaStore,
+      String contextId,
+      long serialNumber,
+      VerdictOption options,
+      NodeExecutionService executionService,
+      QueryCache queryCache) {
+    this(
+        conn, metaStore, contextId, serialNumber, options, executionService, queryCache, null);
+  }
+
+  /**
+   * @param conn DbmsConnection
+   * @param contextId parent's context id
+   * @param serialNumber serial number of this ExecutionContext
+   * @param options
+   * @param executionService the threads on which the nodes of execution plans run
+   * @param queryCache the cache of standardized select queries; null to disable caching
+   * @param scratchpadManager drops the temp tables in the background; null to drop them on the
+   *     calling thread
+   */
+  public ExecutionContext(
+      DbmsConnection conn,
+      VerdictMetaStore metaStore,
+      String contextId,
+      long serialNumber,
+      VerdictOption options,
+      NodeExecutionService executionService,
+      QueryCache queryCache,
+      ScratchpadManager scratchpadManager) {
+    this.queryCache = queryCache;
+    this.scratchpadManager = scratchpadManager;
     this.conn = conn;
     this.metaStore = metaStore;
     this.serialNumber = serialNumber;
     this.queryContext = new QueryContext(contextId, serialNumber);
     this.options = options;
+    this.executionService = executionService;
   }
 
   public long getExecutionContextSerialNumber() {
     return serialNumber;
   }
 
+  /**
+   * Puts the id of a new query into the MDC of the calling thread so that the log lines of the
+   * query can be correlated (see VerdictDBLogger.QUERY_ID_MDC_KEY). Nothing is done if the thread
+   * is already processing a query, e.g., when sql() is called for a prepared query or on the
+   * threads of an asynchronous query.
+   *
+   * @return true if the id has been set; then, clearQueryId() must be called.
+   */
+  private boolean setQueryId() {
+    if (MDC.get(VerdictDBLogger.QUERY_ID_MDC_KEY) != null) {
+      return false;
+    }
+    MDC.put(
+        VerdictDBLogger.QUERY_ID_MDC_KEY,
+        queryContext.getVerdictContextId()
+            + "-"
+            + serialNumber
+            + "-"
+            + querySequence.incrementAndGet());
+    return true;
+  }
+
+  private void clearQueryId(boolean queryIdSet) {
+    if (queryIdSet) {
+      MDC.remove(VerdictDBLogger.QUERY_ID_MDC_KEY);
+    }
+  }
+
   /**
    * Check whether given sql contains 'bypass' keyword at the beginning
    *
@@ -144,11 +271,29 @@ public class ExecutionContext {
   }
 
   public VerdictSingleResult sql(String query, boolean getResult) throws VerdictDBException {
+    boolean queryIdSet = setQueryId();
+    try {
+      return processQuery(query, getResult);
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+  }
+
+  private VerdictSingleResult processQuery(String query, boolean getResult)
+      throws VerdictDBException {
     String bypassSql = checkBypass(query);
     if (bypassSql != null) {
       return executeAsIs(bypassSql);
     }
 
+    // a cached query is a select query; thus, parsing it for its type is unnecessary.
+    QueryCache.Key cacheKey = createQueryCacheKey(query);
+    SelectQuery cachedQuery = getCachedStandardizedQuery(cacheKey);
+    if (cachedQuery != null) {
+      log.debug("Query type: select (cached)");
+      return sqlSelectQuery(cachedQuery, cacheKey, getResult);
+    }
+
     QueryType queryType = identifyQueryType(query);
 
     if ((queryType != QueryType.select
@@ -163,13 +308,13 @@ public class ExecutionContext {
 
     if (queryType.equals(QueryType.select)) {
       log.debug("Query type: select");
-      return sqlSelectQuery(query, getResult);
+      return sqlSelectQuery(standardizeQuery(query, cacheKey), cacheKey, getResult);
     }
 
-    // for other types of queries, we invalidate cached metadata for expected data
-    // manipulations
-    if (conn instanceof CachedDbmsConnection) {
-      ((CachedDbmsConnection) conn).clearCache();
+    // for other types of queries, the cached metadata of the tables they create or drop are
+    // invalidated in each branch below.
+    if (queryCache != null) {
+      queryCache.invalidateAll();
     }
 
     if (queryType.equals(QueryType.scrambling)) {
@@ -194,9 +339,15 @@ public class ExecutionContext {
               options.getVerdictTempSchemaName(),
               scrambleQuery.getBlockSize(),
               scrambleQuery.getExistingPartitionColumns());
+      scrambler.setStatisticsSamplingRatio(options.getStatisticsSamplingRatio());
 
       // store this metadata to our own metadata db.
-      ScrambleMeta meta = scrambler.scramble(scrambleQuery);
+      ScrambleMeta meta;
+      try {
+        meta = scrambler.scramble(scrambleQuery);
+      } finally {
+        invalidateCachedMetaData(scrambleQuery.getNewSchema(), scrambleQuery.getNewTable());
+      }
 
       // Add metadata to metastore
       ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, options);
@@ -204,6 +355,41 @@ public class ExecutionContext {
       refreshScrambleMetaStore();
       return null;
 
+    } else if (queryType.equals(QueryType.bulk_scrambling)) {
+      log.debug("Query type: bulk_scrambling");
+
+      Pair<List<CreateScrambleQuery>, Integer> bulkQuery = generateBulkScrambleQuery(query);
+      List<CreateScrambleQuery> scrambleQueries = bulkQuery.getLeft();
+      for (CreateScrambleQuery scrambleQuery : scrambleQueries) {
+        scrambleQuery.setExistingPartitionColumns(
+            conn.getPartitionColumns(
+                scrambleQuery.getOriginalSchema(), scrambleQuery.getOriginalTable()));
+        scrambleQuery.checkIfSupported(conn.getSyntax());
+      }
+
+      int parallelism =
+          (bulkQuery.getRight() == null)
+              ? options.getScrambleParallelism()
+              : bulkQuery.getRight();
+      BulkScramblingCoordinator scrambler =
+          new BulkScramblingCoordinator(
+              conn,
+              options.getVerdictTempSchemaName(),
+              new ScrambleMetaStore(conn, options),
+              parallelism);
+      scrambler.setStatisticsSamplingRatio(options.getStatisticsSamplingRatio());
+
+      // the metadata is stored by the coordinator as soon as each scramble is created.
+      try {
+        scrambler.scramble(scrambleQueries);
+      } finally {
+        for (CreateScrambleQuery scrambleQuery : scrambleQueries) {
+          invalidateCachedMetaData(scrambleQuery.getNewSchema(), scrambleQuery.getNewTable());
+        }
+        refreshScrambleMetaStore();
+      }
+      return null;
+
     } else if (queryType.equals(QueryType.insert_scramble)) {
       log.debug("Query type: insert_scramble");
 
@@ -268,17 +454,46 @@ public class ExecutionContext {
 
       ScramblingCoordinator scrambler =
           new ScramblingCoordinator(
-              conn, scrambleQuery.getNewSchema(), options.getVerdictTempSchemaName());
+              conn,
+              scrambleQuery.getNewSchema(),
+              options.getVerdictTempSchemaName(),
+              null,
+              conn.getPartitionColumns(
+                  scrambleQuery.getOriginalSchema(), scrambleQuery.getOriginalTable()));
+      scrambler.setStatisticsSamplingRatio(options.getStatisticsSamplingRatio());
 
       // append new scramble
-      scrambler.appendScramble(scrambleQuery);
+      try {
+        scrambler.appendScramble(scrambleQuery);
+      } finally {
+        invalidateCachedMetaData(scrambleQuery.getNewSchema(), scrambleQuery.getNewTable());
+      }
+
+      // A new entry replaces the previous one by a single INSERT (the latest entry is used); thus,
+      // readers see either the previous or the new entry. The entry keeps the scrambling method so
+      // that the next appends reuse its stored distributions.
+      if (existingScrambleMeta.getScramblingMethod() == null
+          && scrambleMethod instanceof ScramblingMethodBase) {
+        existingScrambleMeta.setScramblingMethod((ScramblingMethodBase) scrambleMethod);
+      }
+      metaStore.addToStore(existingScrambleMeta);
+      refreshScrambleMetaStore();
       return null;
     } else if (queryType.equals(QueryType.drop_scramble)) {
       log.debug("Query type: drop_scramble");
 
       ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, options);
       Pair<BaseTable, BaseTable> tablePair = getTablePairForDropScramble(query);
-      metaStore.dropScrambleTable(tablePair.getLeft(), tablePair.getRight());
+      try {
+        metaStore.dropScrambleTable(tablePair.getLeft(), tablePair.getRight());
+      } finally {
+        String scrambleSchema = tablePair.getRight().getSchemaName();
+        invalidateCachedMetaData(
+            (scrambleSchema == null || scrambleSchema.isEmpty())
+                ? conn.getDefaultSchema()
+                : scrambleSchema,
+            tablePair.getRight().getTableName());
+      }
       return null;
 
     } else if (queryType.equals(QueryType.drop_all_scrambles)) {
@@ -286,7 +501,20 @@ public class ExecutionContext {
 
       ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, options);
       BaseTable table = getTableForDropAllScramble(query);
-      metaStore.dropAllScrambleTable(table);
+      List<Pair<String, String>> scrambles = new ArrayList<>();
+      for (ScrambleMeta meta : this.metaStore.retrieve()) {
+        if (meta.getOriginalSchemaName().equals(table.getSchemaName())
+            && meta.getOriginalTableName().equals(table.getTableName())) {
+          scrambles.add(Pair.of(meta.getSchemaName(), meta.getTableName()));
+        }
+      }
+      try {
+        metaStore.dropAllScrambleTable(table);
+      } finally {
+        for (Pair<String, String> scramble : scrambles) {
+          invalidateCachedMetaData(scramble.getLeft(), scramble.getRight());
+        }
+      }
       return null;
 
     } else if (queryType.equals(QueryType.show_scrambles)) {
@@ -317,32 +545,106 @@ public class ExecutionContext {
     }
   }
 
-  private VerdictSingleResult sqlSelectQuery(String query, boolean getResult)
+  /**
+   * Prepares a query with placeholders (i.e., ?) for repeated executions. A select query is parsed
+   * and standardized only once here; its executions only replace the values of the placeholders.
+   *
+   * @param query A query string that may include placeholders
+   * @return The prepared query
+   * @throws VerdictDBException
+   */
+  public PreparedQuery prepare(String query) throws VerdictDBException {
+    String defaultSchema = conn.getDefaultSchema();
+    if (checkBypass(query) == null && identifyQueryType(query).equals(QueryType.select)) {
+      return PreparedQuery.fromSelectQuery(query, defaultSchema, standardizeQuery(query));
+    }
+    return PreparedQuery.fromStatement(query, defaultSchema);
+  }
+
+  /**
+   * @return The syntax of the underlying database, with which the parameter values of prepared
+   *     queries are written
+   */
+  public SqlSyntax getSyntax() {
+    return conn.getSyntax();
+  }
+
+  /**
+   * Executes a prepared query with parameter values.
+   *
+   * @param preparedQuery The query returned by prepare()
+   * @param parameterValues SQL literals in the order of the placeholders
+   * @param getResult
+   * @return
+   * @throws VerdictDBException
+   */
+  public VerdictSingleResult sql(
+      PreparedQuery preparedQuery, List<String> parameterValues, boolean getResult)
+      throws VerdictDBException {
+    if (!canBindToSelectQuery(preparedQuery)) {
+      return sql(preparedQuery.bindToString(parameterValues), getResult);
+    }
+    boolean queryIdSet = setQueryId();
+    try {
+      log.debug("Query type: select (prepared)");
+      return sqlSelectQuery(preparedQuery.bind(parameterValues), null, getResult);
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+  }
+
+  public VerdictResultStream streamsql(PreparedQuery preparedQuery, List<String> parameterValues)
+      throws VerdictDBException {
+    if (!canBindToSelectQuery(preparedQuery)) {
+      return streamsql(preparedQuery.bindToString(parameterValues));
+    }
+    boolean queryIdSet = setQueryId();
+    try {
+      return streamSelectQuery(preparedQuery.bind(parameterValues), null);
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+  }
+
+  private boolean canBindToSelectQuery(PreparedQuery preparedQuery) {
+    // the tables of the standardized query have been resolved against the default schema at the
+    // time of the preparation.
+    return preparedQuery.isSelectQuery()
+        && Objects.equals(preparedQuery.getDefaultSchema(), conn.getDefaultSchema());
+  }
+
+  private VerdictSingleResult sqlSelectQuery(
+      SelectQuery selectQuery, QueryCache.Key cacheKey, boolean getResult)
       throws VerdictDBException {
-    SelectQuery selectQuery = standardizeQuery(query);
-    VerdictResultStream stream = streamSelectQuery(selectQuery);
+    ExecutionBudget budget = ExecutionBudget.fromOption(options);
+    VerdictResultStream stream = streamSelectQuery(selectQuery, cacheKey, budget);
 
     if (stream == null) {
       return null;
     }
-    QueryResultAccuracyEstimator accEst =
-        new QueryResultAccuracyEstimatorFromDifference(selectQuery);
+    if (runningCoordinator == null) {
+      // no scrambles were used; thus, the only answer is exact and is passed to the caller without
+      // being read (so that its rows can be streamed).
+      return stream.hasNext() ? stream.next() : null;
+    }
+    AnswerConvergenceChecker checker = new AnswerConvergenceChecker(selectQuery, options, budget);
 
     try {
       while (stream.hasNext()) {
         VerdictSingleResult rs = stream.next();
-        accEst.add(rs);
-        if (accEst.isLastResultAccurate()) {
+        if (checker.isFinalAnswer(rs)) {
           return rs;
         }
       }
       // return the last result otherwise
-      return accEst.getAnswers().get(accEst.getAnswerCount() - 1);
+      return checker.getLastAnswer();
     } catch (RuntimeException e) {
       throw e;
     } finally {
       stream.close();
       abort();
+      // all the answers have been read; thus, the temp tables are no longer needed.
+      dropTempTables();
     }
 
     //    SelectQuery selectQuery = standardizeQuery(query);
@@ -372,6 +674,21 @@ public class ExecutionContext {
   }
 
   public VerdictResultStream streamsql(String query) throws VerdictDBException {
+    boolean queryIdSet = setQueryId();
+    try {
+      return processStreamQuery(query);
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+  }
+
+  private VerdictResultStream processStreamQuery(String query) throws VerdictDBException {
+    QueryCache.Key cacheKey = createQueryCacheKey(query);
+    SelectQuery selectQuery = getCachedStandardizedQuery(cacheKey);
+    if (selectQuery != null) {
+      return streamSelectQuery(selectQuery, cacheKey);
+    }
+
     // determines the type of the given query and forward it to an appropriate coordinator.
     QueryType queryType = identifyQueryType(query);
 
@@ -379,22 +696,39 @@ public class ExecutionContext {
       throw new VerdictDBTypeException("Only a select query can be issued to streamsql().");
     }
 
-    SelectQuery selectQuery = standardizeQuery(query);
-    return streamSelectQuery(selectQuery);
+    selectQuery = standardizeQuery(query, cacheKey);
+    return streamSelectQuery(selectQuery, cacheKey);
   }
 
   /**
    * Returns a stream of answers for the select query .
    *
    * @param selectQuery Already standardized select query.
+   * @param cacheKey The key of the query in the query cache; null if not cached.
+   * @return
+   * @throws VerdictDBException
+   */
+  private VerdictResultStream streamSelectQuery(SelectQuery selectQuery, QueryCache.Key cacheKey)
+      throws VerdictDBException {
+    return streamSelectQuery(selectQuery, cacheKey, ExecutionBudget.fromOption(options));
+  }
+
+  /**
+   * Returns a stream of answers for the select query.
+   *
+   * @param selectQuery Already standardized select query.
+   * @param cacheKey The key of the query in the query cache; null if not cached.
+   * @param budget The blocks are launched only within this budget; null if every block is
+   *     launched.
    * @return
    * @throws VerdictDBException
    */
-  private VerdictResultStream streamSelectQuery(SelectQuery selectQuery) throws VerdictDBException {
+  private VerdictResultStream streamSelectQuery(
+      SelectQuery selectQuery, QueryCache.Key cacheKey, ExecutionBudget budget)
+      throws VerdictDBException {
     //    selectQuery = standardizeSelectQuery(selectQuery, conn);
 
-    ScrambleMetaSet metaset = metaStore.retrieve();
-    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaset, options);
+    SelectQueryCoordinator coordinator = createSelectQueryCoordinator(cacheKey, budget);
     runningCoordinator = null;
 
     ExecutionResultReader reader = coordinator.process(selectQuery, queryContext);
@@ -407,6 +741,245 @@ public class ExecutionContext {
     return stream;
   }
 
+  private SelectQueryCoordinator createSelectQueryCoordinator(
+      QueryCache.Key cacheKey, ExecutionBudget budget) {
+    ScrambleMetaSet metaset = metaStore.retrieve();
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaset, options);
+    coordinator.setNodeExecutionService(executionService);
+    coordinator.setQueryCache(queryCache, cacheKey);
+    coordinator.setScratchpadManager(scratchpadManager);
+    coordinator.setExecutionBudget(budget);
+    return coordinator;
+  }
+
+  /**
+   * The asynchronous counterpart of sql(). The query is parsed on the threads of the node
+   * execution service, and the answers of a select query are checked as they are pushed by the
+   * threads running its plan (see AnswerConvergenceChecker); thus, no thread waits for the
+   * answers. The other queries (e.g., create scramble) are run by sql() on a thread of their own
+   * so that the threads of the node execution service, which may be needed by those queries, are
+   * not blocked.
+   *
+   * @param query Any query that can be passed to sql()
+   * @return The answer that sql() would return. Cancelling the future stops the query.
+   */
+  public ListenableFuture<VerdictSingleResult> sqlAsync(final String query) {
+    final SettableFuture<VerdictSingleResult> future = SettableFuture.create();
+    // the id is carried over to the threads running the query by NodeExecutionService
+    boolean queryIdSet = setQueryId();
+    try {
+      runAsync(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                QueryCache.Key cacheKey = createQueryCacheKey(query);
+                SelectQuery selectQuery =
+                    (checkBypass(query) == null) ? standardizeIfSelect(query, cacheKey) : null;
+                if (selectQuery == null) {
+                  runStatementAsync(query, future);
+                } else {
+                  sqlSelectQueryAsync(selectQuery, cacheKey, future);
+                }
+              } catch (Exception e) {
+                future.setException(e);
+              }
+            }
+          },
+          future);
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+    return future;
+  }
+
+  private void runStatementAsync(
+      final String query, final SettableFuture<VerdictSingleResult> future) {
+    Thread statementThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  future.set(sql(query, false));
+                } catch (Exception e) {
+                  future.setException(e);
+                }
+              }
+            },
+            "verdictdb-async-statement");
+    statementThread.setDaemon(true);
+    statementThread.start();
+  }
+
+  private void sqlSelectQueryAsync(
+      SelectQuery selectQuery,
+      QueryCache.Key cacheKey,
+      final SettableFuture<VerdictSingleResult> future)
+      throws VerdictDBException {
+    ExecutionBudget budget = ExecutionBudget.fromOption(options);
+    final AnswerConvergenceChecker checker =
+        new AnswerConvergenceChecker(selectQuery, options, budget);
+    final SelectQueryCoordinator coordinator = createSelectQueryCoordinator(cacheKey, budget);
+    runningCoordinator = coordinator;
+    future.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            if (future.isCancelled()) {
+              finishAsync(coordinator);
+            }
+          }
+        },
+        SAME_THREAD_EXECUTOR);
+
+    coordinator.processAsync(
+        selectQuery,
+        queryContext,
+        new ExecutionResultListener() {
+          @Override
+          public void onResult(DbmsQueryResult result) {
+            if (future.isDone()) {
+              return;
+            }
+            VerdictSingleResult rs = new VerdictSingleResultFromDbmsQueryResult(result);
+            if (coordinator.getLastQuery() == null) {
+              // no scrambles were used; thus, the only answer is exact.
+              future.set(rs);
+            } else if (checker.isFinalAnswer(rs)) {
+              future.set(rs);
+              finishAsync(coordinator);
+            }
+          }
+
+          @Override
+          public void onCompleted() {
+            // return the last result if none was accurate enough
+            future.set(checker.getLastAnswer());
+            finishAsync(coordinator);
+          }
+
+          @Override
+          public void onError(Exception e) {
+            future.setException(e);
+            finishAsync(coordinator);
+          }
+        });
+  }
+
+  /**
+   * The asynchronous counterpart of streamsql(). The query starts when a subscriber subscribes to
+   * the returned publisher.
+   *
+   * @param query A select query
+   * @return The publisher of the progressive answers
+   */
+  public VerdictResultPublisher streamsqlAsync(String query) {
+    return streamsqlAsync(query, null);
+  }
+
+  /**
+   * @param query A select query
+   * @param onFinished Run on a thread of the node execution service once the subscription ends
+   *     (i.e., completed, failed, or cancelled) and the plan is stopped; null if none.
+   * @return The publisher of the progressive answers
+   */
+  public VerdictResultPublisher streamsqlAsync(String query, Runnable onFinished) {
+    return new ProgressiveResultPublisher(this, query, onFinished);
+  }
+
+  /**
+   * Starts a select query whose answers are pushed to the listener. Used by
+   * ProgressiveResultPublisher.
+   *
+   * @return The coordinator running the query; passed to finishAsync() once the answers are no
+   *     longer needed.
+   */
+  Coordinator streamSelectQueryAsync(String query, ExecutionResultListener listener)
+      throws VerdictDBException {
+    boolean queryIdSet = setQueryId();
+    try {
+      QueryCache.Key cacheKey = createQueryCacheKey(query);
+      SelectQuery selectQuery = standardizeIfSelect(query, cacheKey);
+      if (selectQuery == null) {
+        throw new VerdictDBTypeException(
+            "Only a select query can be issued to streamsqlAsync().");
+      }
+      SelectQueryCoordinator coordinator =
+          createSelectQueryCoordinator(cacheKey, ExecutionBudget.fromOption(options));
+      runningCoordinator = coordinator;
+      coordinator.processAsync(selectQuery, queryContext, listener);
+      return coordinator;
+    } finally {
+      clearQueryId(queryIdSet);
+    }
+  }
+
+  /**
+   * Stops the plan of an asynchronous query and drops its temp tables. This is done on another
+   * thread since this method is usually called by a thread running the plan.
+   */
+  void finishAsync(Coordinator coordinator) {
+    finishAsync(coordinator, null);
+  }
+
+  /**
+   * @param coordinator
+   * @param then Run after the temp tables are dropped; null if none.
+   */
+  void finishAsync(final Coordinator coordinator, final Runnable then) {
+    runAsync(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              coordinator.abort();
+              dropTempTables();
+            } finally {
+              if (then != null) {
+                then.run();
+              }
+            }
+          }
+        },
+        null);
+  }
+
+  /**
+   * Runs the task on the threads of the node execution service.
+   *
+   * @param task
+   * @param future Fails if the task cannot be run; null if none.
+   */
+  void runAsync(Runnable task, SettableFuture<?> future) {
+    NodeExecutionService service =
+        (executionService != null) ? executionService : NodeExecutionService.getDefault();
+    try {
+      service.submit(task);
+    } catch (RejectedExecutionException e) {
+      if (future != null) {
+        future.setException(e);
+      } else {
+        log.warn("Failed to run a task: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return The standardized query; null if the query is not a select query.
+   */
+  private SelectQuery standardizeIfSelect(String query, QueryCache.Key cacheKey)
+      throws VerdictDBException {
+    SelectQuery cachedQuery = getCachedStandardizedQuery(cacheKey);
+    if (cachedQuery != null) {
+      return cachedQuery;
+    }
+    if (identifyQueryType(query) != QueryType.select) {
+      return null;
+    }
+    return standardizeQuery(query, cacheKey);
+  }
+
   /**
    * Standardizes a query string into a select query object.
    *
@@ -418,6 +991,38 @@ public class ExecutionContext {
     return standardizeQuery(query, conn);
   }
 
+  /**
+   * Standardizes a query string and stores the result in the query cache.
+   *
+   * @param query
+   * @param cacheKey null if the query cache is not used.
+   * @return
+   * @throws VerdictDBException
+   */
+  private SelectQuery standardizeQuery(String query, QueryCache.Key cacheKey)
+      throws VerdictDBException {
+    SelectQuery standardized = standardizeQuery(query);
+    if (cacheKey != null) {
+      queryCache.putStandardizedQuery(cacheKey, standardized);
+    }
+    return standardized;
+  }
+
+  /** @return null if the query cache is disabled. */
+  private QueryCache.Key createQueryCacheKey(String query) {
+    if (queryCache == null) {
+      return null;
+    }
+    return QueryCache.createKey(query, conn.getDefaultSchema(), metaStore.getVersion());
+  }
+
+  private SelectQuery getCachedStandardizedQuery(QueryCache.Key cacheKey) {
+    if (cacheKey == null) {
+      return null;
+    }
+    return queryCache.getStandardizedQuery(cacheKey);
+  }
+
   static SelectQuery standardizeQuery(String query, DbmsConnection conn) throws VerdictDBException {
     SelectQuery selectQuery = NonValidatingSQLParser.toSelectQuery(query);
     SelectQuery standardized = standardizeSelectQuery(selectQuery, conn);
@@ -444,6 +1049,20 @@ public class ExecutionContext {
     return selectQuery;
   }
 
+  /**
+   * Removes the cached metadata that may be changed by creating, appending to, or dropping the
+   * scramble. The listing of the metastore schema is also removed since the metastore tables may
+   * have been created.
+   */
+  private void invalidateCachedMetaData(String schema, String table) {
+    if (conn instanceof CachedDbmsConnection) {
+      CachedDbmsConnection cachedConn = (CachedDbmsConnection) conn;
+      cachedConn.invalidateCache(schema);
+      cachedConn.invalidateCache(schema, table);
+      cachedConn.invalidateCache(options.getVerdictMetaSchemaName());
+    }
+  }
+
   private void refreshScrambleMetaStore() {
     // no type check was added to make it fail if non-cached metastore is used.
     ((CachedScrambleMetaStore) this.metaStore).refreshCache();
@@ -499,7 +1118,21 @@ public class ExecutionContext {
             RelationGen g = new RelationGen();
             CondGen cond = new CondGen();
             BaseTable scrambleTable = (BaseTable) g.visit(ctx.scrambled_table);
-            UnnamedColumn where = cond.visit(ctx.where);
+            UnnamedColumn where;
+            if (ctx.where != null) {
+              where = cond.visit(ctx.where);
+            } else {
+              // PARTITION (col1 = value1, col2 = value2, ...)
+              where = null;
+              for (int i = 0; i < ctx.partition_columns.size(); i++) {
+                UnnamedColumn partitionPredicate =
+                    ColumnOp.equal(
+                        new BaseColumn(stripQuote(ctx.partition_columns.get(i).getText())),
+                        ConstantColumn.valueOf(ctx.partition_values.get(i).getText()));
+                where =
+                    (where == null) ? partitionPredicate : ColumnOp.and(where, partitionPredicate);
+              }
+            }
 
             scrambleQuery.setNewSchema(scrambleTable.getSchemaName());
             scrambleQuery.setNewTable(scrambleTable.getTableName());
@@ -556,6 +1189,54 @@ public class ExecutionContext {
     return scrambleQuery;
   }
 
+  /** @return The scrambles to create and the parallelism (null if not specified) */
+  private Pair<List<CreateScrambleQuery>, Integer> generateBulkScrambleQuery(String query) {
+
+    VerdictSQLParser parser = NonValidatingSQLParser.parserOf(query);
+    VerdictSQLParserBaseVisitor<Pair<List<CreateScrambleQuery>, Integer>> visitor =
+        new VerdictSQLParserBaseVisitor<Pair<List<CreateScrambleQuery>, Integer>>() {
+          @Override
+          public Pair<List<CreateScrambleQuery>, Integer> visitCreate_scrambles_statement(
+              VerdictSQLParser.Create_scrambles_statementContext ctx) {
+            RelationGen g = new RelationGen();
+            String scrambleSchema =
+                (ctx.scramble_schema == null) ? null : stripQuote(ctx.scramble_schema.getText());
+            String method = (ctx.method == null) ? "uniform" : stripQuote(ctx.method.getText());
+            double percent =
+                (ctx.percent == null) ? 1.0 : Double.parseDouble(ctx.percent.getText());
+            long blocksize =
+                (ctx.blocksize == null)
+                    ? (long) conn.getSyntax().getRecommendedblockSize()
+                    : Long.parseLong(ctx.blocksize.getText());
+            Integer parallelism =
+                (ctx.parallelism == null) ? null : Integer.valueOf(ctx.parallelism.getText());
+
+            List<CreateScrambleQuery> queries = new ArrayList<>();
+            for (VerdictSQLParser.Table_nameContext t : ctx.original_tables) {
+              BaseTable originalTable = (BaseTable) g.visit(t);
+              String originalSchema =
+                  (originalTable.getSchemaName() == null)
+                      ? conn.getDefaultSchema()
+                      : originalTable.getSchemaName();
+              queries.add(
+                  new CreateScrambleQuery(
+                      (scrambleSchema == null) ? originalSchema : scrambleSchema,
+                      originalTable.getTableName() + "_scrambled",
+                      originalSchema,
+                      originalTable.getTableName(),
+                      method,
+                      percent,
+                      blocksize,
+                      null,
+                      null));
+            }
+            return Pair.of(queries, parallelism);
+          }
+        };
+
+    return visitor.visit(parser.create_scrambles_statement());
+  }
+
   private VerdictSingleResult generateShowSchemaResultFromQuery() throws VerdictDBException {
     List<String> header = Arrays.asList("schema");
     List<String> rows = conn.getSchemas();
@@ -626,38 +1307,28 @@ public class ExecutionContext {
   /**
    * Terminates existing threads. The created database tables may still exist for successive uses.
    *
-   * <p>This method also removes all temporary tables created by this ExecutionContext.
+   * <p>This method also removes all temporary tables created by this ExecutionContext and closes
+   * the streamed results that the callers have not closed.
    */
   public void terminate() {
     abort();
+    queryContext.closeStreamingResults();
+    dropTempTables();
+  }
 
-    try {
-      String schema = options.getVerdictTempSchemaName();
-      String tempTablePrefix =
-          String.format(
-              "%s_%s_%d",
-              VerdictOption.getVerdictTempTablePrefix(),
-              queryContext.getVerdictContextId(),
-              this.serialNumber);
-      List<String> tempTableList = new ArrayList<>();
-
-      List<String> allTempTables = null;
-      if (conn instanceof CachedDbmsConnection) {
-        allTempTables = ((CachedDbmsConnection) conn).getTablesWithoutCaching(schema);
-      } else {
-        allTempTables = conn.getTables(schema);
-      }
-      for (String tableName : allTempTables) {
-        if (tableName.startsWith(tempTablePrefix)) {
-          tempTableList.add(tableName);
-        }
-      }
-
-      for (String tempTable : tempTableList) {
-        conn.execute(String.format("DROP TABLE IF EXISTS %s.%s", schema, tempTable));
-      }
-    } catch (VerdictDBDbmsException e) {
-      e.printStackTrace();
+  /**
+   * Drops the temp tables created so far by this ExecutionContext. The tables are recorded in the
+   * query context when their names are generated; thus, the scratchpad schema is not listed.
+   */
+  private void dropTempTables() {
+    List<Pair<String, String>> tempTables = queryContext.removeTempTables();
+    if (tempTables.isEmpty()) {
+      return;
+    }
+    if (scratchpadManager != null) {
+      scratchpadManager.dropTablesInBackground(tempTables);
+    } else {
+      ScratchpadManager.dropTables(conn, tempTables);
     }
   }
 
@@ -751,6 +1422,12 @@ public class ExecutionContext {
             return QueryType.scrambling;
           }
 
+          @Override
+          public QueryType visitCreate_scrambles_statement(
+              VerdictSQLParser.Create_scrambles_statementContext ctx) {
+            return QueryType.bulk_scrambling;
+          }
+
           @Override
           public QueryType visitDrop_scramble_statement(
               VerdictSQLParser.Drop_scramble_statementContext ctx) {
@@ -0,0 +1,272 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.GroupingAttribute;
+import org.verdictdb.core.sqlobject.JoinTable;
+import org.verdictdb.core.sqlobject.OrderbyAttribute;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SetOperationRelation;
+import org.verdictdb.core.sqlobject.SubqueryColumn;
+import org.verdictdb.exception.VerdictDBValueException;
+
+import com.rits.cloning.Cloner;
+
+/**
+ * A query with placeholders (i.e., ?) that is prepared once and executed with different parameter
+ * values.
+ *
+ * <p>A select query is parsed and standardized when it is prepared. Its placeholders remain in the
+ * standardized query as constants, and only their values are replaced when the query is executed;
+ * thus, the repeated executions skip the parsing and the metadata retrieval. The parameters are
+ * numbered in the order of the clauses (select, from, where, group by, having, and order by), which
+ * is the order they appear in the query string.
+ *
+ * <p>Other statements (and the select queries whose placeholders cannot be located in the
+ * standardized query) are kept as strings, and the parameter values are substituted into the
+ * strings.
+ */
+public class PreparedQuery {
+
+  private final String query;
+
+  private final String defaultSchema;
+
+  private final int parameterCount;
+
+  // null if this is not a select query.
+  private final SelectQuery standardizedQuery;
+
+  // the placeholders in the standardized query in the order of the parameter indexes.
+  private final List<ConstantColumn> parameters;
+
+  private PreparedQuery(
+      String query,
+      String defaultSchema,
+      int parameterCount,
+      SelectQuery standardizedQuery,
+      List<ConstantColumn> parameters) {
+    this.query = query;
+    this.defaultSchema = defaultSchema;
+    this.parameterCount = parameterCount;
+    this.standardizedQuery = standardizedQuery;
+    this.parameters = parameters;
+  }
+
+  /**
+   * @param query The original query string
+   * @param defaultSchema The default schema against which the query has been standardized
+   * @param standardizedQuery The standardized query, which is owned by the returned object
+   * @return A prepared select query; or a prepared statement if the placeholders cannot be located
+   *     in the standardized query.
+   */
+  public static PreparedQuery fromSelectQuery(
+      String query, String defaultSchema, SelectQuery standardizedQuery) {
+    int parameterCount = countPlaceholders(query);
+    List<ConstantColumn> parameters = new ArrayList<>();
+    collectParametersInRelation(standardizedQuery, parameters);
+    if (parameters.size() != parameterCount) {
+      // some placeholders have been copied or removed during standardization.
+      return fromStatement(query, defaultSchema);
+    }
+    return new PreparedQuery(query, defaultSchema, parameterCount, standardizedQuery, parameters);
+  }
+
+  public static PreparedQuery fromStatement(String query, String defaultSchema) {
+    return new PreparedQuery(query, defaultSchema, countPlaceholders(query), null, null);
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public String getDefaultSchema() {
+    return defaultSchema;
+  }
+
+  public int getParameterCount() {
+    return parameterCount;
+  }
+
+  /** @return True if the parameters are bound to the standardized select query. */
+  public boolean isSelectQuery() {
+    return standardizedQuery != null;
+  }
+
+  /**
+   * Creates a standardized query in which the placeholders are replaced by the parameters.
+   *
+   * @param parameterValues SQL literals (e.g., 'abc', 12, NULL) in the order of the placeholders
+   * @return A new standardized query that can be passed to SelectQueryCoordinator
+   */
+  public synchronized SelectQuery bind(List<String> parameterValues)
+      throws VerdictDBValueException {
+    if (!isSelectQuery()) {
+      throw new VerdictDBValueException("Not a prepared select query: " + query);
+    }
+    checkParameterCount(parameterValues);
+    try {
+      for (int i = 0; i < parameterCount; i++) {
+        parameters.get(i).setValue(parameterValues.get(i));
+      }
+      // the query is modified during its execution; thus, a copy is returned.
+      return new Cloner().deepClone(standardizedQuery);
+    } finally {
+      for (ConstantColumn parameter : parameters) {
+        parameter.setValue(ConstantColumn.PARAMETER_MARKER);
+      }
+    }
+  }
+
+  /**
+   * Substitutes the parameters for the placeholders in the query string.
+   *
+   * @param parameterValues SQL literals (e.g., 'abc', 12, NULL) in the order of the placeholders
+   * @return The query string with the parameter values
+   */
+  public String bindToString(List<String> parameterValues) throws VerdictDBValueException {
+    checkParameterCount(parameterValues);
+    StringBuilder bound = new StringBuilder(query.length());
+    int parameterIndex = 0;
+    int i = 0;
+    while (i < query.length()) {
+      int next = skipQuotesAndComments(query, i);
+      if (next > i) {
+        bound.append(query, i, next);
+        i = next;
+      } else if (query.charAt(i) == '?') {
+        bound.append(parameterValues.get(parameterIndex++));
+        i++;
+      } else {
+        bound.append(query.charAt(i));
+        i++;
+      }
+    }
+    return bound.toString();
+  }
+
+  private void checkParameterCount(List<String> parameterValues)
+      throws VerdictDBValueException {
+    if (parameterValues.size() != parameterCount) {
+      throw new VerdictDBValueException(
+          String.format(
+              "The query has %d parameters, but %d values are given.",
+              parameterCount, parameterValues.size()));
+    }
+  }
+
+  /** Counts the placeholders that are not in quotes or comments. */
+  static int countPlaceholders(String query) {
+    int count = 0;
+    int i = 0;
+    while (i < query.length()) {
+      int next = skipQuotesAndComments(query, i);
+      if (next > i) {
+        i = next;
+      } else {
+        if (query.charAt(i) == '?') {
+          count++;
+        }
+        i++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return The index after the quoted string or the comment starting at i; i if neither starts at
+   *     i.
+   */
+  private static int skipQuotesAndComments(String query, int i) {
+    char c = query.charAt(i);
+    if (c == '\'' || c == '"' || c == '`') {
+      int end = query.indexOf(c, i + 1);
+      return (end < 0) ? query.length() : end + 1;
+    } else if (query.startsWith("--", i)) {
+      int end = query.indexOf('\n', i);
+      return (end < 0) ? query.length() : end + 1;
+    } else if (query.startsWith("/*", i)) {
+      int end = query.indexOf("*/", i + 2);
+      return (end < 0) ? query.length() : end + 2;
+    }
+    return i;
+  }
+
+  private static void collectParametersInRelation(
+      AbstractRelation relation, List<ConstantColumn> found) {
+    if (relation instanceof SelectQuery) {
+      SelectQuery query = (SelectQuery) relation;
+      for (SelectItem item : query.getSelectList()) {
+        collectParametersInColumn(item, found);
+      }
+      for (AbstractRelation source : query.getFromList()) {
+        collectParametersInRelation(source, found);
+      }
+      if (query.getFilter().isPresent()) {
+        collectParametersInColumn(query.getFilter().get(), found);
+      }
+      for (GroupingAttribute attribute : query.getGroupby()) {
+        collectParametersInColumn(attribute, found);
+      }
+      if (query.getHaving().isPresent()) {
+        collectParametersInColumn(query.getHaving().get(), found);
+      }
+      for (OrderbyAttribute attribute : query.getOrderby()) {
+        collectParametersInColumn(attribute.getAttribute(), found);
+      }
+      if (query.getLimit().isPresent()) {
+        collectParametersInColumn(query.getLimit().get(), found);
+      }
+    } else if (relation instanceof JoinTable) {
+      JoinTable join = (JoinTable) relation;
+      for (int i = 0; i < join.getJoinList().size(); i++) {
+        collectParametersInRelation(join.getJoinList().get(i), found);
+        // the condition of the i-th table follows the table.
+        if (i > 0 && join.getCondition().size() >= i && join.getCondition().get(i - 1) != null) {
+          collectParametersInColumn(join.getCondition().get(i - 1), found);
+        }
+      }
+    } else if (relation instanceof SetOperationRelation) {
+      collectParametersInRelation(((SetOperationRelation) relation).getLeft(), found);
+      collectParametersInRelation(((SetOperationRelation) relation).getRight(), found);
+    }
+  }
+
+  private static void collectParametersInColumn(Object column, List<ConstantColumn> found) {
+    if (column instanceof ConstantColumn) {
+      if (((ConstantColumn) column).isParameterMarker()) {
+        found.add((ConstantColumn) column);
+      }
+    } else if (column instanceof AliasedColumn) {
+      collectParametersInColumn(((AliasedColumn) column).getColumn(), found);
+    } else if (column instanceof ColumnOp) {
+      for (Object operand : ((ColumnOp) column).getOperands()) {
+        collectParametersInColumn(operand, found);
+      }
+    } else if (column instanceof SubqueryColumn) {
+      collectParametersInRelation(((SubqueryColumn) column).getSubquery(), found);
+    }
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb.coordinator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.verdictdb.VerdictResultPublisher;
+import org.verdictdb.VerdictResultSubscriber;
+import org.verdictdb.VerdictResultSubscription;
+import org.verdictdb.VerdictSingleResult;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.resulthandler.ExecutionResultListener;
+
+/**
+ * Publishes the progressive answers of a select query as they are pushed by the threads running
+ * its plan (see ExecutionContext.streamsqlAsync()).
+ *
+ * <p>Backpressure: the plan is not slowed down by a slow subscriber. Since every answer supersedes
+ * the previous ones, only the latest answer not yet requested is kept, and it is sent when the
+ * subscriber requests more answers. The last answer is always sent before onComplete().
+ */
+class ProgressiveResultPublisher implements VerdictResultPublisher {
+
+  private final ExecutionContext context;
+
+  private final String query;
+
+  // run once the subscription ends and the plan is stopped; null if none.
+  private final Runnable onFinished;
+
+  private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+  ProgressiveResultPublisher(ExecutionContext context, String query, Runnable onFinished) {
+    this.context = context;
+    this.query = query;
+    this.onFinished = onFinished;
+  }
+
+  @Override
+  public void subscribe(VerdictResultSubscriber subscriber) {
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(
+          new VerdictResultSubscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("This publisher allows only one subscriber."));
+      return;
+    }
+
+    final ResultSubscription subscription = new ResultSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    context.runAsync(
+        new Runnable() {
+          @Override
+          public void run() {
+            subscription.start();
+          }
+        },
+        null);
+  }
+
+  private class ResultSubscription implements VerdictResultSubscription, ExecutionResultListener {
+
+    private final VerdictResultSubscriber subscriber;
+
+    private Coordinator coordinator = null;
+
+    private long demand = 0;
+
+    // the latest answer not sent yet
+    private VerdictSingleResult pending = null;
+
+    private boolean completed = false;
+
+    private Throwable error = null;
+
+    private boolean cancelled = false;
+
+    // true once onComplete() or onError() is called
+    private boolean terminated = false;
+
+    // true while a thread sends the signals to the subscriber; the signals must be serialized.
+    private boolean draining = false;
+
+    // true once start() has started the query or given up starting it
+    private boolean startFinished = false;
+
+    private boolean cleanedUp = false;
+
+    ResultSubscription(VerdictResultSubscriber subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    void start() {
+      boolean cancelledBeforeStart;
+      synchronized (this) {
+        cancelledBeforeStart = cancelled;
+      }
+      if (!cancelledBeforeStart) {
+        try {
+          Coordinator started = context.streamSelectQueryAsync(query, this);
+          synchronized (this) {
+            coordinator = started;
+          }
+        } catch (Exception e) {
+          onError(e);
+        }
+      }
+      synchronized (this) {
+        startFinished = true;
+      }
+      cleanUpIfFinished();
+    }
+
+    @Override
+    public void request(long n) {
+      synchronized (this) {
+        if (n <= 0) {
+          error = new IllegalArgumentException("The number of requested answers must be positive.");
+        } else {
+          // caps at Long.MAX_VALUE, which means unbounded
+          demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+        }
+      }
+      drain();
+      cleanUpIfFinished();
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        pending = null;
+      }
+      cleanUpIfFinished();
+    }
+
+    @Override
+    public void onResult(DbmsQueryResult result) {
+      synchronized (this) {
+        if (cancelled || terminated) {
+          return;
+        }
+        pending = new VerdictSingleResultFromDbmsQueryResult(result);
+      }
+      drain();
+    }
+
+    @Override
+    public void onCompleted() {
+      synchronized (this) {
+        completed = true;
+      }
+      drain();
+      cleanUpIfFinished();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      synchronized (this) {
+        if (error == null) {
+          error = e;
+        }
+      }
+      drain();
+      cleanUpIfFinished();
+    }
+
+    /** Sends the signals the subscriber can receive now, one at a time. */
+    private void drain() {
+      synchronized (this) {
+        if (draining) {
+          // the thread already draining sends the signals
+          return;
+        }
+        draining = true;
+      }
+
+      while (true) {
+        VerdictSingleResult next = null;
+        Throwable failure = null;
+        synchronized (this) {
+          if (cancelled || terminated) {
+            draining = false;
+            return;
+          }
+          if (error != null) {
+            terminated = true;
+            failure = error;
+          } else if (pending != null && demand > 0) {
+            next = pending;
+            pending = null;
+            if (demand != Long.MAX_VALUE) {
+              demand--;
+            }
+          } else if (pending == null && completed) {
+            terminated = true;
+          } else {
+            draining = false;
+            return;
+          }
+        }
+
+        if (next != null) {
+          subscriber.onNext(next);
+        } else if (failure != null) {
+          subscriber.onError(failure);
+        } else {
+          subscriber.onComplete();
+        }
+      }
+    }
+
+    /** Stops the query once no more answers are needed. */
+    private void cleanUpIfFinished() {
+      Coordinator toFinish;
+      synchronized (this) {
+        boolean finished = cancelled || completed || error != null;
+        if (!finished || !startFinished || cleanedUp) {
+          return;
+        }
+        cleanedUp = true;
+        toFinish = coordinator;
+      }
+      if (toFinish != null) {
+        context.finishAsync(toFinish, onFinished);
+      } else if (onFinished != null) {
+        // the query has not started
+        context.runAsync(onFinished, null);
+      }
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.rits.cloning.Cloner;
+
+/**
+ * Caches the results of the steps that ExecutionContext and SelectQueryCoordinator repeat for
+ * every execution of the same select query.
+ *
+ * <ol>
+ *   <li>The standardized query, which saves parsing the query and retrieving the metadata of the
+ *       tables it refers to.
+ *   <li>The query in which the original tables are replaced with scrambles (or the fact that no
+ *       scrambles are available for the query), which saves the inspection of the aggregates and
+ *       the scramble lookups.
+ * </ol>
+ *
+ * Both are keyed by the query text (with redundant whitespace removed), the default schema, and the
+ * version of the scramble metadata. Since the query objects are modified while they are processed,
+ * copies are stored and returned. The entries expire with the same time-to-live as the cached
+ * metadata they are derived from.
+ *
+ * <p>The execution plans are not cached since their nodes hold the state of a single execution
+ * (e.g., token queues and the in-memory aggregates); they are still built for every execution from
+ * the cached query.
+ */
+public class QueryCache {
+
+  private final Cache<Key, SelectQuery> standardizedQueries;
+
+  // Optional.absent() means that no scrambles can be used for the query.
+  private final Cache<Key, Optional<SelectQuery>> scrambledQueries;
+
+  /**
+   * @param maximumSize The maximum number of queries for each level
+   * @param ttlSeconds Time-to-live of each entry in seconds. Zero or a negative number means that
+   *     entries do not expire.
+   */
+  public QueryCache(long maximumSize, long ttlSeconds) {
+    standardizedQueries = QueryCache.<SelectQuery>newCache(maximumSize, ttlSeconds);
+    scrambledQueries = QueryCache.<Optional<SelectQuery>>newCache(maximumSize, ttlSeconds);
+  }
+
+  /** @return null if the cache is disabled by the options. */
+  public static QueryCache fromOption(VerdictOption options) {
+    if (options.getQueryCacheSize() <= 0) {
+      return null;
+    }
+    return new QueryCache(options.getQueryCacheSize(), options.getMetaDataCacheTtlSeconds());
+  }
+
+  private static <V> Cache<Key, V> newCache(long maximumSize, long ttlSeconds) {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats();
+    if (ttlSeconds > 0) {
+      builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param sql A query string
+   * @param defaultSchema The default schema against which the unqualified tables are resolved
+   * @param scrambleVersion The version of the scramble metadata; a negative number if unknown, in
+   *     which case the scrambled queries are not cached.
+   */
+  public static Key createKey(String sql, String defaultSchema, long scrambleVersion) {
+    return new Key(normalize(sql), defaultSchema, scrambleVersion);
+  }
+
+  /** @return A copy of the standardized query, or null if not cached. */
+  public SelectQuery getStandardizedQuery(Key key) {
+    SelectQuery query = standardizedQueries.getIfPresent(key);
+    return (query == null) ? null : copy(query);
+  }
+
+  public void putStandardizedQuery(Key key, SelectQuery standardized) {
+    standardizedQueries.put(key, copy(standardized));
+  }
+
+  /**
+   * @return null if not cached; Optional.absent() if no scrambles can be used for the query;
+   *     otherwise, a copy of the query that reads scrambles.
+   */
+  public Optional<SelectQuery> getScrambledQuery(Key key) {
+    if (key.scrambleVersion < 0) {
+      return null;
+    }
+    Optional<SelectQuery> query = scrambledQueries.getIfPresent(key);
+    if (query == null || !query.isPresent()) {
+      return query;
+    }
+    return Optional.of(copy(query.get()));
+  }
+
+  /**
+   * @param key The key of the standardized query
+   * @param scrambled null if no scrambles can be used for the query
+   */
+  public void putScrambledQuery(Key key, SelectQuery scrambled) {
+    if (key.scrambleVersion < 0) {
+      return;
+    }
+    Optional<SelectQuery> value =
+        (scrambled == null) ? Optional.<SelectQuery>absent() : Optional.of(copy(scrambled));
+    scrambledQueries.put(key, value);
+  }
+
+  /** Removes every entry; used when a statement may have changed tables or scrambles. */
+  public void invalidateAll() {
+    standardizedQueries.invalidateAll();
+    scrambledQueries.invalidateAll();
+  }
+
+  public long size() {
+    return standardizedQueries.size() + scrambledQueries.size();
+  }
+
+  public CacheStats getStandardizedQueryStats() {
+    return standardizedQueries.stats();
+  }
+
+  public CacheStats getScrambledQueryStats() {
+    return scrambledQueries.stats();
+  }
+
+  /** @return The ratio of the lookups of the standardized queries that were hits. */
+  public double getStandardizedQueryHitRate() {
+    return standardizedQueries.stats().hitRate();
+  }
+
+  /** @return The ratio of the lookups of the scrambled queries that were hits. */
+  public double getScrambledQueryHitRate() {
+    return scrambledQueries.stats().hitRate();
+  }
+
+  private static SelectQuery copy(SelectQuery query) {
+    // SelectQuery.deepcopy() does not copy every clause (e.g., order-by and limit).
+    return new Cloner().deepClone(query);
+  }
+
+  /**
+   * Collapses the whitespace outside of quotes, so that the queries differing only in formatting
+   * share an entry.
+   */
+  static String normalize(String sql) {
+    StringBuilder normalized = new StringBuilder(sql.length());
+    char quote = 0;
+    boolean pendingSpace = false;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        normalized.append(c);
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (Character.isWhitespace(c)) {
+        pendingSpace = normalized.length() > 0;
+      } else {
+        if (pendingSpace) {
+          normalized.append(' ');
+          pendingSpace = false;
+        }
+        if (c == '\'' || c == '"' || c == '`') {
+          quote = c;
+        }
+        normalized.append(c);
+      }
+    }
+    return normalized.toString();
+  }
+
+  public static class Key {
+
+    private final String sql;
+
+    private final String defaultSchema;
+
+    private final long scrambleVersion;
+
+    Key(String sql, String defaultSchema, long scrambleVersion) {
+      this.sql = sql;
+      this.defaultSchema = defaultSchema;
+      this.scrambleVersion = scrambleVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return sql.equals(other.sql)
+          && (defaultSchema == null
+              ? other.defaultSchema == null
+              : defaultSchema.equals(other.defaultSchema))
+          && scrambleVersion == other.scrambleVersion;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = sql.hashCode();
+      result = 31 * result + (defaultSchema == null ? 0 : defaultSchema.hashCode());
+      result = 31 * result + (int) (scrambleVersion ^ (scrambleVersion >>> 32));
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%s, %s, %d]", sql, defaultSchema, scrambleVersion);
+    }
+  }
+}
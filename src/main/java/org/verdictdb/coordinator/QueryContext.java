@@ -16,6 +16,14 @@
 
 package org.verdictdb.coordinator;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.connection.StreamingJdbcQueryResult;
+
 /** Created by Dong Young Yoon on 8/8/18. */
 public class QueryContext {
   
@@ -23,6 +31,13 @@ public class QueryContext {
   
   private Long executionSerialNumber;
 
+  // (schema, table) of the temp tables named for the queries of this context, which have not been
+  // dropped yet.
+  private List<Pair<String, String>> tempTables = new ArrayList<>();
+
+  // the streaming results handed to the callers of this context that have not been closed yet.
+  private final Set<StreamingJdbcQueryResult> streamingResults = new LinkedHashSet<>();
+
   public QueryContext(String verdictContextId, Long executionSerialNumber) {
     this.verdictContextId = verdictContextId;
     this.executionSerialNumber = executionSerialNumber;
@@ -35,4 +50,50 @@ public class QueryContext {
   public Long getExecutionSerialNumber() {
     return executionSerialNumber;
   }
+
+  public synchronized void addTempTable(String schemaName, String tableName) {
+    tempTables.add(Pair.of(schemaName, tableName));
+  }
+
+  /**
+   * Removes the temp tables registered so far from this context.
+   *
+   * @return The (schema, table) pairs of the removed temp tables. The tables may not exist if the
+   *     queries creating them have not run.
+   */
+  public synchronized List<Pair<String, String>> removeTempTables() {
+    List<Pair<String, String>> removed = tempTables;
+    tempTables = new ArrayList<>();
+    return removed;
+  }
+
+  /**
+   * Registers a streaming result so that its statement is released when this context terminates
+   * even if the caller never reads the result to its end. The result is unregistered when closed.
+   */
+  public void addStreamingResult(final StreamingJdbcQueryResult result) {
+    synchronized (this) {
+      streamingResults.add(result);
+    }
+    result.addCloseListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            synchronized (QueryContext.this) {
+              streamingResults.remove(result);
+            }
+          }
+        });
+  }
+
+  /** Closes the streaming results that have not been closed yet. */
+  public void closeStreamingResults() {
+    List<StreamingJdbcQueryResult> openResults;
+    synchronized (this) {
+      openResults = new ArrayList<>(streamingResults);
+    }
+    for (StreamingJdbcQueryResult result : openResults) {
+      result.cancel();
+    }
+  }
 }
@@ -10,18 +10,51 @@ public abstract class QueryResultAccuracyEstimator {
 
   protected VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
 
+  // the most recent answers; all answers if retainsAllAnswers is true.
   protected List<VerdictSingleResult> answers = new ArrayList<>();
 
+  // the number of answers added so far, including those that are no longer retained.
+  private int answerCount = 0;
+
+  private boolean retainsAllAnswers = true;
+
+  /**
+   * @param retainsAllAnswers If false, only the previous and the current answers are kept, so that
+   *     the memory used by this estimator does not grow with the number of answers.
+   */
+  public void setRetainsAllAnswers(boolean retainsAllAnswers) {
+    this.retainsAllAnswers = retainsAllAnswers;
+  }
+
+  /**
+   * @return The answers retained by this estimator in the order they were added. If only the last
+   *     two answers are retained, this contains at most two answers.
+   */
   public List<VerdictSingleResult> getAnswers() {
     return answers;
   }
 
-  public int getAnswerCount() { 
-    return answers.size(); 
+  /** @return The number of answers added so far */
+  public int getAnswerCount() {
+    return answerCount;
+  }
+
+  /** @return The answer added most recently; null if no answer has been added. */
+  public VerdictSingleResult getLastAnswer() {
+    return answers.isEmpty() ? null : answers.get(answers.size() - 1);
+  }
+
+  /** @return The answer added before the last answer; null if it does not exist. */
+  public VerdictSingleResult getPreviousAnswer() {
+    return answers.size() < 2 ? null : answers.get(answers.size() - 2);
   }
 
   public void add(VerdictSingleResult rs) {
     answers.add(rs);
+    answerCount++;
+    if (!retainsAllAnswers && answers.size() > 2) {
+      answers.remove(0);
+    }
   }
 
   /**
@@ -51,6 +51,9 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
 //  private Set<Integer> groupingColumnIndexes = new HashSet<>();
   private Set<Integer> nongroupingColumnIndxes = new HashSet<>();
 
+  // the largest relative difference of the aggregate values between the last two answers.
+  private double lastRelativeDifference = Double.POSITIVE_INFINITY;
+
   QueryResultAccuracyEstimatorFromDifference(SelectQuery originalQuery) {
     this.originalQuery = originalQuery;
 //    this.runningCoordinator = runningCoordinator;
@@ -66,7 +69,7 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     }
     
     List<SelectItem> selectItems = originalQuery.getSelectList();
-    VerdictSingleResult singleAnswer = answers.get(0);
+    VerdictSingleResult singleAnswer = getLastAnswer();
     
     // estimate the number of columns that would be projected by '*'.
     int numColExceptforAsterisk = 0;
@@ -107,6 +110,15 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     this.groupCountError = groupCountError;
   }
 
+  /**
+   * @return The largest relative difference of the aggregate values between the last answer and
+   *     the one before it; positive infinity if it is unknown (e.g., only one answer has been
+   *     added or the number of the groups has changed). Set by isLastResultAccurate().
+   */
+  public double getLastRelativeDifference() {
+    return lastRelativeDifference;
+  }
+
   /**
    * fetch the answer from stream until converge
    *
@@ -127,6 +139,7 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     // base condition check
     if (nongroupingColumnIndxes.size() == 0) {
       log.debug("No aggregate columns exist. The result is assumed to be exact.");
+      lastRelativeDifference = 0;
       return true;
     }
 
@@ -137,7 +150,7 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     
     // some variables we will use in this function
     HashMap<List<Object>, List<Object>> newAggregatedMap = new HashMap<>();
-    VerdictSingleResult currentAnswer = answers.get(answers.size() - 1);
+    VerdictSingleResult currentAnswer = getLastAnswer();
     
     while (currentAnswer.next()) {
       List<Object> aggregateValues = new ArrayList<>();
@@ -163,13 +176,14 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     currentAnswer.rewind();
     
     
-    if (answers.size() <= 1) {
+    lastRelativeDifference = Double.POSITIVE_INFINITY;
+    if (getAnswerCount() <= 1) {
       groupToNonGroupMap = newAggregatedMap;
       return false;
     }
     
     // Now actual check starts.
-    VerdictSingleResult previousAnswer = answers.get(answers.size() - 2);
+    VerdictSingleResult previousAnswer = getPreviousAnswer();
 
     // Check 1: check if #groupCountError is converged
     if (currentAnswer.getRowCount() < previousAnswer.getRowCount() * (1 - groupCountError)
@@ -178,9 +192,12 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     }
 
     // Check 2: if aggregate values have converged.
+    // Every value is compared (even after a value has not converged) to find the largest relative
+    // difference.
     Boolean isValueConverged = true;
+    double maxRelativeDifference = 0;
     for (List<Object> groupingValues : newAggregatedMap.keySet()) {
-      if (isValueConverged && groupToNonGroupMap.containsKey(groupingValues)) {
+      if (groupToNonGroupMap.containsKey(groupingValues)) {
         List<Object> prevAggregatedValues = groupToNonGroupMap.get(groupingValues);
         List<Object> aggregatedValues = newAggregatedMap.get(groupingValues);
         
@@ -190,25 +207,24 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
           if (prevObj == null || newObj == null) {
             // if Aggregate column is null, convergence test fails.
             isValueConverged = false;
-            break;
+            maxRelativeDifference = Double.POSITIVE_INFINITY;
+            continue;
           }
           double newValue = TypeCasting.toDouble(newObj);
           double prevValue = TypeCasting.toDouble(prevObj);
+          maxRelativeDifference =
+              Math.max(maxRelativeDifference, relativeDifference(prevValue, newValue));
           
-          if (prevValue < newValue * (1 - valueError) 
-              || prevValue > newValue * (1 + valueError)) {
-            log.debug(
-                String.format("Not accurate enough. Prev: %f, New: %f", prevValue, newValue));
+          if (isValueConverged
+              && (prevValue < newValue * (1 - valueError)
+                  || prevValue > newValue * (1 + valueError))) {
+            log.debug("Not accurate enough. Prev: {}, New: {}", prevValue, newValue);
             isValueConverged = false;
-            break;
           }
         }
       }
-      
-      if (!isValueConverged) {
-        break;
-      }
     }
+    lastRelativeDifference = maxRelativeDifference;
     
     // replaces the old values with the new values
     groupToNonGroupMap = newAggregatedMap;
@@ -216,6 +232,16 @@ public class QueryResultAccuracyEstimatorFromDifference extends QueryResultAccur
     return isValueConverged;
   }
 
+  private static double relativeDifference(double prevValue, double newValue) {
+    if (prevValue == newValue) {
+      return 0;
+    }
+    if (newValue == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return Math.abs(prevValue - newValue) / Math.abs(newValue);
+  }
+
   /**
    *
    * @return True if and only query contains only count or count distinct and doesn't contain group by
@@ -0,0 +1,153 @@
+package org.verdictdb.coordinator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.verdictdb.VerdictSingleResult;
+import org.verdictdb.commons.StudentTDistribution;
+import org.verdictdb.commons.TypeCasting;
+import org.verdictdb.core.sqlobject.AsteriskColumn;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+/**
+ * Estimates the accuracy of an answer using the standard errors that come with the answer (see
+ * VerdictSingleResult.getStandardError()).
+ *
+ * <p>The relative error of an answer is the largest ratio of the half width of the confidence
+ * interval to the absolute value, over all the cells that have standard errors. Since the standard
+ * errors are estimated from the variation among the blocks processed so far, the half width is
+ * based on Student's t distribution with (block count - 1) degrees of freedom, and no bound is
+ * trusted until at least MIN_BLOCK_COUNT blocks have been processed. The answer is considered to
+ * be accurate if the relative error is within the bound and the number of groups did not change
+ * much from the previous answer (since the groups that have not appeared yet have no error
+ * bounds).
+ *
+ * <p>The aggregate columns without standard errors (e.g., max and min) are not covered by the
+ * relative error; see hasUncoveredAggregates().
+ */
+public class QueryResultAccuracyEstimatorFromErrorBound extends QueryResultAccuracyEstimator {
+
+  /** The smallest number of blocks from which the standard errors are trusted. */
+  static final int MIN_BLOCK_COUNT = 3;
+
+  private double relativeErrorBound = 0.02;
+
+  // the #row of the result should be within [(1-groupCountError)*prev#row,
+  // (1+groupCountError)*prev#row] of the previous result.
+  private double groupCountError = 0.05;
+
+  private final double confidenceLevel;
+
+  // the indexes of the aggregate columns of the answers; empty if unknown.
+  private final List<Integer> aggregateColumnIndexes = new ArrayList<>();
+
+  private double lastRelativeError = Double.POSITIVE_INFINITY;
+
+  private boolean lastHasUncoveredAggregates = false;
+
+  /**
+   * @param selectQuery The standardized query; used for identifying the aggregate columns
+   * @param confidenceLevel The confidence level of the error bounds (e.g., 0.95)
+   */
+  QueryResultAccuracyEstimatorFromErrorBound(SelectQuery selectQuery, double confidenceLevel) {
+    this.confidenceLevel = confidenceLevel;
+    List<SelectItem> selectItems = selectQuery.getSelectList();
+    for (int i = 0; i < selectItems.size(); i++) {
+      SelectItem item = selectItems.get(i);
+      if (item instanceof AsteriskColumn) {
+        // the positions of the columns after '*' are unknown.
+        break;
+      }
+      if (item.isAggregateColumn()) {
+        aggregateColumnIndexes.add(i);
+      }
+    }
+  }
+
+  public void setRelativeErrorBound(double relativeErrorBound) {
+    this.relativeErrorBound = relativeErrorBound;
+  }
+
+  @Override
+  public void add(VerdictSingleResult rs) {
+    super.add(rs);
+    lastRelativeError = computeRelativeError(rs);
+  }
+
+  /**
+   * @return The relative error of the last answer; positive infinity if some standard errors are
+   *     unknown or are estimated from fewer than MIN_BLOCK_COUNT blocks.
+   */
+  public double getLastRelativeError() {
+    return lastRelativeError;
+  }
+
+  /**
+   * @return True if some aggregate columns of the last answer have no standard errors at all
+   *     (e.g., max and min); the accuracy of those columns must be checked in another way.
+   */
+  public boolean hasUncoveredAggregates() {
+    return lastHasUncoveredAggregates;
+  }
+
+  @Override
+  public boolean isLastResultAccurate() {
+    VerdictSingleResult current = getLastAnswer();
+    VerdictSingleResult previous = getPreviousAnswer();
+    if (current == null || previous == null) {
+      return false;
+    }
+    long rowCount = current.getRowCount();
+    long previousRowCount = previous.getRowCount();
+    if (rowCount < (1 - groupCountError) * previousRowCount
+        || rowCount > (1 + groupCountError) * previousRowCount) {
+      return false;
+    }
+    return lastRelativeError <= relativeErrorBound;
+  }
+
+  private double computeRelativeError(VerdictSingleResult rs) {
+    lastHasUncoveredAggregates = false;
+    if (!rs.hasStandardErrors() || rs.getRowCount() == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    int blockCount = rs.getStandardErrorBlockCount();
+    if (blockCount < MIN_BLOCK_COUNT) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double tScore = StudentTDistribution.tScore(confidenceLevel, blockCount - 1);
+
+    boolean hasBound = false;
+    double maxRelativeError = 0;
+    int columnCount = rs.getColumnCount();
+    boolean[] hasStandardError = new boolean[columnCount];
+    rs.rewind();
+    while (rs.next()) {
+      for (int i = 0; i < columnCount; i++) {
+        Double value = TypeCasting.toDouble(rs.getValue(i));
+        Double standardError = rs.getStandardError(i);
+        if (standardError == null) {
+          continue;
+        }
+        hasBound = true;
+        hasStandardError[i] = true;
+        double bound = tScore * standardError;
+        if (value == null || value == 0) {
+          if (bound > 0) {
+            maxRelativeError = Double.POSITIVE_INFINITY;
+          }
+        } else {
+          maxRelativeError = Math.max(maxRelativeError, bound / Math.abs(value));
+        }
+      }
+    }
+    rs.rewind();
+    for (int index : aggregateColumnIndexes) {
+      if (index < columnCount && !hasStandardError[index]) {
+        lastHasUncoveredAggregates = true;
+      }
+    }
+    return hasBound ? maxRelativeError : Double.POSITIVE_INFINITY;
+  }
+}
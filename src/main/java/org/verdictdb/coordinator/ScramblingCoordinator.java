@@ -30,6 +30,7 @@ import org.verdictdb.core.scrambling.HashScramblingMethod;
 import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScramblingMethod;
 import org.verdictdb.core.scrambling.ScramblingMethodBase;
+import org.verdictdb.core.scrambling.ScramblingNode;
 import org.verdictdb.core.scrambling.ScramblingPlan;
 import org.verdictdb.core.scrambling.UniformScramblingMethod;
 import org.verdictdb.core.sqlobject.BaseColumn;
@@ -89,6 +90,7 @@ public class ScramblingCoordinator {
           put("createIfNotExists", "false");
           put("maxScrambleTableBlockCount", "100");
           put("existingPartitionColumns", "");
+          put("statisticsSamplingRatio", "1.0");
         }
       };
 
@@ -144,6 +146,14 @@ public class ScramblingCoordinator {
     }
   }
 
+  /**
+   * @param statisticsSamplingRatio The fraction of an original table read for computing the
+   *     statistics of fastconverge scrambles. 1.0 reads the entire table.
+   */
+  public void setStatisticsSamplingRatio(double statisticsSamplingRatio) {
+    options.put("statisticsSamplingRatio", String.valueOf(statisticsSamplingRatio));
+  }
+
   public ScrambleMeta scramble(String originalSchema, String originalTable)
       throws VerdictDBException {
     String newSchema;
@@ -208,8 +218,71 @@ public class ScramblingCoordinator {
     return meta;
   }
 
+  /**
+   * Appends the rows of the original table (satisfying the condition of the query) to an existing
+   * scramble. If the stored cumulative distributions of the scrambling method can be reused, the
+   * rows are scrambled directly into the existing scramble by a single INSERT; otherwise (e.g.,
+   * fastconverge), a temporary scramble is created and inserted into the existing scramble.
+   *
+   * @param query The scramble to append to. The scrambling method must be set.
+   * @throws VerdictDBException
+   */
   // Note: this is the method currently used by the upstream interface.
   public void appendScramble(CreateScrambleQuery query) throws VerdictDBException {
+    if (canAppendDirectly(query.getScramblingMethod())) {
+      appendScrambleDirectly(query);
+    } else {
+      appendScrambleWithTempTable(query);
+    }
+  }
+
+  /**
+   * @return True if the rows can be scrambled without computing the statistics of the original
+   *     table, i.e., if the block assignment only depends on the stored cumulative distributions
+   *     (and, for fastconverge, on the stored outlier bounds).
+   */
+  static boolean canAppendDirectly(ScramblingMethod method) {
+    if (method instanceof FastConvergeScramblingMethod) {
+      FastConvergeScramblingMethod fastConverge = (FastConvergeScramblingMethod) method;
+      // the large group list of a primary column is not stored.
+      return fastConverge.hasStoredStatistics() && fastConverge.getPrimaryColumnName() == null;
+    }
+    return (method instanceof UniformScramblingMethod || method instanceof HashScramblingMethod)
+        && method.getStoredCumulativeProbabilityDistributionForTier(0) != null;
+  }
+
+  private void appendScrambleDirectly(CreateScrambleQuery query) throws VerdictDBException {
+    String scrambleSchema = query.getNewSchema();
+    String scrambleTable = query.getNewTable();
+    String originalSchema = query.getOriginalSchema();
+    String originalTable = query.getOriginalTable();
+
+    log.info(
+        String.format(
+            "Starts to append %s.%s to the existing %s scramble %s.%s",
+            originalSchema,
+            originalTable,
+            query.getMethod().toUpperCase(),
+            scrambleSchema,
+            scrambleTable));
+
+    InsertIntoSelectQuery insertQuery =
+        ScramblingNode.createAppendQuery(
+            scrambleSchema,
+            scrambleTable,
+            originalSchema,
+            originalTable,
+            query.getScramblingMethod(),
+            query.getWhere(),
+            conn.getColumns(originalSchema, originalTable),
+            new HashMap<>(options));
+    conn.execute(insertQuery);
+    log.info(
+        String.format(
+            "Finished appending to the existing scramble %s.%s", scrambleSchema, scrambleTable));
+  }
+
+  private void appendScrambleWithTempTable(CreateScrambleQuery query) throws VerdictDBException {
     ScramblingMethod scramblingMethod = query.getScramblingMethod();
     String methodName = query.getMethod();
     String scrambleSchema = query.getNewSchema();
@@ -395,11 +468,16 @@ public class ScramblingCoordinator {
     } else if (methodName.equalsIgnoreCase("hash")) {
       scramblingMethodBase =
           new HashScramblingMethod(blockSize, maxBlockCount, relativeSize, primaryColumn);
-    } else if (methodName.equalsIgnoreCase("FastConverge") && primaryColumn == null) {
-      scramblingMethodBase = new FastConvergeScramblingMethod(blockSize, scratchpadSchema.get());
-    } else if (methodName.equalsIgnoreCase("FastConverge") && primaryColumn != null) {
-      scramblingMethodBase =
-          new FastConvergeScramblingMethod(blockSize, scratchpadSchema.get(), primaryColumn);
+    } else if (methodName.equalsIgnoreCase("FastConverge")) {
+      FastConvergeScramblingMethod fastConverge =
+          (primaryColumn == null)
+              ? new FastConvergeScramblingMethod(blockSize, scratchpadSchema.get())
+              : new FastConvergeScramblingMethod(blockSize, scratchpadSchema.get(), primaryColumn);
+      String statisticsSamplingRatio = effectiveOptions.get("statisticsSamplingRatio");
+      if (statisticsSamplingRatio != null) {
+        fastConverge.setStatisticsSamplingRatio(Double.valueOf(statisticsSamplingRatio));
+      }
+      scramblingMethodBase = fastConverge;
     } else {
       throw new VerdictDBValueException("Invalid scrambling method: " + methodName);
     }
@@ -0,0 +1,257 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.connection.CachedDbmsConnection;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.core.sqlobject.CreateSchemaQuery;
+import org.verdictdb.core.sqlobject.DropTableQuery;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.exception.VerdictDBException;
+
+/**
+ * Manages the scratchpad schemas, in which the temp tables of execution plans are created. A single
+ * manager is shared by all the ExecutionContexts of a VerdictContext.
+ *
+ * <ol>
+ *   <li>The existence of a scratchpad schema is checked only once.
+ *   <li>The temp tables of a query are dropped in a batch on a background thread, so that the
+ *       caller does not wait for the drops.
+ *   <li>The temp tables left by the processes that did not drop them (e.g., crashed ones) are
+ *       dropped once they are older than the maximum age. The age is determined by the creation
+ *       time at the end of the table names; thus, the tables without it are never dropped this way.
+ * </ol>
+ */
+public class ScratchpadManager {
+
+  private static final VerdictDBLogger log = VerdictDBLogger.getLogger(ScratchpadManager.class);
+
+  // precedes the creation time (in seconds) at the end of a temp table name
+  private static final String CREATION_TIME_MARKER = "_t";
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+  private DbmsConnection conn;
+
+  private long tempTableMaxAgeSeconds;
+
+  private Set<String> existingSchemas =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  private ExecutorService dropper = Executors.newSingleThreadExecutor(new DropperThreadFactory());
+
+  /**
+   * @param conn The connection on which the temp tables are dropped
+   * @param tempTableMaxAgeSeconds The temp tables older than this are regarded as orphaned. Zero or
+   *     a negative number means that no table is regarded as orphaned.
+   */
+  public ScratchpadManager(DbmsConnection conn, long tempTableMaxAgeSeconds) {
+    this.conn = conn;
+    this.tempTableMaxAgeSeconds = tempTableMaxAgeSeconds;
+  }
+
+  public static ScratchpadManager fromOption(DbmsConnection conn, VerdictOption options) {
+    return new ScratchpadManager(conn, options.getTempTableMaxAgeSeconds());
+  }
+
+  /** @return The suffix of a temp table name that records the current time. */
+  public static String getCreationTimeSuffix() {
+    return CREATION_TIME_MARKER + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+  }
+
+  /**
+   * @param tableName The name of a temp table
+   * @return The creation time in seconds; -1 if the name does not end with it.
+   */
+  static long getCreationTimeSeconds(String tableName) {
+    int index = tableName.lastIndexOf(CREATION_TIME_MARKER);
+    if (index < 0) {
+      return -1;
+    }
+    String seconds = tableName.substring(index + CREATION_TIME_MARKER.length());
+    if (seconds.isEmpty() || !StringUtils.isNumeric(seconds)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(seconds);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Creates the schema if it does not exist. Once the schema is known to exist, this method
+   * returns immediately without accessing the database.
+   *
+   * @param schema The scratchpad schema
+   * @throws VerdictDBException
+   */
+  public void ensureSchemaExists(String schema) throws VerdictDBException {
+    if (existingSchemas.contains(schema)) {
+      return;
+    }
+    CreateSchemaQuery query = new CreateSchemaQuery(schema);
+    query.setIfNotExists(true);
+    conn.execute(query);
+    existingSchemas.add(schema);
+  }
+
+  /**
+   * Drops the tables on the background thread. If this manager has been shut down, the tables are
+   * dropped on the calling thread.
+   *
+   * @param tables (schema, table) pairs
+   * @return The future completed when all the tables have been dropped
+   */
+  public Future<?> dropTablesInBackground(final List<Pair<String, String>> tables) {
+    try {
+      return dropper.submit(
+          new Runnable() {
+            @Override
+            public void run() {
+              dropTables(conn, tables);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      dropTables(conn, tables);
+      return null;
+    }
+  }
+
+  /**
+   * Drops the tables one by one. A failure to drop a table is logged, and the remaining tables are
+   * still dropped.
+   *
+   * @param conn The connection on which the tables are dropped
+   * @param tables (schema, table) pairs
+   * @return The number of the tables dropped without errors
+   */
+  public static int dropTables(DbmsConnection conn, List<Pair<String, String>> tables) {
+    int droppedCount = 0;
+    for (Pair<String, String> table : tables) {
+      DropTableQuery query = new DropTableQuery(table.getLeft(), table.getRight());
+      query.setIfExists(true);
+      try {
+        conn.execute(query);
+        droppedCount++;
+      } catch (VerdictDBException e) {
+        log.debug("Failed to drop {}.{}: {}", table.getLeft(), table.getRight(), e);
+      }
+    }
+    if (droppedCount > 0) {
+      log.trace("Dropped {} temp tables.", droppedCount);
+    }
+    return droppedCount;
+  }
+
+  /**
+   * Drops the orphaned temp tables of the schema on the background thread.
+   *
+   * @param schema The scratchpad schema
+   * @return The future completed when all the orphaned tables have been dropped
+   */
+  public Future<?> dropOrphanedTablesInBackground(final String schema) {
+    if (tempTableMaxAgeSeconds <= 0) {
+      return null;
+    }
+    final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    return dropper.submit(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              List<Pair<String, String>> orphans = findOrphanedTables(schema, nowSeconds);
+              if (orphans.size() > 0) {
+                log.debug("Drops {} orphaned temp tables in {}.", orphans.size(), schema);
+                dropTables(conn, orphans);
+              }
+            } catch (VerdictDBDbmsException e) {
+              log.debug("Failed to list the temp tables in {}: {}", schema, e);
+            }
+          }
+        });
+  }
+
+  /**
+   * @param schema The scratchpad schema
+   * @param nowSeconds The current time in seconds
+   * @return The (schema, table) pairs of the temp tables older than the maximum age
+   * @throws VerdictDBDbmsException
+   */
+  List<Pair<String, String>> findOrphanedTables(String schema, long nowSeconds)
+      throws VerdictDBDbmsException {
+    List<String> tables;
+    if (conn instanceof CachedDbmsConnection) {
+      tables = ((CachedDbmsConnection) conn).getTablesWithoutCaching(schema);
+    } else {
+      tables = conn.getTables(schema);
+    }
+
+    List<Pair<String, String>> orphans = new ArrayList<>();
+    for (String table : tables) {
+      if (!table.startsWith(VerdictOption.getVerdictTempTablePrefix())) {
+        continue;
+      }
+      long creationTime = getCreationTimeSeconds(table);
+      if (creationTime >= 0 && nowSeconds - creationTime > tempTableMaxAgeSeconds) {
+        orphans.add(Pair.of(schema, table));
+      }
+    }
+    return orphans;
+  }
+
+  /**
+   * Waits (for a limited time) until the pending drops complete. The tables passed after this call
+   * are dropped on the calling thread.
+   */
+  public void shutdown() {
+    dropper.shutdown();
+    try {
+      if (!dropper.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.debug("Some temp tables may not have been dropped.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class DropperThreadFactory implements ThreadFactory {
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "verdictdb-scratchpad-dropper");
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
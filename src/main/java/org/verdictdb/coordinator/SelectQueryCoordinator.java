@@ -23,14 +23,22 @@ import org.apache.commons.lang3.tuple.Triple;
 import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.commons.VerdictOption;
 import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.StreamingJdbcQueryResult;
 import org.verdictdb.core.execplan.ExecutablePlanRunner;
+import org.verdictdb.core.execplan.ExecutionBudget;
 import org.verdictdb.core.execplan.ExecutionInfoToken;
 import org.verdictdb.core.execplan.ExecutionTokenQueue;
+import org.verdictdb.core.execplan.NodeExecutionService;
 import org.verdictdb.core.querying.QueryExecutionPlan;
 import org.verdictdb.core.querying.QueryExecutionPlanFactory;
+import org.verdictdb.core.querying.ola.AggCombiningStrategy;
 import org.verdictdb.core.querying.ola.AsyncQueryExecutionPlan;
 import org.verdictdb.core.querying.simplifier.QueryExecutionPlanSimplifier;
+import org.verdictdb.core.resulthandler.ExecutionResultDispatcher;
+import org.verdictdb.core.resulthandler.ExecutionResultListener;
 import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
 import org.verdictdb.core.sqlobject.AbstractRelation;
 import org.verdictdb.core.sqlobject.AliasedColumn;
@@ -46,6 +54,8 @@ import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBValueException;
 import org.verdictdb.sqlreader.ScrambleTableReplacer;
 
+import com.google.common.base.Optional;
+
 public class SelectQueryCoordinator implements Coordinator {
 
   private ExecutablePlanRunner planRunner;
@@ -60,6 +70,22 @@ public class SelectQueryCoordinator implements Coordinator {
 
   VerdictOption options;
 
+  NodeExecutionService executionService = NodeExecutionService.getDefault();
+
+  // if set, the scramble replacement of the query is looked up in and stored to this cache.
+  QueryCache queryCache = null;
+
+  QueryCache.Key queryCacheKey = null;
+
+  // if null, the strategy of the options is used.
+  AggCombiningStrategy combiningStrategy = null;
+
+  // if set, the scratchpad schema is checked only once within the VerdictContext.
+  ScratchpadManager scratchpadManager = null;
+
+  // if set, the blocks of the queries are launched only within this budget.
+  ExecutionBudget budget = null;
+
   private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
 
   public SelectQueryCoordinator(DbmsConnection conn) {
@@ -92,6 +118,64 @@ public class SelectQueryCoordinator implements Coordinator {
     this.scrambleMetaSet = scrambleMetaSet;
   }
 
+  /**
+   * Sets the threads on which the nodes of the execution plans of this coordinator run.
+   *
+   * @param executionService Typically, the one shared within a VerdictContext.
+   */
+  public void setNodeExecutionService(NodeExecutionService executionService) {
+    this.executionService = executionService;
+  }
+
+  /**
+   * Sets the cache for the query processed next.
+   *
+   * @param queryCache Typically, the one shared within a VerdictContext.
+   * @param key The key of the query processed next
+   */
+  public void setQueryCache(QueryCache queryCache, QueryCache.Key key) {
+    this.queryCache = queryCache;
+    this.queryCacheKey = key;
+  }
+
+  /**
+   * Sets the manager of the scratchpad schema.
+   *
+   * @param scratchpadManager Typically, the one shared within a VerdictContext.
+   */
+  public void setScratchpadManager(ScratchpadManager scratchpadManager) {
+    this.scratchpadManager = scratchpadManager;
+  }
+
+  /**
+   * Sets the budget within which the blocks of the query processed next are launched.
+   *
+   * @param budget null if every block is launched.
+   */
+  public void setExecutionBudget(ExecutionBudget budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Sets how the results of blocks are combined for the nested aggregates of the queries processed
+   * by this coordinator, overriding the strategy of the options.
+   *
+   * @param combiningStrategy
+   */
+  public void setAggCombiningStrategy(AggCombiningStrategy combiningStrategy) {
+    this.combiningStrategy = combiningStrategy;
+  }
+
+  private AggCombiningStrategy getAggCombiningStrategy() throws VerdictDBValueException {
+    if (combiningStrategy != null) {
+      return combiningStrategy;
+    } else if (options != null) {
+      return AggCombiningStrategy.fromName(options.getAggCombiningStrategy());
+    } else {
+      return AggCombiningStrategy.getDefault();
+    }
+  }
+
   public SelectQuery getLastQuery() {
     return lastQuery;
   }
@@ -117,9 +201,74 @@ public class SelectQueryCoordinator implements Coordinator {
 
   public ExecutionResultReader process(SelectQuery selectQuery, QueryContext context)
       throws VerdictDBException {
+    AsyncQueryExecutionPlan asyncPlan = createPlan(selectQuery, context);
+    if (asyncPlan == null) {
+      // this means there are no scrambles available, we should run it as-is
+      ExecutionTokenQueue queue = new ExecutionTokenQueue();
+      queue.add(executeAsIs(selectQuery, context));
+      queue.add(ExecutionInfoToken.successToken());
+      return new ExecutionResultReader(queue);
+    }
 
+    // execute the plan
+    planRunner = new ExecutablePlanRunner(conn, asyncPlan, executionService, budget);
+    return planRunner.getResultReader();
+  }
+
+  /**
+   * Same as process() except that the results are pushed to the listener as they are produced,
+   * instead of being pulled by the caller. This method returns once the plan is launched; no
+   * thread is blocked while waiting for the results.
+   *
+   * @param selectQuery Already standardized select query
+   * @param context
+   * @param listener Called on the threads that run the plan (or on the calling thread if the query
+   *     is executed as-is).
+   * @throws VerdictDBException If the query cannot be planned
+   */
+  public void processAsync(
+      SelectQuery selectQuery, QueryContext context, ExecutionResultListener listener)
+      throws VerdictDBException {
+    ExecutionResultDispatcher dispatcher = new ExecutionResultDispatcher(listener);
+    AsyncQueryExecutionPlan asyncPlan = createPlan(selectQuery, context);
+    if (asyncPlan == null) {
+      dispatcher.onToken(executeAsIs(selectQuery, context));
+      dispatcher.onToken(ExecutionInfoToken.successToken());
+      return;
+    }
+
+    planRunner = new ExecutablePlanRunner(conn, asyncPlan, executionService, budget);
+    planRunner.runWithTokenListener(dispatcher);
+  }
+
+  /**
+   * Executes the query without scrambles. The rows are streamed to the caller instead of being
+   * read into memory at once; the streamed result is registered to the context (if any) so that it
+   * is closed when the context terminates.
+   */
+  private ExecutionInfoToken executeAsIs(SelectQuery selectQuery, QueryContext context)
+      throws VerdictDBException {
+    log.debug("No scrambles available for the query. We will execute it as-is.");
+    ExecutionInfoToken token = ExecutionInfoToken.empty();
+    int fetchSize =
+        (options == null) ? VerdictOption.getDefaultResultFetchSize() : options.getResultFetchSize();
+    DbmsQueryResult result = conn.executeStreaming(selectQuery, fetchSize);
+    if (context != null && result instanceof StreamingJdbcQueryResult) {
+      context.addStreamingResult((StreamingJdbcQueryResult) result);
+    }
+    token.setKeyValue("queryResult", result);
+    return token;
+  }
+
+  /**
+   * @return The plan for the query; null if there are no scrambles for the query.
+   */
+  private AsyncQueryExecutionPlan createPlan(SelectQuery selectQuery, QueryContext context)
+      throws VerdictDBException {
     // create scratchpad schema if not exists
-    if (!conn.getSchemas().contains(scratchpadSchema)) {
+    if (scratchpadManager != null) {
+      scratchpadManager.ensureSchemaExists(scratchpadSchema);
+    } else if (!conn.getSchemas().contains(scratchpadSchema)) {
       log.info(
           String.format(
               "The schema for temporary tables (%s) does not exist; so we create it.",
@@ -129,18 +278,11 @@ public class SelectQueryCoordinator implements Coordinator {
     }
     
     // replaces original tables with scrambles if available
-    SelectQuery fasterQuery = lookforReplacement2Scrambles(selectQuery);
+    SelectQuery fasterQuery = lookforReplacement2ScramblesWithCache(selectQuery);
 
     lastQuery = null;
     if (fasterQuery == null) {
-      // this means there are no scrambles available, we should run it as-is
-      log.debug("No scrambles available for the query. We will execute it as-is.");
-      ExecutionInfoToken token = ExecutionInfoToken.empty();
-      ExecutionTokenQueue queue = new ExecutionTokenQueue();
-      token.setKeyValue("queryResult", conn.execute(selectQuery));
-      queue.add(token);
-      queue.add(ExecutionInfoToken.successToken());
-      return new ExecutionResultReader(queue);
+      return null;
     }
 
     // make plan
@@ -152,22 +294,19 @@ public class SelectQueryCoordinator implements Coordinator {
     // convert it to an asynchronous plan
     // if the plan does not include any aggregates, this operation should not alter the original
     // plan.
-    QueryExecutionPlan asyncPlan = AsyncQueryExecutionPlan.create(plan);
+    AsyncQueryExecutionPlan asyncPlan =
+        AsyncQueryExecutionPlan.create(
+            plan, getAggCombiningStrategy(), isCountDistinctSketchSupported());
     log.debug("Async plan created.");
 
     // simplify the plan
     //    QueryExecutionPlan simplifiedAsyncPlan = QueryExecutionPlanSimplifier.simplify(asyncPlan);
-    QueryExecutionPlanSimplifier.simplify2(asyncPlan);
+    QueryExecutionPlanSimplifier.simplify2(asyncPlan, conn.getSyntax());
     log.debug("Plan simplification done.");
-    log.trace(asyncPlan.getRoot().getStructure());
-
-    // execute the plan
-    planRunner = new ExecutablePlanRunner(conn, asyncPlan);
-    ExecutionResultReader reader = planRunner.getResultReader();
+    log.trace(asyncPlan.getStructure());
 
     lastQuery = fasterQuery;
-
-    return reader;
+    return asyncPlan;
   }
 
   @Override
@@ -179,18 +318,29 @@ public class SelectQueryCoordinator implements Coordinator {
     }
   }
   
+  /**
+   * Whether the count-distinct aggregates of outer queries can be computed progressively on the
+   * scrambles of any type using HyperLogLog sketches; it requires a 32-bit hash of the dbms.
+   */
+  private boolean isCountDistinctSketchSupported() {
+    return conn.getSyntax().getHllHashFunction("x") != null;
+  }
+  
   /**
    * Ensures that simple aggregates (i.e., sum, count, avg) are associated with uniform scrambles,
-   * and that count-distinct aggregates are associated with hash scrambles.
+   * and that count-distinct aggregates are associated with hash scrambles. The count-distinct
+   * aggregates of the outer query may also be associated with the single-tier scrambles that
+   * include every row of their original tables if sketches are supported.
    * 
    * @param query
    * @throws VerdictDBException
    */
   private void ensureScrambleCorrectness(SelectQuery query) throws VerdictDBException {
-    ensureScrambleCorrectnessInner(query, null);
+    ensureScrambleCorrectnessInner(query, null, true);
   }
   
-  private void ensureScrambleCorrectnessInner(SelectQuery query, BaseColumn countDistinctColumn)
+  private void ensureScrambleCorrectnessInner(
+      SelectQuery query, BaseColumn countDistinctColumn, boolean isOuterAggregate)
       throws VerdictDBException {
     
     Triple<Boolean, Boolean, BaseColumn> inspectionInfo = inspectAggregatesInSelectList(query);
@@ -216,9 +366,21 @@ public class SelectQueryCoordinator implements Coordinator {
           }
         } else if (containCountDistinctItem) {
           String hashColumn = scrambleMetaSet.getHashColumn(schemaName, tableName);
-          if (!method.equalsIgnoreCase("hash")
-              || hashColumn == null
-              || !hashColumn.equalsIgnoreCase(countDistinctColumn.getColumnName())) {
+          boolean hashedOnColumn =
+              method.equalsIgnoreCase("hash")
+                  && hashColumn != null
+                  && hashColumn.equalsIgnoreCase(countDistinctColumn.getColumnName());
+          if (hashedOnColumn) {
+            // the answers of the blocks are simply summed up
+            continue;
+          }
+          ScrambleMeta meta = scrambleMetaSet.getSingleMeta(schemaName, tableName);
+          boolean sketchable =
+              isOuterAggregate
+                  && isCountDistinctSketchSupported()
+                  && meta.getNumberOfTiers() == 1
+                  && meta.getRelativeSize() >= 1.0;
+          if (!sketchable) {
             throw new VerdictDBValueException(
                 "Count distinct of a column must be used with the hash scramble "
                     + "built on that column.");
@@ -232,7 +394,7 @@ public class SelectQueryCoordinator implements Coordinator {
           }
         }
       } else if (table instanceof SelectQuery) {
-        ensureScrambleCorrectnessInner((SelectQuery) table, countDistinctColumn);
+        ensureScrambleCorrectnessInner((SelectQuery) table, countDistinctColumn, false);
       }  
     }
   }
@@ -352,6 +514,21 @@ public class SelectQueryCoordinator implements Coordinator {
 //    return selectQuery;
 //  }
   
+  private SelectQuery lookforReplacement2ScramblesWithCache(SelectQuery query)
+      throws VerdictDBException {
+    if (queryCache == null || queryCacheKey == null) {
+      return lookforReplacement2Scrambles(query);
+    }
+    Optional<SelectQuery> cached = queryCache.getScrambledQuery(queryCacheKey);
+    if (cached != null) {
+      log.debug("Scramble replacement found in the cache.");
+      return cached.orNull();
+    }
+    SelectQuery fasterQuery = lookforReplacement2Scrambles(query);
+    queryCache.putScrambledQuery(queryCacheKey, fasterQuery);
+    return fasterQuery;
+  }
+
   /**
    * Replaces original tables with corresponding scrambles.
    * @param query
@@ -366,6 +543,9 @@ public class SelectQueryCoordinator implements Coordinator {
 
     // replaces original tables with scrambles
     ScrambleTableReplacer replacer = new ScrambleTableReplacer(scrambleMetaSet);
+    replacer.setCountDistinctSketchEnabled(isCountDistinctSketchSupported());
+    replacer.setAutomaticReplacementEnabled(
+        options != null && options.getAutoScrambleReplacement());
     int scrambleCount = replacer.replaceQuery(query);
     
     // ensure scramble validity
@@ -3,6 +3,9 @@ package org.verdictdb.coordinator;
 import org.verdictdb.VerdictSingleResult;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.DbmsQueryResultMetaData;
+import org.verdictdb.connection.ImmutableQueryResult;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.connection.StreamingJdbcQueryResult;
 
 import com.google.common.base.Optional;
 import com.rits.cloning.Cloner;
@@ -19,10 +22,11 @@ public class VerdictSingleResultFromDbmsQueryResult
     super();
     if (result == null) {
       this.result = Optional.absent();
+    } else if (result instanceof StreamingJdbcQueryResult) {
+      // a streaming result is read only once by its single owner; copying it would read every row.
+      this.result = Optional.of(result);
     } else {
-      DbmsQueryResult copied = copyResult(result);
-      copied.rewind();
-      this.result = Optional.of(copied);
+      this.result = Optional.of(copyResult(result));
     }
   }
 
@@ -36,9 +40,7 @@ public class VerdictSingleResultFromDbmsQueryResult
       if (asIs) {
         this.result = Optional.of(result);
       } else {
-        DbmsQueryResult copied = copyResult(result);
-        copied.rewind();
-        this.result = Optional.of(copied);
+        this.result = Optional.of(copyResult(result));
       }
     }
   }
@@ -52,8 +54,18 @@ public class VerdictSingleResultFromDbmsQueryResult
   }
 
 
+  /**
+   * An immutable result is shared with its source through a snapshot (i.e., only the cursor is
+   * created); other results are deep-copied.
+   *
+   * @return A result positioned before its first row
+   */
   private DbmsQueryResult copyResult(DbmsQueryResult result) {
+    if (result instanceof ImmutableQueryResult) {
+      return ((ImmutableQueryResult) result).snapshot();
+    }
     DbmsQueryResult copied = new Cloner().deepClone(result);
+    copied.rewind();
     return copied;
   }
 
@@ -114,6 +126,39 @@ public class VerdictSingleResultFromDbmsQueryResult
     }
   }
 
+  @Override
+  public boolean hasStandardErrors() {
+    return result.isPresent()
+        && result.get() instanceof JdbcQueryResult
+        && ((JdbcQueryResult) result.get()).hasStandardErrors();
+  }
+
+  @Override
+  public int getStandardErrorBlockCount() {
+    if (result.isPresent() && result.get() instanceof JdbcQueryResult) {
+      return ((JdbcQueryResult) result.get()).getStandardErrorBlockCount();
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean hasPartialSketchEstimates() {
+    return result.isPresent()
+        && result.get() instanceof JdbcQueryResult
+        && ((JdbcQueryResult) result.get()).hasPartialSketchEstimates();
+  }
+
+  @Override
+  public Double getStandardError(int index) {
+    if (!result.isPresent()) {
+      throw new RuntimeException("An empty result is accessed.");
+    } else if (result.get() instanceof JdbcQueryResult) {
+      return ((JdbcQueryResult) result.get()).getStandardError(index);
+    } else {
+      return null;
+    }
+  }
+
   public boolean wasNull() {
     return lastValueRead == null;
   }
@@ -131,4 +176,11 @@ public class VerdictSingleResultFromDbmsQueryResult
       result.get().rewind();
     }
   }
+
+  @Override
+  public void close() {
+    if (result.isPresent() && result.get() instanceof StreamingJdbcQueryResult) {
+      ((StreamingJdbcQueryResult) result.get()).close();
+    }
+  }
 }
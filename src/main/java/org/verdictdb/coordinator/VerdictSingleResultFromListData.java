@@ -3,6 +3,7 @@ package org.verdictdb.coordinator;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.verdictdb.VerdictSingleResult;
@@ -10,7 +11,6 @@ import org.verdictdb.commons.DataTypeConverter;
 import org.verdictdb.connection.DbmsQueryResultMetaData;
 
 import com.google.common.base.Optional;
-import com.rits.cloning.Cloner;
 
 public class VerdictSingleResultFromListData extends VerdictSingleResult {
 
@@ -62,9 +62,16 @@ public class VerdictSingleResultFromListData extends VerdictSingleResult {
     return !result.isPresent();
   }
 
+  /**
+   * Copies the rows into unmodifiable lists so that the result is not affected by later changes to
+   * the given lists. The values themselves (e.g., strings and numbers) are shared.
+   */
   private static List<List<Object>> copyResult(List<List<Object>> result) {
-    List<List<Object>> copied = new Cloner().deepClone(result);
-    return copied;
+    List<List<Object>> copied = new ArrayList<>(result.size());
+    for (List<Object> row : result) {
+      copied.add(Collections.unmodifiableList(new ArrayList<>(row)));
+    }
+    return Collections.unmodifiableList(copied);
   }
 
   public DbmsQueryResultMetaData getMetaData() {
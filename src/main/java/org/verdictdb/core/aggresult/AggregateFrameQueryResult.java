@@ -24,11 +24,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
-import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.DbmsQueryResultMetaData;
+import org.verdictdb.connection.ImmutableQueryResult;
 
 public class AggregateFrameQueryResult extends AttributeValueRetrievalHelper
-    implements DbmsQueryResult {
+    implements ImmutableQueryResult {
 
   private AggregateFrame aggregateFrame;
   private transient Iterator it;
@@ -51,6 +51,18 @@ public class AggregateFrameQueryResult extends AttributeValueRetrievalHelper
     }
   }
 
+  /** Shares the frame and the column order of the source; only the cursor is new. */
+  private AggregateFrameQueryResult(AggregateFrameQueryResult source) {
+    this.aggregateFrame = source.aggregateFrame;
+    this.orderedColumnIndex = source.orderedColumnIndex;
+    it = aggregateFrame.data.entrySet().iterator();
+  }
+
+  @Override
+  public AggregateFrameQueryResult snapshot() {
+    return new AggregateFrameQueryResult(this);
+  }
+
   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
     ois.defaultReadObject();
     it = aggregateFrame.data.entrySet().iterator();
@@ -146,13 +158,12 @@ public class AggregateFrameQueryResult extends AttributeValueRetrievalHelper
 
   @Override
   public void rewind() {
-    // TODO Auto-generated method stub
-
+    it = aggregateFrame.data.entrySet().iterator();
+    currentEntry = null;
   }
 
   @Override
   public long getRowCount() {
-    // TODO Auto-generated method stub
-    return 0;
+    return aggregateFrame.data.size();
   }
 }
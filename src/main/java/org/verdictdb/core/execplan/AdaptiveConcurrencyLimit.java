@@ -0,0 +1,258 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+
+/**
+ * Decides how many block aggregations (i.e., the children of AsyncAggExecutionNode) may run at the
+ * same time, using additive-increase/multiplicative-decrease (AIMD) on the observed latencies.
+ *
+ * <ol>
+ *   <li>The latency of each block is compared with the lowest latency observed in the recent
+ *       window of blocks of the same aggregation (see LatencyBaseline). If it is within the
+ *       tolerance, the limit increases by 1/limit (i.e., by one after a limit's worth of blocks),
+ *       but only if the current limit is actually in use.
+ *   <li>If it exceeds the tolerance (i.e., the database is queueing our queries), the limit is
+ *       multiplied by the latency backoff ratio.
+ *   <li>If the database returns an error, the limit is halved.
+ * </ol>
+ *
+ * The limit is decreased at most once per round trip: a slow or failed block decreases the limit
+ * only if it started after the previous decrease, since the blocks that were already running
+ * reflect the load before that decrease.
+ *
+ * <p>A single instance is shared by the queries running through the same NodeExecutionService, so
+ * that the limit reflects the load on the database rather than on a single query. The latencies,
+ * however, are only compared within an aggregation since the blocks of different queries may have
+ * different costs. If the adaptation is disabled, the initial limit is used as a fixed limit.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  // the number of latency samples after which the lowest latency is forgotten
+  private static final int LATENCY_WINDOW = 100;
+
+  // a block slower than this ratio to the lowest latency is considered to be queued.
+  private static final double LATENCY_TOLERANCE = 2.0;
+
+  private static final double LATENCY_BACKOFF_RATIO = 0.9;
+
+  private static final double ERROR_BACKOFF_RATIO = 0.5;
+
+  // the number of limit changes kept for monitoring
+  private static final int MAX_HISTORY_SIZE = 1000;
+
+  private final boolean adaptive;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private double limit;
+
+  private int inFlight = 0;
+
+  // the time of the last decrease; the blocks started before it do not decrease the limit again.
+  private long lastBackoffNanos = Long.MIN_VALUE;
+
+  private long successCount = 0;
+
+  private long errorCount = 0;
+
+  // (time in milliseconds, limit) recorded whenever the integer limit changes
+  private final Deque<Pair<Long, Integer>> history = new ArrayDeque<>();
+
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(AdaptiveConcurrencyLimit.class);
+
+  /**
+   * @param initialLimit The limit to start with
+   * @param minLimit The lowest limit; at least one.
+   * @param maxLimit The highest limit
+   * @param adaptive If false, initialLimit is used throughout.
+   */
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, boolean adaptive) {
+    if (minLimit < 1 || minLimit > maxLimit) {
+      throw new IllegalArgumentException(
+          String.format("Invalid concurrency limits: min=%d, max=%d", minLimit, maxLimit));
+    }
+    this.adaptive = adaptive;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    recordLimit();
+  }
+
+  public static AdaptiveConcurrencyLimit fromOption(VerdictOption option) {
+    return new AdaptiveConcurrencyLimit(
+        option.getBlockConcurrency(),
+        option.getMinBlockConcurrency(),
+        option.getMaxBlockConcurrency(),
+        option.getAdaptiveBlockConcurrency());
+  }
+
+  /** @return The number of block aggregations that may run at the same time. */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Called when a block aggregation starts.
+   *
+   * @return The start time in nanoseconds, which is passed to onSuccess() or onError().
+   */
+  public synchronized long onStart() {
+    inFlight++;
+    return System.nanoTime();
+  }
+
+  /**
+   * Called when a block aggregation completes successfully.
+   *
+   * @param startNanos The value returned by onStart()
+   * @param latencyNanos The time the block took
+   * @param baseline The latencies of the other blocks of the same aggregation
+   */
+  public synchronized void onSuccess(long startNanos, long latencyNanos, LatencyBaseline baseline) {
+    int inFlightBeforeCompletion = inFlight;
+    inFlight = Math.max(0, inFlight - 1);
+    successCount++;
+    if (!adaptive) {
+      return;
+    }
+
+    baseline.add(latencyNanos);
+    if (latencyNanos > LATENCY_TOLERANCE * baseline.minLatencyNanos) {
+      backOff(startNanos, LATENCY_BACKOFF_RATIO);
+    } else if (inFlightBeforeCompletion * 2 >= (int) limit) {
+      // increasing the limit is meaningless if it is not reached.
+      setLimit(limit + 1.0 / limit);
+    }
+  }
+
+  /**
+   * Called when the database fails to process a block aggregation.
+   *
+   * @param startNanos The value returned by onStart()
+   */
+  public synchronized void onError(long startNanos) {
+    inFlight = Math.max(0, inFlight - 1);
+    errorCount++;
+    if (adaptive) {
+      backOff(startNanos, ERROR_BACKOFF_RATIO);
+    }
+  }
+
+  /**
+   * Called when a block aggregation is cancelled or aborted (e.g., its result is null because the
+   * query has been aborted); the limit does not change.
+   */
+  public synchronized void onCancel() {
+    inFlight = Math.max(0, inFlight - 1);
+  }
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  public synchronized int getInFlightCount() {
+    return inFlight;
+  }
+
+  public synchronized long getSuccessCount() {
+    return successCount;
+  }
+
+  public synchronized long getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * @return The changes of the limit as (time in milliseconds, new limit), oldest first. Only the
+   *     most recent changes are kept.
+   */
+  public synchronized List<Pair<Long, Integer>> getLimitHistory() {
+    return new ArrayList<>(history);
+  }
+
+  private void backOff(long startNanos, double ratio) {
+    if (startNanos < lastBackoffNanos) {
+      // the block was issued under the previous limit, which has already been decreased.
+      return;
+    }
+    lastBackoffNanos = System.nanoTime();
+    setLimit(limit * ratio);
+  }
+
+  private void setLimit(double newLimit) {
+    int oldLimit = (int) limit;
+    limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    if ((int) limit != oldLimit) {
+      log.debug("Block concurrency limit changed: {} -> {}", oldLimit, (int) limit);
+      recordLimit();
+    }
+  }
+
+  private void recordLimit() {
+    history.addLast(new ImmutablePair<>(System.currentTimeMillis(), (int) limit));
+    if (history.size() > MAX_HISTORY_SIZE) {
+      history.removeFirst();
+    }
+  }
+
+  /**
+   * The lowest latency observed in the recent window of the blocks of a single aggregation. Only
+   * accessed through the synchronized methods of AdaptiveConcurrencyLimit.
+   */
+  public static class LatencyBaseline {
+
+    private long minLatencyNanos = Long.MAX_VALUE;
+
+    private long nextMinLatencyNanos = Long.MAX_VALUE;
+
+    private int samplesInWindow = 0;
+
+    private void add(long latencyNanos) {
+      minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+      nextMinLatencyNanos = Math.min(nextMinLatencyNanos, latencyNanos);
+      samplesInWindow++;
+      if (samplesInWindow >= LATENCY_WINDOW) {
+        // the baseline follows the recent latencies so that it adapts to changes in the data or
+        // the cluster; the previous window is used until a new window is complete.
+        minLatencyNanos = nextMinLatencyNanos;
+        nextMinLatencyNanos = Long.MAX_VALUE;
+        samplesInWindow = 0;
+      }
+    }
+
+    /**
+     * @return The lowest latency in the current window in nanoseconds, or -1 if nothing has been
+     *     observed.
+     */
+    public long getMinLatencyNanos() {
+      return (minLatencyNanos == Long.MAX_VALUE) ? -1 : minLatencyNanos;
+    }
+  }
+}
@@ -20,9 +20,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.connection.CachedDbmsConnection;
@@ -30,7 +35,9 @@ import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.JdbcConnection;
 import org.verdictdb.connection.SparkConnection;
+import org.verdictdb.core.execplan.ExecutionBudget.BlockDecision;
 import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.ola.AggCombinerExecutionNode;
 import org.verdictdb.core.querying.ola.AsyncAggExecutionNode;
 import org.verdictdb.core.querying.ola.SelectAsyncAggExecutionNode;
 import org.verdictdb.core.querying.simplifier.ConsolidatedExecutionNode;
@@ -51,6 +58,8 @@ public class ExecutableNodeRunner implements Runnable {
 
   int dependentCount;
 
+  private NodeExecutionService executionService;
+
 //  private boolean isAborted = false;
 
   /**
@@ -64,15 +73,59 @@ public class ExecutableNodeRunner implements Runnable {
 
   private NodeRunningStatus status = NodeRunningStatus.initiated;
 
-  private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(ExecutableNodeRunner.class);
+
+  private volatile Future<?> runningTask = null;
+
+  // the connection checked out for the node while execute() runs
+  private volatile DbmsConnection leasedConn = null;
+
+  // set if this node is a block aggregation whose latency is reported to the limit
+  private volatile AdaptiveConcurrencyLimit blockConcurrencyLimit = null;
 
-  private Thread runningTask = null;
+  // the latencies of the blocks of the same aggregation; set together with blockConcurrencyLimit.
+  private volatile AdaptiveConcurrencyLimit.LatencyBaseline blockLatencyBaseline = null;
+
+  // shared by the blocks of this node if this node is an asynchronous aggregation
+  private final AdaptiveConcurrencyLimit.LatencyBaseline latencyBaseline =
+      new AdaptiveConcurrencyLimit.LatencyBaseline();
 
   private List<ExecutableNodeRunner> childRunners = new ArrayList<>();
 
+  // consulted before a block of an asynchronous aggregation is launched; null if no budget.
+  private ExecutionBudget budget = null;
+
+  // the runner of the asynchronous aggregation that admits this node (i.e., a block) to run
+  private volatile ExecutableNodeRunner blockAdmitter = null;
+
+  // the blocks of this node if this node is an asynchronous aggregation; see getBlockNodes().
+  private List<ExecutableNodeBase> blockNodes = null;
+
+  // guards launchedChildren, nextChildIndex, blocksSkipped, listeningToBudget, and
+  // answerCountAtBlockCompletion.
+  private final Object launchLock = new Object();
+
+  private Set<ExecutableNodeRunner> launchedChildren = new HashSet<>();
+
+  private int nextChildIndex = 0;
+
+  private boolean blocksSkipped = false;
+
+  private boolean listeningToBudget = false;
+
+  // the number of the answers reported to the budget when a block completed most recently
+  private int answerCountAtBlockCompletion = 0;
+
   public void markComplete() {
     status = NodeRunningStatus.completed;
     clearRunningTask();
+
+    // the slot of this block is taken by the next block
+    ExecutableNodeRunner admitter = blockAdmitter;
+    if (admitter != null) {
+      admitter.blockCompleted();
+    }
   }
 
   public void markFailure() {
@@ -80,6 +133,11 @@ public class ExecutableNodeRunner implements Runnable {
     clearRunningTask();
   }
 
+  public void markCancelled() {
+    status = NodeRunningStatus.cancelled;
+    clearRunningTask();
+  }
+
   public void markInitiated() {
     status = NodeRunningStatus.initiated;
     clearRunningTask();
@@ -90,10 +148,16 @@ public class ExecutableNodeRunner implements Runnable {
   }
 
   public ExecutableNodeRunner(DbmsConnection conn, ExecutableNode node) {
+    this(conn, node, NodeExecutionService.getDefault());
+  }
+
+  public ExecutableNodeRunner(
+      DbmsConnection conn, ExecutableNode node, NodeExecutionService executionService) {
     this.conn = conn;
     node.registerNodeRunner(this);
     this.node = node;
     this.dependentCount = node.getDependentNodeCount();
+    this.executionService = executionService;
   }
 
   public static ExecutionInfoToken execute(DbmsConnection conn, ExecutableNode node)
@@ -111,6 +175,15 @@ public class ExecutableNodeRunner implements Runnable {
     return status;
   }
 
+  /**
+   * Sets the budget consulted before the blocks of an asynchronous aggregation are launched.
+   *
+   * @param budget null if the blocks are launched regardless of the answers.
+   */
+  public void setExecutionBudget(ExecutionBudget budget) {
+    this.budget = budget;
+  }
+
   /**
    * Set aborted to the status of this node.
    */
@@ -137,18 +210,30 @@ public class ExecutableNodeRunner implements Runnable {
    * Aborts this node.
    */
   public void abort() {
-    log.trace(String.format("Aborts running this node %s", node.toString()));
+    log.trace("Aborts running this node {}", node);
     setAborted();
     if (node instanceof SelectAsyncAggExecutionNode) {
       ((SelectAsyncAggExecutionNode) node).abort();
     }
-    conn.abort();
+    DbmsConnection leased = leasedConn;
+    if (leased != null && leased != conn) {
+      // only the statement of this node is aborted.
+      leased.abort();
+    } else {
+      conn.abort();
+    }
     //    for (ExecutableNodeRunner runner : childRunners) {
     //      runner.abort();
     //    }
   }
 
   public boolean runThisAndDependents() {
+    // a block run by its combiner (not by the asynchronous aggregation) must have been admitted.
+    ExecutableNodeRunner admitter = blockAdmitter;
+    if (admitter != null && !admitter.admitBlock(this)) {
+      return false;
+    }
+
     // first run all children on separate threads
     // this function may be called again when run() is triggered upon a completion of one of 
     // child nodes. Therefore, runChildren() is responsible for ensuring the same node does not
@@ -166,24 +251,31 @@ public class ExecutableNodeRunner implements Runnable {
   }
 
   public boolean runOnThread() {
-    log.trace(String.format("Invoked to run: %s", node.toString()));
+    log.trace("Invoked to run: {}", node);
 
     // https://stackoverflow.com/questions/11165852/java-singleton-and-synchronization
-    Thread runningTask = this.runningTask;
+    Future<?> runningTask = this.runningTask;
     if (runningTask == null) {
       synchronized (this) {
         runningTask = this.runningTask;
 
         if (runningTask == null) {
           if (noNeedToRun()) {
-            log.trace(String.format("No need to run: %s", node.toString()));
+            log.trace("No need to run: {}", node);
             return false;
           }
           status = NodeRunningStatus.running;
 
-          runningTask = new Thread(this);
+          // run() is synchronized on this object; thus, the submitted task cannot clear
+          // this.runningTask before it is set below.
+          try {
+            runningTask = executionService.submit(this);
+          } catch (RejectedExecutionException e) {
+            log.debug("The execution service is shut down. Not run: {}", node);
+            status = NodeRunningStatus.cancelled;
+            return false;
+          }
           this.runningTask = runningTask;
-          runningTask.start();
 
           return true;
           // this.runningTask is set to null at the end of run()
@@ -194,66 +286,224 @@ public class ExecutableNodeRunner implements Runnable {
     return false;
   }
 
-  private int getMaxNumberOfRunningNode() {
-    if ((conn instanceof JdbcConnection && conn.getSyntax() instanceof MysqlSyntax)
-        || (conn instanceof CachedDbmsConnection
-          && ((CachedDbmsConnection)conn).getOriginalConnection() instanceof JdbcConnection)
-          && ((CachedDbmsConnection)conn).getOriginalConnection().getSyntax() instanceof MysqlSyntax) {
+  /**
+   * The backends on which the concurrency of block aggregations is fixed regardless of the
+   * adaptive limit.
+   *
+   * @return The fixed upper bound, or Integer.MAX_VALUE if the backend has no such bound.
+   */
+  private int getBackendConcurrencyCap() {
+    DbmsConnection backend = conn;
+    if (backend instanceof CachedDbmsConnection) {
+      backend = ((CachedDbmsConnection) backend).getOriginalConnection();
+    }
+    if (backend instanceof JdbcConnection && backend.getSyntax() instanceof MysqlSyntax) {
       // For MySQL, issue query one by one.
       if (node instanceof SelectAsyncAggExecutionNode || node instanceof AsyncAggExecutionNode) {
         return 2;
       } else {
         return 1;
       }
-    } else if (((conn instanceof SparkConnection) || (conn instanceof CachedDbmsConnection
-            && ((CachedDbmsConnection) conn).getOriginalConnection() instanceof SparkConnection))
-            && !(node instanceof SelectAsyncAggExecutionNode)) {
+    } else if (backend instanceof SparkConnection
+        && !(node instanceof SelectAsyncAggExecutionNode)) {
       // Since abort() does not work for Spark (or I don't know how to do so), we issue query
       // one by one.
       return 1;
-    } else {
-      return 10;
     }
+    return Integer.MAX_VALUE;
+  }
+
+  private int getMaxNumberOfRunningNode() {
+    int limit = executionService.getBlockConcurrencyLimit().getLimit();
+    return Math.min(limit, getBackendConcurrencyCap());
   }
 
   private void runDependents() {
     if (doesThisNodeContainAsyncAggExecutionNode()) {
-      int maxNumberOfRunningNode = getMaxNumberOfRunningNode();
-      int currentlyRunningOrCompleteNodeCount = childRunners.size();
+      runBlocks();
+    } else {
+      // by default, run every child
+      for (ExecutableNodeBase child : ((ExecutableNodeBase) node).getSources()) {
+        ExecutableNodeRunner runner = child.getRegisteredRunner();
+        boolean started = runner.runThisAndDependents();
+        if (started) {
+          childRunners.add(runner);
+        }
+      }
+    }
+  }
+
+  /**
+   * The blocks of this asynchronous aggregation in order. The sources of this node are the first
+   * block and the combiners (a chain for LINEAR; the prefixes of a tree for TREE); thus, the blocks
+   * are found by descending the combiners.
+   */
+  private List<ExecutableNodeBase> getBlockNodes() {
+    if (blockNodes == null) {
+      List<ExecutableNodeBase> blocks = new ArrayList<>();
+      Set<ExecutableNodeBase> visited = new HashSet<>();
+      for (ExecutableNodeBase source : ((ExecutableNodeBase) node).getSources()) {
+        collectBlockNodes(source, blocks, visited);
+      }
+      blockNodes = blocks;
+    }
+    return blockNodes;
+  }
+
+  private static void collectBlockNodes(
+      ExecutableNodeBase node, List<ExecutableNodeBase> blocks, Set<ExecutableNodeBase> visited) {
+    if (!visited.add(node)) {
+      return;
+    }
+    if (node instanceof AggCombinerExecutionNode) {
+      for (ExecutableNodeBase source : node.getSources()) {
+        collectBlockNodes(source, blocks, visited);
+      }
+    } else {
+      blocks.add(node);
+    }
+  }
+
+  /**
+   * Launches the blocks of the asynchronous aggregation in order while the concurrency limit and
+   * the budget (if any) allow. Only this node launches the blocks: the combiners also run their
+   * sources, but a block that has not been admitted here does not run (see admitBlock()). This
+   * method is called again whenever a block completes or an answer is reported to the budget.
+   *
+   * <p>If the budget defers the next block (i.e., the launched blocks are expected to reach the
+   * target), the block waits as long as the running blocks or the answer of the block completed
+   * last may still decide otherwise; once neither is pending, the expectation has not been met and
+   * the block is launched. Once the budget stops, the remaining blocks are skipped.
+   */
+  private void runBlocks() {
+    if (noNeedToRun()) {
+      return;
+    }
+    List<ExecutableNodeBase> blocks = getBlockNodes();
+    List<ExecutableNodeRunner> toLaunch = new ArrayList<>();
+    boolean skipped = false;
+
+    synchronized (launchLock) {
+      if (nextChildIndex == 0 && !blocksSkipped) {
+        for (ExecutableNodeBase block : blocks) {
+          block.getRegisteredRunner().blockAdmitter = this;
+        }
+      }
+      if (budget != null && !listeningToBudget) {
+        listeningToBudget = true;
+        budget.addAnswerListener(
+            new Runnable() {
+              @Override
+              public void run() {
+                runBlocks();
+              }
+            });
+      }
 
-      // check the number of currently running nodes
       int runningChildCount = 0;
-      for (ExecutableNodeRunner r : childRunners) {
+      int unfinishedChildCount = 0;
+      for (ExecutableNodeRunner r : launchedChildren) {
         if (r.getStatus() == NodeRunningStatus.running) {
           runningChildCount++;
         }
+        if (!r.noNeedToRun()) {
+          unfinishedChildCount++;
+        }
+      }
+      int moreToRun = getMaxNumberOfRunningNode() - runningChildCount;
+
+      while (moreToRun > 0 && !blocksSkipped && nextChildIndex < blocks.size()) {
+        ExecutableNodeRunner runner = blocks.get(nextChildIndex).getRegisteredRunner();
+        if (budget != null) {
+          BlockDecision decision = budget.decideNextBlock(launchedChildren.size());
+          if (decision == BlockDecision.STOP) {
+            skipRemainingBlocks();
+            skipped = true;
+            break;
+          }
+          if (decision == BlockDecision.DEFER
+              && (unfinishedChildCount > 0
+                  || budget.getAnswerCount() == answerCountAtBlockCompletion)) {
+            break;
+          }
+        }
+        launchedChildren.add(runner);
+        childRunners.add(runner);
+        toLaunch.add(runner);
+        unfinishedChildCount++;
+        nextChildIndex++;
+        moreToRun--;
       }
+    }
 
-      // maintain the number of running nodes to a certain number
-      List<ExecutableNodeBase> childNodes = ((ExecutableNodeBase) node).getSources();
-      int moreToRun = Math.min(
-          maxNumberOfRunningNode - runningChildCount,
-          ((ExecutableNodeBase) node).getSourceCount() - currentlyRunningOrCompleteNodeCount);
-      for (int i = currentlyRunningOrCompleteNodeCount;
-          i < currentlyRunningOrCompleteNodeCount + moreToRun; i++) {
-        ExecutableNodeBase child = childNodes.get(i);
+    // launched outside the lock since launching a block runs its dependents
+    for (ExecutableNodeRunner runner : toLaunch) {
+      // the latencies of the blocks adjust the limit
+      runner.blockLatencyBaseline = latencyBaseline;
+      runner.blockConcurrencyLimit = executionService.getBlockConcurrencyLimit();
+      runner.runThisAndDependents();
+    }
 
-        ExecutableNodeRunner runner = child.getRegisteredRunner();
-        boolean started = runner.runThisAndDependents();
-        if (started) {
-          childRunners.add(runner);
-        }
+    // this method may run on a thread other than this node's (e.g., the reader of the answers);
+    // the runner of this node may be idle, so it is started to consume the tokens of the skipped
+    // blocks.
+    if (skipped) {
+      runOnThread();
+    }
+  }
+
+  /** Called when a block of this asynchronous aggregation completes. */
+  private void blockCompleted() {
+    if (budget != null) {
+      synchronized (launchLock) {
+        answerCountAtBlockCompletion = budget.getAnswerCount();
       }
-    } else {
-      // by default, run every child
-      for (ExecutableNodeBase child : ((ExecutableNodeBase) node).getSources()) {
-        ExecutableNodeRunner runner = child.getRegisteredRunner();
-        boolean started = runner.runThisAndDependents();
-        if (started) {
-          childRunners.add(runner);
-        }
+    }
+    runBlocks();
+  }
+
+  /**
+   * Decides if the block may run. Called by the block itself before it runs, which may be
+   * triggered by its combiner as well as by this node.
+   *
+   * @param child The runner of a block of this node
+   * @return True if this node has launched the block.
+   */
+  private boolean admitBlock(ExecutableNodeRunner child) {
+    synchronized (launchLock) {
+      return launchedChildren.contains(child);
+    }
+  }
+
+  /**
+   * Cancels the blocks that have not been launched. The sources of this node that include such
+   * blocks will never report their success; thus, the success tokens are passed on their behalf,
+   * and this node completes once the other sources complete. The caller must run this node
+   * afterwards (outside launchLock) so that the tokens are consumed.
+   */
+  private void skipRemainingBlocks() {
+    blocksSkipped = true;
+    int skippedCount = 0;
+    Set<ExecutableNodeBase> skippedBlocks = new HashSet<>();
+    for (ExecutableNodeBase block : getBlockNodes()) {
+      ExecutableNodeRunner runner = block.getRegisteredRunner();
+      if (launchedChildren.contains(runner)) {
+        continue;
+      }
+      runner.markCancelled();
+      skippedBlocks.add(block);
+      skippedCount++;
+    }
+    for (ExecutableNodeBase source : ((ExecutableNodeBase) node).getSources()) {
+      List<ExecutableNodeBase> blocksOfSource = new ArrayList<>();
+      collectBlockNodes(source, blocksOfSource, new HashSet<ExecutableNodeBase>());
+      if (!Collections.disjoint(blocksOfSource, skippedBlocks)) {
+        node.getNotified(source, ExecutionInfoToken.successToken());
       }
     }
+    log.debug(
+        "{} blocks launched and {} blocks skipped within {} for {}",
+        launchedChildren.size(), skippedCount, budget, node);
   }
 
   /**
@@ -265,14 +515,14 @@ public class ExecutableNodeRunner implements Runnable {
     //    int nodeGroupId = ((ExecutableNodeBase) node).getGroupId();
 
     if (noNeedToRun()) {
-      log.debug(String.format("This node (%s) has been aborted; do not run.", node.toString()));
+      log.debug("This node ({}) has been aborted; do not run.", node);
       clearRunningTask();
       return;
     }
 
     // no dependency exists
     if (node.getSourceQueues().size() == 0) {
-      log.debug(String.format("No dependency exists. Simply run %s", node.toString()));
+      log.debug("No dependency exists. Simply run {}", node);
       try {
         executeAndBroadcast(Arrays.<ExecutionInfoToken>asList());
         broadcastAndTriggerRun(ExecutionInfoToken.successToken());
@@ -305,18 +555,18 @@ public class ExecutableNodeRunner implements Runnable {
         return;
       }
 
-      log.trace(String.format("Attempts to process %s (%s)", node.toString(), status));
+      log.trace("Attempts to process {} ({})", node, status);
 
       ExecutionInfoToken failureToken = getFailureTokenIfExists(tokens);
       if (failureToken != null) {
-        log.trace(String.format("One or more dependent nodes failed for %s", node.toString()));
+        log.trace("One or more dependent nodes failed for {}", node);
         broadcastAndTriggerRun(failureToken);
         //        clearRunningTask();
         markFailure();
         return;
       }
       if (areAllSuccess(tokens)) {
-        log.trace(String.format("All dependent nodes are finished for %s", node.toString()));
+        log.trace("All dependent nodes are finished for {}", node);
         broadcastAndTriggerRun(ExecutionInfoToken.successToken());
         //        clearRunningTask();
         markComplete();
@@ -332,8 +582,7 @@ public class ExecutableNodeRunner implements Runnable {
 
       // actual processing
       try {
-        log.debug(
-            String.format("Main processing starts for %s with token: %s", node.toString(), tokens));
+        log.debug("Main processing starts for {} with token: {}", node, tokens);
         executeAndBroadcast(tokens);
       } catch (Exception e) {
         if (noNeedToRun()) {
@@ -374,26 +623,30 @@ public class ExecutableNodeRunner implements Runnable {
 
   void broadcastAndTriggerRun(ExecutionInfoToken token) {
     if (noNeedToRun()) {
-      log.trace(
-          String.format(
-              "This node (%s) has been aborted. Do not broadcast: %s", this.toString(), token));
+      log.trace("This node ({}) has been aborted. Do not broadcast: {}", this, token);
       return;
     }
 
-    // for understandable logs
-    synchronized (VerdictDBLogger.class) {
-      VerdictDBLogger logger = VerdictDBLogger.getLogger(this.getClass());
-      logger.trace(String.format("[%s] Broadcasting:", node.toString()));
-      logger.trace(token.toString());
+    // a single log line keeps the broadcast readable without serializing the runners on a lock
+    if (log.isTraceEnabled()) {
+      StringBuilder message = new StringBuilder();
+      message.append("[").append(node).append("] Broadcasting:\n").append(token);
       for (ExecutableNode dest : node.getSubscribers()) {
-        logger.trace(String.format("  -> %s", dest.toString()));
+        message.append("\n  -> ").append(dest);
       }
-      //      logger.trace(token.toString());
+      log.trace(message.toString());
     }
 
-    for (ExecutableNode dest : node.getSubscribers()) {
-      ExecutionInfoToken copiedToken = token.deepcopy();
-      dest.getNotified(node, copiedToken);
+    List<ExecutableNode> subscribers = node.getSubscribers();
+    for (int i = 0; i < subscribers.size(); i++) {
+      ExecutableNode dest = subscribers.get(i);
+
+      // The values in the token are shared among the subscribers; only the map and the stateful
+      // values are copied. The last subscriber takes the original token since no one else
+      // accesses it afterwards.
+      ExecutionInfoToken tokenToSend =
+          (i == subscribers.size() - 1) ? token : token.copyForSubscriber();
+      dest.getNotified(node, tokenToSend);
 
       // signal the runner of the broadcasted node so that its associated runner performs
       // execution if necessary.
@@ -426,54 +679,78 @@ public class ExecutableNodeRunner implements Runnable {
       return null;
     }
 
-    // basic operations: execute a query and creates a token based on that result.
-    SqlConvertible sqlObj = node.createQuery(tokens);
-    DbmsQueryResult intermediate = null;
-    if (sqlObj != null) {
-      String sql = QueryToSql.convert(conn.getSyntax(), sqlObj);
-      try {
-        intermediate = conn.execute(sql);
-      } catch (VerdictDBDbmsException e) {
-        if (noNeedToRun()) {
-          // the errors from the underlying dbms are expected if the query is cancelled.
-        } else {
-          throw e;
+    // a single connection is used for every statement of this node; if the connection is pooled,
+    // it is held only while this node executes.
+    DbmsConnection leased = conn.checkout();
+    leasedConn = leased;
+    try {
+      // basic operations: execute a query and creates a token based on that result.
+      SqlConvertible sqlObj = node.createQuery(tokens);
+      DbmsQueryResult intermediate = null;
+      if (sqlObj != null) {
+        String sql = QueryToSql.convert(leased.getSyntax(), sqlObj);
+        AdaptiveConcurrencyLimit limit = blockConcurrencyLimit;
+        long startTime = (limit != null) ? limit.onStart() : System.nanoTime();
+        try {
+          intermediate = leased.execute(sql);
+          if (limit != null) {
+            if (noNeedToRun()) {
+              // an aborted statement returns early (usually with null); its latency means nothing.
+              limit.onCancel();
+            } else {
+              limit.onSuccess(startTime, System.nanoTime() - startTime, blockLatencyBaseline);
+            }
+          }
+        } catch (VerdictDBDbmsException e) {
+          if (noNeedToRun()) {
+            // the errors from the underlying dbms are expected if the query is cancelled.
+            if (limit != null) {
+              limit.onCancel();
+            }
+          } else {
+            if (limit != null) {
+              limit.onError(startTime);
+            }
+            throw e;
+          }
         }
       }
-    }
-    ExecutionInfoToken token = node.createToken(intermediate);
+      ExecutionInfoToken token = node.createToken(intermediate);
 
-    // extended operations: if the node has additional method invocation list, we perform the method
-    // calls
-    // on DbmsConnection and sets its results in the token.
-    if (token == null) {
-      token = new ExecutionInfoToken();
-    }
-    Map<String, MethodInvocationInformation> tokenKeysAndmethodsToInvoke =
-        node.getMethodsToInvokeOnConnection();
-    for (Entry<String, MethodInvocationInformation> keyAndMethod :
-        tokenKeysAndmethodsToInvoke.entrySet()) {
-      String tokenKey = keyAndMethod.getKey();
-      MethodInvocationInformation methodInfo = keyAndMethod.getValue();
-      String methodName = methodInfo.getMethodName();
-      Class<?>[] methodParameters = methodInfo.getMethodParameters();
-      Object[] methodArguments = methodInfo.getArguments();
-
-      try {
-        Method method = conn.getClass().getMethod(methodName, methodParameters);
-        Object ret = method.invoke(conn, methodArguments);
-        token.setKeyValue(tokenKey, ret);
-
-      } catch (NoSuchMethodException
-          | IllegalAccessException
-          | IllegalArgumentException
-          | InvocationTargetException e) {
-        e.printStackTrace();
-        throw new VerdictDBValueException(e);
+      // extended operations: if the node has additional method invocation list, we perform the
+      // method calls on DbmsConnection and sets its results in the token.
+      if (token == null) {
+        token = new ExecutionInfoToken();
+      }
+      Map<String, MethodInvocationInformation> tokenKeysAndmethodsToInvoke =
+          node.getMethodsToInvokeOnConnection();
+      for (Entry<String, MethodInvocationInformation> keyAndMethod :
+          tokenKeysAndmethodsToInvoke.entrySet()) {
+        String tokenKey = keyAndMethod.getKey();
+        MethodInvocationInformation methodInfo = keyAndMethod.getValue();
+        String methodName = methodInfo.getMethodName();
+        Class<?>[] methodParameters = methodInfo.getMethodParameters();
+        Object[] methodArguments = methodInfo.getArguments();
+
+        try {
+          Method method = leased.getClass().getMethod(methodName, methodParameters);
+          Object ret = method.invoke(leased, methodArguments);
+          token.setKeyValue(tokenKey, ret);
+
+        } catch (NoSuchMethodException
+            | IllegalAccessException
+            | IllegalArgumentException
+            | InvocationTargetException e) {
+          e.printStackTrace();
+          throw new VerdictDBValueException(e);
+        }
       }
-    }
 
-    return token;
+      return token;
+    } finally {
+      leasedConn = null;
+      conn.checkin(leased);
+    }
   }
 
   ExecutionInfoToken getFailureTokenIfExists(List<ExecutionInfoToken> tokens) {
@@ -500,7 +777,7 @@ public class ExecutableNodeRunner implements Runnable {
     for (ExecutionInfoToken t : tokens) {
       if (t.isSuccessToken()) {
         successSourceCount++;
-        log.trace(String.format("Success count of %s: %d", node.toString(), successSourceCount));
+        log.trace("Success count of {}: {}", node, successSourceCount);
       } else {
         return false;
       }
@@ -33,17 +33,44 @@ public class ExecutablePlanRunner {
 
   private ExecutablePlan plan;
 
-//  private int nThreads = 1;
+  private NodeExecutionService executionService;
+
+  private ExecutionBudget budget;
   
   private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
   
   private List<ExecutableNodeRunner> nodeRunners = new ArrayList<>();
-  
-//  private Map<Integer, ExecutorService> executorPool = new HashMap<>();
 
   public ExecutablePlanRunner(DbmsConnection conn, ExecutablePlan plan) {
+    this(conn, plan, NodeExecutionService.getDefault());
+  }
+
+  /**
+   * @param conn The connection to the underlying database
+   * @param plan The plan to run
+   * @param executionService The threads on which the nodes of the plan run
+   */
+  public ExecutablePlanRunner(
+      DbmsConnection conn, ExecutablePlan plan, NodeExecutionService executionService) {
+    this(conn, plan, executionService, null);
+  }
+
+  /**
+   * @param conn The connection to the underlying database
+   * @param plan The plan to run
+   * @param executionService The threads on which the nodes of the plan run
+   * @param budget Consulted before the blocks of asynchronous aggregations are launched; null if
+   *     every block is launched.
+   */
+  public ExecutablePlanRunner(
+      DbmsConnection conn,
+      ExecutablePlan plan,
+      NodeExecutionService executionService,
+      ExecutionBudget budget) {
     this.conn = conn;
     this.plan = plan;
+    this.executionService = executionService;
+    this.budget = budget;
   }
 
   public static ExecutionTokenReader getTokenReader(DbmsConnection conn, ExecutablePlan plan) {
@@ -56,7 +83,14 @@ public class ExecutablePlanRunner {
 
   public static void runTillEnd(DbmsConnection conn, ExecutablePlan plan)
       throws VerdictDBException {
-    ExecutionTokenReader reader = (new ExecutablePlanRunner(conn, plan)).getTokenReader();
+    runTillEnd(conn, plan, NodeExecutionService.getDefault());
+  }
+
+  public static void runTillEnd(
+      DbmsConnection conn, ExecutablePlan plan, NodeExecutionService executionService)
+      throws VerdictDBException {
+    ExecutionTokenReader reader =
+        (new ExecutablePlanRunner(conn, plan, executionService)).getTokenReader();
     while (true) {
       ExecutionInfoToken token = reader.next();
 //      System.out.println("runTillEnd: " + token);
@@ -76,7 +110,36 @@ public class ExecutablePlanRunner {
     } else {
       reader = new ExecutionTokenReader();
     }
-    
+    runNodes();
+    return reader;
+  }
+
+  /**
+   * Runs the plan and pushes the tokens of the reporting node to the listener as they are
+   * broadcast. Unlike getTokenReader(), no thread waits for the tokens; this method returns
+   * immediately after the nodes are launched.
+   *
+   * @param listener Called on the threads that run the nodes
+   */
+  public void runWithTokenListener(final ExecutionTokenListener listener) {
+    if (plan.getReportingNode() == null) {
+      listener.onToken(ExecutionInfoToken.successToken());
+      return;
+    }
+    ExecutableNodeBase node =
+        new ExecutableNodeBase(-1) {
+          private static final long serialVersionUID = -3413862710397421409L;
+
+          @Override
+          public void getNotified(ExecutableNode source, ExecutionInfoToken token) {
+            listener.onToken(token);
+          }
+        };
+    node.subscribeTo((ExecutableNodeBase) plan.getReportingNode());
+    runNodes();
+  }
+
+  private void runNodes() {
     // Run nodes: approach 1
     // The nodes whose dependencies have not been finished will terminate immediately.
     // The leaf nodes will signal its parents (also called subscribers) to make them run.
@@ -104,7 +167,9 @@ public class ExecutablePlanRunner {
         // It is critically that each node is associated with a separate ExecutableNodeRunner.
         // The execution of the same ExecutableNodeRunner instance is serialized.
         // See ExecutableNodeRunner.execute() method.
-        nodeRunners.add(new ExecutableNodeRunner(conn, n));
+        ExecutableNodeRunner runner = new ExecutableNodeRunner(conn, n, executionService);
+        runner.setExecutionBudget(budget);
+        nodeRunners.add(runner);
       }
     }
     
@@ -113,8 +178,6 @@ public class ExecutablePlanRunner {
     ExecutableNodeRunner nodeRunner = root.getRegisteredRunner();
     nodeRunner.runThisAndDependents();
 //    nodeRunners.add(nodeRunner);
-
-    return reader;
   }
 
   public ExecutionResultReader getResultReader() {
@@ -0,0 +1,190 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.verdictdb.commons.VerdictOption;
+
+/**
+ * The accuracy and latency budget of a single query. ExecutableNodeRunner consults this budget
+ * before it launches each block of an asynchronous aggregation, so that the blocks that are not
+ * needed are never sent to the database (instead of being sent and aborted).
+ *
+ * <p>No more blocks are launched (i.e., STOP) if one of the following holds:
+ *
+ * <ol>
+ *   <li>The reader of the answers has found an answer accurate enough (see markTargetReached()).
+ *   <li>The time limit has passed.
+ * </ol>
+ *
+ * The next block is held back (i.e., DEFER) if the blocks already launched are expected to reach
+ * the target relative error. The relative error reported with the latest answer is extrapolated to
+ * the number of the launched blocks, assuming that it decreases in proportion to the inverse
+ * square root of the number of the processed blocks. Since this is only a prediction, a deferred
+ * block is launched later if the answers do not bear it out; the runner decides again whenever a
+ * block completes or an answer is reported (see addAnswerListener()).
+ *
+ * <p>The first block is always launched so that at least one answer is produced.
+ */
+public class ExecutionBudget {
+
+  /** Whether the next block of an asynchronous aggregation is launched. */
+  public enum BlockDecision {
+    LAUNCH,
+    // not now; decided again when a block completes or an answer is reported.
+    DEFER,
+    // never; the remaining blocks are skipped.
+    STOP
+  }
+
+  // zero or a negative number means no target.
+  private final double targetRelativeError;
+
+  // zero or a negative number means no time limit.
+  private final long timeLimitMillis;
+
+  private final long startTimeNanos;
+
+  private volatile boolean targetReached = false;
+
+  // the number of the answers and the relative error of the latest answer
+  private int answerCount = 0;
+
+  private double relativeError = Double.POSITIVE_INFINITY;
+
+  // notified whenever an answer is reported or the target is reached
+  private final List<Runnable> answerListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * The time limit starts when this budget is created.
+   *
+   * @param targetRelativeError Zero or a negative number means no target.
+   * @param timeLimitMillis Zero or a negative number means no time limit.
+   */
+  public ExecutionBudget(double targetRelativeError, long timeLimitMillis) {
+    this.targetRelativeError = targetRelativeError;
+    this.timeLimitMillis = timeLimitMillis;
+    this.startTimeNanos = System.nanoTime();
+  }
+
+  /**
+   * @param options
+   * @return null if the options set neither a target relative error nor a time limit.
+   */
+  public static ExecutionBudget fromOption(VerdictOption options) {
+    if (options == null
+        || (options.getTargetRelativeError() <= 0 && options.getTimeLimitMillis() <= 0)) {
+      return null;
+    }
+    return new ExecutionBudget(options.getTargetRelativeError(), options.getTimeLimitMillis());
+  }
+
+  public double getTargetRelativeError() {
+    return targetRelativeError;
+  }
+
+  public boolean hasTargetRelativeError() {
+    return targetRelativeError > 0;
+  }
+
+  public long getTimeLimitMillis() {
+    return timeLimitMillis;
+  }
+
+  /**
+   * Records the relative error of an answer.
+   *
+   * @param answerCount The number of the answers produced so far, including this one
+   * @param relativeError The relative error of the answer; positive infinity if unknown.
+   */
+  public void reportAnswer(int answerCount, double relativeError) {
+    synchronized (this) {
+      this.answerCount = answerCount;
+      this.relativeError = relativeError;
+    }
+    notifyAnswerListeners();
+  }
+
+  /** @return The number of the answers reported so far. */
+  public synchronized int getAnswerCount() {
+    return answerCount;
+  }
+
+  /** Indicates that an answer accurate enough has been found; no more blocks are launched. */
+  public void markTargetReached() {
+    targetReached = true;
+    notifyAnswerListeners();
+  }
+
+  public boolean isTargetReached() {
+    return targetReached;
+  }
+
+  public boolean isTimeLimitPassed() {
+    if (timeLimitMillis <= 0) {
+      return false;
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+    return elapsed >= timeLimitMillis;
+  }
+
+  /**
+   * Registers a listener called (in the thread of the reader) after each answer is reported and
+   * when the target is reached.
+   *
+   * @param listener
+   */
+  public void addAnswerListener(Runnable listener) {
+    answerListeners.add(listener);
+  }
+
+  private void notifyAnswerListeners() {
+    for (Runnable listener : answerListeners) {
+      listener.run();
+    }
+  }
+
+  /**
+   * @param launchedBlockCount The number of the blocks launched so far
+   * @return Whether one more block is launched.
+   */
+  public synchronized BlockDecision decideNextBlock(int launchedBlockCount) {
+    if (launchedBlockCount == 0) {
+      return BlockDecision.LAUNCH;
+    }
+    if (targetReached || isTimeLimitPassed()) {
+      return BlockDecision.STOP;
+    }
+    if (targetRelativeError > 0 && answerCount > 0 && launchedBlockCount >= answerCount) {
+      double expected = relativeError * Math.sqrt((double) answerCount / launchedBlockCount);
+      if (expected <= targetRelativeError) {
+        return BlockDecision.DEFER;
+      }
+    }
+    return BlockDecision.LAUNCH;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ExecutionBudget(targetRelativeError=%s, timeLimitMillis=%d)",
+        targetRelativeError, timeLimitMillis);
+  }
+}
@@ -19,11 +19,22 @@ package org.verdictdb.core.execplan;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.ImmutableQueryResult;
 
 import com.rits.cloning.Cloner;
 
+/**
+ * The information passed from a node to its subscribers.
+ *
+ * <p>When a token is broadcast to multiple subscribers, the values are shared by reference (see
+ * {@link #copyForSubscriber()}). Thus, a subscriber must not modify the objects it retrieves from a
+ * token; if it needs to modify one, it must make its own copy first (e.g., AggMeta.deepcopy()).
+ * Setting a key-value pair on a received token is safe since every subscriber has its own map.
+ */
 public class ExecutionInfoToken implements Serializable {
 
   private static final long serialVersionUID = 4467660505348718275L;
@@ -99,4 +110,41 @@ public class ExecutionInfoToken implements Serializable {
   public ExecutionInfoToken deepcopy() {
     return new Cloner().deepClone(this);
   }
+
+  /**
+   * Creates a token whose map is independent of this token but whose values are the same objects
+   * as this token's values.
+   *
+   * @return A shallow copy of this token
+   */
+  public ExecutionInfoToken shallowCopy() {
+    ExecutionInfoToken copied = new ExecutionInfoToken();
+    copied.data.putAll(data);
+    return copied;
+  }
+
+  /**
+   * Creates a token to be sent to one of multiple subscribers. All values are shared with this
+   * token except for query results, whose cursors change by being read; a query result is replaced
+   * by its snapshot, which shares the rows but has its own cursor.
+   *
+   * @return A token that can be consumed independently of this token
+   * @throws IllegalStateException if the token has a query result that cannot be shared (i.e., not
+   *     an ImmutableQueryResult)
+   */
+  public ExecutionInfoToken copyForSubscriber() {
+    ExecutionInfoToken copied = shallowCopy();
+    for (Entry<String, Object> keyValue : data.entrySet()) {
+      if (keyValue.getValue() instanceof ImmutableQueryResult) {
+        copied.data.put(
+            keyValue.getKey(), ((ImmutableQueryResult) keyValue.getValue()).snapshot());
+      } else if (keyValue.getValue() instanceof DbmsQueryResult) {
+        throw new IllegalStateException(
+            String.format(
+                "The query result for %s cannot be shared among subscribers: %s",
+                keyValue.getKey(), keyValue.getValue().getClass().getName()));
+      }
+    }
+    return copied;
+  }
 }
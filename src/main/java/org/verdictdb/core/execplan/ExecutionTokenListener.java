@@ -0,0 +1,33 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+/**
+ * Receives the tokens broadcast by the reporting node of a plan (see
+ * ExecutablePlanRunner.runWithTokenListener()). The tokens are pushed on the threads that run the
+ * nodes; thus, the implementations must not block.
+ */
+public interface ExecutionTokenListener {
+
+  /**
+   * Called for every token in the order the tokens are broadcast. A status token (i.e., a
+   * success or a failure token) indicates the end of the tokens.
+   *
+   * @param token
+   */
+  void onToken(ExecutionInfoToken token);
+}
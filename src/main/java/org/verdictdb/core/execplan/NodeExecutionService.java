@@ -0,0 +1,231 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.MDC;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+
+/**
+ * A bounded pool of threads on which ExecutableNodeRunner instances run. A single instance is
+ * shared by all the queries issued through the same VerdictContext so that the number of threads
+ * does not grow with the number of nodes in a plan.
+ *
+ * <p>The serialization of the runs of the same node is still guaranteed by ExecutableNodeRunner;
+ * this class only decides on which thread a run takes place.
+ */
+public class NodeExecutionService {
+
+  private static final String THREAD_NAME_PREFIX = "verdictdb-node-runner-";
+
+  private static NodeExecutionService defaultService = null;
+
+  private final ExecutorService executor;
+
+  private final int poolSize;
+
+  private final boolean virtualThreadUsed;
+
+  // shared by the queries run on this service since it reflects the load on the database
+  private final AdaptiveConcurrencyLimit blockConcurrencyLimit;
+
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(NodeExecutionService.class);
+
+  public NodeExecutionService(int poolSize) {
+    this(poolSize, false);
+  }
+
+  /**
+   * @param poolSize The maximum number of nodes that can run concurrently.
+   * @param useVirtualThread If true and the JVM supports virtual threads (JDK 21+), the pooled
+   *     threads are virtual threads. Otherwise, platform daemon threads are used.
+   */
+  public NodeExecutionService(int poolSize, boolean useVirtualThread) {
+    this(
+        poolSize,
+        useVirtualThread,
+        new AdaptiveConcurrencyLimit(
+            VerdictOption.getDefaultBlockConcurrency(),
+            VerdictOption.getDefaultMinBlockConcurrency(),
+            VerdictOption.getDefaultMaxBlockConcurrency(),
+            true));
+  }
+
+  /**
+   * @param poolSize The maximum number of nodes that can run concurrently.
+   * @param useVirtualThread If true and the JVM supports virtual threads (JDK 21+), the pooled
+   *     threads are virtual threads. Otherwise, platform daemon threads are used.
+   * @param blockConcurrencyLimit Decides how many block aggregations run at the same time.
+   */
+  public NodeExecutionService(
+      int poolSize, boolean useVirtualThread, AdaptiveConcurrencyLimit blockConcurrencyLimit) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("The pool size must be a positive integer: " + poolSize);
+    }
+    ThreadFactory threadFactory = null;
+    if (useVirtualThread) {
+      threadFactory = createVirtualThreadFactory();
+      if (threadFactory == null) {
+        log.info("Virtual threads are not supported by this JVM; platform threads are used.");
+      }
+    }
+    this.virtualThreadUsed = (threadFactory != null);
+    if (threadFactory == null) {
+      threadFactory = new DaemonThreadFactory();
+    }
+
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            threadFactory);
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
+    this.poolSize = poolSize;
+    this.blockConcurrencyLimit = blockConcurrencyLimit;
+  }
+
+  public static NodeExecutionService fromOption(VerdictOption option) {
+    return new NodeExecutionService(
+        option.getNodeExecutionPoolSize(),
+        option.getUseVirtualThreadForExecution(),
+        AdaptiveConcurrencyLimit.fromOption(option));
+  }
+
+  /**
+   * The service used when no service is explicitly specified (e.g., when ExecutablePlanRunner is
+   * used directly without VerdictContext). Its threads are daemon threads and it is never shut
+   * down.
+   *
+   * @return The JVM-wide default service
+   */
+  public static synchronized NodeExecutionService getDefault() {
+    if (defaultService == null) {
+      defaultService = new NodeExecutionService(VerdictOption.getDefaultNodeExecutionPoolSize());
+    }
+    return defaultService;
+  }
+
+  /**
+   * Runs the task on one of the pooled threads. The MDC of the submitting thread (e.g., the id of
+   * the query) is installed on the pooled thread while the task runs.
+   *
+   * @param task
+   * @return The future of the run
+   */
+  public Future<?> submit(Runnable task) {
+    Map<String, String> context = MDC.getCopyOfContextMap();
+    return executor.submit((context == null) ? task : new MdcPropagatingTask(task, context));
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  public AdaptiveConcurrencyLimit getBlockConcurrencyLimit() {
+    return blockConcurrencyLimit;
+  }
+
+  public boolean isVirtualThreadUsed() {
+    return virtualThreadUsed;
+  }
+
+  public boolean isShutdown() {
+    return executor.isShutdown();
+  }
+
+  /** Stops accepting new node runs. The runs already submitted are completed. */
+  public void shutdown() {
+    if (this == defaultService) {
+      return;
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Uses Thread.ofVirtual().factory() through reflection since the source level of this project
+   * does not allow a direct reference.
+   *
+   * @return null if virtual threads are not available.
+   */
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Object builder = ofVirtual.invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method name = builderClass.getMethod("name", String.class, long.class);
+      builder = name.invoke(builder, THREAD_NAME_PREFIX, 0L);
+      Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static class MdcPropagatingTask implements Runnable {
+
+    private final Runnable task;
+
+    private final Map<String, String> context;
+
+    MdcPropagatingTask(Runnable task, Map<String, String> context) {
+      this.task = task;
+      this.context = context;
+    }
+
+    @Override
+    public void run() {
+      Map<String, String> previous = MDC.getCopyOfContextMap();
+      MDC.setContextMap(context);
+      try {
+        task.run();
+      } finally {
+        if (previous == null) {
+          MDC.clear();
+        } else {
+          MDC.setContextMap(previous);
+        }
+      }
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.verdictdb.core.sqlobject.SetOperationRelation;
 import org.verdictdb.core.sqlobject.SqlConvertible;
 import org.verdictdb.core.sqlobject.SubqueryColumn;
 import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.core.sqlobject.WithClause;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBValueException;
 
@@ -115,7 +116,13 @@ public abstract class QueryNodeWithPlaceHolders extends QueryNodeBase {
    */
   private void findPlaceHolderAndReplace(BaseTable placeholderTable, BaseTable actualTable) {
     SelectQuery selectQuery = getSelectQuery();
-    
+
+    // check the with clauses
+    for (WithClause withClause : selectQuery.getWithList()) {
+      findPlaceHolderAndReplaceInSource(
+          withClause.getSelectQuery(), placeholderTable, actualTable);
+    }
+
     // check the source list
     for (AbstractRelation source : selectQuery.getFromList()) {
       findPlaceHolderAndReplaceInSource(source, placeholderTable, actualTable);
@@ -23,6 +23,7 @@ import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.coordinator.QueryContext;
+import org.verdictdb.coordinator.ScratchpadManager;
 
 public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable {
 
@@ -99,6 +100,11 @@ public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable
     return getNextId(GLOBAL_KEYWORD);
   }
 
+  /**
+   * If the context is set, the generated name ends with its creation time (see ScratchpadManager),
+   * so that the tables left by crashed processes can be dropped once they are old enough. The name
+   * is also registered to the context, which drops the table later.
+   */
   @Override
   public Pair<String, String> generateTempTableName() {
     //    return Pair.of(scratchpadSchemaName, String.format("verdictdbtemptable_%d",
@@ -107,13 +113,15 @@ public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable
       return Pair.of(
           scratchpadSchemaName, String.format("verdictdbtemptable_%s", generateUniqueIdentifier()));
     } else {
-      return Pair.of(
-          scratchpadSchemaName,
+      String tableName =
           String.format(
-              "verdictdbtemptable_%s_%d_%s",
+              "verdictdbtemptable_%s_%d_%s%s",
               context.getVerdictContextId(),
               context.getExecutionSerialNumber(),
-              generateUniqueIdentifier()));
+              generateUniqueIdentifier(),
+              ScratchpadManager.getCreationTimeSuffix());
+      context.addTempTable(scratchpadSchemaName, tableName);
+      return Pair.of(scratchpadSchemaName, tableName);
     }
   }
 }
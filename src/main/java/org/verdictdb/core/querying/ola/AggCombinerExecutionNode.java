@@ -96,6 +96,7 @@ public class AggCombinerExecutionNode extends CreateTableAsSelectNode {
     nodeMeta.setAggColumnAggAliasPair(childAggMeta.getAggColumnAggAliasPair());
     nodeMeta.setAggColumnAggAliasPairOfMaxMin(childAggMeta.getAggColumnAggAliasPairOfMaxMin());
     nodeMeta.setMaxminAggAlias(childAggMeta.getMaxminAggAlias());
+    nodeMeta.setSketchAggAlias(childAggMeta.getSketchAggAlias());
     nodeMeta.setTierColumnForScramble(childAggMeta.getTierColumnForScramble());
     
     node.setAggMeta(nodeMeta);
@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import org.verdictdb.exception.VerdictDBValueException;
+
+/**
+ * Decides how the AggCombinerExecutionNodes of a nested aggregate query are arranged by
+ * AsyncQueryExecutionPlan. Each combiner creates a temporary table by unioning the results of its
+ * two sources.
+ */
+public enum AggCombiningStrategy {
+
+  /**
+   * The i-th combiner combines the (i-1)-th combiner and the i-th block aggregate. A progressive
+   * answer is produced for every block, but the combiners must run one after another; that is, the
+   * depth of the combiners is the number of blocks.
+   */
+  LINEAR,
+
+  /**
+   * The block aggregates are combined pairwise, and so are the combiners, level by level. The
+   * combiners of the same level may run concurrently; thus, the depth of the combiners is
+   * logarithmic in the number of blocks. A progressive answer is produced only when the blocks
+   * combined so far form a prefix (i.e., after 1, 2, 4, 8, ... blocks and after all blocks).
+   */
+  TREE;
+
+  public static AggCombiningStrategy getDefault() {
+    return LINEAR;
+  }
+
+  /**
+   * @param name Either "linear" or "tree" (case-insensitive)
+   * @return The strategy of the name
+   * @throws VerdictDBValueException if the name is unknown
+   */
+  public static AggCombiningStrategy fromName(String name) throws VerdictDBValueException {
+    for (AggCombiningStrategy strategy : values()) {
+      if (strategy.name().equalsIgnoreCase(name)) {
+        return strategy;
+      }
+    }
+    throw new VerdictDBValueException("Unknown aggregate combining strategy: " + name);
+  }
+}
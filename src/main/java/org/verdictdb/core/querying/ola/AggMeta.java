@@ -60,6 +60,10 @@ public class AggMeta implements Serializable {
   // later, these columns are either maxed or mined for combining answers for smaller queries.
   private Map<String, String> maxminAggAlias = new HashMap<>();
   
+  // later, these columns (the minimum hashes of HyperLogLog registers) are merged into sketches
+  // for combining answers for smaller queries; see HyperLogLogSketch.
+  private List<String> sketchAggAlias = new ArrayList<>();
+  
   /**
    * Mapping from scrambled table to the column alias name for its tier column in the associated
    * current select query.
@@ -216,6 +220,10 @@ public class AggMeta implements Serializable {
     return maxminAggAlias;
   }
   
+  public List<String> getSketchAggAlias() {
+    return sketchAggAlias;
+  }
+  
   public List<SelectItem> getOriginalSelectList() {
     return originalSelectList;
   }
@@ -262,6 +270,10 @@ public class AggMeta implements Serializable {
     this.maxminAggAlias = maxminAggAlias;
   }
   
+  public void setSketchAggAlias(List<String> sketchAggAlias) {
+    this.sketchAggAlias = sketchAggAlias;
+  }
+  
   public void setOriginalSelectList(List<SelectItem> originalSelectList) {
     this.originalSelectList = originalSelectList;
   }
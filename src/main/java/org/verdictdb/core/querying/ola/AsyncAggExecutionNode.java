@@ -24,6 +24,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
@@ -93,6 +95,9 @@ public class AsyncAggExecutionNode extends ProjectionNode {
 
   private Map<Integer, String> scrambledTableTierInfo;
 
+  // how the combiners that this node subscribes to are arranged; reported by toString().
+  private AggCombiningStrategy combiningStrategy = AggCombiningStrategy.getDefault();
+
   /**
    * This is the Map that maps the aggregation alias to its column contents. For example, if one
    * basic aggregate column in the aggregate node is sum(value) as agg0, it will record [agg0,
@@ -240,7 +245,9 @@ public class AsyncAggExecutionNode extends ProjectionNode {
     //    System.out.println(selectQuery);
 
     ExecutionInfoToken token = tokens.get(0);
-    AggMeta sourceAggMeta = (AggMeta) token.getValue("aggMeta");
+    // the aggMeta in the token is shared with the source node; we copy it since
+    // replaceWithOriginalSelectList() modifies its select items.
+    AggMeta sourceAggMeta = ((AggMeta) token.getValue("aggMeta")).deepcopy();
 
     // First, calculate the scale factor and use it to replace the scale factor placeholder
     List<Pair<UnnamedColumn, Double>> conditionToScaleFactor =
@@ -340,6 +347,14 @@ public class AsyncAggExecutionNode extends ProjectionNode {
     this.scrambleMeta = meta;
   }
 
+  public AggCombiningStrategy getCombiningStrategy() {
+    return combiningStrategy;
+  }
+
+  public void setCombiningStrategy(AggCombiningStrategy combiningStrategy) {
+    this.combiningStrategy = combiningStrategy;
+  }
+
   /**
    * @param sourceAggMeta AggMeta instance passed from a downstream node (either an individual
    *     aggregate node or a combiner node). This object contains what are the tier columns for the
@@ -373,9 +388,12 @@ public class AsyncAggExecutionNode extends ProjectionNode {
           newSelectList.set(index, new AliasedColumn(aggColumn, aliasedColumn.getAliasName()));
           
         } else if (sourceAggMeta
-            .getMaxminAggAlias()
-            .keySet()
-            .contains(aliasedColumn.getAliasName())) {
+                .getMaxminAggAlias()
+                .keySet()
+                .contains(aliasedColumn.getAliasName())
+            || sourceAggMeta.getSketchAggAlias().contains(aliasedColumn.getAliasName())) {
+          // the estimates of sketches are not scaled since the sketches are of the blocks read
+          // so far, not of the entire data.
           newSelectList.set(
               index,
               new AliasedColumn(
@@ -410,6 +428,17 @@ public class AsyncAggExecutionNode extends ProjectionNode {
       }
     }
 
+    // the registers of sketches are consumed when the block answers are combined
+    for (int i = newSelectList.size() - 1; i >= 0; i--) {
+      SelectItem selectItem = newSelectList.get(i);
+      if (selectItem instanceof AliasedColumn
+          && ((AliasedColumn) selectItem)
+              .getAliasName()
+              .equals(HyperLogLogSketch.REGISTER_COLUMN_ALIAS)) {
+        newSelectList.remove(i);
+      }
+    }
+
     // Setup from table
     SelectQuery query = SelectQuery.create(newSelectList, placeholderTable);
 
@@ -727,6 +756,16 @@ public class AsyncAggExecutionNode extends ProjectionNode {
             groupby.add(newcol);
           }
         }
+        // If it is a sketch, its estimate has already been computed for each tier
+        else if (sourceAggMeta.getSketchAggAlias().contains(((AliasedColumn) sel).getAliasName())) {
+          UnnamedColumn col =
+              new ColumnOp(
+                  "max",
+                  new BaseColumn(
+                      TIER_CONSOLIDATED_TABLE_ALIAS, ((AliasedColumn) sel).getAliasName()));
+          newSelectlist.add(new AliasedColumn(col, ((AliasedColumn) sel).getAliasName()));
+          aggContents.put(((AliasedColumn) sel).getAliasName(), col);
+        }
         // If it is a max/min aggregation, we need to maximize/minimize
         else if (sourceAggMeta
             .getMaxminAggAlias()
@@ -787,8 +826,18 @@ public class AsyncAggExecutionNode extends ProjectionNode {
   }
 
   void copyFields(AsyncAggExecutionNode from, AsyncAggExecutionNode to) {
+    to.combiningStrategy = from.combiningStrategy;
     //    to.scrambleMeta = from.scrambleMeta;
     //    to.nonaggColumns = from.nonaggColumns;
     //    to.aggColumns = from.aggColumns;
   }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this, ToStringStyle.DEFAULT_STYLE)
+        .append("combiningStrategy", combiningStrategy)
+        .append("subscriberCount", getSubscribers().size())
+        .append("sourceCount", getSources().size())
+        .toString();
+  }
 }
@@ -66,6 +66,15 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
 
   private static final String TIER_COLUMN_ALIAS_KEYWORD = "tier";
 
+  private AggCombiningStrategy combiningStrategy = AggCombiningStrategy.getDefault();
+
+  // whether the dbms supports the hash used by HyperLogLogSketch
+  private boolean countDistinctSketchEnabled = false;
+
+  // set while the select list of a block query is unfolded if its count-distinct aggregates are
+  // computed with sketches
+  private boolean unfoldCountDistinctIntoSketch = false;
+
   private AsyncQueryExecutionPlan(String scratchpadSchemaName, ScrambleMetaSet scrambleMeta) {
     super(scratchpadSchemaName, scrambleMeta);
   }
@@ -75,6 +84,34 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
   }
 
   public static AsyncQueryExecutionPlan create(QueryExecutionPlan plan) throws VerdictDBException {
+    return create(plan, AggCombiningStrategy.getDefault());
+  }
+
+  /**
+   * @param plan The plan to convert
+   * @param combiningStrategy How the results of the blocks are combined for nested aggregates
+   * @return An asynchronous version of the plan
+   * @throws VerdictDBException
+   */
+  public static AsyncQueryExecutionPlan create(
+      QueryExecutionPlan plan, AggCombiningStrategy combiningStrategy) throws VerdictDBException {
+    return create(plan, combiningStrategy, false);
+  }
+
+  /**
+   * @param plan The plan to convert
+   * @param combiningStrategy How the results of the blocks are combined for nested aggregates
+   * @param countDistinctSketchEnabled True if the count-distinct aggregates of the outer query can
+   *     be computed with HyperLogLog sketches on the scrambles that are not hashed on their
+   *     columns; see HyperLogLogSketch.
+   * @return An asynchronous version of the plan
+   * @throws VerdictDBException
+   */
+  public static AsyncQueryExecutionPlan create(
+      QueryExecutionPlan plan,
+      AggCombiningStrategy combiningStrategy,
+      boolean countDistinctSketchEnabled)
+      throws VerdictDBException {
     if (plan instanceof AsyncQueryExecutionPlan) {
       System.err.println("It is already an asyncronous plan.");
       throw new VerdictDBTypeException(plan);
@@ -82,11 +119,25 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
 
     AsyncQueryExecutionPlan asyncPlan =
         new AsyncQueryExecutionPlan(plan.getIdCreator(), plan.getScrambleMeta());
+    asyncPlan.combiningStrategy = combiningStrategy;
+    asyncPlan.countDistinctSketchEnabled = countDistinctSketchEnabled;
     ExecutableNodeBase newRoot = asyncPlan.makeAsyncronousAggIfAvailable(plan.getRootNode());
     asyncPlan.setRootNode(newRoot);
     return asyncPlan;
   }
 
+  public AggCombiningStrategy getCombiningStrategy() {
+    return combiningStrategy;
+  }
+
+  /**
+   * @return The structure of the nodes, preceded by the strategy used for combining block
+   *     aggregates.
+   */
+  public String getStructure() {
+    return String.format("combining strategy: %s\n%s", combiningStrategy, root.getStructure());
+  }
+
   /**
    * Returns an asynchronous version of the given plan.
    *
@@ -171,6 +222,7 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     List<Pair<ExecutableNodeBase, ExecutableNodeBase>> oldSubscriptionInformation =
         new ArrayList<>();
     ExecutableNodeBase newRoot;
+    boolean requiresSketch = requiresCountDistinctSketch(scrambleMeta, aggNodeBlock);
 
     // This check the condition to convert to SelectAsyncAggExecutionNode. The node will be converted
     // only if it is the outer query.
@@ -180,6 +232,9 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     //    SELECT p FROM (SELECT SUM(price) as p from [Scramble Table])
     if (aggNodeBlock.getBlockRootNode().getSubscribers().size() == 1 &&
         aggNodeBlock.getBlockRootNode().getSubscribers().get(0) instanceof SelectAllExecutionNode) {
+      if (requiresSketch) {
+        ensureCountDistinctSketchApplicable(scrambleMeta, aggNodeBlock);
+      }
       
       // Convert to SelectAsyncAggExecutionNode
       // Second, according to the plan, create individual nodes that perform aggregations.
@@ -204,9 +259,13 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
         // rewrite the select list of the individual aggregate nodes to add tier columns
         // also agg alias are identified in this function.
         resetTierColumnAliasGeneration();
+        unfoldCountDistinctIntoSketch = requiresSketch;
         addTierColumnsRecursively(copy, aggroot, new HashSet<ExecutableNode>());
+        unfoldCountDistinctIntoSketch = false;
 
         // Insert predicates into individual aggregation nodes
+        // the number of the (combinations of the) scramble blocks read by this aggregation
+        int coveredBlockCount = 1;
         for (Pair<ExecutableNodeBase, Triple<String, String, String>> a 
             : scrambledNodeAndTableName) {
           ExecutableNodeBase scrambledNode = a.getLeft();
@@ -225,6 +284,7 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
 
           int left = span.getLeft();
           int right = span.getRight();
+          coveredBlockCount *= right - left + 1;
           if (left == right) {
             q.addFilterByAnd(
                 ColumnOp.equal(
@@ -238,7 +298,9 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
                     new BaseColumn(aliasName, aggblockColumn), ConstantColumn.valueOf(right)));
           }
         }
-        individualAggNodes.add(SelectAggExecutionNode.create(aggroot));
+        SelectAggExecutionNode selectAgg = SelectAggExecutionNode.create(aggroot);
+        selectAgg.setCoveredBlockCount(coveredBlockCount);
+        individualAggNodes.add(selectAgg);
       }
 
       // Re-link the subscription relationship for the new AsyncAggNode
@@ -246,6 +308,13 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
           idCreator, individualAggNodes, scrambleMeta, aggNodeBlock);
       
     } else {
+      // the answers of the blocks are combined by the dbms, which cannot merge sketches
+      if (requiresSketch) {
+        throw new VerdictDBValueException(
+            "Count distinct of a column must be used with the hash scramble "
+                + "built on that column.");
+      }
+
       // Otherwise, create AsyncAggExeuctionNode instead.
       // Second, according to the plan, create individual nodes that perform aggregations.
       for (int i = 0; i < aggPlan.totalBlockAggCount(); i++) {
@@ -311,22 +380,15 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
       for (ExecutableNodeBase n : individualAggNodes) {
         n.cancelSubscriptionsFromAllSubscribers();
       }
-      for (int i = 1; i < aggPlan.totalBlockAggCount(); i++) {
-        AggCombinerExecutionNode combiner;
-        if (i == 1) {
-          combiner =
-              AggCombinerExecutionNode.create(
-                  idCreator, individualAggNodes.get(0), individualAggNodes.get(1));
-        } else {
-          combiner =
-              AggCombinerExecutionNode.create(
-                  idCreator, combiners.get(i - 2), individualAggNodes.get(i));
-        }
-        combiners.add(combiner);
+      if (combiningStrategy == AggCombiningStrategy.TREE) {
+        combiners = stackCombinersInTree(individualAggNodes);
+      } else {
+        combiners = stackCombinersLinearly(individualAggNodes);
       }
 
       // Fourth, re-link the subscription relationship for the new AsyncAggNode
       newRoot = AsyncAggExecutionNode.create(idCreator, aggblocks, combiners, scrambleMeta, aggNodeBlock);
+      ((AsyncAggExecutionNode) newRoot).setCombiningStrategy(combiningStrategy);
     }
 
     // Finally remove the old subscription information: old copied node -> still used old node
@@ -339,6 +401,150 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     return newRoot;
   }
 
+  /**
+   * The count-distinct aggregates can be combined by summing them up only if every scramble is
+   * hashed on the count-distinct column (so that the blocks have disjoint sets of values).
+   * Otherwise, HyperLogLog sketches are required.
+   *
+   * @return True if the block root has count-distinct aggregates and some scramble in the block
+   *     is not a hash scramble built on the count-distinct column.
+   */
+  private static boolean requiresCountDistinctSketch(
+      ScrambleMetaSet scrambleMeta, AggExecutionNodeBlock aggNodeBlock) {
+    List<UnnamedColumn> operands = getCountDistinctOperands(aggNodeBlock);
+    if (operands.isEmpty()) {
+      return false;
+    }
+    for (Pair<ExecutableNodeBase, Triple<String, String, String>> a :
+        identifyScrambledNodes(scrambleMeta, aggNodeBlock.getNodesInBlock())) {
+      String schemaName = a.getRight().getLeft();
+      String tableName = a.getRight().getMiddle();
+      String method = scrambleMeta.getScramblingMethod(schemaName, tableName);
+      String hashColumn = scrambleMeta.getHashColumn(schemaName, tableName);
+      if (!method.equalsIgnoreCase("hash") || hashColumn == null) {
+        return true;
+      }
+      for (UnnamedColumn operand : operands) {
+        if (!(operand instanceof BaseColumn)
+            || !hashColumn.equalsIgnoreCase(((BaseColumn) operand).getColumnName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A block query groups its rows by the registers of a single count-distinct column; thus, all
+   * the count-distinct aggregates must have the same operand. Also, the scrambles must include
+   * every row of their original tables in a single tier, since the number of the distinct values
+   * of a sample cannot be scaled up to that of the entire data.
+   */
+  private void ensureCountDistinctSketchApplicable(
+      ScrambleMetaSet scrambleMeta, AggExecutionNodeBlock aggNodeBlock)
+      throws VerdictDBValueException {
+    if (!countDistinctSketchEnabled) {
+      throw new VerdictDBValueException(
+          "Count distinct of a column must be used with the hash scramble "
+              + "built on that column.");
+    }
+    if (new HashSet<>(getCountDistinctOperands(aggNodeBlock)).size() > 1) {
+      throw new VerdictDBValueException(
+          "Count distinct of different columns is not supported on the scrambles "
+              + "not hashed on those columns.");
+    }
+    for (Pair<ExecutableNodeBase, Triple<String, String, String>> a :
+        identifyScrambledNodes(scrambleMeta, aggNodeBlock.getNodesInBlock())) {
+      String schemaName = a.getRight().getLeft();
+      String tableName = a.getRight().getMiddle();
+      ScrambleMeta meta = scrambleMeta.getSingleMeta(schemaName, tableName);
+      if (meta.getNumberOfTiers() > 1) {
+        throw new VerdictDBValueException(
+            String.format(
+                "Count distinct on the multi-tier scramble (%s, %s) requires a hash scramble.",
+                schemaName, tableName));
+      }
+      if (meta.getRelativeSize() < 1.0) {
+        throw new VerdictDBValueException(
+            String.format(
+                "Count distinct on the sampled scramble (%s, %s) requires a hash scramble.",
+                schemaName, tableName));
+      }
+    }
+  }
+
+  private static List<UnnamedColumn> getCountDistinctOperands(AggExecutionNodeBlock aggNodeBlock) {
+    List<UnnamedColumn> operands = new ArrayList<>();
+    SelectQuery query = ((QueryNodeBase) aggNodeBlock.getBlockRootNode()).getSelectQuery();
+    List<UnnamedColumn> toCheck = new ArrayList<>();
+    for (SelectItem item : query.getSelectList()) {
+      if (item instanceof AliasedColumn) {
+        toCheck.add(((AliasedColumn) item).getColumn());
+      }
+    }
+    while (!toCheck.isEmpty()) {
+      UnnamedColumn col = toCheck.remove(0);
+      if (!(col instanceof ColumnOp)) {
+        continue;
+      }
+      ColumnOp op = (ColumnOp) col;
+      if (op.getOpType().equals("countdistinct") || op.getOpType().equals("approx_distinct")) {
+        operands.add(op.getOperand(0));
+      } else {
+        toCheck.addAll(op.getOperands());
+      }
+    }
+    return operands;
+  }
+
+  /**
+   * Stacks combiners so that the i-th combiner combines the (i-1)-th combiner (or the first
+   * aggregate) and the (i+1)-th aggregate.
+   *
+   * @param individualAggNodes The aggregates of the blocks in the order of the blocks
+   * @return All the combiners, each of which produces a progressive answer
+   */
+  private List<ExecutableNodeBase> stackCombinersLinearly(
+      List<ExecutableNodeBase> individualAggNodes) {
+    List<ExecutableNodeBase> combiners = new ArrayList<>();
+    ExecutableNodeBase combined = individualAggNodes.get(0);
+    for (int i = 1; i < individualAggNodes.size(); i++) {
+      combined = AggCombinerExecutionNode.create(idCreator, combined, individualAggNodes.get(i));
+      combiners.add(combined);
+    }
+    return combiners;
+  }
+
+  /**
+   * Stacks combiners in a balanced binary tree. At each level, adjacent nodes are combined in
+   * pairs; the last node is carried to the next level if the number of nodes is odd.
+   *
+   * <p>Only the combiners covering a prefix of the blocks (i.e., the first combiner of every level)
+   * are returned, so that every progressive answer includes more blocks than the previous answers.
+   * The other combiners are reached through their subscribers.
+   *
+   * @param individualAggNodes The aggregates of the blocks in the order of the blocks
+   * @return The combiners that produce progressive answers, from the lowest level to the root
+   */
+  private List<ExecutableNodeBase> stackCombinersInTree(
+      List<ExecutableNodeBase> individualAggNodes) {
+    List<ExecutableNodeBase> prefixCombiners = new ArrayList<>();
+    List<ExecutableNodeBase> level = individualAggNodes;
+    while (level.size() > 1) {
+      List<ExecutableNodeBase> nextLevel = new ArrayList<>();
+      for (int i = 0; i + 1 < level.size(); i += 2) {
+        nextLevel.add(
+            AggCombinerExecutionNode.create(idCreator, level.get(i), level.get(i + 1)));
+      }
+      if (level.size() % 2 == 1) {
+        nextLevel.add(level.get(level.size() - 1));
+      }
+      prefixCombiners.add(nextLevel.get(0));
+      level = nextLevel;
+    }
+    return prefixCombiners;
+  }
+
   /**
    * @param scrambleMeta Information about what tables have been scrambled.
    * @param blockNodes
@@ -666,6 +872,8 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     List<SelectItem> selectList = query.getSelectList();
     List<String> aggColumnAlias = new ArrayList<>();
     HashMap<String, String> maxminAlias = new HashMap<>();
+    List<String> sketchAlias = new ArrayList<>();
+    UnnamedColumn sketchRegisterOperand = null;
     List<SelectItem> newSelectlist = new ArrayList<>();
     meta.setOriginalSelectList(selectList);
 
@@ -791,11 +999,19 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
                   || col.getOpType().equals("approx_distinct")) {
                 if (!meta.getAggColumnAggAliasPair()
                     .containsKey(new ImmutablePair<>(col.getOpType(), col.getOperand(0)))) {
-                  ColumnOp col1 = new ColumnOp(col.getOpType(), col.getOperand(0));
+                  ColumnOp col1;
+                  if (unfoldCountDistinctIntoSketch) {
+                    // the minimum hash of each register; the registers are added below.
+                    col1 = HyperLogLogSketch.minimumHashOf(col.getOperand(0));
+                    sketchRegisterOperand = col.getOperand(0);
+                    sketchAlias.add(newAlias);
+                  } else {
+                    col1 = new ColumnOp(col.getOpType(), col.getOperand(0));
+                    aggColumnAlias.add(newAlias);
+                  }
                   newSelectlist.add(new AliasedColumn(col1, newAlias));
                   meta.getAggColumnAggAliasPair()
-                      .put(new ImmutablePair<>(col.getOpType(), col1.getOperand(0)), newAlias);
-                  aggColumnAlias.add(newAlias);
+                      .put(new ImmutablePair<>(col.getOpType(), col.getOperand(0)), newAlias);
                   ++aggColumnIdentiferNum;
                 }
               }
@@ -820,8 +1036,16 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
         newSelectlist.add(selectItem.deepcopy());
       }
     }
+    if (sketchRegisterOperand != null) {
+      // a block query returns a row for each non-empty register of each group
+      UnnamedColumn register = HyperLogLogSketch.registerOf(sketchRegisterOperand);
+      newSelectlist.add(
+          new AliasedColumn(register, HyperLogLogSketch.REGISTER_COLUMN_ALIAS));
+      query.addGroupby(register.deepcopy());
+    }
     meta.setAggAlias(aggColumnAlias);
     meta.setMaxminAggAlias(maxminAlias);
+    meta.setSketchAggAlias(sketchAlias);
     return newSelectlist;
   }
 
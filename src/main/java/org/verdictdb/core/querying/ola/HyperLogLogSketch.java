@@ -0,0 +1,208 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
+/**
+ * A HyperLogLog sketch over 32-bit hash values, used to estimate count-distinct aggregates
+ * progressively on any type of scrambles.
+ *
+ * <p>The high PRECISION bits of a hash select a register, and the register keeps the largest rank
+ * (i.e., the position of the leftmost 1-bit) of the remaining bits seen so far. Since the rank is
+ * a non-increasing function of the remaining bits, the rank of a register is determined by the
+ * smallest hash that falls into the register. Thus, a block query can compute the sketch of a
+ * group without any dbms-specific sketch functions:
+ *
+ * <pre>
+ * select ..., floor(hllhash(col) / 2^22) as verdictdb_hll_register, min(hllhash(col))
+ * from ... group by ..., floor(hllhash(col) / 2^22)
+ * </pre>
+ *
+ * where hllhash is SqlSyntax.getHllHashFunction(). The rows of a group, one per non-empty
+ * register, are the serialized sketch of the group; sketches are merged by taking the maximum
+ * rank of each register, which is equivalent to taking the minimum hash.
+ *
+ * <p>The estimate is approximate even after all the blocks are read: with PRECISION registers
+ * bits, its relative standard error is about 1.04 / sqrt(2^10), i.e., 3%. Also, the estimate from
+ * part of the blocks is the number of the distinct values in those blocks, which is not scaled up
+ * to the entire data.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class HyperLogLogSketch implements Serializable {
+
+  private static final long serialVersionUID = 2877291092517493621L;
+
+  /** The number of bits that select a register; the relative error is about 1.04 / 2^(p/2). */
+  public static final int PRECISION = 10;
+
+  public static final int REGISTER_COUNT = 1 << PRECISION;
+
+  static final int HASH_BITS = 32;
+
+  // the bits of a hash that are left after a register is selected
+  static final int RANK_BITS = HASH_BITS - PRECISION;
+
+  /** The hashes in the same register have the same quotient when divided by this value. */
+  public static final long REGISTER_DIVISOR = 1L << RANK_BITS;
+
+  /** The alias of the register column in the block queries. */
+  public static final String REGISTER_COLUMN_ALIAS = "verdictdb_hll_register";
+
+  private static final String HASH_OP_TYPE = "hllhash";
+
+  private static final double TWO_TO_HASH_BITS = Math.pow(2, HASH_BITS);
+
+  private final byte[] registers;
+
+  public HyperLogLogSketch() {
+    registers = new byte[REGISTER_COUNT];
+  }
+
+  private HyperLogLogSketch(byte[] registers) {
+    this.registers = registers;
+  }
+
+  /**
+   * @param column The column (or expression) whose distinct values are counted
+   * @return The expression of the 32-bit hash of the column
+   */
+  public static ColumnOp hashOf(UnnamedColumn column) {
+    return new ColumnOp(HASH_OP_TYPE, column);
+  }
+
+  /** @return The expression of the register to which the hash of the column belongs */
+  public static ColumnOp registerOf(UnnamedColumn column) {
+    return ColumnOp.floor(
+        ColumnOp.divide(hashOf(column), ConstantColumn.valueOf((int) REGISTER_DIVISOR)));
+  }
+
+  /** @return The aggregate that summarizes a register in a block query */
+  public static ColumnOp minimumHashOf(UnnamedColumn column) {
+    return new ColumnOp("min", hashOf(column));
+  }
+
+  /** @return True if the column is created by minimumHashOf() */
+  public static boolean isMinimumHash(UnnamedColumn column) {
+    if (!(column instanceof ColumnOp)) {
+      return false;
+    }
+    ColumnOp op = (ColumnOp) column;
+    return op.getOpType().equals("min")
+        && op.getOperands().size() == 1
+        && op.getOperand(0) instanceof ColumnOp
+        && ((ColumnOp) op.getOperand(0)).getOpType().equals(HASH_OP_TYPE);
+  }
+
+  /**
+   * Adds a hash value computed by SqlSyntax.getHllHashFunction() (or any uniform 32-bit hash).
+   *
+   * @param hash A value in [0, 2^32)
+   */
+  public void addHash(long hash) {
+    int register = (int) (hash >>> RANK_BITS);
+    updateRegister(register, rankOf(hash));
+  }
+
+  /**
+   * Adds the smallest hash value of a register, as returned by a block query.
+   *
+   * @param register The index of the register
+   * @param minimumHash The smallest hash value of the register
+   */
+  public void addRegisterMinimum(int register, long minimumHash) {
+    if (register < 0 || register >= REGISTER_COUNT) {
+      throw new IllegalArgumentException("Invalid register: " + register);
+    }
+    updateRegister(register, rankOf(minimumHash));
+  }
+
+  private void updateRegister(int register, int rank) {
+    if (rank > registers[register]) {
+      registers[register] = (byte) rank;
+    }
+  }
+
+  /** @return The position of the leftmost 1-bit in the lower RANK_BITS bits of the hash */
+  private static int rankOf(long hash) {
+    long remaining = hash & (REGISTER_DIVISOR - 1);
+    return Long.numberOfLeadingZeros(remaining) - (Long.SIZE - RANK_BITS) + 1;
+  }
+
+  /**
+   * Merges another sketch into this sketch; the result is the sketch of the union.
+   *
+   * @param other
+   */
+  public void merge(HyperLogLogSketch other) {
+    for (int i = 0; i < REGISTER_COUNT; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public HyperLogLogSketch copy() {
+    return new HyperLogLogSketch(Arrays.copyOf(registers, REGISTER_COUNT));
+  }
+
+  /**
+   * Estimates the number of distinct values with the small-range (linear counting) and
+   * large-range corrections of the original HyperLogLog paper.
+   *
+   * @return The estimated number of distinct values
+   */
+  public long estimate() {
+    double inverseSum = 0;
+    int emptyRegisterCount = 0;
+    for (byte rank : registers) {
+      inverseSum += Math.pow(2, -rank);
+      if (rank == 0) {
+        emptyRegisterCount++;
+      }
+    }
+
+    double m = REGISTER_COUNT;
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / inverseSum;
+    if (estimate <= 2.5 * m && emptyRegisterCount > 0) {
+      estimate = m * Math.log(m / emptyRegisterCount);
+    } else if (estimate > TWO_TO_HASH_BITS / 30) {
+      estimate = -TWO_TO_HASH_BITS * Math.log(1 - estimate / TWO_TO_HASH_BITS);
+    }
+    return Math.round(estimate);
+  }
+
+  /** @return The ranks of the registers; can be restored by fromBytes() */
+  public byte[] toBytes() {
+    return Arrays.copyOf(registers, REGISTER_COUNT);
+  }
+
+  public static HyperLogLogSketch fromBytes(byte[] bytes) {
+    if (bytes.length != REGISTER_COUNT) {
+      throw new IllegalArgumentException(
+          String.format("A sketch must have %d registers: %d", REGISTER_COUNT, bytes.length));
+    }
+    return new HyperLogLogSketch(Arrays.copyOf(bytes, REGISTER_COUNT));
+  }
+}
@@ -1,6 +1,7 @@
 package org.verdictdb.core.querying.ola;
 
 import static java.sql.Types.CHAR;
+import static java.sql.Types.DOUBLE;
 import static java.sql.Types.VARCHAR;
 
 import java.sql.Connection;
@@ -9,26 +10,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.verdictdb.commons.DataTypeConverter;
 import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.JdbcQueryResult;
-import org.verdictdb.core.sqlobject.AbstractRelation;
-import org.verdictdb.core.sqlobject.AliasedColumn;
-import org.verdictdb.core.sqlobject.AsteriskColumn;
-import org.verdictdb.core.sqlobject.BaseColumn;
-import org.verdictdb.core.sqlobject.BaseTable;
-import org.verdictdb.core.sqlobject.ColumnOp;
-import org.verdictdb.core.sqlobject.GroupingAttribute;
-import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
-import org.verdictdb.core.sqlobject.SetOperationRelation;
-import org.verdictdb.core.sqlobject.UnnamedColumn;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.sqlsyntax.H2Syntax;
 import org.verdictdb.sqlwriter.SelectQueryToSql;
@@ -43,7 +32,17 @@ public class InMemoryAggregate {
 
   private Connection conn;
   
-  private boolean aborted = false;
+  private volatile boolean aborted = false;
+
+  /** The aggregates combined so far; only accessed by SelectAsyncAggExecutionNode. */
+  private IncrementalAggregateTable runningAggregate = null;
+
+  // the table to which the running aggregates are materialized; created on the first
+  // materialize() and updated in place afterwards.
+  private String runningAggregateTableName = null;
+
+  // identifies the row of a group in the table of the running aggregates
+  private static final String ROW_ID_COLUMN = "verdictdb_row_id";
   
   private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());;
 
@@ -147,7 +146,7 @@ public class InMemoryAggregate {
     DbmsQueryResult dbmsQueryResult = null;
     
     try {
-      log.debug("The following query is issued: " + sql);
+      log.debug("The following query is issued: {}", sql);
       ResultSet rs = stmt.executeQuery(sql);
       dbmsQueryResult = new JdbcQueryResult(rs);
       rs.close();
@@ -167,98 +166,166 @@ public class InMemoryAggregate {
     return SELECT_ASYNC_AGG_TABLE + selectAsyncAggTableID++;
   }
 
-  public String combineTables(
-      String combinedTableName, String newAggTableName, SelectQuery dependentQuery)
-      throws SQLException, VerdictDBException {
+  /**
+   * Merges the aggregates of a new block into the running aggregates, which are kept in memory.
+   * The cost is proportional to the number of groups in the new block; nothing is written to the
+   * in-memory database until materialize() is called.
+   *
+   * @param blockAggregate The aggregates of a new block; null if the block query has been aborted.
+   */
+  public void combineBlock(IncrementalAggregateTable blockAggregate) {
     // the query processing has already been finished; thus, no more processing will be needed.
-    if (aborted) {
+    if (aborted || blockAggregate == null) {
+      return;
+    }
+
+    if (runningAggregate == null) {
+      runningAggregate = IncrementalAggregateTable.emptyLike(blockAggregate);
+    }
+    runningAggregate.merge(blockAggregate);
+  }
+
+  /** @return The number of the block results combined so far */
+  public int getBlockCount() {
+    return (runningAggregate == null) ? 0 : runningAggregate.getBlockCount();
+  }
+
+  /** @return The number of the scramble blocks covered by the block results combined so far */
+  public int getCoveredBlockCount() {
+    return (runningAggregate == null) ? 0 : runningAggregate.getCoveredBlockCount();
+  }
+
+  /**
+   * Brings the table of the running aggregates up to date so that a query can be run against it.
+   * Only the groups changed since the last call are written (i.e., merged by their row ids);
+   * thus, the cost is proportional to the number of the changed groups, not to the total number
+   * of groups.
+   *
+   * <p>For every sum aggregate, a double column holding the sum of the squares of the per-block
+   * values is appended (see IncrementalAggregateTable.getSquareSumColumnName()); the variance of
+   * the sum is computed from it, getBlockCount(), and getCoveredBlockCount() by the query.
+   *
+   * @return The name of the table; null if no block has been combined or the query has been
+   *     aborted.
+   * @throws SQLException if writing to the table fails for a reason other than an abort
+   */
+  public String materialize() throws SQLException {
+    if (aborted || runningAggregate == null) {
       return null;
     }
-    
-    String tableName = getNextTableName();
 
-    // check targetTable exists
-    if (newAggTableName.equals("")) {
-      // if not just let it be the copy of combineTable
-      Statement stmt = conn.createStatement();
-      stmt.execute(
-          String.format("CREATE TABLE %s AS SELECT * FROM %s", tableName, combinedTableName));
-      stmt.close();
-      
-    } else {
-      // if exists, combineTables two tables using the logic of AggCombinerExecutionNode
-      List<GroupingAttribute> groupList = new ArrayList<>();
-      SelectQuery copy = dependentQuery.deepcopy();
-      
-      for (SelectItem sel : copy.getSelectList()) {
-        if (sel instanceof AliasedColumn) {
-          UnnamedColumn col = ((AliasedColumn) sel).getColumn();
-          resetSchemaAndTableForCombining(col);
-          String alias = ((AliasedColumn) sel).getAliasName();
-          ((AliasedColumn) sel).setAliasName(alias);
-          
-          if (col.isAggregateColumn()) {
-            if (col instanceof ColumnOp && ((ColumnOp) col).getOpType().equals("max")) {
-              ((AliasedColumn) sel).setColumn(new ColumnOp("max", new BaseColumn(alias)));
-            } else if (col instanceof ColumnOp && ((ColumnOp) col).getOpType().equals("min")) {
-              ((AliasedColumn) sel).setColumn(new ColumnOp("min", new BaseColumn(alias)));
-            } else {    // count, sum, countdistinct, approx_distinct
-              ((AliasedColumn) sel).setColumn(new ColumnOp("sum", new BaseColumn(alias)));
-            }
-            
-          } else {
-            ((AliasedColumn) sel).setColumn(new BaseColumn(alias));
-            groupList.add(((AliasedColumn) sel).getColumn());
-          }
-        }
+    try {
+      if (runningAggregateTableName == null) {
+        String tableName = getNextTableName();
+        createTable(runningAggregate, tableName);
+        runningAggregateTableName = tableName;
       }
+      mergeChangedRows(runningAggregate, runningAggregateTableName);
+      runningAggregate.clearChangedRows();
+    } catch (SQLException e) {
+      if (aborted) {
+        // the database has been shut down by abort(); there is no table to read.
+        return null;
+      }
+      throw e;
+    }
+    return runningAggregateTableName;
+  }
 
-      SelectQuery left =
-          SelectQuery.create(new AsteriskColumn(), new BaseTable("PUBLIC", newAggTableName));
-      SelectQuery right =
-          SelectQuery.create(new AsteriskColumn(), new BaseTable("PUBLIC", combinedTableName));
-      AbstractRelation setOperation =
-          new SetOperationRelation(left, right, SetOperationRelation.SetOpType.unionAll);
+  private void createTable(IncrementalAggregateTable aggregate, String tableName)
+      throws SQLException {
+    StringBuilder tableColDefs = new StringBuilder();
+    tableColDefs.append(String.format("\"%s\" BIGINT PRIMARY KEY", ROW_ID_COLUMN));
+    for (int i = 0; i < aggregate.getColumnCount(); i++) {
+      tableColDefs.append(String.format(", \"%s\" ", aggregate.getColumnName(i)));
+      tableColDefs.append(DataTypeConverter.typeName(aggregate.getColumnType(i)));
+    }
+    for (int i = 0; i < aggregate.getColumnCount(); i++) {
+      if (aggregate.isSumColumn(i)) {
+        String squareSumColumn =
+            IncrementalAggregateTable.getSquareSumColumnName(aggregate.getColumnName(i));
+        tableColDefs.append(String.format(", \"%s\" ", squareSumColumn));
+        tableColDefs.append(DataTypeConverter.typeName(DOUBLE));
+      }
+    }
 
-      copy.clearFilter();
-      copy.setFromList(Arrays.asList(setOperation));
-      copy.clearGroupby();
-      copy.addGroupby(groupList);
-      String sql = selectQueryToSql.toSql(copy);
-      
-      log.debug("Issues the following query to an in-memory db: " + sql);
-      
-      Statement stmt = conn.createStatement();
-      stmt.execute(String.format("CREATE TABLE %s AS %s", tableName, sql));
+    Statement stmt = conn.createStatement();
+    try {
+      stmt.execute("CREATE TABLE " + tableName + " (" + tableColDefs + ")");
+    } finally {
       stmt.close();
     }
-
-    return tableName;
   }
 
-  private static void resetSchemaAndTableForCombining(UnnamedColumn column) {
-    List<UnnamedColumn> columns = new ArrayList<>();
-    columns.add(column);
-    while (!columns.isEmpty()) {
-      UnnamedColumn col = columns.get(0);
-      columns.remove(0);
-      if (col instanceof ColumnOp) {
-        columns.addAll(((ColumnOp) col).getOperands());
+  /** Writes the rows changed since the last call. The numeric aggregates are bound unboxed. */
+  private void mergeChangedRows(IncrementalAggregateTable aggregate, String tableName)
+      throws SQLException {
+    BitSet changedRows = aggregate.getChangedRows();
+    if (changedRows.isEmpty()) {
+      return;
+    }
+
+    StringBuilder insertColNames = new StringBuilder();
+    StringBuilder bindVariables = new StringBuilder();
+    insertColNames.append(String.format("\"%s\"", ROW_ID_COLUMN));
+    bindVariables.append('?');
+    for (int i = 0; i < aggregate.getColumnCount(); i++) {
+      insertColNames.append(String.format(", \"%s\"", aggregate.getColumnName(i)));
+      bindVariables.append(", ?");
+    }
+    for (int i = 0; i < aggregate.getColumnCount(); i++) {
+      if (aggregate.isSumColumn(i)) {
+        insertColNames.append(
+            String.format(
+                ", \"%s\"",
+                IncrementalAggregateTable.getSquareSumColumnName(aggregate.getColumnName(i))));
+        bindVariables.append(", ?");
       }
-      if (col instanceof BaseColumn) {
-        ((BaseColumn) col).setSchemaName("");
-        ((BaseColumn) col).setTableName("UNIONTABLE");
-        ((BaseColumn) col).setTableSourceAlias("");
-        ((BaseColumn) col).setColumnName(((BaseColumn) col).getColumnName());
-      } else if (col instanceof ColumnOp) {
-        columns.addAll(((ColumnOp) col).getOperands());
+    }
+
+    String sql =
+        "MERGE INTO " + tableName + " (" + insertColNames + ") KEY (\"" + ROW_ID_COLUMN
+            + "\") VALUES (" + bindVariables + ")";
+    PreparedStatement pstmt = conn.prepareStatement(sql);
+    try {
+      int columnCount = aggregate.getColumnCount();
+      for (int row = changedRows.nextSetBit(0); row >= 0; row = changedRows.nextSetBit(row + 1)) {
+        pstmt.setLong(1, row);
+        for (int col = 0; col < columnCount; col++) {
+          int parameterIndex = col + 2;
+          if (aggregate.isNull(row, col)) {
+            pstmt.setNull(parameterIndex, aggregate.getColumnType(col));
+          } else if (aggregate.getStorageType(col) == IncrementalAggregateTable.StorageType.LONG) {
+            pstmt.setLong(parameterIndex, aggregate.getLong(row, col));
+          } else if (aggregate.getStorageType(col)
+              == IncrementalAggregateTable.StorageType.DOUBLE) {
+            pstmt.setDouble(parameterIndex, aggregate.getDouble(row, col));
+          } else {
+            pstmt.setObject(parameterIndex, aggregate.getValue(row, col));
+          }
+        }
+        int parameterIndex = columnCount + 1;
+        for (int col = 0; col < columnCount; col++) {
+          if (aggregate.isSumColumn(col)) {
+            parameterIndex++;
+            pstmt.setDouble(parameterIndex, aggregate.getSquareSum(row, col));
+          }
+        }
+        pstmt.addBatch();
       }
+      pstmt.executeBatch();
+    } finally {
+      pstmt.close();
     }
   }
 
-  public void abort() {
+  /** Shuts down the in-memory database; may be called more than once (e.g., on cancellation). */
+  public synchronized void abort() {
+    if (aborted) {
+      return;
+    }
     aborted = true;
-    
+
     try {
       if (!conn.isClosed()) {
         // This will close all the connection and the database.
@@ -0,0 +1,716 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.CHAR;
+import static java.sql.Types.DECIMAL;
+import static java.sql.Types.DOUBLE;
+import static java.sql.Types.FLOAT;
+import static java.sql.Types.INTEGER;
+import static java.sql.Types.NUMERIC;
+import static java.sql.Types.REAL;
+import static java.sql.Types.SMALLINT;
+import static java.sql.Types.TINYINT;
+import static java.sql.Types.VARCHAR;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
+/**
+ * Keeps the partial aggregates of block aggregate queries in a hash table whose aggregate values
+ * are stored in primitive arrays.
+ *
+ * <p>SelectAggExecutionNode converts the result of each block query into an instance of this
+ * class, and SelectAsyncAggExecutionNode merges it into its running aggregates. Since merging only
+ * touches the groups of the new block, the cost of combining a block is proportional to the size
+ * of the block's result, not to the size of the accumulated result.
+ *
+ * <p>The columns of a block result are either grouping attributes or base aggregates. As in
+ * AggCombinerExecutionNode, max and min aggregates are combined by taking the extreme values, and
+ * all other aggregates (i.e., sum, count, countdistinct, approx_distinct) are combined by summing
+ * them up. The exceptions are the count-distinct aggregates computed on the scrambles that are not
+ * hashed on their columns; for them, a block query returns the HyperLogLog registers of each group
+ * (see HyperLogLogSketch), which are kept as sketches and combined by merging the sketches. Their
+ * values are the estimated numbers of distinct values.
+ *
+ * <p>For every sum aggregate, the sum of the squares of the per-block values is also kept, so
+ * that the variance of the running sum can be estimated without re-scanning the earlier blocks
+ * (see getVarianceOfSum()). The scramble blocks are regarded as random samples of the same size
+ * since the rows are distributed to the blocks at random by scrambling. A block result may cover
+ * several scramble blocks (i.e., a span); its square is divided by the number of the covered
+ * blocks so that the spans of different widths are weighted accordingly.
+ *
+ * <p>This class is not thread-safe; the merges into the same instance must be serialized.
+ */
+public class IncrementalAggregateTable implements Serializable {
+
+  private static final long serialVersionUID = -3208569412893125170L;
+
+  enum ColumnRole {
+    GROUP,
+    SUM,
+    MIN,
+    MAX,
+    SKETCH
+  }
+
+  enum StorageType {
+    LONG,
+    DOUBLE,
+    OBJECT
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final String VARIANCE_COLUMN_PREFIX = "verdictdb_var_";
+
+  private static final String SQUARE_SUM_COLUMN_PREFIX = "verdictdb_sqsum_";
+
+  private final List<String> columnNames;
+
+  /** The types of the original columns returned by the block queries. */
+  private final List<Integer> columnTypes;
+
+  private final ColumnRole[] roles;
+
+  private final StorageType[] storageTypes;
+
+  private final int[] groupColumnIndexes;
+
+  /** The index of the column of a block result from which each column of this table is read. */
+  private final int[] sourceColumnIndexes;
+
+  /** The index of the register column of a block result; -1 if there are no sketches. */
+  private final int registerSourceIndex;
+
+  private final Map<List<Object>, Integer> groupToRow = new HashMap<>();
+
+  private int rowCount = 0;
+
+  private int capacity = 0;
+
+  // For each column, exactly one of the following three arrays is allocated depending on its
+  // storage type.
+  private long[][] longValues;
+
+  private double[][] doubleValues;
+
+  private Object[][] objectValues;
+
+  private boolean[][] isNull;
+
+  // the sums of the squares of the per-block values; allocated only for sum aggregates.
+  private double[][] squareSums;
+
+  // the number of the block results merged into this table
+  private int blockCount = 0;
+
+  // the number of the scramble blocks covered by the block results merged into this table
+  private int coveredBlockCount = 0;
+
+  // the rows changed by merge() since the last clearChangedRows()
+  private final BitSet changedRows = new BitSet();
+
+  private IncrementalAggregateTable(
+      List<String> columnNames,
+      List<Integer> columnTypes,
+      ColumnRole[] roles,
+      int[] sourceColumnIndexes,
+      int registerSourceIndex) {
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.roles = roles;
+    this.sourceColumnIndexes = sourceColumnIndexes;
+    this.registerSourceIndex = registerSourceIndex;
+
+    int columnCount = columnNames.size();
+    storageTypes = new StorageType[columnCount];
+    List<Integer> groupIndexes = new ArrayList<>();
+    for (int i = 0; i < columnCount; i++) {
+      storageTypes[i] = inferStorageType(roles[i], columnTypes.get(i));
+      if (roles[i] == ColumnRole.GROUP) {
+        groupIndexes.add(i);
+      }
+    }
+    groupColumnIndexes = new int[groupIndexes.size()];
+    for (int i = 0; i < groupIndexes.size(); i++) {
+      groupColumnIndexes[i] = groupIndexes.get(i);
+    }
+
+    longValues = new long[columnCount][];
+    doubleValues = new double[columnCount][];
+    objectValues = new Object[columnCount][];
+    isNull = new boolean[columnCount][];
+    squareSums = new double[columnCount][];
+    ensureCapacity(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty table that has the same columns as a given table.
+   *
+   * @param other The table whose schema is copied
+   * @return An empty table
+   */
+  public static IncrementalAggregateTable emptyLike(IncrementalAggregateTable other) {
+    return new IncrementalAggregateTable(
+        other.columnNames,
+        other.columnTypes,
+        other.roles,
+        other.sourceColumnIndexes,
+        other.registerSourceIndex);
+  }
+
+  /**
+   * Creates a table from the result of a block aggregate query that covers a single scramble
+   * block.
+   *
+   * @param dependentQuery The block aggregate query; used to identify the aggregate columns.
+   * @param blockResult The result of the block aggregate query.
+   * @return The aggregates of the block
+   */
+  public static IncrementalAggregateTable fromBlockResult(
+      SelectQuery dependentQuery, DbmsQueryResult blockResult) {
+    return fromBlockResult(dependentQuery, blockResult, 1);
+  }
+
+  /**
+   * Creates a table from the result of a block aggregate query.
+   *
+   * @param dependentQuery The block aggregate query; used to identify the aggregate columns.
+   * @param blockResult The result of the block aggregate query.
+   * @param coveredBlockCount The number of the scramble blocks read by the query
+   * @return The aggregates of the block
+   */
+  public static IncrementalAggregateTable fromBlockResult(
+      SelectQuery dependentQuery, DbmsQueryResult blockResult, int coveredBlockCount) {
+    int columnCount = blockResult.getColumnCount();
+    List<String> columnNames = new ArrayList<>();
+    List<Integer> columnTypes = new ArrayList<>();
+    List<ColumnRole> roles = new ArrayList<>();
+    List<Integer> sourceColumnIndexes = new ArrayList<>();
+    int registerSourceIndex = -1;
+    List<SelectItem> selectList = dependentQuery.getSelectList();
+    for (int i = 0; i < columnCount; i++) {
+      String columnName = blockResult.getColumnName(i);
+      if (columnName.equalsIgnoreCase(HyperLogLogSketch.REGISTER_COLUMN_ALIAS)) {
+        // the registers are part of the sketches; not a column of this table
+        registerSourceIndex = i;
+        continue;
+      }
+
+      // the columns of the result appear in the same order as the select items. If not (e.g.,
+      // an asterisk is used), we find the select item by its alias.
+      SelectItem item = null;
+      if (selectList.size() == columnCount) {
+        item = selectList.get(i);
+      } else {
+        for (SelectItem sel : selectList) {
+          if (sel instanceof AliasedColumn
+              && ((AliasedColumn) sel).getAliasName().equalsIgnoreCase(columnName)) {
+            item = sel;
+            break;
+          }
+        }
+      }
+      columnNames.add(columnName);
+      columnTypes.add(blockResult.getColumnType(i));
+      roles.add(inferRole(item));
+      sourceColumnIndexes.add(i);
+    }
+
+    int[] sourceIndexes = new int[sourceColumnIndexes.size()];
+    for (int i = 0; i < sourceIndexes.length; i++) {
+      sourceIndexes[i] = sourceColumnIndexes.get(i);
+    }
+    IncrementalAggregateTable table =
+        new IncrementalAggregateTable(
+            columnNames,
+            columnTypes,
+            roles.toArray(new ColumnRole[roles.size()]),
+            sourceIndexes,
+            registerSourceIndex);
+    table.add(blockResult);
+    table.initializeSquareSums(coveredBlockCount);
+    return table;
+  }
+
+  /** Regards the current values as the values of a single block result. */
+  private void initializeSquareSums(int coveredBlockCount) {
+    blockCount = 1;
+    this.coveredBlockCount = coveredBlockCount;
+    for (int c = 0; c < columnNames.size(); c++) {
+      if (roles[c] != ColumnRole.SUM) {
+        continue;
+      }
+      for (int row = 0; row < rowCount; row++) {
+        if (!isNull[c][row]) {
+          double value = getNumericValue(row, c);
+          squareSums[c][row] = value * value / coveredBlockCount;
+        }
+      }
+    }
+  }
+
+  private static ColumnRole inferRole(SelectItem item) {
+    if (!(item instanceof AliasedColumn)) {
+      return ColumnRole.GROUP;
+    }
+    UnnamedColumn col = ((AliasedColumn) item).getColumn();
+    if (!col.isAggregateColumn()) {
+      return ColumnRole.GROUP;
+    }
+    if (HyperLogLogSketch.isMinimumHash(col)) {
+      return ColumnRole.SKETCH;
+    }
+    if (col instanceof ColumnOp && ((ColumnOp) col).getOpType().equals("max")) {
+      return ColumnRole.MAX;
+    } else if (col instanceof ColumnOp && ((ColumnOp) col).getOpType().equals("min")) {
+      return ColumnRole.MIN;
+    } else {
+      // count, sum, countdistinct, approx_distinct
+      return ColumnRole.SUM;
+    }
+  }
+
+  private static StorageType inferStorageType(ColumnRole role, int columnType) {
+    if (role == ColumnRole.GROUP || role == ColumnRole.SKETCH) {
+      return StorageType.OBJECT;
+    }
+    if (isIntegralType(columnType)) {
+      return StorageType.LONG;
+    }
+    if (isFloatingType(columnType) || role == ColumnRole.SUM) {
+      return StorageType.DOUBLE;
+    }
+    // min/max of non-numeric values (e.g., dates, strings)
+    return StorageType.OBJECT;
+  }
+
+  private static boolean isIntegralType(int columnType) {
+    return columnType == TINYINT
+        || columnType == SMALLINT
+        || columnType == INTEGER
+        || columnType == BIGINT;
+  }
+
+  private static boolean isFloatingType(int columnType) {
+    return columnType == FLOAT
+        || columnType == REAL
+        || columnType == DOUBLE
+        || columnType == NUMERIC
+        || columnType == DECIMAL;
+  }
+
+  /**
+   * Aggregates the rows of a query result into this table. The cursor of the query result is
+   * moved to the end. The sums of squares are not updated by this method.
+   *
+   * @param result A query result that has the same columns as this table.
+   */
+  public void add(DbmsQueryResult result) {
+    int columnCount = columnNames.size();
+    result.rewind();
+    while (result.next()) {
+      List<Object> group = new ArrayList<>(groupColumnIndexes.length);
+      for (int c : groupColumnIndexes) {
+        group.add(result.getValue(sourceColumnIndexes[c]));
+      }
+      int row = findOrInsertGroup(group);
+
+      for (int c = 0; c < columnCount; c++) {
+        if (roles[c] == ColumnRole.GROUP) {
+          continue;
+        }
+        Object value = result.getValue(sourceColumnIndexes[c]);
+        if (value == null) {
+          continue;
+        }
+        if (roles[c] == ColumnRole.SKETCH) {
+          Object register = result.getValue(registerSourceIndex);
+          if (register != null) {
+            sketchOf(c, row).addRegisterMinimum(
+                ((Number) register).intValue(), ((Number) value).longValue());
+          }
+        } else {
+          accumulate(c, row, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Merges the aggregates of another table (typically, of a new block) into this table.
+   *
+   * @param other A table that has the same columns as this table.
+   */
+  public void merge(IncrementalAggregateTable other) {
+    int columnCount = columnNames.size();
+    blockCount += other.blockCount;
+    coveredBlockCount += other.coveredBlockCount;
+    for (Map.Entry<List<Object>, Integer> groupAndRow : other.groupToRow.entrySet()) {
+      int otherRow = groupAndRow.getValue();
+      int row = findOrInsertGroup(groupAndRow.getKey());
+      changedRows.set(row);
+
+      for (int c = 0; c < columnCount; c++) {
+        if (roles[c] == ColumnRole.GROUP || other.isNull[c][otherRow]) {
+          continue;
+        }
+        if (roles[c] == ColumnRole.SUM) {
+          squareSums[c][row] += other.squareSums[c][otherRow];
+        } else if (roles[c] == ColumnRole.SKETCH) {
+          sketchOf(c, row).merge((HyperLogLogSketch) other.objectValues[c][otherRow]);
+          continue;
+        }
+        if (other.storageTypes[c] != storageTypes[c]) {
+          // may happen if the dbms returns different types for different blocks
+          accumulate(c, row, other.getValue(otherRow, c));
+          continue;
+        }
+        switch (storageTypes[c]) {
+          case LONG:
+            accumulateLong(c, row, other.longValues[c][otherRow]);
+            break;
+          case DOUBLE:
+            accumulateDouble(c, row, other.doubleValues[c][otherRow]);
+            break;
+          default:
+            accumulateObject(c, row, other.objectValues[c][otherRow]);
+            break;
+        }
+      }
+    }
+  }
+
+  private int findOrInsertGroup(List<Object> group) {
+    Integer row = groupToRow.get(group);
+    if (row != null) {
+      return row;
+    }
+
+    int newRow = rowCount++;
+    ensureCapacity(rowCount);
+    groupToRow.put(group, newRow);
+    for (int i = 0; i < groupColumnIndexes.length; i++) {
+      int c = groupColumnIndexes[i];
+      objectValues[c][newRow] = group.get(i);
+      isNull[c][newRow] = (group.get(i) == null);
+    }
+    for (int c = 0; c < columnNames.size(); c++) {
+      if (roles[c] != ColumnRole.GROUP) {
+        isNull[c][newRow] = true;
+      }
+    }
+    return newRow;
+  }
+
+  /** @return The sketch of the group, which is created if the group does not have one. */
+  private HyperLogLogSketch sketchOf(int column, int row) {
+    if (isNull[column][row]) {
+      objectValues[column][row] = new HyperLogLogSketch();
+      isNull[column][row] = false;
+    }
+    return (HyperLogLogSketch) objectValues[column][row];
+  }
+
+  private void accumulate(int column, int row, Object value) {
+    switch (storageTypes[column]) {
+      case LONG:
+        accumulateLong(column, row, toLong(value));
+        break;
+      case DOUBLE:
+        accumulateDouble(column, row, toDouble(value));
+        break;
+      default:
+        accumulateObject(column, row, value);
+        break;
+    }
+  }
+
+  private void accumulateLong(int column, int row, long value) {
+    long[] values = longValues[column];
+    if (isNull[column][row]) {
+      values[row] = value;
+      isNull[column][row] = false;
+    } else if (roles[column] == ColumnRole.SUM) {
+      values[row] += value;
+    } else if (roles[column] == ColumnRole.MAX) {
+      values[row] = Math.max(values[row], value);
+    } else {
+      values[row] = Math.min(values[row], value);
+    }
+  }
+
+  private void accumulateDouble(int column, int row, double value) {
+    double[] values = doubleValues[column];
+    if (isNull[column][row]) {
+      values[row] = value;
+      isNull[column][row] = false;
+    } else if (roles[column] == ColumnRole.SUM) {
+      values[row] += value;
+    } else if (roles[column] == ColumnRole.MAX) {
+      values[row] = Math.max(values[row], value);
+    } else {
+      values[row] = Math.min(values[row], value);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void accumulateObject(int column, int row, Object value) {
+    Object[] values = objectValues[column];
+    if (isNull[column][row]) {
+      values[row] = value;
+      isNull[column][row] = false;
+      return;
+    }
+    int comparison = ((Comparable) value).compareTo(values[row]);
+    if ((roles[column] == ColumnRole.MAX && comparison > 0)
+        || (roles[column] == ColumnRole.MIN && comparison < 0)) {
+      values[row] = value;
+    }
+  }
+
+  private static long toLong(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    return Long.valueOf(value.toString());
+  }
+
+  private static double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    return Double.valueOf(value.toString());
+  }
+
+  private void ensureCapacity(int required) {
+    if (required <= capacity) {
+      return;
+    }
+    int newCapacity = Math.max(INITIAL_CAPACITY, capacity);
+    while (newCapacity < required) {
+      newCapacity *= 2;
+    }
+    for (int c = 0; c < columnNames.size(); c++) {
+      isNull[c] =
+          (isNull[c] == null) ? new boolean[newCapacity] : Arrays.copyOf(isNull[c], newCapacity);
+      if (roles[c] == ColumnRole.SUM) {
+        squareSums[c] =
+            (squareSums[c] == null)
+                ? new double[newCapacity]
+                : Arrays.copyOf(squareSums[c], newCapacity);
+      }
+      switch (storageTypes[c]) {
+        case LONG:
+          longValues[c] =
+              (longValues[c] == null)
+                  ? new long[newCapacity]
+                  : Arrays.copyOf(longValues[c], newCapacity);
+          break;
+        case DOUBLE:
+          doubleValues[c] =
+              (doubleValues[c] == null)
+                  ? new double[newCapacity]
+                  : Arrays.copyOf(doubleValues[c], newCapacity);
+          break;
+        default:
+          objectValues[c] =
+              (objectValues[c] == null)
+                  ? new Object[newCapacity]
+                  : Arrays.copyOf(objectValues[c], newCapacity);
+          break;
+      }
+    }
+    capacity = newCapacity;
+  }
+
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  public String getColumnName(int index) {
+    return columnNames.get(index);
+  }
+
+  /**
+   * The type of the combined values. The sums of integers are widened to bigint, and the sums of
+   * other numbers are stored as double. The estimates of the sketches are bigint.
+   *
+   * @param index zero-based index
+   * @return java.sql.Types
+   */
+  public int getColumnType(int index) {
+    if (roles[index] == ColumnRole.SKETCH) {
+      return BIGINT;
+    }
+    switch (storageTypes[index]) {
+      case LONG:
+        return BIGINT;
+      case DOUBLE:
+        return DOUBLE;
+      default:
+        int type = columnTypes.get(index);
+        // char -> varchar in case this type is an array of char
+        return (type == CHAR) ? VARCHAR : type;
+    }
+  }
+
+  /** @return The number of groups */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public boolean isNull(int row, int column) {
+    return isNull[column][row];
+  }
+
+  /**
+   * The value must not be null and the column must be stored as long.
+   *
+   * @return the value without boxing
+   */
+  public long getLong(int row, int column) {
+    return longValues[column][row];
+  }
+
+  /**
+   * The value must not be null and the column must be stored as double.
+   *
+   * @return the value without boxing
+   */
+  public double getDouble(int row, int column) {
+    return doubleValues[column][row];
+  }
+
+  /** For a sketch column, the value is the estimated number of distinct values. */
+  public Object getValue(int row, int column) {
+    if (isNull[column][row]) {
+      return null;
+    }
+    if (roles[column] == ColumnRole.SKETCH) {
+      return ((HyperLogLogSketch) objectValues[column][row]).estimate();
+    }
+    switch (storageTypes[column]) {
+      case LONG:
+        return longValues[column][row];
+      case DOUBLE:
+        return doubleValues[column][row];
+      default:
+        return objectValues[column][row];
+    }
+  }
+
+  StorageType getStorageType(int column) {
+    return storageTypes[column];
+  }
+
+  /** @return The number of the block results merged into this table */
+  public int getBlockCount() {
+    return blockCount;
+  }
+
+  /** @return The number of the scramble blocks covered by the merged block results */
+  public int getCoveredBlockCount() {
+    return coveredBlockCount;
+  }
+
+  /** @return The rows changed by merge() since the last clearChangedRows(); must not be modified. */
+  BitSet getChangedRows() {
+    return changedRows;
+  }
+
+  void clearChangedRows() {
+    changedRows.clear();
+  }
+
+  /** @return True if the column is a sum aggregate; only such columns have variances. */
+  public boolean isSumColumn(int column) {
+    return roles[column] == ColumnRole.SUM;
+  }
+
+  /**
+   * Estimates the variance of the sum of the column over the blocks merged so far. With k block
+   * results of the values s_1, ..., s_k covering w_1, ..., w_k scramble blocks (W in total), the
+   * variance of a single scramble block is estimated by (sum(s_i^2 / w_i) - sum(s_i)^2 / W) /
+   * (k - 1); thus, the sum has the variance (W * sum(s_i^2 / w_i) - sum(s_i)^2) / (k - 1). If
+   * every result covers a single block, this is k * S^2, where S^2 is the sample variance of the
+   * per-block values. The blocks in which the group does not appear contribute zeros.
+   *
+   * @param row zero-based row index
+   * @param column zero-based index of a sum aggregate column
+   * @return NaN if the value is null or fewer than two block results have been merged.
+   */
+  public double getVarianceOfSum(int row, int column) {
+    if (roles[column] != ColumnRole.SUM || isNull[column][row] || blockCount < 2) {
+      return Double.NaN;
+    }
+    double sum = getNumericValue(row, column);
+    double variance =
+        (coveredBlockCount * squareSums[column][row] - sum * sum) / (blockCount - 1);
+    // may be slightly negative due to rounding errors
+    return Math.max(variance, 0);
+  }
+
+  /**
+   * @param row zero-based row index
+   * @param column zero-based index of a sum aggregate column
+   * @return The sum of the squares of the per-block values, each divided by the number of the
+   *     blocks it covers
+   */
+  public double getSquareSum(int row, int column) {
+    return squareSums[column][row];
+  }
+
+  /**
+   * @param columnName The name of a sum aggregate column
+   * @return The name of the column that holds the sum of the squares of the per-block values in
+   *     the in-memory database
+   */
+  public static String getSquareSumColumnName(String columnName) {
+    return SQUARE_SUM_COLUMN_PREFIX + columnName;
+  }
+
+  /**
+   * @param columnName The name of a sum aggregate column
+   * @return The alias of the variance of the sum in the queries run in the in-memory database
+   */
+  public static String getVarianceColumnName(String columnName) {
+    return VARIANCE_COLUMN_PREFIX + columnName;
+  }
+
+  private double getNumericValue(int row, int column) {
+    if (storageTypes[column] == StorageType.LONG) {
+      return longValues[column][row];
+    } else {
+      return doubleValues[column][row];
+    }
+  }
+}
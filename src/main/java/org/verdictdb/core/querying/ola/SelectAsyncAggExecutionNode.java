@@ -2,6 +2,7 @@ package org.verdictdb.core.querying.ola;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Map;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcQueryResult;
 import org.verdictdb.core.execplan.ExecutionInfoToken;
 import org.verdictdb.core.querying.ExecutableNodeBase;
 import org.verdictdb.core.querying.IdCreator;
@@ -16,8 +18,12 @@ import org.verdictdb.core.querying.QueryNodeBase;
 import org.verdictdb.core.querying.SelectAggExecutionNode;
 import org.verdictdb.core.querying.SubscriptionTicket;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.AsteriskColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
 import org.verdictdb.core.sqlobject.BaseTable;
 import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
 import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
 import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
@@ -31,8 +37,9 @@ import org.verdictdb.exception.VerdictDBException;
  * An selectAsyncAggExecutionNode will be created when the outer query is an aggregation query
  * that contains the scramble table. Instead of creating AsyncAggExecutionNode,
  * selectAggExecutionNode will be created. The sources of selectAggExecutionNode are
- * selectAggExecutionNode, which will create temporary table in H2 database. Then,
- * selectAsyncAggExecutionNode will use the results from H2 database to calculate the query result.
+ * selectAggExecutionNode, which will send the block aggregates as IncrementalAggregateTable. Then,
+ * selectAsyncAggExecutionNode merges them in memory and calculates the query result using an
+ * in-memory H2 database.
  *
  * @author Shucheng Zhong
  *
@@ -47,8 +54,6 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
 //
 //  private final String asteriskAlias = "verdictdb_asterisk_alias";
 
-  private String selectAsyncAggTableName = "";
-
   // The key of this map is a list of tier numbers (e.g., [1, 2]),
   // and the value of this map is the corresponding scale factor (e.g., 10.0);
   // that is, an entry of this map could be [1, 2] -> 10.0
@@ -60,6 +65,11 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
 
   private InMemoryAggregate inMemoryAggregate = InMemoryAggregate.create();
 
+  // the number of the individual aggregations whose answers are combined by this node
+  private int blockAggCount;
+
+  private static final String STANDARD_ERROR_ALIAS_PREFIX = "verdictdb_stderr_";
+
   private SelectAsyncAggExecutionNode(IdCreator idCreator) {
     super(idCreator);
   }
@@ -96,6 +106,7 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
       agg.registerSubscriber(ticket);
     }
 
+    node.blockAggCount = selectAggs.size();
     node.setScrambleMetaSet(meta); // the scramble meta must be not be shared; thus, thread-safe
     node.setNamer(idCreator); // the name can be shared
 
@@ -124,11 +135,6 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
     if (originalAggQuery.getHaving().isPresent()) {
       node.selectQuery.addHavingByAnd(originalAggQuery.getHaving().get());
     }
-
-    // share same inMemoryAggregate object with selectAggExecutionNode
-    for (ExecutableNodeBase source : node.getSources()) {
-      ((SelectAggExecutionNode) source).setInMemoryAggregate(node.inMemoryAggregate);
-    }
     return node;
   }
 
@@ -139,26 +145,39 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
   @Override
   public SqlConvertible createQuery(List<ExecutionInfoToken> tokens) throws VerdictDBException {
     ExecutionInfoToken token = tokens.get(0);
-    String table = (String) token.getValue("tableName");
-    SelectQuery dependentQuery = (SelectQuery) token.getValue("dependentQuery");
-    
+    IncrementalAggregateTable blockAggregate =
+        (IncrementalAggregateTable) token.getValue("blockAggregate");
+
     if (aggMeta == null) {
-      aggMeta = (AggMeta) token.getValue("aggMeta");
+      // the aggMeta in the token is shared with the source node; we copy it since it is updated
+      // by this node afterwards.
+      aggMeta = ((AggMeta) token.getValue("aggMeta")).deepcopy();
     } else {
       AggMeta childAggMeta = (AggMeta) token.getValue("aggMeta");
       updateAggMeta(childAggMeta);
       token.setKeyValue("aggMeta", aggMeta.deepcopy());
     }
     try {
-      String combinedTableName = 
-          inMemoryAggregate.combineTables(table, selectAsyncAggTableName, dependentQuery);
+      inMemoryAggregate.combineBlock(blockAggregate);
+      String combinedTableName = inMemoryAggregate.materialize();
+      if (combinedTableName == null) {
+        // aborted, or no block has been combined
+        dbmsQueryResult = null;
+        return null;
+      }
+      token.setKeyValue("schemaName", "PUBLIC");
       token.setKeyValue("tableName", combinedTableName);
-      selectAsyncAggTableName = combinedTableName;
 
       // here, the base aggregate functions (e.g., sum(col), count(col)) are composed to
       // reconstruct the original aggregate function (e.g., avg(col) = sum(col) / count(col))
       SelectQuery query = ((CreateTableAsSelectQuery) super.createQuery(tokens)).getSelect();
-      dbmsQueryResult = inMemoryAggregate.executeQuery(query);
+      dbmsQueryResult = executeQueryWithStandardErrors(query);
+      if (!aggMeta.getSketchAggAlias().isEmpty()
+          && inMemoryAggregate.getBlockCount() < blockAggCount
+          && dbmsQueryResult instanceof JdbcQueryResult) {
+        // the count-distinct estimates are of the blocks read so far
+        dbmsQueryResult = ((JdbcQueryResult) dbmsQueryResult).withPartialSketchEstimates();
+      }
 
 //      List<Boolean> isAggregated = new ArrayList<>();
 //      for (SelectItem sel : selectQuery.getSelectList()) {
@@ -181,6 +200,202 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
     return null;
   }
 
+  /**
+   * Executes the query together with the standard errors of its sum, count, and avg columns. The
+   * standard errors are computed from the variances of the block sums kept by the in-memory
+   * aggregate; thus, no earlier blocks are re-scanned. If the standard errors cannot be computed,
+   * the query is executed as it is.
+   */
+  private DbmsQueryResult executeQueryWithStandardErrors(SelectQuery query)
+      throws VerdictDBException, SQLException {
+    Pair<SelectQuery, int[]> queryWithErrors = addStandardErrorColumns(query);
+    if (queryWithErrors == null) {
+      return inMemoryAggregate.executeQuery(query);
+    }
+
+    DbmsQueryResult result;
+    try {
+      result = inMemoryAggregate.executeQuery(queryWithErrors.getLeft());
+    } catch (SQLException e) {
+      log.debug("Failed to compute standard errors: " + e.getMessage());
+      return inMemoryAggregate.executeQuery(query);
+    }
+    if (result instanceof JdbcQueryResult) {
+      return ((JdbcQueryResult) result)
+          .withStandardErrors(
+              query.getSelectList().size(),
+              queryWithErrors.getRight(),
+              inMemoryAggregate.getBlockCount());
+    }
+    return result;
+  }
+
+  /**
+   * Creates a copy of the query in which the standard errors of the aggregates are appended to the
+   * select list. The given query is not modified since it is reused for the later blocks.
+   *
+   * <p>In the tier-consolidated subquery, the variance of each scaled sum is computed as
+   * scale * (scale - 1) * var, where var is the variance of the running sum of the blocks; that is,
+   * scale^2 * var with the finite population correction (1 - 1/scale). With k block results
+   * covering W scramble blocks, var is (W * sqsum - sum^2) / (k - 1), where sqsum is the sum of
+   * the squares of the per-result sums (each divided by the number of its blocks) kept in the
+   * table of the running aggregates (see IncrementalAggregateTable.getVarianceOfSum()). Since k
+   * and W are constants of the query, only the changed groups need to be rewritten to the table
+   * for each block. Then, the outer query sums
+   * up the variances over the tiers and takes the square roots. For avg (i.e., sum / count), the
+   * variance is approximated by the delta method, ignoring the covariance between the sum and the
+   * count.
+   *
+   * @return The query and the index of the standard error column for each column of the original
+   *     query (-1 if none); null if no standard errors can be computed.
+   */
+  private Pair<SelectQuery, int[]> addStandardErrorColumns(SelectQuery query) {
+    List<SelectItem> selectList = query.getSelectList();
+    int blockCount = inMemoryAggregate.getBlockCount();
+    if (aggMeta == null
+        || blockCount < 2
+        || query.getFromList().size() != 1
+        || !(query.getFromList().get(0) instanceof SelectQuery)) {
+      return null;
+    }
+    for (SelectItem item : selectList) {
+      if (item instanceof AsteriskColumn) {
+        return null;
+      }
+    }
+
+    SelectQuery copy = query.deepcopy();
+    copy.addOrderby(query.getOrderby());
+    if (query.getLimit().isPresent()) {
+      copy.addLimit(query.getLimit().get());
+    }
+    if (query.getHaving().isPresent()) {
+      copy.addHavingByAnd(query.getHaving().get());
+    }
+
+    // variances of the scaled sums per tier
+    List<String> aggAlias = aggMeta.getAggAlias();
+    SelectQuery tierQuery = (SelectQuery) copy.getFromList().get(0);
+    for (SelectItem item : new ArrayList<>(tierQuery.getSelectList())) {
+      if (!(item instanceof AliasedColumn)) {
+        continue;
+      }
+      AliasedColumn aliased = (AliasedColumn) item;
+      if (!aggAlias.contains(aliased.getAliasName())
+          || !(aliased.getColumn() instanceof ColumnOp)) {
+        continue;
+      }
+      UnnamedColumn scale = ((ColumnOp) aliased.getColumn()).getOperand(0);
+      String varianceAlias = IncrementalAggregateTable.getVarianceColumnName(aliased.getAliasName());
+      ColumnOp variance =
+          ColumnOp.multiply(
+              ColumnOp.multiply(scale, ColumnOp.subtract(scale, ConstantColumn.valueOf(1.0))),
+              varianceOfRunningSum(
+                  aliased.getAliasName(), blockCount, inMemoryAggregate.getCoveredBlockCount()));
+      tierQuery.addSelectItem(new AliasedColumn(variance, varianceAlias));
+    }
+
+    // standard errors of the final aggregates
+    int[] standardErrorColumns = new int[selectList.size()];
+    boolean hasStandardError = false;
+    for (int i = 0; i < selectList.size(); i++) {
+      standardErrorColumns[i] = -1;
+      SelectItem item = copy.getSelectList().get(i);
+      if (!(item instanceof AliasedColumn)) {
+        continue;
+      }
+      UnnamedColumn standardError =
+          standardErrorOf(((AliasedColumn) item).getColumn(), aggAlias);
+      if (standardError != null) {
+        copy.addSelectItem(new AliasedColumn(standardError, STANDARD_ERROR_ALIAS_PREFIX + i));
+        standardErrorColumns[i] = copy.getSelectList().size() - 1;
+        hasStandardError = true;
+      }
+    }
+    if (!hasStandardError) {
+      return null;
+    }
+    return Pair.of(copy, standardErrorColumns);
+  }
+
+  /**
+   * @return (W * sqsum - sum^2) / (k - 1), or zero if negative due to rounding errors. The sum is
+   *     multiplied by 1.0 first so that squaring an integral sum does not overflow.
+   */
+  private static UnnamedColumn varianceOfRunningSum(
+      String aggAlias, int blockCount, int coveredBlockCount) {
+    BaseColumn sum = new BaseColumn(INNER_RAW_AGG_TABLE_ALIAS, aggAlias);
+    BaseColumn squareSum =
+        new BaseColumn(
+            INNER_RAW_AGG_TABLE_ALIAS, IncrementalAggregateTable.getSquareSumColumnName(aggAlias));
+    ColumnOp doubleSum = ColumnOp.multiply(ConstantColumn.valueOf(1.0), sum);
+    ColumnOp numerator =
+        ColumnOp.subtract(
+            ColumnOp.multiply(ConstantColumn.valueOf((double) coveredBlockCount), squareSum),
+            ColumnOp.multiply(doubleSum, doubleSum));
+    return new ColumnOp(
+        "casewhen",
+        Arrays.<UnnamedColumn>asList(
+            ColumnOp.greater(numerator, ConstantColumn.valueOf(0.0)),
+            ColumnOp.divide(numerator, ConstantColumn.valueOf(blockCount - 1.0)),
+            ConstantColumn.valueOf(0.0)));
+  }
+
+  /**
+   * @return The expression for the standard error of the column if the column is a sum of a
+   *     consolidated aggregate (i.e., sum or count) or a ratio of two such sums (i.e., avg); null
+   *     otherwise.
+   */
+  private static UnnamedColumn standardErrorOf(UnnamedColumn column, List<String> aggAlias) {
+    UnnamedColumn variance = varianceOfSum(column, aggAlias);
+    if (variance != null) {
+      return ColumnOp.sqrt(variance);
+    }
+    if (!(column instanceof ColumnOp) || !((ColumnOp) column).getOpType().equals("divide")) {
+      return null;
+    }
+    ColumnOp divide = (ColumnOp) column;
+    UnnamedColumn numerator = divide.getOperand(0);
+    UnnamedColumn denominator = divide.getOperand(1);
+    UnnamedColumn numeratorVariance = varianceOfSum(numerator, aggAlias);
+    UnnamedColumn denominatorVariance = varianceOfSum(denominator, aggAlias);
+    if (numeratorVariance == null || denominatorVariance == null) {
+      return null;
+    }
+    // var(a / b) ~= (var(a) + (a / b)^2 var(b)) / b^2
+    UnnamedColumn ratio = ColumnOp.divide(numerator, denominator);
+    return ColumnOp.sqrt(
+        ColumnOp.divide(
+            ColumnOp.add(
+                numeratorVariance,
+                ColumnOp.multiply(ColumnOp.multiply(ratio, ratio), denominatorVariance)),
+            ColumnOp.multiply(denominator, denominator)));
+  }
+
+  /**
+   * @return sum(variance) if the column is sum(consolidated aggregate); null otherwise.
+   */
+  private static UnnamedColumn varianceOfSum(UnnamedColumn column, List<String> aggAlias) {
+    if (!(column instanceof ColumnOp)) {
+      return null;
+    }
+    ColumnOp op = (ColumnOp) column;
+    if (!op.getOpType().equals("sum")
+        || op.getOperands().size() != 1
+        || !(op.getOperand(0) instanceof BaseColumn)) {
+      return null;
+    }
+    BaseColumn summed = (BaseColumn) op.getOperand(0);
+    if (!TIER_CONSOLIDATED_TABLE_ALIAS.equals(summed.getTableSourceAlias())
+        || !aggAlias.contains(summed.getColumnName())) {
+      return null;
+    }
+    return ColumnOp.sum(
+        new BaseColumn(
+            TIER_CONSOLIDATED_TABLE_ALIAS,
+            IncrementalAggregateTable.getVarianceColumnName(summed.getColumnName())));
+  }
+
   @Override
   public ExecutionInfoToken createToken(DbmsQueryResult result) {
     ExecutionInfoToken token = super.createToken(result);
@@ -225,6 +440,7 @@ public class SelectAsyncAggExecutionNode extends AsyncAggExecutionNode {
     aggMeta.setAggColumnAggAliasPair(childAggMeta.getAggColumnAggAliasPair());
     aggMeta.setAggColumnAggAliasPairOfMaxMin(childAggMeta.getAggColumnAggAliasPairOfMaxMin());
     aggMeta.setMaxminAggAlias(childAggMeta.getMaxminAggAlias());
+    aggMeta.setSketchAggAlias(childAggMeta.getSketchAggAlias());
     aggMeta.setTierColumnForScramble(childAggMeta.getTierColumnForScramble());
   }
 
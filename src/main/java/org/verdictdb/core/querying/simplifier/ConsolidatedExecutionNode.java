@@ -23,9 +23,11 @@ import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.SqlConvertible;
 import org.verdictdb.core.sqlobject.SubqueryColumn;
 import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.core.sqlobject.WithClause;
 import org.verdictdb.exception.VerdictDBException;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Strings;
 
 /**
  * Used for simplifying two nodes into one. This class may be used in a recursively way to simplify
@@ -94,6 +96,21 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
 
   public static ConsolidatedExecutionNode create(
       QueryNodeWithPlaceHolders parent, CreateTableAsSelectNode child) {
+    return create(parent, child, false);
+  }
+
+  /**
+   * Consolidates the child into the parent.
+   *
+   * @param parent The parent node
+   * @param child The child node
+   * @param usesWithClause If true, the child query is added to the with clauses of the parent
+   *     query, and the placeholder in the source list is replaced with a reference to it. Otherwise,
+   *     the placeholder is replaced with the child query itself (i.e., an inline subquery).
+   * @return The consolidated node
+   */
+  public static ConsolidatedExecutionNode create(
+      QueryNodeWithPlaceHolders parent, CreateTableAsSelectNode child, boolean usesWithClause) {
 
     SelectQuery parentQuery = parent.getSelectQuery();
 
@@ -102,8 +119,21 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
     PlaceHolderRecord placeHolderToRemove = parent.removePlaceholderRecordForChannel(childChannel);
     BaseTable baseTableToRemove = placeHolderToRemove.getPlaceholderTable();
 
+    // the with clauses may contain the placeholder if a previous consolidation has moved the query
+    // containing the placeholder into a with clause.
+    for (WithClause withClause : parentQuery.getWithList()) {
+      consolidateSource(withClause.getSelectQuery(), child, baseTableToRemove, usesWithClause);
+    }
+
     // replace in the source list
-    parentQuery = (SelectQuery) consolidateSource(parentQuery, child, baseTableToRemove);
+    parentQuery =
+        (SelectQuery) consolidateSource(parentQuery, child, baseTableToRemove, usesWithClause);
+    if (usesWithClause && isInSources(parentQuery, withClauseName(child))) {
+      // The with clause of the child must precede those referring to it. Those already added are
+      // for the ancestors of the child; thus, the new one is placed at the beginning.
+      SelectQuery childQuery = ((QueryNodeBase) child).getSelectQuery();
+      parentQuery.addWithClause(0, new WithClause(withClauseName(child), childQuery));
+    }
 
     // filter: replace the placeholder BaseTable (in the filter list) with
     // the SelectQuery of the child
@@ -129,7 +159,10 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
    * @return A new source
    */
   private static AbstractRelation consolidateSource(
-      AbstractRelation originalSource, ExecutableNodeBase child, BaseTable baseTableToRemove) {
+      AbstractRelation originalSource,
+      ExecutableNodeBase child,
+      BaseTable baseTableToRemove,
+      boolean usesWithClause) {
 
     // exception
     if (!(child instanceof QueryNodeBase)) {
@@ -140,18 +173,22 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
 
     if (originalSource instanceof BaseTable) {
       BaseTable baseTableSource = (BaseTable) originalSource;
-      if (baseTableSource.equals(baseTableToRemove)) {
+      if (!baseTableSource.equals(baseTableToRemove)) {
+        return originalSource;
+      } else if (usesWithClause) {
+        return new BaseTable(
+            "", withClauseName(child), baseTableToRemove.getAliasName().get());
+      } else {
         childQuery.setAliasName(baseTableToRemove.getAliasName().get());
         return childQuery;
-      } else {
-        return originalSource;
       }
     } else if (originalSource instanceof JoinTable) {
       JoinTable joinTableSource = (JoinTable) originalSource;
       List<AbstractRelation> joinSourceList = joinTableSource.getJoinList();
       List<AbstractRelation> newJoinSourceList = new ArrayList<>();
       for (AbstractRelation joinSource : joinSourceList) {
-        newJoinSourceList.add(consolidateSource(joinSource, child, baseTableToRemove));
+        newJoinSourceList.add(
+            consolidateSource(joinSource, child, baseTableToRemove, usesWithClause));
       }
       joinTableSource.setJoinList(newJoinSourceList);
       return joinTableSource;
@@ -161,7 +198,8 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
       List<AbstractRelation> originalFromList = selectQuerySource.getFromList();
       List<AbstractRelation> newFromList = new ArrayList<>();
       for (AbstractRelation source : originalFromList) {
-        AbstractRelation newSource = consolidateSource(source, child, baseTableToRemove);
+        AbstractRelation newSource =
+            consolidateSource(source, child, baseTableToRemove, usesWithClause);
         newFromList.add(newSource);
       }
       selectQuerySource.setFromList(newFromList);
@@ -172,6 +210,45 @@ public class ConsolidatedExecutionNode extends QueryNodeWithPlaceHolders {
     }
   }
 
+  /**
+   * @param child The child node
+   * @return The name of the with clause that contains the query of the child
+   */
+  static String withClauseName(ExecutableNodeBase child) {
+    return String.format("verdictdb_with_%d", child.getId());
+  }
+
+  /**
+   * Checks if a relation (directly or within joins and subqueries) refers to the table of the
+   * given name. This is a helper function for simplify2().
+   *
+   * @param source The relation to examine
+   * @param tableName The name of the table without a schema
+   * @return True if the table is referred to
+   */
+  private static boolean isInSources(AbstractRelation source, String tableName) {
+    if (source instanceof BaseTable) {
+      BaseTable baseTable = (BaseTable) source;
+      return Strings.isNullOrEmpty(baseTable.getSchemaName())
+          && baseTable.getTableName().equals(tableName);
+    }
+    List<AbstractRelation> subsources = new ArrayList<>();
+    if (source instanceof JoinTable) {
+      subsources = ((JoinTable) source).getJoinList();
+    } else if (source instanceof SelectQuery) {
+      subsources = new ArrayList<>(((SelectQuery) source).getFromList());
+      for (WithClause withClause : ((SelectQuery) source).getWithList()) {
+        subsources.add(withClause.getSelectQuery());
+      }
+    }
+    for (AbstractRelation subsource : subsources) {
+      if (isInSources(subsource, tableName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * May consolidate a single filter with `child`. This is a helper function for simplify2().
    *
@@ -40,7 +40,9 @@ import org.verdictdb.core.sqlobject.JoinTable;
 import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.SubqueryColumn;
+import org.verdictdb.core.sqlobject.WithClause;
 import org.verdictdb.exception.VerdictDBValidationException;
+import org.verdictdb.sqlsyntax.SqlSyntax;
 
 public class QueryExecutionPlanSimplifier {
   
@@ -56,16 +58,38 @@ public class QueryExecutionPlanSimplifier {
    * 4. ProjectionNode can be safely consolidated.
    * 5. AggExecutionNode can only be consolidated when its aggMeta is empty.
    *
+   * The consolidated children are inlined as subqueries.
+   *
    * @param originalPlan The plan to simplify
    * @throws VerdictDBValidationException This exception is thrown if the number of placeholders in
    * the parent does not match the number of the children.
    */
   public static void simplify2(QueryExecutionPlan originalPlan)
       throws VerdictDBValidationException {
+    simplify2(originalPlan, false);
+  }
+
+  /**
+   * Simplifies the originalPlan in place as simplify2(QueryExecutionPlan) does. The consolidated
+   * children are written as with clauses if the syntax supports them; otherwise, they are inlined
+   * as subqueries. Either way, they are not materialized in the scratchpad schema.
+   *
+   * @param originalPlan The plan to simplify
+   * @param syntax The syntax of the database on which the plan runs
+   * @throws VerdictDBValidationException This exception is thrown if the number of placeholders in
+   * the parent does not match the number of the children.
+   */
+  public static void simplify2(QueryExecutionPlan originalPlan, SqlSyntax syntax)
+      throws VerdictDBValidationException {
+    simplify2(originalPlan, syntax.doesSupportWithClause());
+  }
+
+  private static void simplify2(QueryExecutionPlan originalPlan, boolean usesWithClause)
+      throws VerdictDBValidationException {
     
     // first, simplify the root and its sources
     ExecutableNodeBase parent = originalPlan.getRootNode();
-    ExecutableNodeBase newParent = simplify2ParentNode(parent);
+    ExecutableNodeBase newParent = simplify2ParentNode(parent, usesWithClause);
     originalPlan.setRootNode(newParent);
     
     // next, simplify the sources
@@ -84,7 +108,7 @@ public class QueryExecutionPlanSimplifier {
       parent = candidate.getRight();
       
       // consolidates if possible
-      newParent = simplify2ParentNode(parent);
+      newParent = simplify2ParentNode(parent, usesWithClause);
       grandParent.replaceSource(parent, newParent);
       
       // add the (parent, child) as a next candidate
@@ -100,12 +124,13 @@ public class QueryExecutionPlanSimplifier {
    * one or more levels. This is a helper function for simplify2().
    * 
    * @param parent This parent node and its children will be simplified if available.
+   * @param usesWithClause True if the consolidated children are written as with clauses
    * @return A new parent that will replace the passed parent. If the returned parent is identical
    *         to the passed parent, it means no consolidation occurred.
    * @throws VerdictDBValidationException 
    */
-  private static ExecutableNodeBase simplify2ParentNode(ExecutableNodeBase parent) 
-      throws VerdictDBValidationException {
+  private static ExecutableNodeBase simplify2ParentNode(
+      ExecutableNodeBase parent, boolean usesWithClause) throws VerdictDBValidationException {
     
     // Every iteration of this loop completely reconfigure placeholder list and subscription list
     // properly so that the next iteration does not need to know about the previous iteration.
@@ -118,7 +143,7 @@ public class QueryExecutionPlanSimplifier {
       // as many times as the number of the nodes in the tree.
       ExecutableNodeBase newParent = null;
       for (int childIndex = 0; childIndex < sources.size(); childIndex++) {
-        newParent = consolidates(parent, childIndex);
+        newParent = consolidates(parent, childIndex, usesWithClause);
         if (newParent != null) {
           break;
         }
@@ -139,11 +164,13 @@ public class QueryExecutionPlanSimplifier {
    *
    * @param parent The parent node
    * @param childIndex The index of the child node to consolidate (if possible)
+   * @param usesWithClause True if the child is written as a with clause of the parent
    * @return True if consolidated; false otherwise
    * @throws VerdictDBValidationException This exception is thrown if the number of placeholders in
    * the parent does not match the number of the children.
    */
-  private static ExecutableNodeBase consolidates(ExecutableNodeBase parent, int childIndex)
+  private static ExecutableNodeBase consolidates(
+      ExecutableNodeBase parent, int childIndex, boolean usesWithClause)
       throws VerdictDBValidationException {
   
     List<ExecutableNodeBase> sources = parent.getSources();
@@ -194,7 +221,16 @@ public class QueryExecutionPlanSimplifier {
             || child instanceof AggExecutionNode
             || child instanceof ProjectionNode)) {
       newParent = ConsolidatedExecutionNode.create(
-          (QueryNodeWithPlaceHolders) parent, (CreateTableAsSelectNode) child);
+          (QueryNodeWithPlaceHolders) parent, (CreateTableAsSelectNode) child, usesWithClause);
+    } else if (parent instanceof ProjectionNode
+        && !(parent instanceof AsyncAggExecutionNode)
+        && (child instanceof AggExecutionNode
+            || (child instanceof ProjectionNode && !(child instanceof AsyncAggExecutionNode)))) {
+      // A projection is consolidated with the children that produce a single result. The result
+      // of an AsyncAggExecutionNode is consumed at every progressive step; thus, it is kept
+      // materialized.
+      newParent = ConsolidatedExecutionNode.create(
+          (QueryNodeWithPlaceHolders) parent, (CreateTableAsSelectNode) child, usesWithClause);
     }
     
     if (newParent == null) {
@@ -243,6 +279,18 @@ public class QueryExecutionPlanSimplifier {
         SelectQuery innerQuery = (SelectQuery) parentFromList.get(0);
         innerQuery.clearAliasName();
         parentAsQueryNode.setSelectQuery(innerQuery);
+      } else if (parentSelectList.size() == 1
+          && (parentSelectList.get(0) instanceof AsteriskColumn)
+          && (parentGroupbyList.size() == 0)
+          && (parentFromList.size() == 1)
+          && (parentSelectQuery.getWithList().size() == 1)) {
+        // the same for "with t as (...) select * from t"
+        WithClause withClause = parentSelectQuery.getWithList().get(0);
+        AbstractRelation source = parentFromList.get(0);
+        if (source instanceof BaseTable
+            && ((BaseTable) source).getTableName().equals(withClause.getTableName())) {
+          parentAsQueryNode.setSelectQuery(withClause.getSelectQuery());
+        }
       }
     }
     
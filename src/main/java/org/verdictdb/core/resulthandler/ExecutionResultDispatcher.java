@@ -0,0 +1,66 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb.core.resulthandler;
+
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.execplan.ExecutionTokenListener;
+
+/**
+ * Converts the tokens pushed by ExecutablePlanRunner into the calls to ExecutionResultListener, in
+ * the same way ExecutionResultReader converts the tokens it pulls. The tokens after the first
+ * status token are ignored.
+ */
+public class ExecutionResultDispatcher implements ExecutionTokenListener {
+
+  private final ExecutionResultListener listener;
+
+  private boolean finished = false;
+
+  private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
+
+  public ExecutionResultDispatcher(ExecutionResultListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized void onToken(ExecutionInfoToken token) {
+    if (finished) {
+      log.trace("A token after the end is ignored: {}", token);
+      return;
+    }
+
+    if (token.isFailureToken()) {
+      finished = true;
+      Exception e = (Exception) token.getValue("errorMessage");
+      if (e != null) {
+        listener.onError(e);
+      } else {
+        listener.onCompleted();
+      }
+    } else if (token.isStatusToken()) {
+      finished = true;
+      listener.onCompleted();
+    } else {
+      listener.onResult((DbmsQueryResult) token.getValue("queryResult"));
+    }
+  }
+
+  public synchronized boolean isFinished() {
+    return finished;
+  }
+}
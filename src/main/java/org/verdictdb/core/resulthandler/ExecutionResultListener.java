@@ -0,0 +1,34 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.verdictdb.core.resulthandler;
+
+import org.verdictdb.connection.DbmsQueryResult;
+
+/**
+ * The push-based counterpart of ExecutionResultReader. The methods are called on the threads that
+ * run the plan; thus, the implementations must not block.
+ */
+public interface ExecutionResultListener {
+
+  /** Called for every (progressive) result. */
+  void onResult(DbmsQueryResult result);
+
+  /** Called once after the last result. */
+  void onCompleted();
+
+  /** Called once if the execution fails; no more methods are called afterwards. */
+  void onError(Exception e);
+}
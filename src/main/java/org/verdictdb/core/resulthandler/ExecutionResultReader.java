@@ -52,7 +52,7 @@ public class ExecutionResultReader implements Iterable<DbmsQueryResult>, Iterato
   @Override
   public DbmsQueryResult next() {
     ExecutionInfoToken token = reader.next();
-    log.trace("The following was read: " + token);
+    log.trace("The following was read: {}", token);
     if (token == null) {
       return null;
     }
@@ -85,7 +85,7 @@ public class ExecutionTokenReader
     }
 
     if (queueBuffer.isStatusToken()) {
-      log.trace("A status token is read: " + queueBuffer);
+      log.trace("A status token is read: {}", queueBuffer);
       return null;
     } else {
       ExecutionInfoToken result = queueBuffer;
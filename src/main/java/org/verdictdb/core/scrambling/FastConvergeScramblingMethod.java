@@ -21,6 +21,7 @@ import org.verdictdb.commons.DataTypeConverter;
 import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.execplan.MethodInvocationInformation;
 import org.verdictdb.core.querying.CreateTableAsSelectNode;
 import org.verdictdb.core.querying.ExecutableNodeBase;
 import org.verdictdb.core.querying.IdCreator;
@@ -45,8 +46,11 @@ import org.verdictdb.exception.VerdictDBValueException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import static org.verdictdb.core.scrambling.ScramblingNode.computeConditionalProbabilityDistribution;
 
@@ -64,6 +68,13 @@ import static org.verdictdb.core.scrambling.ScramblingNode.computeConditionalPro
  *
  * <p>Blocks for Tier 2: Tier 2 takes the rest of the space in each block.
  *
+ * <p>Statistics: if the statistics sampling ratio is less than 1.0, the statistics are computed
+ * from a sample of the table (read with the table sampling clause of the database if supported),
+ * and the table size is read from the catalog of the database if available. In this mode, the
+ * outlier count is computed by the same query that lists large groups. The outlier bounds and the
+ * table size are kept in this object (and thus in the metadata of the scramble), so that appending
+ * to the scramble does not compute them again.
+ *
  * @author Yongjoo Park
  */
 public class FastConvergeScramblingMethod extends ScramblingMethodBase {
@@ -99,6 +110,13 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
 
   private int totalNumberOfblocks = -1;
 
+  private double statisticsSamplingRatio = 1.0;
+
+  // (low, high) outside of which the values of a numeric column are outliers
+  private Map<String, List<Double>> outlierBounds = null;
+
+  private long estimatedTableSize = -1;
+
   private static VerdictDBLogger log =
       VerdictDBLogger.getLogger(FastConvergeScramblingMethod.class);
 
@@ -156,6 +174,24 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
 
     List<ExecutableNodeBase> statisticsNodes = new ArrayList<>();
 
+    // The statistics computed for this scramble are reused (e.g., when appending to it). Only the
+    // list of large groups is computed again since it is stored in a temporary table.
+    if (hasStoredStatistics()) {
+      if (primaryColumnName != null) {
+        TempIdCreatorInScratchpadSchema idCreator =
+            new TempIdCreatorInScratchpadSchema(scratchpadSchemaName);
+        LargeGroupListNode ll =
+            new LargeGroupListNode(
+                idCreator, oldSchemaName, oldTableName, primaryColumnName, blockSize);
+        ll.setStatisticsSamplingRatio(statisticsSamplingRatio);
+        ll.setTableSize(estimatedTableSize);
+        statisticsNodes.add(ll);
+      }
+      return statisticsNodes;
+    }
+
+    boolean isSampled = statisticsSamplingRatio < 1.0;
+
     // outlier checking
     PercentilesAndCountNode pc =
         new PercentilesAndCountNode(
@@ -163,13 +199,17 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
             oldTableName,
             columnMetaTokenKey,
             partitionMetaTokenKey,
-            primaryColumnName);
+            primaryColumnName,
+            statisticsSamplingRatio);
     statisticsNodes.add(pc);
 
-    // outlier proportion computation
-    OutlierProportionNode op = new OutlierProportionNode(oldSchemaName, oldTableName);
-    op.subscribeTo(pc);
-    statisticsNodes.add(op);
+    // outlier proportion computation; when sampled, this is fused into the large group list.
+    if (!isSampled || primaryColumnName == null) {
+      OutlierProportionNode op =
+          new OutlierProportionNode(oldSchemaName, oldTableName, statisticsSamplingRatio);
+      op.subscribeTo(pc);
+      statisticsNodes.add(op);
+    }
 
     // primary group's distribution checking
     if (primaryColumnName != null) {
@@ -178,11 +218,12 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
       LargeGroupListNode ll =
           new LargeGroupListNode(
               idCreator, oldSchemaName, oldTableName, primaryColumnName, blockSize);
+      ll.setStatisticsSamplingRatio(statisticsSamplingRatio);
       // subscribed to 'pc' to obtain count(*) of the table, which is used to infer
       // appropriate sampling ratio.
       ll.subscribeTo(pc, 0);
 
-      LargeGroupSizeNode ls = new LargeGroupSizeNode(primaryColumnName);
+      LargeGroupSizeNode ls = new LargeGroupSizeNode(primaryColumnName, isSampled);
       ll.registerSubscriber(ls.getSubscriptionTicket());
       //      ls.subscribeTo(ll, 0);
 
@@ -193,6 +234,52 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
     return statisticsNodes;
   }
 
+  public double getStatisticsSamplingRatio() {
+    return statisticsSamplingRatio;
+  }
+
+  /**
+   * @param statisticsSamplingRatio The fraction of the original table read for computing the
+   *     statistics (between 0 and 1). 1.0 (default) reads the entire table.
+   */
+  public void setStatisticsSamplingRatio(double statisticsSamplingRatio) {
+    this.statisticsSamplingRatio = Math.min(1.0, statisticsSamplingRatio);
+  }
+
+  /**
+   * @return True if the statistics of the original table computed when this scramble was created
+   *     are available, i.e., if they need not be computed again for scrambling more rows.
+   */
+  public boolean hasStoredStatistics() {
+    return outlierBounds != null && tier0CumulProbDist != null && estimatedTableSize >= 0;
+  }
+
+  public String getPrimaryColumnName() {
+    return primaryColumnName;
+  }
+
+  /**
+   * Estimates the number of the rows of the original table. If the statistics were computed from
+   * a sample, the catalog row count is used if available; otherwise, the sample count is scaled.
+   *
+   * @param percentileAndCountResult The result of PercentilesAndCountNode
+   * @param catalogRowCount The row count read from the catalog; null if unknown.
+   * @param samplingRatio The fraction of the table from which the result was computed
+   */
+  static long estimateTableSize(
+      DbmsQueryResult percentileAndCountResult, Long catalogRowCount, double samplingRatio) {
+    percentileAndCountResult.rewind();
+    percentileAndCountResult.next();
+    long count = percentileAndCountResult.getLong(PercentilesAndCountNode.TOTAL_COUNT_ALIAS_NAME);
+    if (samplingRatio >= 1.0) {
+      return count;
+    } else if (catalogRowCount != null) {
+      return catalogRowCount;
+    } else {
+      return Math.round(count / samplingRatio);
+    }
+  }
+
   static UnnamedColumn createOutlierTuplePredicate(
       DbmsQueryResult percentileAndCountResult, String sourceTableAlias) {
     boolean printLog = false;
@@ -201,8 +288,46 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
 
   static UnnamedColumn createOutlierTuplePredicate(
       DbmsQueryResult percentileAndCountResult, String sourceTableAlias, boolean printLog) {
+    return createOutlierTuplePredicate(
+        computeOutlierBounds(percentileAndCountResult, printLog), sourceTableAlias);
+  }
+
+  static UnnamedColumn createOutlierTuplePredicate(
+      Map<String, List<Double>> outlierBounds, String sourceTableAlias) {
     UnnamedColumn outlierPredicate = null;
 
+    for (Entry<String, List<Double>> columnAndBounds : outlierBounds.entrySet()) {
+      String originalColumnName = columnAndBounds.getKey();
+      double lowCriteria = columnAndBounds.getValue().get(0);
+      double highCriteria = columnAndBounds.getValue().get(1);
+
+      UnnamedColumn newOrPredicate =
+          ColumnOp.or(
+              ColumnOp.less(
+                  new BaseColumn(sourceTableAlias, originalColumnName),
+                  ConstantColumn.valueOf(lowCriteria)),
+              ColumnOp.greater(
+                  new BaseColumn(sourceTableAlias, originalColumnName),
+                  ConstantColumn.valueOf(highCriteria)));
+
+      if (outlierPredicate == null) {
+        outlierPredicate = newOrPredicate;
+      } else {
+        outlierPredicate = ColumnOp.or(outlierPredicate, newOrPredicate);
+      }
+    }
+
+    return outlierPredicate;
+  }
+
+  /**
+   * @return The map from numeric column names to their (low, high) bounds, in the order of the
+   *     columns in the result.
+   */
+  static Map<String, List<Double>> computeOutlierBounds(
+      DbmsQueryResult percentileAndCountResult, boolean printLog) {
+    Map<String, List<Double>> outlierBounds = new LinkedHashMap<>();
+
     percentileAndCountResult.rewind();
     percentileAndCountResult.next(); // assumes that the original table has at least one row.
 
@@ -227,40 +352,31 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
                   columnName, lowCriteria, highCriteria));
         }
 
-        UnnamedColumn newOrPredicate =
-            ColumnOp.or(
-                ColumnOp.less(
-                    new BaseColumn(sourceTableAlias, originalColumnName),
-                    ConstantColumn.valueOf(lowCriteria)),
-                ColumnOp.greater(
-                    new BaseColumn(sourceTableAlias, originalColumnName),
-                    ConstantColumn.valueOf(highCriteria)));
-
-        if (outlierPredicate == null) {
-          outlierPredicate = newOrPredicate;
-        } else {
-          outlierPredicate = ColumnOp.or(outlierPredicate, newOrPredicate);
-        }
+        outlierBounds.put(originalColumnName, Arrays.asList(lowCriteria, highCriteria));
       }
       if (columnName.equals(PercentilesAndCountNode.TOTAL_COUNT_ALIAS_NAME)) {
         // do nothing
       }
     }
 
-    return outlierPredicate;
+    return outlierBounds;
   }
 
   @Override
   public List<UnnamedColumn> getTierExpressions(Map<String, Object> metaData) {
-    DbmsQueryResult percentileAndCountResult =
-        (DbmsQueryResult) metaData.get(PercentilesAndCountNode.class.getSimpleName());
+    // the bounds are kept for scrambling more rows later
+    if (outlierBounds == null) {
+      DbmsQueryResult percentileAndCountResult =
+          (DbmsQueryResult) metaData.get(PercentilesAndCountNode.class.getSimpleName());
+      outlierBounds = computeOutlierBounds(percentileAndCountResult, false);
+    }
     //    String largeGroupListSchemaName = (String) metaData.get("1schemaName");
     //    String largeGroupListTableName = (String) metaData.get("1tableName");
 
     // Tier 0
     UnnamedColumn tier0Predicate =
         createOutlierTuplePredicate(
-            percentileAndCountResult, FastConvergeScramblingMethod.MAIN_TABLE_SOURCE_ALIAS_NAME);
+            outlierBounds, FastConvergeScramblingMethod.MAIN_TABLE_SOURCE_ALIAS_NAME);
 
     // Tier 1
     // select (case ... when t2.groupSize is null then 1 else 2 end) as verdictdbtier
@@ -323,11 +439,20 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
     int totalNumberOfblocks = tableSizeAndBlockNumber.getRight();
     long evenBlockSize = calcuteEvenBlockSize(totalNumberOfblocks, tableSize);
 
-    DbmsQueryResult outlierProportion =
-        (DbmsQueryResult) metaData.get(OutlierProportionNode.class.getSimpleName());
-    outlierProportion.rewind();
-    outlierProportion.next();
-    outlierSize = outlierProportion.getLong(0);
+    // if the statistics are sampled, the outlier size is computed with the large group list.
+    if (metaData.containsKey(OutlierProportionNode.class.getSimpleName())) {
+      DbmsQueryResult outlierProportion =
+          (DbmsQueryResult) metaData.get(OutlierProportionNode.class.getSimpleName());
+      outlierProportion.rewind();
+      outlierProportion.next();
+      outlierSize = outlierProportion.getLong(0);
+    } else {
+      DbmsQueryResult largeGroupSizeResult =
+          (DbmsQueryResult) metaData.get(LargeGroupSizeNode.class.getSimpleName());
+      largeGroupSizeResult.rewind();
+      largeGroupSizeResult.next();
+      outlierSize = largeGroupSizeResult.getLong(1); // OUTLIER_SIZE_SUM_ALIAS
+    }
 
     if (outlierSize * 2 >= tableSize) {
       // too large outlier -> no special treatment
@@ -494,9 +619,12 @@ public class FastConvergeScramblingMethod extends ScramblingMethodBase {
   private Pair<Long, Integer> retrieveTableSizeAndBlockNumber(Map<String, Object> metaData) {
     DbmsQueryResult tableSizeResult =
         (DbmsQueryResult) metaData.get(PercentilesAndCountNode.class.getSimpleName());
-    tableSizeResult.rewind();
-    tableSizeResult.next();
-    long tableSize = tableSizeResult.getLong(PercentilesAndCountNode.TOTAL_COUNT_ALIAS_NAME);
+    long tableSize =
+        estimateTableSize(
+            tableSizeResult,
+            (Long) metaData.get(PercentilesAndCountNode.CATALOG_ROW_COUNT_KEY),
+            statisticsSamplingRatio);
+    estimatedTableSize = tableSize;
     totalNumberOfblocks = (int) Math.ceil(tableSize / (float) blockSize);
     return Pair.of(tableSize, totalNumberOfblocks);
   }
@@ -595,24 +723,44 @@ class PercentilesAndCountNode extends QueryNodeBase {
 
   private String primaryColumnName;
 
+  private double samplingRatio;
+
   public static final String AVG_PREFIX = "verdictdbavg";
 
   public static final String STDDEV_PREFIX = "verdictdbstddev";
 
   public static final String TOTAL_COUNT_ALIAS_NAME = "verdictdbtotalcount";
 
+  /** The token key for the row count read from the catalog of the database (if sampled). */
+  public static final String CATALOG_ROW_COUNT_KEY = "PercentilesAndCountNode:catalogRowCount";
+
   public PercentilesAndCountNode(
       String schemaName,
       String tableName,
       String columnMetaTokenKey,
       String partitionMetaTokenKey,
       String primaryColumnName) {
+    this(schemaName, tableName, columnMetaTokenKey, partitionMetaTokenKey, primaryColumnName, 1.0);
+  }
+
+  /**
+   * @param samplingRatio If less than 1.0, the statistics (including the count) are computed from
+   *     this fraction of the table.
+   */
+  public PercentilesAndCountNode(
+      String schemaName,
+      String tableName,
+      String columnMetaTokenKey,
+      String partitionMetaTokenKey,
+      String primaryColumnName,
+      double samplingRatio) {
     super(-1, null);
     this.schemaName = schemaName;
     this.tableName = tableName;
     this.columnMetaTokenKey = columnMetaTokenKey;
     this.partitionMetaTokenKey = partitionMetaTokenKey;
     this.primaryColumnName = primaryColumnName;
+    this.samplingRatio = samplingRatio;
   }
 
   @Override
@@ -662,11 +810,29 @@ class PercentilesAndCountNode extends QueryNodeBase {
     }
     selectList.add(new AliasedColumn(ColumnOp.count(), TOTAL_COUNT_ALIAS_NAME));
 
-    selectQuery =
-        SelectQuery.create(selectList, new BaseTable(schemaName, tableName, tableSourceAlias));
+    BaseTable source = new BaseTable(schemaName, tableName, tableSourceAlias);
+    if (samplingRatio < 1.0) {
+      source.setSamplingPercent(samplingRatio * 100);
+    }
+    selectQuery = SelectQuery.create(selectList, source);
     return selectQuery;
   }
 
+  /** If sampled, the table size is read from the catalog instead of being scaled up. */
+  @Override
+  public Map<String, MethodInvocationInformation> getMethodsToInvokeOnConnection() {
+    Map<String, MethodInvocationInformation> tokenKeyAndMethods = new HashMap<>();
+    if (samplingRatio < 1.0) {
+      tokenKeyAndMethods.put(
+          CATALOG_ROW_COUNT_KEY,
+          new MethodInvocationInformation(
+              "getTableRowCount",
+              new Class<?>[] {String.class, String.class},
+              new Object[] {schemaName, tableName}));
+    }
+    return tokenKeyAndMethods;
+  }
+
   private List<String> getNumericColumns(List<Pair<String, String>> columnNameAndTypes) {
     List<String> numericColumns = new ArrayList<>();
     for (Pair<String, String> nameAndType : columnNameAndTypes) {
@@ -700,12 +866,23 @@ class OutlierProportionNode extends QueryNodeBase {
 
   private String tableName;
 
+  private double samplingRatio;
+
   public static String OUTLIER_SIZE_ALIAS = "verdictdbOutlierProportion";
 
   public OutlierProportionNode(String schemaName, String tableName) {
+    this(schemaName, tableName, 1.0);
+  }
+
+  /**
+   * @param samplingRatio If less than 1.0, the outliers are counted in this fraction of the table,
+   *     and the count is scaled up.
+   */
+  public OutlierProportionNode(String schemaName, String tableName, double samplingRatio) {
     super(-1, null);
     this.schemaName = schemaName;
     this.tableName = tableName;
+    this.samplingRatio = samplingRatio;
   }
 
   @Override
@@ -720,10 +897,16 @@ class OutlierProportionNode extends QueryNodeBase {
         FastConvergeScramblingMethod.createOutlierTuplePredicate(
             percentileAndCountResult, tableSourceAliasName, pringInfoLog);
 
-    selectQuery =
-        SelectQuery.create(
-            new AliasedColumn(ColumnOp.count(), OUTLIER_SIZE_ALIAS),
-            new BaseTable(schemaName, tableName, tableSourceAliasName));
+    BaseTable source = new BaseTable(schemaName, tableName, tableSourceAliasName);
+    UnnamedColumn outlierCount = ColumnOp.count();
+    if (samplingRatio < 1.0) {
+      source.setSamplingPercent(samplingRatio * 100);
+      outlierCount =
+          ColumnOp.multiply(
+              outlierCount,
+              ColumnOp.divide(ConstantColumn.valueOf(1.0), ConstantColumn.valueOf(samplingRatio)));
+    }
+    selectQuery = SelectQuery.create(new AliasedColumn(outlierCount, OUTLIER_SIZE_ALIAS), source);
     selectQuery.addFilterByAnd(outlierPrediacte);
 
     return selectQuery;
@@ -764,10 +947,19 @@ class LargeGroupListNode extends CreateTableAsSelectNode {
 
   private long blockSize;
 
+  // If less than 1.0, the rows are read by the table sampling clause (instead of a full scan with a
+  // random filter), and the outliers are counted by the same query.
+  private double statisticsSamplingRatio = 1.0;
+
+  // The table size known in advance (e.g., stored with the scramble); -1 if unknown.
+  private long knownTableSize = -1;
+
   public static final String PRIMARY_GROUP_RENAME = "verdictdbrenameprimarygroup";
 
   public static final String LARGE_GROUP_SIZE_COLUMN_ALIAS = "groupSize";
 
+  public static final String OUTLIER_SIZE_COLUMN_ALIAS = "verdictdboutliersize";
+
   public LargeGroupListNode(
       IdCreator idCreator,
       String schemaName,
@@ -781,10 +973,21 @@ class LargeGroupListNode extends CreateTableAsSelectNode {
     this.blockSize = blockSize;
   }
 
+  void setStatisticsSamplingRatio(double statisticsSamplingRatio) {
+    this.statisticsSamplingRatio = statisticsSamplingRatio;
+  }
+
+  void setTableSize(long tableSize) {
+    this.knownTableSize = tableSize;
+  }
+
   /**
    * create table some-temp-table-name as select primaryGroup, count(*) * (1/p0) from
    * schemaName.tableName where rand() < p0 group by primaryGroup;
    *
+   * <p>If the statistics are sampled, the table is read by "tablesample" (if supported), and the
+   * select list also includes sum(case when outlier then 1 else 0 end) * (1/p0).
+   *
    * @throws VerdictDBException
    */
   @Override
@@ -793,16 +996,21 @@ class LargeGroupListNode extends CreateTableAsSelectNode {
 
     // search for the token that contains the table size.
     String countNodeKey = PercentilesAndCountNode.class.getSimpleName();
-    long tableSize = -1;
+    long tableSize = knownTableSize;
+    DbmsQueryResult percentileAndCountResult = null;
     for (ExecutionInfoToken token : tokens) {
       if (token.containsKey(countNodeKey)) {
-        DbmsQueryResult tableSizeResult = (DbmsQueryResult) token.getValue(countNodeKey);
-        tableSizeResult.rewind();
-        tableSizeResult.next();
-        tableSize = tableSizeResult.getLong(PercentilesAndCountNode.TOTAL_COUNT_ALIAS_NAME);
+        percentileAndCountResult = (DbmsQueryResult) token.getValue(countNodeKey);
+        tableSize =
+            FastConvergeScramblingMethod.estimateTableSize(
+                percentileAndCountResult,
+                (Long) token.getValue(PercentilesAndCountNode.CATALOG_ROW_COUNT_KEY),
+                statisticsSamplingRatio);
         break;
       }
     }
+    boolean isSampled = statisticsSamplingRatio < 1.0;
+    boolean countsOutliers = isSampled && percentileAndCountResult != null;
 
     // set the value of p0
     if (tableSize == 0) {
@@ -822,13 +1030,35 @@ class LargeGroupListNode extends CreateTableAsSelectNode {
                 ColumnOp.count(),
                 ColumnOp.divide(ConstantColumn.valueOf(1.0), ConstantColumn.valueOf(p0))),
             LARGE_GROUP_SIZE_COLUMN_ALIAS));
+    if (countsOutliers) {
+      UnnamedColumn outlierPredicate =
+          FastConvergeScramblingMethod.createOutlierTuplePredicate(
+              percentileAndCountResult, tableSourceAlias, true);
+      UnnamedColumn isOutlier =
+          (outlierPredicate == null)
+              ? ConstantColumn.valueOf(0)
+              : ColumnOp.casewhen(
+                  Arrays.<UnnamedColumn>asList(
+                      outlierPredicate, ConstantColumn.valueOf(1), ConstantColumn.valueOf(0)));
+      selectList.add(
+          new AliasedColumn(
+              ColumnOp.multiply(
+                  ColumnOp.sum(isOutlier),
+                  ColumnOp.divide(ConstantColumn.valueOf(1.0), ConstantColumn.valueOf(p0))),
+              OUTLIER_SIZE_COLUMN_ALIAS));
+    }
 
     // from
-    SelectQuery selectQuery =
-        SelectQuery.create(selectList, new BaseTable(schemaName, tableName, tableSourceAlias));
+    BaseTable source = new BaseTable(schemaName, tableName, tableSourceAlias);
+    if (isSampled && p0 < 1.0) {
+      source.setSamplingPercent(p0 * 100);
+    }
+    SelectQuery selectQuery = SelectQuery.create(selectList, source);
 
     // where
-    selectQuery.addFilterByAnd(ColumnOp.less(ColumnOp.rand(), ConstantColumn.valueOf(p0)));
+    if (!isSampled) {
+      selectQuery.addFilterByAnd(ColumnOp.less(ColumnOp.rand(), ConstantColumn.valueOf(p0)));
+    }
 
     // group by
     selectQuery.addGroupby(new AliasReference(primaryColumnName));
@@ -860,7 +1090,17 @@ class LargeGroupSizeNode extends QueryNodeWithPlaceHolders {
 
   public static final String LARGE_GROUP_SIZE_SUM_ALIAS = "largeGroupSizeSum";
 
+  public static final String OUTLIER_SIZE_SUM_ALIAS = "outlierSizeSum";
+
   public LargeGroupSizeNode(String primaryColumnName) {
+    this(primaryColumnName, false);
+  }
+
+  /**
+   * @param withOutlierSize If true, the outlier counts in the large group list (see
+   *     LargeGroupListNode) are also summed.
+   */
+  public LargeGroupSizeNode(String primaryColumnName, boolean withOutlierSize) {
     super(-1, null);
     this.primaryColumnName = primaryColumnName;
 
@@ -871,11 +1111,18 @@ class LargeGroupSizeNode extends QueryNodeWithPlaceHolders {
 
     Pair<BaseTable, SubscriptionTicket> placeholder = createPlaceHolderTable(tableSourceAlias);
     BaseTable baseTable = placeholder.getLeft();
-    selectQuery =
-        SelectQuery.create(
-            new AliasedColumn(
-                ColumnOp.sum(new BaseColumn(tableSourceAlias, groupSizeAlias)), aliasName),
-            baseTable);
+    List<SelectItem> selectList = new ArrayList<>();
+    selectList.add(
+        new AliasedColumn(
+            ColumnOp.sum(new BaseColumn(tableSourceAlias, groupSizeAlias)), aliasName));
+    if (withOutlierSize) {
+      selectList.add(
+          new AliasedColumn(
+              ColumnOp.sum(
+                  new BaseColumn(tableSourceAlias, LargeGroupListNode.OUTLIER_SIZE_COLUMN_ALIAS)),
+              OUTLIER_SIZE_SUM_ALIAS));
+    }
+    selectQuery = SelectQuery.create(selectList, baseTable);
     subscriptionTicket = placeholder.getRight();
   }
 
@@ -91,21 +91,6 @@ public class HashScramblingMethod extends ScramblingMethodBase {
   private List<Double> calculateBlockCountsAndCumulativeProbabilityDistForTier(
       Map<String, Object> metaData, int tier) {
 
-    DbmsQueryResult tableSizeResult =
-        (DbmsQueryResult) metaData.get(TableSizeCountNode.class.getSimpleName());
-    tableSizeResult.next();
-    long tableSize = tableSizeResult.getLong(TableSizeCountNode.TOTAL_COUNT_ALIAS_NAME);
-    long effectiveRowCount =
-        (relativeSize < 1) ? (long) Math.ceil(tableSize * relativeSize) : tableSize;
-    if (relativeSize < 1 && effectiveRowCount < EFFECTIVE_TABLE_SIZE_THRESHOLD) {
-      VerdictDBLogger.getLogger(UniformScramblingMethod.class)
-          .warn(
-              String.format(
-                  "The reduced scramble table will have %d rows, "
-                      + "which may be too small for accurate approximation",
-                  effectiveRowCount));
-    }
-
     List<Double> prob = new ArrayList<>();
 
     // if actualNumberOfBlocks and totalNumberOfBlocks have already been calculated
@@ -114,6 +99,23 @@ public class HashScramblingMethod extends ScramblingMethodBase {
     if (actualNumberOfBlocks < 1 && totalNumberOfblocks < 1) {
 
       if (!storedProbDist.containsKey(tier)) {
+        // the table size is only needed when the distribution is not stored (i.e., when a new
+        // scramble is created).
+        DbmsQueryResult tableSizeResult =
+            (DbmsQueryResult) metaData.get(TableSizeCountNode.class.getSimpleName());
+        tableSizeResult.next();
+        long tableSize = tableSizeResult.getLong(TableSizeCountNode.TOTAL_COUNT_ALIAS_NAME);
+        long effectiveRowCount =
+            (relativeSize < 1) ? (long) Math.ceil(tableSize * relativeSize) : tableSize;
+        if (relativeSize < 1 && effectiveRowCount < EFFECTIVE_TABLE_SIZE_THRESHOLD) {
+          VerdictDBLogger.getLogger(UniformScramblingMethod.class)
+              .warn(
+                  String.format(
+                      "The reduced scramble table will have %d rows, "
+                          + "which may be too small for accurate approximation",
+                      effectiveRowCount));
+        }
+
         actualNumberOfBlocks =
             (int) Math.min(maxBlockCount, Math.ceil(effectiveRowCount / (double) blockSize));
 
@@ -266,6 +266,28 @@ public class ScrambleMeta implements Serializable {
     return hashColumn;
   }
 
+  /**
+   * @return The fraction of the original table included in this scramble; 1.0 if it includes
+   *     every row or if the fraction is unknown.
+   */
+  @JsonIgnore
+  public double getRelativeSize() {
+    if (scramblingMethod != null && scramblingMethod.getRelativeSize() > 0) {
+      return Math.min(1.0, scramblingMethod.getRelativeSize());
+    }
+
+    // the last value of a cumulative distribution is the sampling probability of the tier
+    double relativeSize = 0;
+    if (cumulativeDistributionForTier != null) {
+      for (List<Double> cumulative : cumulativeDistributionForTier.values()) {
+        if (cumulative != null && !cumulative.isEmpty()) {
+          relativeSize = Math.max(relativeSize, cumulative.get(cumulative.size() - 1));
+        }
+      }
+    }
+    return (relativeSize > 0) ? Math.min(1.0, relativeSize) : 1.0;
+  }
+
   public void setAggregationBlockColumn(String aggregationBlockColumn) {
     this.aggregationBlockColumn = aggregationBlockColumn;
   }
@@ -19,8 +19,11 @@ package org.verdictdb.core.scrambling;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -39,6 +42,12 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
   // value: meta information
   List<Pair<Pair<String, String>, ScrambleMeta>> metaSet = new ArrayList<>();
 
+  // key: (schema, table) of a scramble; the first item added for the key.
+  private Map<Pair<String, String>, ScrambleMeta> scrambleIndex = new HashMap<>();
+
+  // key: (schema, table) of an original table; the scrambles of the table in insertion order.
+  private Map<Pair<String, String>, List<ScrambleMeta>> originalTableIndex = new HashMap<>();
+
   public ScrambleMetaSet() {}
 
   public static ScrambleMetaSet createFromCollection(Collection<ScrambleMeta> metaList) {
@@ -50,24 +59,30 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
   }
   
   private ScrambleMeta getMetaFor(Pair<String, String> metakey) {
-    for (Pair<Pair<String, String>, ScrambleMeta> item : metaSet) {
-      Pair<String, String> key = item.getKey();
-      ScrambleMeta m = item.getValue();
-      if (key.equals(metakey)) {
-        return m;
-      }
-    }
-    return null;
+    return scrambleIndex.get(metakey);
   }
   
   private boolean doesContain(Pair<String, String> metakey) {
-    for (Pair<Pair<String, String>, ScrambleMeta> item : metaSet) {
-      Pair<String, String> key = item.getKey();
-      if (key.equals(metakey)) {
-        return true;
-      }
+    return scrambleIndex.containsKey(metakey);
+  }
+
+  private void addItem(Pair<String, String> metakey, ScrambleMeta meta) {
+    metaSet.add(Pair.of(metakey, meta));
+    if (!scrambleIndex.containsKey(metakey)) {
+      scrambleIndex.put(metakey, meta);
+    }
+
+    if (meta.getOriginalSchemaName() == null || meta.getOriginalTableName() == null) {
+      return;
+    }
+    Pair<String, String> originalKey =
+        getMetaKey(meta.getOriginalSchemaName(), meta.getOriginalTableName());
+    List<ScrambleMeta> scrambles = originalTableIndex.get(originalKey);
+    if (scrambles == null) {
+      scrambles = new ArrayList<>();
+      originalTableIndex.put(originalKey, scrambles);
     }
-    return false;
+    scrambles.add(meta);
   }
 
   /**
@@ -132,7 +147,7 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
   public void addScrambleMeta(ScrambleMeta tablemeta) {
     String schema = tablemeta.getSchemaName();
     String table = tablemeta.getTableName();
-    metaSet.add(Pair.of(getMetaKey(schema, table), tablemeta));
+    addItem(getMetaKey(schema, table), tablemeta);
   }
 
   @Deprecated
@@ -150,7 +165,7 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
     //    tableMeta.setInclusionProbabilityColumn(inclusionProbabilityColumn);
     //    tableMeta.setInclusionProbabilityBlockDifferenceColumn(inclusionProbBlockDiffColumn);
     //    tableMeta.setAggregationBlockCount(aggregationBlockCount);
-    metaSet.add(Pair.of(metaKey(aliasName), tableMeta));
+    addItem(metaKey(aliasName), tableMeta);
   }
 
   public void insertScrambleMetaEntry(
@@ -167,7 +182,7 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
     tableMeta.setSubsampleColumn(subsampleColumn);
     tableMeta.setTierColumn(tierColumn);
     tableMeta.setAggregationBlockCount(aggregationBlockCount);
-    metaSet.add(Pair.of(getMetaKey(schemaName, tableName), tableMeta));
+    addItem(getMetaKey(schemaName, tableName), tableMeta);
   }
 
   @Deprecated
@@ -179,6 +194,22 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
     return doesContain(getMetaKey(schemaName, tableName));
   }
 
+  /**
+   * Returns the scrambles created from an original table.
+   *
+   * @param originalSchemaName
+   * @param originalTableName
+   * @return The scrambles in insertion order; an empty list if the table has no scrambles.
+   */
+  public List<ScrambleMeta> getScramblesOf(String originalSchemaName, String originalTableName) {
+    List<ScrambleMeta> scrambles =
+        originalTableIndex.get(getMetaKey(originalSchemaName, originalTableName));
+    if (scrambles == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(scrambles);
+  }
+
   @Deprecated
   private Pair<String, String> metaKey(String aliasName) {
     return Pair.of("aliasName", aliasName);
@@ -25,6 +25,7 @@ import org.verdictdb.core.sqlobject.AliasedColumn;
 import org.verdictdb.core.sqlobject.BaseColumn;
 import org.verdictdb.core.sqlobject.ColumnOp;
 import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.InsertIntoSelectQuery;
 import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.SqlConvertible;
@@ -263,6 +264,72 @@ public class ScramblingNode extends CreateScrambledTableNode {
     return scramblingQuery;
   }
 
+  /**
+   * Composes the query that scrambles the rows of the original table directly into an existing
+   * scramble, i.e., without creating a temporary scramble. The statistics of the original table are
+   * not computed; thus, the method must have its cumulative distributions stored (e.g., the method
+   * stored in ScrambleMeta).
+   *
+   * @param scrambleSchema The schema of the existing scramble
+   * @param scrambleTable The existing scramble
+   * @param originalSchema The schema of the original table
+   * @param originalTable The original table
+   * @param method The scrambling method of the existing scramble
+   * @param predicate The rows to append; null appends all the rows.
+   * @param originalColumns The names and types of the columns of the original table
+   * @param options The same options as create()
+   * @return INSERT INTO scramble (...) SELECT ...
+   */
+  public static InsertIntoSelectQuery createAppendQuery(
+      String scrambleSchema,
+      String scrambleTable,
+      String originalSchema,
+      String originalTable,
+      ScramblingMethod method,
+      UnnamedColumn predicate,
+      List<Pair<String, String>> originalColumns,
+      Map<String, String> options) {
+
+    ScramblingNode node =
+        create(
+            scrambleSchema, scrambleTable, originalSchema, originalTable, method, predicate, options);
+    Map<String, Object> metaData = new HashMap<>();
+    metaData.put(ScramblingPlan.COLUMN_METADATA_KEY, originalColumns);
+    SelectQuery scramblingQuery = node.composeQuery(metaData);
+    scramblingQuery.setAliasName("verdictdbappend");
+
+    // the target columns are listed explicitly since the column order of the scramble may differ
+    // from that of the select list (e.g., the partition columns are moved to the end in Hive).
+    List<String> columnNames = new ArrayList<>();
+    List<SelectItem> insertedColumns = new ArrayList<>();
+    for (SelectItem item : scramblingQuery.getSelectList()) {
+      String columnName;
+      if (item instanceof AliasedColumn) {
+        columnName = ((AliasedColumn) item).getAliasName();
+      } else {
+        columnName = ((BaseColumn) item).getColumnName();
+      }
+      columnNames.add(columnName);
+      insertedColumns.add(new BaseColumn(columnName));
+    }
+    SelectQuery selectQuery = SelectQuery.create(insertedColumns, scramblingQuery);
+
+    // the blocks beyond the actual block count are thrown away (if the relative size < 1.0).
+    if (method.getActualBlockCount() < method.getBlockCount()) {
+      selectQuery.addFilterByAnd(
+          ColumnOp.less(
+              new BaseColumn(node.blockColumnName),
+              ConstantColumn.valueOf(method.getActualBlockCount())));
+    }
+
+    InsertIntoSelectQuery insertQuery = new InsertIntoSelectQuery();
+    insertQuery.setSchemaName(scrambleSchema);
+    insertQuery.setTableName(scrambleTable);
+    insertQuery.setColumnNames(columnNames);
+    insertQuery.setSelectQuery(selectQuery);
+    return insertQuery;
+  }
+
   /**
    * To use a series of rand() in a case clause, we instead need this conditional probability.
    *
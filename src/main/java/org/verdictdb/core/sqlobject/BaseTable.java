@@ -31,6 +31,12 @@ public class BaseTable extends AbstractRelation {
 
   String tableName;
 
+  /**
+   * If set, only this percentage (between 0 and 100) of the table is read. The databases that
+   * support table sampling read a random subset of blocks; the others filter rows randomly.
+   */
+  Double samplingPercent;
+
   public BaseTable(String schemaName, String tableName, String tableSourceAlias) {
     this.schemaName = schemaName;
     this.tableName = tableName;
@@ -68,6 +74,14 @@ public class BaseTable extends AbstractRelation {
     this.tableName = tableName;
   }
 
+  public Double getSamplingPercent() {
+    return samplingPercent;
+  }
+
+  public void setSamplingPercent(Double samplingPercent) {
+    this.samplingPercent = samplingPercent;
+  }
+
   //    public String getTableSourceAlias() {
   //        return tableSourceAlias;
   //    }
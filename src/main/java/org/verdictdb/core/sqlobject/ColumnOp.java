@@ -60,6 +60,7 @@ public class ColumnOp implements UnnamedColumn, SelectItem {
    *   <li>percentile
    *   <li>mod
    *   <li>hash: returns a value between 0 and 1
+   *   <li>hllhash: returns an integer between 0 and 2^32 (see HyperLogLogSketch)
    * </ol>
    *
    * <p>Comparison:
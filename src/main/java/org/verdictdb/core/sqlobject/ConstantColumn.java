@@ -25,6 +25,9 @@ public class ConstantColumn implements UnnamedColumn, SelectItem {
 
   private static final long serialVersionUID = -4530737413387725261L;
 
+  /** The value of a placeholder (i.e., ?) of a prepared statement until a parameter is bound. */
+  public static final String PARAMETER_MARKER = "?";
+
   Object value;
 
   public void setValue(Object value) {
@@ -59,6 +62,19 @@ public class ConstantColumn implements UnnamedColumn, SelectItem {
     return c;
   }
 
+  public static ConstantColumn parameterMarker() {
+    return valueOf(PARAMETER_MARKER);
+  }
+
+  /**
+   * A string constant keeps its quotes (e.g., '?'); thus, only a placeholder can have this value.
+   *
+   * @return True if this is the placeholder of a parameter that has not been bound.
+   */
+  public boolean isParameterMarker() {
+    return PARAMETER_MARKER.equals(value);
+  }
+
   @Override
   public int hashCode() {
     return HashCodeBuilder.reflectionHashCode(this);
@@ -16,6 +16,8 @@
 
 package org.verdictdb.core.sqlobject;
 
+import java.util.List;
+
 /** Created by Dong Young Yoon on 2018-12-24. */
 public class InsertIntoSelectQuery implements SqlConvertible {
 
@@ -27,6 +29,9 @@ public class InsertIntoSelectQuery implements SqlConvertible {
 
   protected SelectQuery selectQuery;
 
+  // the target columns; if null, the names of the select items are used.
+  protected List<String> columnNames = null;
+
   public String getSchemaName() {
     return schemaName;
   }
@@ -50,4 +55,12 @@ public class InsertIntoSelectQuery implements SqlConvertible {
   public void setSelectQuery(SelectQuery selectQuery) {
     this.selectQuery = selectQuery;
   }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public void setColumnNames(List<String> columnNames) {
+    this.columnNames = columnNames;
+  }
 }
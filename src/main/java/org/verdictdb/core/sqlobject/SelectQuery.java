@@ -87,6 +87,10 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
 
   Optional<UnnamedColumn> limit = Optional.absent();
 
+  // common table expressions defined before the select list; each of them may refer to the ones
+  // defined before it.
+  List<WithClause> withList = new ArrayList<>();
+
   //  Optional<String> attribute = Optional.absent();
 
   /**
@@ -113,11 +117,22 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
     if (getAliasName().isPresent()) {
       sel.setAliasName(getAliasName().get());
     }
+    for (WithClause w : getWithList()) {
+      sel.addWithClause(new WithClause(w.getTableName(), w.getSelectQuery().deepcopy()));
+    }
     return sel;
   }
 
   public SelectQuery() {}
 
+  public void addWithClause(WithClause withClause) {
+    withList.add(withClause);
+  }
+
+  public void addWithClause(int index, WithClause withClause) {
+    withList.add(index, withClause);
+  }
+
   public void addSelectItem(SelectItem column) {
     selectList.add(column);
   }
@@ -190,6 +205,10 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
     this.orderby = new ArrayList<>();
   }
 
+  public void clearWithList() {
+    withList.clear();
+  }
+
   public void clearSelectList() {
     this.selectList = new ArrayList<>();
   }
@@ -222,6 +241,10 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
     return orderby;
   }
 
+  public List<WithClause> getWithList() {
+    return withList;
+  }
+
   @Override
   public boolean equals(Object obj) {
     return EqualsBuilder.reflectionEquals(this, obj);
@@ -259,6 +282,7 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
     query.having = having;
     query.limit = limit;
     query.aliasName = aliasName;
+    query.withList = withList;
     return query;
   }
 }
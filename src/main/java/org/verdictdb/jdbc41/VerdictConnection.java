@@ -84,9 +84,6 @@ public class VerdictConnection implements java.sql.Connection {
   private java.sql.DatabaseMetaData getDatabaseMetaDataFromConnection(DbmsConnection conn) {
     if (conn instanceof CachedDbmsConnection) {
       DbmsConnection originalConn = ((CachedDbmsConnection) conn).getOriginalConnection();
-      if (originalConn instanceof ConcurrentJdbcConnection) {
-        originalConn = ((ConcurrentJdbcConnection) originalConn).getNextConnection();
-      }
       return getDatabaseMetaDataFromConnection(originalConn);
     } else if (conn instanceof JdbcConnection) {
       JdbcConnection jdbcConn = (JdbcConnection) conn;
@@ -96,9 +93,8 @@ public class VerdictConnection implements java.sql.Connection {
         e.printStackTrace();
       }
     } else if (conn instanceof ConcurrentJdbcConnection) {
-      JdbcConnection jdbcConn = ((ConcurrentJdbcConnection) conn).getNextConnection();
       try {
-        return jdbcConn.getMetadata();
+        return ((ConcurrentJdbcConnection) conn).getMetadata();
       } catch (VerdictDBDbmsException e) {
         e.printStackTrace();
       }
@@ -115,7 +111,7 @@ public class VerdictConnection implements java.sql.Connection {
 
   @Override
   public java.sql.PreparedStatement prepareStatement(String sql) throws SQLException {
-    return new VerdictPreparedStatement(new VerdictStatement(this, vc));
+    return new VerdictPreparedStatement(new VerdictStatement(this, vc), sql);
   }
 
   @Override
@@ -37,14 +37,46 @@ import java.sql.SQLWarning;
 import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+
+import org.verdictdb.coordinator.PreparedQuery;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlsyntax.SqlSyntax;
 
 public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   VerdictStatement stmt;
 
-  public VerdictPreparedStatement(VerdictStatement stmt) {
+  private PreparedQuery preparedQuery;
+
+  private boolean isStreamQuery;
+
+  // writes the string parameters as the literals of the underlying database
+  private SqlSyntax syntax;
+
+  // SQL literals of the parameters; null if not set.
+  private String[] parameterValues;
+
+  private List<List<String>> batch = new ArrayList<>();
+
+  /**
+   * Prepares a query with placeholders (i.e., ?). A select query is parsed and standardized only
+   * here; its executions only bind the parameter values.
+   *
+   * @param stmt The statement on which the query is executed
+   * @param sql A query that may include placeholders
+   */
+  public VerdictPreparedStatement(VerdictStatement stmt, String sql) throws SQLException {
     this.stmt = stmt;
+    this.isStreamQuery = stmt.checkStreamQuery(sql);
+    this.preparedQuery = stmt.prepare(sql);
+    this.syntax = stmt.getSyntax();
+    this.parameterValues = new String[preparedQuery.getParameterCount()];
   }
 
   @Override
@@ -174,12 +206,25 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void clearBatch() throws SQLException {
-    stmt.clearBatch();
+    batch.clear();
   }
 
+  /**
+   * Executes the query for every set of parameters added by addBatch(). The prepared query is
+   * reused for every execution.
+   */
   @Override
   public int[] executeBatch() throws SQLException {
-    return stmt.executeBatch();
+    int[] updateCounts = new int[batch.size()];
+    try {
+      for (int i = 0; i < batch.size(); i++) {
+        stmt.execute(preparedQuery, batch.get(i));
+        updateCounts[i] = SUCCESS_NO_INFO;
+      }
+    } finally {
+      batch.clear();
+    }
+    return updateCounts;
   }
 
   @Override
@@ -269,62 +314,63 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public ResultSet executeQuery() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return stmt.executeQuery(preparedQuery, getParameterValues(), isStreamQuery);
   }
 
   @Override
   public int executeUpdate() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    stmt.execute(preparedQuery, getParameterValues());
+    return (stmt.result == null) ? 0 : (int) stmt.result.getRowCount();
   }
 
   @Override
   public void setNull(int parameterIndex, int sqlType) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, "NULL");
   }
 
   @Override
   public void setBoolean(int parameterIndex, boolean x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setByte(int parameterIndex, byte x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setShort(int parameterIndex, short x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setInt(int parameterIndex, int x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setLong(int parameterIndex, long x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setFloat(int parameterIndex, float x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setDouble(int parameterIndex, double x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, (x == null) ? "NULL" : x.toPlainString());
   }
 
   @Override
   public void setString(int parameterIndex, String x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, toStringLiteral(x));
   }
 
   @Override
@@ -334,17 +380,17 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setDate(int parameterIndex, Date x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, (x == null) ? "NULL" : "date '" + x.toString() + "'");
   }
 
   @Override
   public void setTime(int parameterIndex, Time x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, (x == null) ? "NULL" : "time '" + x.toString() + "'");
   }
 
   @Override
   public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, (x == null) ? "NULL" : "timestamp '" + x.toString() + "'");
   }
 
   @Override
@@ -364,27 +410,46 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void clearParameters() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    Arrays.fill(parameterValues, null);
   }
 
   @Override
   public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setObject(parameterIndex, x);
   }
 
   @Override
   public void setObject(int parameterIndex, Object x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    if (x == null) {
+      setNull(parameterIndex, Types.NULL);
+    } else if (x instanceof String) {
+      setString(parameterIndex, (String) x);
+    } else if (x instanceof BigDecimal) {
+      setBigDecimal(parameterIndex, (BigDecimal) x);
+    } else if (x instanceof Number || x instanceof Boolean) {
+      setParameter(parameterIndex, x.toString());
+    } else if (x instanceof Date) {
+      setDate(parameterIndex, (Date) x);
+    } else if (x instanceof Time) {
+      setTime(parameterIndex, (Time) x);
+    } else if (x instanceof Timestamp) {
+      setTimestamp(parameterIndex, (Timestamp) x);
+    } else if (x instanceof java.util.Date) {
+      setTimestamp(parameterIndex, new Timestamp(((java.util.Date) x).getTime()));
+    } else {
+      throw new SQLFeatureNotSupportedException(
+          "Unsupported type of parameter: " + x.getClass().getName());
+    }
   }
 
   @Override
   public boolean execute() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return stmt.execute(preparedQuery, getParameterValues());
   }
 
   @Override
   public void addBatch() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    batch.add(getParameterValues());
   }
 
   @Override
@@ -420,22 +485,23 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, toDateTimeLiteral("date", "yyyy-MM-dd", x, cal));
   }
 
   @Override
   public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(parameterIndex, toDateTimeLiteral("time", "HH:mm:ss", x, cal));
   }
 
   @Override
   public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setParameter(
+        parameterIndex, toDateTimeLiteral("timestamp", "yyyy-MM-dd HH:mm:ss.SSS", x, cal));
   }
 
   @Override
   public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setNull(parameterIndex, sqlType);
   }
 
   @Override
@@ -455,7 +521,7 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setNString(int parameterIndex, String value) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setString(parameterIndex, value);
   }
 
   @Override
@@ -493,7 +559,7 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
   @Override
   public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength)
       throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setObject(parameterIndex, x);
   }
 
   @Override
@@ -546,4 +612,43 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
   public void setNClob(int parameterIndex, Reader reader) throws SQLException {
     throw new SQLFeatureNotSupportedException();
   }
+
+  private void setParameter(int parameterIndex, String literal) throws SQLException {
+    if (parameterIndex < 1 || parameterIndex > parameterValues.length) {
+      throw new SQLException(
+          String.format(
+              "Parameter index out of range: %d (the number of parameters: %d)",
+              parameterIndex, parameterValues.length));
+    }
+    parameterValues[parameterIndex - 1] = literal;
+  }
+
+  private List<String> getParameterValues() throws SQLException {
+    for (int i = 0; i < parameterValues.length; i++) {
+      if (parameterValues[i] == null) {
+        throw new SQLException(String.format("No value specified for parameter %d", i + 1));
+      }
+    }
+    return new ArrayList<>(Arrays.asList(parameterValues));
+  }
+
+  private String toStringLiteral(String x) throws SQLException {
+    try {
+      return syntax.quoteStringLiteral(x);
+    } catch (VerdictDBValueException e) {
+      throw new SQLException(e.getMessage(), e);
+    }
+  }
+
+  private static String toDateTimeLiteral(
+      String type, String pattern, java.util.Date x, Calendar cal) {
+    if (x == null) {
+      return "NULL";
+    }
+    SimpleDateFormat format = new SimpleDateFormat(pattern);
+    if (cal != null) {
+      format.setTimeZone(cal.getTimeZone());
+    }
+    return type + " '" + format.format(x) + "'";
+  }
 }
@@ -98,6 +98,9 @@ public class VerdictResultSet implements ResultSet {
 
   @Override
   public void close() {
+    if (queryResult != null) {
+      queryResult.close();
+    }
   }
 
   @Override
@@ -21,13 +21,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
+import java.util.List;
 
 import org.verdictdb.VerdictContext;
 import org.verdictdb.VerdictResultStream;
 import org.verdictdb.VerdictSingleResult;
 import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.coordinator.ExecutionContext;
+import org.verdictdb.coordinator.PreparedQuery;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.SqlSyntax;
 
 public class VerdictStatement implements java.sql.Statement {
 
@@ -96,7 +99,7 @@ public class VerdictStatement implements java.sql.Statement {
     }
   }
 
-  private Boolean checkStreamQuery(String query) {
+  Boolean checkStreamQuery(String query) {
     if (query.trim().toLowerCase().startsWith("stream")) {
       return true;
     }
@@ -120,13 +123,8 @@ public class VerdictStatement implements java.sql.Statement {
   public ResultSet executeQuery(String sql) throws SQLException {
     try {
       if (checkStreamQuery(sql)) {
-        VerdictStreamResultSet resultSet = new VerdictStreamResultSet();
         sql = sql.replaceFirst("(?i)stream", "");
-        VerdictResultStream resultStream = executionContext.streamsql(sql);
-        ExecuteStream executeStream = new ExecuteStream(resultStream, resultSet, executionContext);
-        resultSet.setRunnable(executeStream);
-        new Thread(executeStream).start();
-        return resultSet;
+        return createStreamResultSet(executionContext.streamsql(sql));
       }
       result = executionContext.sql(sql);
       return new VerdictResultSet(result);
@@ -135,6 +133,59 @@ public class VerdictStatement implements java.sql.Statement {
     }
   }
 
+  private ResultSet createStreamResultSet(VerdictResultStream resultStream) {
+    VerdictStreamResultSet resultSet = new VerdictStreamResultSet();
+    ExecuteStream executeStream = new ExecuteStream(resultStream, resultSet, executionContext);
+    resultSet.setRunnable(executeStream);
+    new Thread(executeStream).start();
+    return resultSet;
+  }
+
+  /**
+   * Prepares a query for VerdictPreparedStatement.
+   *
+   * @param sql A query that may include placeholders and may begin with 'stream'
+   */
+  PreparedQuery prepare(String sql) throws SQLException {
+    try {
+      if (checkStreamQuery(sql)) {
+        sql = sql.replaceFirst("(?i)stream", "");
+      }
+      return executionContext.prepare(sql);
+    } catch (VerdictDBException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  SqlSyntax getSyntax() {
+    return executionContext.getSyntax();
+  }
+
+  ResultSet executeQuery(PreparedQuery query, List<String> parameterValues, boolean stream)
+      throws SQLException {
+    try {
+      if (stream) {
+        return createStreamResultSet(executionContext.streamsql(query, parameterValues));
+      }
+      result = executionContext.sql(query, parameterValues, true);
+      return new VerdictResultSet(result);
+    } catch (VerdictDBException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  boolean execute(PreparedQuery query, List<String> parameterValues) throws SQLException {
+    try {
+      result = executionContext.sql(query, parameterValues, false);
+      if (result == null) {
+        return false;
+      }
+      return !result.isEmpty();
+    } catch (VerdictDBException e) {
+      throw new SQLException(e);
+    }
+  }
+
   @Override
   public int executeUpdate(String sql) throws SQLException {
     try {
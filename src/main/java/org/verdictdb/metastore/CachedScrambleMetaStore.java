@@ -1,28 +1,129 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
 package org.verdictdb.metastore;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
 
+/**
+ * Keeps the scramble meta retrieved from another metastore. One instance is shared by all the
+ * ExecutionContexts of a VerdictContext; thus, this class is thread-safe.
+ *
+ * <p>If the original store is a ScrambleMetaStore, the cache checks the version of the store at
+ * most once every checkIntervalMillis and, if the store has changed (possibly by another process),
+ * reads only the changed entries. A full reload happens only when the changes are unknown (e.g.,
+ * after the store is compacted).
+ */
 public class CachedScrambleMetaStore extends VerdictMetaStore {
-  
-  VerdictMetaStore originalMetaStore;
-  
-  ScrambleMetaSet cachedMetaSet = null;
-  
+
+  private final VerdictMetaStore originalMetaStore;
+
+  // replaced (not modified) on refresh since running queries may be reading the old set
+  private volatile ScrambleMetaSet cachedMetaSet = null;
+
+  // the version of the original store that the cached set reflects
+  private long storedVersion = 0;
+
+  private long lastCheckMillis = 0;
+
+  private final long checkIntervalMillis;
+
+  private final AtomicLong version = new AtomicLong(0);
+
+  private static final VerdictDBLogger LOG =
+      VerdictDBLogger.getLogger(CachedScrambleMetaStore.class);
+
   public CachedScrambleMetaStore(VerdictMetaStore metaStore) {
+    this(metaStore, VerdictOption.getDefaultMetaStoreCheckIntervalMillis());
+  }
+
+  /**
+   * @param metaStore The original store
+   * @param checkIntervalMillis How often the version of the original store is checked; zero means
+   *     checking on every retrieve().
+   */
+  public CachedScrambleMetaStore(VerdictMetaStore metaStore, long checkIntervalMillis) {
     this.originalMetaStore = metaStore;
+    this.checkIntervalMillis = checkIntervalMillis;
   }
-  
+
   @Override
-  public ScrambleMetaSet retrieve() {
+  public synchronized ScrambleMetaSet retrieve() {
     if (cachedMetaSet == null) {
-      refreshCache();
+      reload();
+    } else if (originalMetaStore instanceof ScrambleMetaStore) {
+      long now = System.currentTimeMillis();
+      if (now - lastCheckMillis >= checkIntervalMillis) {
+        lastCheckMillis = now;
+        if (((ScrambleMetaStore) originalMetaStore).getVersion() != storedVersion) {
+          refreshChanges();
+        }
+      }
     }
-    
+
     return cachedMetaSet;
   }
-  
-  public void refreshCache() {
+
+  /** Brings the cache up to date; called after this process changes the original store. */
+  public synchronized void refreshCache() {
+    if (cachedMetaSet == null || !(originalMetaStore instanceof ScrambleMetaStore)) {
+      reload();
+    } else {
+      refreshChanges();
+    }
+  }
+
+  private void refreshChanges() {
+    ScrambleMetaChanges changes;
+    try {
+      changes = ((ScrambleMetaStore) originalMetaStore).retrieveChangesSince(storedVersion);
+    } catch (VerdictDBException e) {
+      LOG.debug("Failed to retrieve the changes of the metastore: {}", e.getMessage());
+      changes = null;
+    }
+
+    if (changes == null) {
+      reload();
+      return;
+    }
+    storedVersion = changes.getVersion();
+    if (!changes.isEmpty()) {
+      cachedMetaSet = changes.applyTo(cachedMetaSet);
+      version.incrementAndGet();
+    }
+  }
+
+  private void reload() {
+    // the version is read first so that the changes made during the retrieval are read again
+    if (originalMetaStore instanceof ScrambleMetaStore) {
+      storedVersion = originalMetaStore.getVersion();
+    }
+    lastCheckMillis = System.currentTimeMillis();
     cachedMetaSet = originalMetaStore.retrieve();
+    version.incrementAndGet();
   }
 
+  /** Increases whenever the cached scramble meta changes. */
+  @Override
+  public long getVersion() {
+    return version.get();
+  }
 }
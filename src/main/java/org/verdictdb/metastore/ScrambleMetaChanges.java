@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.metastore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+
+/**
+ * The changes made to a metastore since a certain version; returned by
+ * ScrambleMetaStore.retrieveChangesSince().
+ */
+public class ScrambleMetaChanges {
+
+  private final long version;
+
+  // the latest entries of the added (or replaced) scrambles, the most recent first
+  private final List<ScrambleMeta> added = new ArrayList<>();
+
+  // (schema, table) of the dropped scrambles
+  private final Set<Pair<String, String>> dropped = new HashSet<>();
+
+  public ScrambleMetaChanges(long version) {
+    this.version = version;
+  }
+
+  /** @return The version of the store that includes these changes */
+  public long getVersion() {
+    return version;
+  }
+
+  public void addScrambleMeta(ScrambleMeta meta) {
+    added.add(meta);
+  }
+
+  public void addDroppedScramble(String schemaName, String tableName) {
+    dropped.add(Pair.of(schemaName, tableName));
+  }
+
+  public List<ScrambleMeta> getAddedScrambleMetas() {
+    return added;
+  }
+
+  public Set<Pair<String, String>> getDroppedScrambles() {
+    return dropped;
+  }
+
+  public boolean isEmpty() {
+    return added.isEmpty() && dropped.isEmpty();
+  }
+
+  /**
+   * Applies the changes to a set of scramble meta. The given set is not modified since it may be
+   * in use by running queries.
+   *
+   * @param metaSet The set retrieved before the changes
+   * @return A new set in the same order as ScrambleMetaStore.retrieve() returns; that is, the
+   *     scrambles added by the changes come first.
+   */
+  public ScrambleMetaSet applyTo(ScrambleMetaSet metaSet) {
+    Set<Pair<String, String>> changed = new HashSet<>(dropped);
+    ScrambleMetaSet applied = new ScrambleMetaSet();
+    for (ScrambleMeta meta : added) {
+      applied.addScrambleMeta(meta);
+      changed.add(Pair.of(meta.getSchemaName(), meta.getTableName()));
+    }
+    for (ScrambleMeta meta : metaSet) {
+      if (!changed.contains(Pair.of(meta.getSchemaName(), meta.getTableName()))) {
+        applied.addScrambleMeta(meta);
+      }
+    }
+    return applied;
+  }
+}
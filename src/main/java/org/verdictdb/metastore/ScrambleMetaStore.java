@@ -27,25 +27,59 @@ import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.coordinator.VerdictSingleResultFromDbmsQueryResult;
 import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.AliasedColumn;
 import org.verdictdb.core.sqlobject.BaseColumn;
 import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
 import org.verdictdb.core.sqlobject.CreateSchemaQuery;
 import org.verdictdb.core.sqlobject.CreateTableDefinitionQuery;
 import org.verdictdb.core.sqlobject.DropTableQuery;
+import org.verdictdb.core.sqlobject.InsertIntoSelectQuery;
 import org.verdictdb.core.sqlobject.InsertValuesQuery;
 import org.verdictdb.core.sqlobject.OrderbyAttribute;
 import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.PrestoSyntax;
+import org.verdictdb.sqlsyntax.SqlSyntax;
 import org.verdictdb.sqlwriter.QueryToSql;
 
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
+/**
+ * Stores scramble meta in an append-only table (i.e., METASTORE_TABLE_NAME); dropping a scramble
+ * appends a row marked as DELETED.
+ *
+ * <p>Every change is also logged in a small version table (i.e., VERSION_TABLE_NAME) with a
+ * monotonically increasing version, so that a cache can check whether the store has changed with
+ * getVersion() and then read only the changed entries with retrieveChangesSince(). The
+ * history of the store can be removed with compact().
+ *
+ * <p>The writers in the same JVM are serialized (i.e., WRITE_LOCK), so that compact() does not
+ * lose the entries added while it rewrites the tables.
+ *
+ * <p>The partitions appended to a scramble one by one (see BulkScramblingCoordinator) are logged
+ * in another table (i.e., PARTITION_TABLE_NAME) as they complete, so that an interrupted scrambling
+ * can be resumed from the partitions that have not completed.
+ */
 public class ScrambleMetaStore extends VerdictMetaStore {
 
   private static final String DEFAULT_STORE_SCHEMA = "verdictdbmetadata";
@@ -66,6 +100,28 @@ public class ScrambleMetaStore extends VerdictMetaStore {
 
   private static final String DELETED = "DELETED";
 
+  private static final String VERSION_TABLE_NAME = "verdictdbmetaversion";
+
+  private static final String VERSION_COLUMN = "store_version";
+
+  // the scramble schema and table of the row that compact() leaves in the version table
+  private static final String COMPACTED = "";
+
+  private static final String PARTITION_TABLE_NAME = "verdictdbmetapartition";
+
+  private static final String CREATION_COLUMN = "scramble_creation";
+
+  private static final String PARTITION_KEY_COLUMN = "partition_key";
+
+  // the partition key of the row that starts the partition log of a new scramble
+  private static final String CREATION_MARKER = "";
+
+  // serializes the writers of all the stores, which may share the same tables
+  private static final Object WRITE_LOCK = new Object();
+
+  // set once the version table is found; getVersion() then skips the catalog lookup
+  private volatile boolean versionTableExists = false;
+
   private DbmsConnection conn;
 
   private String storeSchema;
@@ -117,6 +173,14 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     return DATA_COLUMN;
   }
 
+  public static String getVersionTableName() {
+    return VERSION_TABLE_NAME;
+  }
+
+  public static String getPartitionTableName() {
+    return PARTITION_TABLE_NAME;
+  }
+
   public void addToStore(ScrambleMeta scrambleMeta) throws VerdictDBException {
     ScrambleMetaSet scrambleMetaSet = new ScrambleMetaSet();
     scrambleMetaSet.addScrambleMeta(scrambleMeta);
@@ -179,6 +243,18 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     conn.execute(sql);
 
     // update metadata with a new row where 'data' and 'method' marked as 'DELETED'
+    synchronized (WRITE_LOCK) {
+      addDeletedEntry(
+          originalTableSchema, originalTableName, scrambleTableSchema, scrambleTableName);
+    }
+  }
+
+  private void addDeletedEntry(
+      String originalTableSchema,
+      String originalTableName,
+      String scrambleTableSchema,
+      String scrambleTableName)
+      throws VerdictDBException {
     InsertValuesQuery insertQuery = new InsertValuesQuery();
     insertQuery.setSchemaName(getStoreSchema());
     insertQuery.setTableName(getMetaStoreTableName());
@@ -192,16 +268,25 @@ public class ScrambleMetaStore extends VerdictMetaStore {
             DELETED,
             timestamp,
             DELETED));
-    sql = QueryToSql.convert(conn.getSyntax(), insertQuery);
+    String sql = QueryToSql.convert(conn.getSyntax(), insertQuery);
     conn.execute(sql);
+
+    addVersion(
+        Arrays.<Pair<String, String>>asList(Pair.of(scrambleTableSchema, scrambleTableName)));
   }
 
   /**
-   * Removes the metastore table if exists.
+   * Removes the metastore table, its version table, and its partition table if exist.
    *
    * @throws VerdictDBException
    */
   public void remove() throws VerdictDBException {
+    synchronized (WRITE_LOCK) {
+      removeTables();
+    }
+  }
+
+  private void removeTables() throws VerdictDBException {
     // create a schema if not exists
     CreateSchemaQuery createSchemaQuery = new CreateSchemaQuery(storeSchema);
     createSchemaQuery.setIfNotExists(true);
@@ -212,6 +297,17 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     dropQuery.setIfExists(true);
     sql = QueryToSql.convert(conn.getSyntax(), dropQuery);
     conn.execute(sql);
+
+    dropQuery = new DropTableQuery(storeSchema, VERSION_TABLE_NAME);
+    dropQuery.setIfExists(true);
+    sql = QueryToSql.convert(conn.getSyntax(), dropQuery);
+    conn.execute(sql);
+    versionTableExists = false;
+
+    dropQuery = new DropTableQuery(storeSchema, PARTITION_TABLE_NAME);
+    dropQuery.setIfExists(true);
+    sql = QueryToSql.convert(conn.getSyntax(), dropQuery);
+    conn.execute(sql);
   }
 
   /**
@@ -221,6 +317,12 @@ public class ScrambleMetaStore extends VerdictMetaStore {
    * @throws VerdictDBException
    */
   public void addToStore(ScrambleMetaSet scrambleMetaSet) throws VerdictDBException {
+    synchronized (WRITE_LOCK) {
+      addEntries(scrambleMetaSet);
+    }
+  }
+
+  private void addEntries(ScrambleMetaSet scrambleMetaSet) throws VerdictDBException {
     String sql;
 
     // create a schema if not exists
@@ -240,14 +342,637 @@ public class ScrambleMetaStore extends VerdictMetaStore {
 
     // insert a new entry
     StringBuilder insertSqls = new StringBuilder();
+    List<Pair<String, String>> scrambles = new ArrayList<>();
     for (ScrambleMeta meta : scrambleMetaSet) {
       InsertValuesQuery q = createInsertMetaQuery(meta);
       String s = QueryToSql.convert(conn.getSyntax(), q);
       LOG.debug("Adding a new scramble meta entry with the query: {}", s);
       insertSqls.append(s);
       insertSqls.append("; ");
+      scrambles.add(Pair.of(meta.getSchemaName(), meta.getTableName()));
+    }
+    conn.execute(insertSqls.toString());
+
+    addVersion(scrambles);
+  }
+
+  /**
+   * Logs the change to each of the given scrambles in the version table as a new version. The
+   * version table is created if not exists.
+   *
+   * <p>The new version is derived by the insert itself (i.e., the latest version plus one). A
+   * version read by a separate query could fall behind the versions logged by other processes in
+   * the meantime, and the caches already at those versions would never read the change. The
+   * processes changing the store at the same time may still log the same version; this is fine
+   * because retrieveChangesSince() reads the last version it has seen again.
+   *
+   * @param scrambles (schema, table) of the changed scrambles
+   * @throws VerdictDBException
+   */
+  private void addVersion(List<Pair<String, String>> scrambles) throws VerdictDBException {
+    if (scrambles.isEmpty()) {
+      return;
+    }
+    if (!conn.getTables(storeSchema).contains(VERSION_TABLE_NAME)) {
+      String sql = QueryToSql.convert(conn.getSyntax(), createVersionTableStatement());
+      conn.execute(sql);
+    }
+    versionTableExists = true;
+
+    VerdictTimestamp timestamp = new VerdictTimestamp(new Date());
+    StringBuilder insertSqls = new StringBuilder();
+    for (Pair<String, String> scramble : scrambles) {
+      InsertIntoSelectQuery q =
+          createInsertNextVersionQuery(scramble.getLeft(), scramble.getRight(), timestamp);
+      insertSqls.append(QueryToSql.convert(conn.getSyntax(), q));
+      insertSqls.append("; ");
     }
     conn.execute(insertSqls.toString());
+    LOG.debug("Logged {} new versions of the metastore.", scrambles.size());
+  }
+
+  /**
+   * Returns the latest version of the store by reading the version table only, which is much
+   * cheaper than retrieve(). The version increases whenever a scramble is added or dropped.
+   *
+   * <p>Changes made by the older versions of VerdictDB, which do not log versions, are not
+   * reflected.
+   *
+   * @return 0 if no version has been logged yet.
+   */
+  @Override
+  public long getVersion() {
+    try {
+      if (!versionTableExists) {
+        if (!conn.getSchemas().contains(storeSchema)
+            || !conn.getTables(storeSchema).contains(VERSION_TABLE_NAME)) {
+          return 0;
+        }
+        versionTableExists = true;
+      }
+
+      String tableAlias = "t";
+      SelectQuery query =
+          SelectQuery.create(
+              Arrays.<SelectItem>asList(
+                  new AliasedColumn(
+                      new ColumnOp("max", new BaseColumn(tableAlias, VERSION_COLUMN)),
+                      "latest_version")),
+              new BaseTable(storeSchema, VERSION_TABLE_NAME, tableAlias));
+      String sql = QueryToSql.convert(conn.getSyntax(), query);
+      DbmsQueryResult result = conn.execute(sql);
+      if (result.next()) {
+        return result.getLong(0);
+      }
+    } catch (VerdictDBException e) {
+      // the version table may have been dropped by another process
+      LOG.debug("Failed to read the version of the metastore: {}", e.getMessage());
+      versionTableExists = false;
+    }
+    return 0;
+  }
+
+  /**
+   * Retrieves the latest entries of the scrambles that have been changed since the given version.
+   * Only the rows of the changed scrambles are read from the metastore table.
+   *
+   * @param version The version returned by getVersion() or by a previous call of this method
+   * @return The changes, or null if the changes cannot be determined because the history has been
+   *     compacted or the store has been removed; the caller should retrieve() the entire store.
+   * @throws VerdictDBException
+   */
+  public ScrambleMetaChanges retrieveChangesSince(long version) throws VerdictDBException {
+    if (!conn.getSchemas().contains(storeSchema)
+        || !conn.getTables(storeSchema).contains(VERSION_TABLE_NAME)) {
+      versionTableExists = false;
+      return (version == 0) ? new ScrambleMetaChanges(0) : null;
+    }
+
+    String tableAlias = "t";
+    SelectQuery versionQuery =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(tableAlias, VERSION_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN)),
+            new BaseTable(storeSchema, VERSION_TABLE_NAME, tableAlias));
+    versionQuery.addFilterByAnd(
+        ColumnOp.greaterequal(
+            new BaseColumn(tableAlias, VERSION_COLUMN),
+            ConstantColumn.valueOf(Long.toString(version))));
+    DbmsQueryResult result = conn.execute(QueryToSql.convert(conn.getSyntax(), versionQuery));
+
+    long latestVersion = version;
+    boolean versionFound = false;
+    Set<Pair<String, String>> changed = new LinkedHashSet<>();
+    while (result.next()) {
+      versionFound = true;
+      long changeVersion = result.getLong(0);
+      String scrambleSchema = readString(result, 1);
+      String scrambleTable = readString(result, 2);
+      if (isCompactedMarker(scrambleSchema, scrambleTable)) {
+        if (changeVersion > version) {
+          return null;
+        }
+        continue;
+      }
+      latestVersion = Math.max(latestVersion, changeVersion);
+      changed.add(Pair.of(scrambleSchema, scrambleTable));
+    }
+    if (version > 0 && !versionFound) {
+      // the version table has been recreated since the given version was read
+      return null;
+    }
+
+    ScrambleMetaChanges changes = new ScrambleMetaChanges(latestVersion);
+    if (changed.isEmpty()) {
+      return changes;
+    }
+
+    // reads the entries of the changed scrambles only
+    UnnamedColumn filter = null;
+    for (Pair<String, String> scramble : changed) {
+      UnnamedColumn predicate =
+          ColumnOp.and(
+              ColumnOp.equal(
+                  new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN),
+                  quotedConstant(scramble.getLeft())),
+              ColumnOp.equal(
+                  new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN),
+                  quotedConstant(scramble.getRight())));
+      filter = (filter == null) ? predicate : ColumnOp.or(filter, predicate);
+    }
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN),
+                new BaseColumn(tableAlias, DATA_COLUMN)),
+            new BaseTable(storeSchema, METASTORE_TABLE_NAME, tableAlias));
+    query.addFilterByAnd(filter);
+    query.addOrderby(new OrderbyAttribute(ADDED_AT_COLUMN, "desc"));
+    result = conn.execute(QueryToSql.convert(conn.getSyntax(), query));
+
+    // the latest entry of each scramble decides whether it is added or dropped
+    Set<Pair<String, String>> seen = new HashSet<>();
+    while (result.next()) {
+      Pair<String, String> pair = ImmutablePair.of(readString(result, 0), readString(result, 1));
+      if (!seen.add(pair)) {
+        continue;
+      }
+      String jsonString = readString(result, 2);
+      if (jsonString.toUpperCase().equals(DELETED)) {
+        changes.addDroppedScramble(pair.getLeft(), pair.getRight());
+      } else {
+        changes.addScrambleMeta(ScrambleMeta.fromJsonString(jsonString));
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Starts the partition log of a new scramble. The partitions logged for the scrambles of the
+   * same name created before (e.g., dropped since) are no longer returned by
+   * retrieveCompletedPartitions().
+   *
+   * @param scrambleSchema The schema of the scramble
+   * @param scrambleTable The name of the scramble
+   * @return The identifier of this creation, with which the partitions are logged
+   * @throws VerdictDBException
+   */
+  public String addScrambleCreation(String scrambleSchema, String scrambleTable)
+      throws VerdictDBException {
+    String creation = UUID.randomUUID().toString().replace("-", "");
+    synchronized (WRITE_LOCK) {
+      if (!conn.getTables(storeSchema).contains(PARTITION_TABLE_NAME)) {
+        String sql = QueryToSql.convert(conn.getSyntax(), createPartitionTableStatement());
+        conn.execute(sql);
+      }
+      addPartitionLogEntry(scrambleSchema, scrambleTable, creation, CREATION_MARKER);
+    }
+    return creation;
+  }
+
+  /**
+   * Logs a partition that has been completely appended to a scramble.
+   *
+   * @param scrambleSchema The schema of the scramble
+   * @param scrambleTable The name of the scramble
+   * @param creation The identifier returned by addScrambleCreation()
+   * @param partitionKey Identifies the partition; it must consist of the characters that do not
+   *     need to be escaped in string literals (e.g., URL-encoded).
+   * @throws VerdictDBException
+   */
+  public void addCompletedPartition(
+      String scrambleSchema, String scrambleTable, String creation, String partitionKey)
+      throws VerdictDBException {
+    synchronized (WRITE_LOCK) {
+      addPartitionLogEntry(scrambleSchema, scrambleTable, creation, partitionKey);
+    }
+  }
+
+  private void addPartitionLogEntry(
+      String scrambleSchema, String scrambleTable, String creation, String partitionKey)
+      throws VerdictDBException {
+    InsertValuesQuery query = new InsertValuesQuery();
+    query.setSchemaName(storeSchema);
+    query.setTableName(PARTITION_TABLE_NAME);
+    query.setValues(
+        Arrays.<Object>asList(
+            scrambleSchema,
+            scrambleTable,
+            creation,
+            partitionKey,
+            new VerdictTimestamp(new Date())));
+    conn.execute(QueryToSql.convert(conn.getSyntax(), query));
+  }
+
+  /**
+   * Reads the partition log of the latest creation of a scramble.
+   *
+   * @param scrambleSchema The schema of the scramble
+   * @param scrambleTable The name of the scramble
+   * @return (the identifier of the creation, the keys of the completed partitions), or null if no
+   *     creation has been logged (e.g., the scramble was created by an older version).
+   * @throws VerdictDBException
+   */
+  public Pair<String, Set<String>> retrieveCompletedPartitions(
+      String scrambleSchema, String scrambleTable) throws VerdictDBException {
+    if (!conn.getSchemas().contains(storeSchema)
+        || !conn.getTables(storeSchema).contains(PARTITION_TABLE_NAME)) {
+      return null;
+    }
+
+    String tableAlias = "t";
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(tableAlias, CREATION_COLUMN),
+                new BaseColumn(tableAlias, PARTITION_KEY_COLUMN)),
+            new BaseTable(storeSchema, PARTITION_TABLE_NAME, tableAlias));
+    query.addFilterByAnd(
+        ColumnOp.equal(
+            new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN), quotedConstant(scrambleSchema)));
+    query.addFilterByAnd(
+        ColumnOp.equal(
+            new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN), quotedConstant(scrambleTable)));
+    query.addOrderby(new OrderbyAttribute(ADDED_AT_COLUMN, "desc"));
+    DbmsQueryResult result = conn.execute(QueryToSql.convert(conn.getSyntax(), query));
+
+    // the latest creation marker decides which partitions count
+    String latestCreation = null;
+    Map<String, Set<String>> partitionsByCreation = new HashMap<>();
+    while (result.next()) {
+      String creation = readString(result, 0);
+      String partitionKey = readString(result, 1);
+      if (partitionKey == null || partitionKey.equals(CREATION_MARKER)) {
+        if (latestCreation == null) {
+          latestCreation = creation;
+        }
+        continue;
+      }
+      if (!partitionsByCreation.containsKey(creation)) {
+        partitionsByCreation.put(creation, new HashSet<String>());
+      }
+      partitionsByCreation.get(creation).add(partitionKey);
+    }
+    if (latestCreation == null) {
+      return null;
+    }
+    Set<String> completed = partitionsByCreation.get(latestCreation);
+    return Pair.of(latestCreation, (completed == null) ? new HashSet<String>() : completed);
+  }
+
+  /**
+   * Rewrites the metastore table so that it keeps only the latest entry of each existing
+   * scramble; the entries of the dropped scrambles and the older entries of the replaced
+   * scrambles are removed. The partition table keeps only the latest creation of each scramble
+   * that has not been dropped since. The version table is also truncated, after which the caches
+   * that have read an older version reload the entire store.
+   *
+   * <p>Many dbms do not support delete; thus, the compacted tables are written under new names
+   * first and then renamed to the original names. Until the renaming, a failure leaves the store
+   * as it was.
+   *
+   * <p>This is a maintenance operation; it should not run while other processes change the store
+   * because their changes made during the compaction may be lost.
+   *
+   * @throws VerdictDBException
+   */
+  public void compact() throws VerdictDBException {
+    synchronized (WRITE_LOCK) {
+      compactTables();
+    }
+  }
+
+  private void compactTables() throws VerdictDBException {
+    if (!conn.getSchemas().contains(storeSchema)) {
+      return;
+    }
+    List<String> tables = conn.getTables(storeSchema);
+    if (!tables.contains(getMetaStoreTableName())) {
+      return;
+    }
+
+    String tableAlias = "t";
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(tableAlias, ORIGINAL_SCHEMA_COLUMN),
+                new BaseColumn(tableAlias, ORIGINAL_TABLE_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_METHOD_COLUMN),
+                new BaseColumn(tableAlias, ADDED_AT_COLUMN),
+                new BaseColumn(tableAlias, DATA_COLUMN)),
+            new BaseTable(storeSchema, METASTORE_TABLE_NAME, tableAlias));
+    query.addOrderby(new OrderbyAttribute(ADDED_AT_COLUMN, "desc"));
+    DbmsQueryResult result = conn.execute(QueryToSql.convert(conn.getSyntax(), query));
+
+    // the latest entries of the existing scrambles, the most recent first
+    List<List<Object>> latestEntries = new ArrayList<>();
+    Set<Pair<String, String>> seen = new HashSet<>();
+    Map<Pair<String, String>, Timestamp> droppedAt = new HashMap<>();
+    int rowCount = 0;
+    while (result.next()) {
+      rowCount++;
+      Pair<String, String> pair = ImmutablePair.of(readString(result, 2), readString(result, 3));
+      if (!seen.add(pair)) {
+        continue;
+      }
+      if (readString(result, 6).toUpperCase().equals(DELETED)) {
+        droppedAt.put(pair, result.getTimestamp(5));
+        continue;
+      }
+      latestEntries.add(
+          Arrays.<Object>asList(
+              readString(result, 0),
+              readString(result, 1),
+              readString(result, 2),
+              readString(result, 3),
+              readString(result, 4),
+              new VerdictTimestamp(result.getTimestamp(5)),
+              readString(result, 6)));
+    }
+    List<List<Object>> partitionEntries = null;
+    if (tables.contains(PARTITION_TABLE_NAME)) {
+      partitionEntries = retrieveLatestCreations(droppedAt);
+    }
+    long version = getVersion();
+
+    // writes the compacted tables under new names
+    String suffix = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    Map<String, String> newTables = new LinkedHashMap<>();
+    newTables.put(getMetaStoreTableName(), getMetaStoreTableName() + "_new_" + suffix);
+    if (partitionEntries != null) {
+      newTables.put(PARTITION_TABLE_NAME, PARTITION_TABLE_NAME + "_new_" + suffix);
+    }
+    newTables.put(VERSION_TABLE_NAME, VERSION_TABLE_NAME + "_new_" + suffix);
+    try {
+      CreateTableDefinitionQuery createQuery = createScrambleMetaStoreTableStatement();
+      createQuery.setTableName(newTables.get(getMetaStoreTableName()));
+      conn.execute(QueryToSql.convert(conn.getSyntax(), createQuery));
+      Collections.reverse(latestEntries);
+      insertRows(newTables.get(getMetaStoreTableName()), latestEntries);
+
+      if (partitionEntries != null) {
+        createQuery = createPartitionTableStatement();
+        createQuery.setTableName(newTables.get(PARTITION_TABLE_NAME));
+        conn.execute(QueryToSql.convert(conn.getSyntax(), createQuery));
+        Collections.reverse(partitionEntries);
+        insertRows(newTables.get(PARTITION_TABLE_NAME), partitionEntries);
+      }
+
+      createQuery = createVersionTableStatement();
+      createQuery.setTableName(newTables.get(VERSION_TABLE_NAME));
+      conn.execute(QueryToSql.convert(conn.getSyntax(), createQuery));
+      InsertValuesQuery markerQuery =
+          createInsertVersionQuery(
+              version + 1, COMPACTED, COMPACTED, new VerdictTimestamp(new Date()));
+      markerQuery.setTableName(newTables.get(VERSION_TABLE_NAME));
+      conn.execute(QueryToSql.convert(conn.getSyntax(), markerQuery));
+    } catch (VerdictDBException e) {
+      for (String newTable : newTables.values()) {
+        dropTableIfExists(newTable);
+      }
+      throw e;
+    }
+
+    // the version table is replaced last so that the caches reload the compacted tables
+    for (Map.Entry<String, String> table : newTables.entrySet()) {
+      replaceTable(table.getKey(), table.getValue(), table.getKey() + "_old_" + suffix);
+    }
+    versionTableExists = true;
+
+    LOG.debug(
+        "Compacted the metastore from {} rows to {} rows.", rowCount, latestEntries.size());
+  }
+
+  /**
+   * Reads the partition log rows of the latest creation of each scramble, the most recent first.
+   * The scrambles dropped after their latest creation are left out.
+   */
+  private List<List<Object>> retrieveLatestCreations(Map<Pair<String, String>, Timestamp> droppedAt)
+      throws VerdictDBException {
+    String tableAlias = "t";
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(tableAlias, SCRAMBLE_SCHEMA_COLUMN),
+                new BaseColumn(tableAlias, SCRAMBLE_TABLE_COLUMN),
+                new BaseColumn(tableAlias, CREATION_COLUMN),
+                new BaseColumn(tableAlias, PARTITION_KEY_COLUMN),
+                new BaseColumn(tableAlias, ADDED_AT_COLUMN)),
+            new BaseTable(storeSchema, PARTITION_TABLE_NAME, tableAlias));
+    query.addOrderby(new OrderbyAttribute(ADDED_AT_COLUMN, "desc"));
+    DbmsQueryResult result = conn.execute(QueryToSql.convert(conn.getSyntax(), query));
+
+    List<List<Object>> rows = new ArrayList<>();
+    Map<Pair<String, String>, String> latestCreations = new HashMap<>();
+    Map<Pair<String, String>, Timestamp> createdAt = new HashMap<>();
+    while (result.next()) {
+      Pair<String, String> pair = ImmutablePair.of(readString(result, 0), readString(result, 1));
+      String creation = readString(result, 2);
+      String partitionKey = readString(result, 3);
+      Timestamp addedAt = result.getTimestamp(4);
+      if (partitionKey == null || partitionKey.equals(CREATION_MARKER)) {
+        partitionKey = CREATION_MARKER;
+        if (!latestCreations.containsKey(pair)) {
+          latestCreations.put(pair, creation);
+          createdAt.put(pair, addedAt);
+        }
+      }
+      rows.add(Arrays.<Object>asList(pair, creation, partitionKey, addedAt));
+    }
+
+    List<List<Object>> latestRows = new ArrayList<>();
+    for (List<Object> row : rows) {
+      @SuppressWarnings("unchecked")
+      Pair<String, String> pair = (Pair<String, String>) row.get(0);
+      String creation = (String) row.get(1);
+      if (creation == null || !creation.equals(latestCreations.get(pair))) {
+        continue;
+      }
+      Timestamp dropped = droppedAt.get(pair);
+      if (dropped != null && !dropped.before(createdAt.get(pair))) {
+        continue;
+      }
+      latestRows.add(
+          Arrays.<Object>asList(
+              pair.getLeft(),
+              pair.getRight(),
+              creation,
+              row.get(2),
+              new VerdictTimestamp((Timestamp) row.get(3))));
+    }
+    return latestRows;
+  }
+
+  private void insertRows(String table, List<List<Object>> rows) throws VerdictDBException {
+    if (rows.isEmpty()) {
+      return;
+    }
+    StringBuilder insertSqls = new StringBuilder();
+    for (List<Object> row : rows) {
+      InsertValuesQuery q = new InsertValuesQuery();
+      q.setSchemaName(storeSchema);
+      q.setTableName(table);
+      q.setValues(row);
+      insertSqls.append(QueryToSql.convert(conn.getSyntax(), q));
+      insertSqls.append("; ");
+    }
+    conn.execute(insertSqls.toString());
+  }
+
+  /**
+   * Replaces a table with another by renaming the former out of the way and the latter into its
+   * place; the former is dropped afterwards. If the second renaming fails, the former is restored.
+   */
+  private void replaceTable(String table, String newTable, String oldTable)
+      throws VerdictDBException {
+    SqlSyntax syntax = conn.getSyntax();
+    boolean exists = conn.getTables(storeSchema).contains(table);
+    if (exists) {
+      conn.execute(syntax.getRenameTableCommand(storeSchema, table, oldTable));
+    }
+    try {
+      conn.execute(syntax.getRenameTableCommand(storeSchema, newTable, table));
+    } catch (VerdictDBException e) {
+      if (exists) {
+        conn.execute(syntax.getRenameTableCommand(storeSchema, oldTable, table));
+      }
+      dropTableIfExists(newTable);
+      throw e;
+    }
+    if (exists) {
+      dropTableIfExists(oldTable);
+    }
+  }
+
+  private void dropTableIfExists(String table) throws VerdictDBException {
+    DropTableQuery dropQuery = new DropTableQuery(storeSchema, table);
+    dropQuery.setIfExists(true);
+    conn.execute(QueryToSql.convert(conn.getSyntax(), dropQuery));
+  }
+
+  private static boolean isCompactedMarker(String scrambleSchema, String scrambleTable) {
+    return (scrambleSchema == null || scrambleSchema.equals(COMPACTED))
+        && (scrambleTable == null || scrambleTable.equals(COMPACTED));
+  }
+
+  /**
+   * Reads a string column of the store. Some dbms (e.g., H2) return the generic string type as a
+   * character large object, whose string representation is not its content.
+   */
+  private static String readString(DbmsQueryResult result, int index)
+      throws VerdictDBDbmsException {
+    Object value = result.getValue(index);
+    if (value instanceof Clob) {
+      try {
+        Clob clob = (Clob) value;
+        return clob.getSubString(1, (int) clob.length());
+      } catch (SQLException e) {
+        throw new VerdictDBDbmsException(e);
+      }
+    }
+    return (value == null) ? null : value.toString();
+  }
+
+  private static ConstantColumn quotedConstant(String value) {
+    return ConstantColumn.valueOf("'" + value.replace("'", "''") + "'");
+  }
+
+  private CreateTableDefinitionQuery createVersionTableStatement() {
+    String schemaAndTableColumnType = conn.getSyntax().getGenericStringDataTypeName();
+
+    CreateTableDefinitionQuery query = new CreateTableDefinitionQuery();
+    query.setSchemaName(storeSchema);
+    query.setTableName(VERSION_TABLE_NAME);
+    query.addColumnNameAndType(Pair.of(VERSION_COLUMN, "BIGINT"));
+    query.addColumnNameAndType(Pair.of(SCRAMBLE_SCHEMA_COLUMN, schemaAndTableColumnType));
+    query.addColumnNameAndType(Pair.of(SCRAMBLE_TABLE_COLUMN, schemaAndTableColumnType));
+    query.addColumnNameAndType(Pair.of(ADDED_AT_COLUMN, "TIMESTAMP"));
+    query.setIfNotExists(true);
+    return query;
+  }
+
+  private CreateTableDefinitionQuery createPartitionTableStatement() {
+    String stringColumnType = conn.getSyntax().getGenericStringDataTypeName();
+
+    CreateTableDefinitionQuery query = new CreateTableDefinitionQuery();
+    query.setSchemaName(storeSchema);
+    query.setTableName(PARTITION_TABLE_NAME);
+    query.addColumnNameAndType(Pair.of(SCRAMBLE_SCHEMA_COLUMN, stringColumnType));
+    query.addColumnNameAndType(Pair.of(SCRAMBLE_TABLE_COLUMN, stringColumnType));
+    query.addColumnNameAndType(Pair.of(CREATION_COLUMN, stringColumnType));
+    query.addColumnNameAndType(Pair.of(PARTITION_KEY_COLUMN, stringColumnType));
+    query.addColumnNameAndType(Pair.of(ADDED_AT_COLUMN, "TIMESTAMP"));
+    query.setIfNotExists(true);
+    return query;
+  }
+
+  private InsertValuesQuery createInsertVersionQuery(
+      long version, String scrambleSchema, String scrambleTable, VerdictTimestamp timestamp) {
+    InsertValuesQuery query = new InsertValuesQuery();
+    query.setSchemaName(getStoreSchema());
+    query.setTableName(VERSION_TABLE_NAME);
+    query.setValues(Arrays.<Object>asList(version, scrambleSchema, scrambleTable, timestamp));
+    return query;
+  }
+
+  /** Inserts a row of the latest version plus one, which is read by the insert itself. */
+  private InsertIntoSelectQuery createInsertNextVersionQuery(
+      String scrambleSchema, String scrambleTable, VerdictTimestamp timestamp) {
+    String tableAlias = "t";
+    UnnamedColumn latestVersion =
+        new ColumnOp(
+            "coalesce",
+            Arrays.<UnnamedColumn>asList(
+                new ColumnOp("max", new BaseColumn(tableAlias, VERSION_COLUMN)),
+                ConstantColumn.valueOf(0)));
+    // written in the same way as InsertValuesQuery writes a timestamp
+    String timestampLiteral = "'" + timestamp.toString() + "'";
+    if (conn.getSyntax() instanceof PrestoSyntax) {
+      timestampLiteral = "timestamp " + timestampLiteral;
+    }
+    SelectQuery select =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new AliasedColumn(
+                    ColumnOp.add(latestVersion, ConstantColumn.valueOf(1)), VERSION_COLUMN),
+                new AliasedColumn(quotedConstant(scrambleSchema), SCRAMBLE_SCHEMA_COLUMN),
+                new AliasedColumn(quotedConstant(scrambleTable), SCRAMBLE_TABLE_COLUMN),
+                new AliasedColumn(ConstantColumn.valueOf(timestampLiteral), ADDED_AT_COLUMN)),
+            new BaseTable(storeSchema, VERSION_TABLE_NAME, tableAlias));
+
+    InsertIntoSelectQuery query = new InsertIntoSelectQuery();
+    query.setSchemaName(storeSchema);
+    query.setTableName(VERSION_TABLE_NAME);
+    query.setSelectQuery(select);
+    query.setColumnNames(
+        Arrays.asList(
+            VERSION_COLUMN, SCRAMBLE_SCHEMA_COLUMN, SCRAMBLE_TABLE_COLUMN, ADDED_AT_COLUMN));
+    return query;
   }
 
   private CreateTableDefinitionQuery createScrambleMetaStoreTableStatement() {
@@ -335,10 +1060,10 @@ public class ScrambleMetaStore extends VerdictMetaStore {
       DbmsQueryResult result = conn.execute(sql);
 
       while (result.next()) {
-        String scrambleSchema = result.getString(2);
-        String scrambleTable = result.getString(3);
+        String scrambleSchema = readString(result, 2);
+        String scrambleTable = readString(result, 3);
         Pair<String, String> pair = ImmutablePair.of(scrambleSchema, scrambleTable);
-        String jsonString = result.getString(5);
+        String jsonString = readString(result, 5);
         if (scrambleSchema.equals(schema) && scrambleTable.equals(table)) {
           return jsonString.toUpperCase().equals(DELETED)
               ? null
@@ -404,14 +1129,14 @@ public class ScrambleMetaStore extends VerdictMetaStore {
       while (result.next()) {
         //        String originalSchema = result.getString(0);
         //        String originalTable = result.getString(1);
-        String scrambleSchema = result.getString(2);
-        String scrambleTable = result.getString(3);
+        String scrambleSchema = readString(result, 2);
+        String scrambleTable = readString(result, 3);
         //        BaseTable original = new BaseTable(originalSchema, originalTable);
         //        BaseTable scramble = new BaseTable(scrambleSchema, scrambleTable);
         Pair<String, String> pair = ImmutablePair.of(scrambleSchema, scrambleTable);
-        String timestamp = result.getString(4);
+        String timestamp = readString(result, 4);
         //        System.out.println("added time: " + timestamp);
-        String jsonString = result.getString(5);
+        String jsonString = readString(result, 5);
         if (jsonString.toUpperCase().equals(DELETED)) {
           deletedSet.add(pair);
         }
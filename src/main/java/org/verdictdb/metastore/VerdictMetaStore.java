@@ -27,5 +27,13 @@ public abstract class VerdictMetaStore {
   }
   
   public abstract ScrambleMetaSet retrieve();
+
+  /**
+   * @return A number that changes whenever the result of retrieve() may change, or -1 if this
+   *     store does not track changes.
+   */
+  public long getVersion() {
+    return -1;
+  }
   
 }
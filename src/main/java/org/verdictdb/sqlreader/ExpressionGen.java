@@ -75,6 +75,12 @@ public class ExpressionGen extends VerdictSQLParserBaseVisitor<UnnamedColumn> {
     return ConstantColumn.valueOf(ctx.getText());
   }
 
+  @Override
+  public ConstantColumn visitParameter_expression(
+      VerdictSQLParser.Parameter_expressionContext ctx) {
+    return ConstantColumn.parameterMarker();
+  }
+
   @Override
   public ConstantColumn visitTime_unit(VerdictSQLParser.Time_unitContext ctx) {
     return ConstantColumn.valueOf(ctx.getText());
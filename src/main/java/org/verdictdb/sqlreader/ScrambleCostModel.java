@@ -0,0 +1,193 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.sqlreader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.sqlobject.AliasReference;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.GroupingAttribute;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
+/**
+ * Estimates the time a scramble takes to answer an aggregate query with a target accuracy, so that
+ * the cheapest one can be chosen among the scrambles of the same table.
+ *
+ * <p>The time is measured by the fraction of the original table that must be scanned, plus a fixed
+ * overhead per block (each block is a separate query). A query needs a certain fraction of the
+ * original table to reach the target accuracy; this fraction grows with the number of the groups
+ * and with the selectivity of the predicates. A scramble reaches it after the smallest number of
+ * blocks that cover that fraction. If the scramble is smaller than the required fraction, it can
+ * never reach the target accuracy, so its cost is scaled up by the shortfall.
+ *
+ * <p>The row counts of the tables are not available when queries are rewritten, so the model uses
+ * fixed default selectivities (as in textbook optimizers) instead of statistics.
+ */
+class ScrambleCostModel {
+
+  /**
+   * The fraction of a table required to reach the target accuracy for an ungrouped aggregate
+   * without predicates. A 1% uniform sample of a table with millions of rows gives a relative
+   * error well below 1% for sum, count, and avg of most columns.
+   */
+  static final double BASE_REQUIRED_FRACTION = 0.01;
+
+  /**
+   * The factor by which each group-by column increases the required fraction, unless the scramble
+   * is stratified on the column; i.e., a group-by column is assumed to have about ten groups, each
+   * of which needs BASE_REQUIRED_FRACTION of its own rows.
+   */
+  static final double GROUP_BY_FACTOR = 10;
+
+  /**
+   * The default selectivity of a predicate, which is used by the textbook optimizers (e.g., System
+   * R) for the range predicates whose bounds are unknown.
+   */
+  static final double PREDICATE_SELECTIVITY = 1.0 / 3;
+
+  /**
+   * The overhead of processing a block (i.e., issuing a query and combining its answer), measured
+   * by the equivalent fraction of a table to scan; i.e., a block is about as expensive as scanning
+   * 0.1% of the table.
+   */
+  static final double BLOCK_OVERHEAD = 0.001;
+
+  /** Absorbs the rounding errors when the required number of blocks is computed. */
+  private static final double BLOCK_COUNT_TOLERANCE = 1e-9;
+
+  // the method of the scrambles whose meta does not specify it (i.e., created by old versions).
+  private static final String DEFAULT_METHOD = "uniform";
+
+  private final List<String> groupbyColumns;
+
+  private final int predicateCount;
+
+  /** @param query The query whose select list includes the aggregates. */
+  ScrambleCostModel(SelectQuery query) {
+    groupbyColumns = findGroupbyColumns(query);
+    predicateCount = query.getFilter().isPresent() ? countConjuncts(query.getFilter().get()) : 0;
+  }
+
+  /**
+   * @return The scramble with the lowest cost; null if there are no candidates. The first one is
+   *     chosen among those with the same cost.
+   */
+  ScrambleMeta choose(List<ScrambleMeta> candidates) {
+    ScrambleMeta chosen = null;
+    double lowestCost = Double.POSITIVE_INFINITY;
+    for (ScrambleMeta meta : candidates) {
+      double cost = estimateCost(meta);
+      if (chosen == null || cost < lowestCost) {
+        chosen = meta;
+        lowestCost = cost;
+      }
+    }
+    return chosen;
+  }
+
+  /** @return The expected cost of reaching the target accuracy using the scramble. */
+  double estimateCost(ScrambleMeta meta) {
+    double relativeSize = meta.getRelativeSize();
+    int blockCount = Math.max(1, meta.getAggregationBlockCount());
+    double blockFraction = relativeSize / blockCount;
+    double required = getRequiredFraction(meta);
+
+    if (required <= relativeSize) {
+      int blocks =
+          (int) Math.max(1, Math.ceil(required / blockFraction - BLOCK_COUNT_TOLERANCE));
+      return blocks * (blockFraction + BLOCK_OVERHEAD);
+    } else {
+      return blockCount * (blockFraction + BLOCK_OVERHEAD) * (required / relativeSize);
+    }
+  }
+
+  /** @return The fraction of the original table required to reach the target accuracy. */
+  double getRequiredFraction(ScrambleMeta meta) {
+    double required = BASE_REQUIRED_FRACTION;
+    for (String column : groupbyColumns) {
+      if (!isStratifiedOn(meta, column)) {
+        required *= GROUP_BY_FACTOR;
+      }
+    }
+    return required / Math.pow(PREDICATE_SELECTIVITY, predicateCount);
+  }
+
+  /** @return A one-line description of the scramble and its cost for the debug output. */
+  String explain(ScrambleMeta meta) {
+    return String.format(
+        "%s.%s (method: %s, relative size: %.4f, blocks: %d, required fraction: %.4f, cost: %.4f)",
+        meta.getSchemaName(),
+        meta.getTableName(),
+        meta.getMethodWithDefault(DEFAULT_METHOD),
+        meta.getRelativeSize(),
+        meta.getAggregationBlockCount(),
+        getRequiredFraction(meta),
+        estimateCost(meta));
+  }
+
+  /**
+   * A fastconverge scramble built on a column places the rows of small groups in its early blocks,
+   * so grouping by the column does not slow down the convergence.
+   */
+  private boolean isStratifiedOn(ScrambleMeta meta, String column) {
+    return meta.getMethodWithDefault(DEFAULT_METHOD).equalsIgnoreCase("fastconverge")
+        && meta.getHashColumn() != null
+        && meta.getHashColumn().equalsIgnoreCase(column);
+  }
+
+  private static List<String> findGroupbyColumns(SelectQuery query) {
+    List<String> columns = new ArrayList<>();
+    for (GroupingAttribute attr : query.getGroupby()) {
+      if (attr instanceof BaseColumn) {
+        columns.add(((BaseColumn) attr).getColumnName());
+      } else if (attr instanceof AliasReference) {
+        // resolves the alias using the select list
+        String alias = ((AliasReference) attr).getAliasName();
+        String column = alias;
+        for (SelectItem item : query.getSelectList()) {
+          if (item instanceof AliasedColumn
+              && ((AliasedColumn) item).getAliasName().equalsIgnoreCase(alias)
+              && ((AliasedColumn) item).getColumn() instanceof BaseColumn) {
+            column = ((BaseColumn) ((AliasedColumn) item).getColumn()).getColumnName();
+            break;
+          }
+        }
+        columns.add(column);
+      } else {
+        columns.add(attr.toString());
+      }
+    }
+    return columns;
+  }
+
+  private static int countConjuncts(UnnamedColumn predicate) {
+    if (predicate instanceof ColumnOp && ((ColumnOp) predicate).getOpType().equals("and")) {
+      int count = 0;
+      for (UnnamedColumn operand : ((ColumnOp) predicate).getOperands()) {
+        count += countConjuncts(operand);
+      }
+      return count;
+    }
+    return 1;
+  }
+}
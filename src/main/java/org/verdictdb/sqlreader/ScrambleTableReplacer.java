@@ -28,6 +28,7 @@ import org.verdictdb.core.sqlobject.JoinTable;
 import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.exception.VerdictDBValueException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /** Created by Dong Young Yoon on 7/31/18. */
@@ -39,6 +40,13 @@ public class ScrambleTableReplacer {
 
   private int replaceCount = 0;
 
+  // whether the progressive count-distinct on any type of scrambles is supported by the dbms
+  private boolean countDistinctSketchEnabled = false;
+
+  // whether the original tables are replaced with their scrambles; if not, only the scrambles
+  // named directly in the query are counted.
+  private boolean automaticReplacementEnabled = false;
+
   private VerdictDBLogger log = VerdictDBLogger.getLogger(this.getClass());
 
   public ScrambleTableReplacer(ScrambleMetaSet metaSet) {
@@ -46,7 +54,30 @@ public class ScrambleTableReplacer {
   }
 
   /**
-   * Replaces the tables with their corresponding scrambles if possible.
+   * If enabled, the count-distinct aggregates of the outermost query may be computed on
+   * single-tier scrambles of any type (using HyperLogLog sketches) when no hash scrambles on the
+   * count-distinct column exist.
+   *
+   * @param countDistinctSketchEnabled True if the dbms supports SqlSyntax.getHllHashFunction()
+   */
+  public void setCountDistinctSketchEnabled(boolean countDistinctSketchEnabled) {
+    this.countDistinctSketchEnabled = countDistinctSketchEnabled;
+  }
+
+  /**
+   * If enabled, the original tables are replaced with their scrambles (see
+   * VerdictOption.setAutoScrambleReplacement()). Disabled by default.
+   *
+   * @param automaticReplacementEnabled
+   */
+  public void setAutomaticReplacementEnabled(boolean automaticReplacementEnabled) {
+    this.automaticReplacementEnabled = automaticReplacementEnabled;
+  }
+
+  /**
+   * Replaces the tables with their corresponding scrambles if possible (only if the automatic
+   * replacement is enabled). If a table has multiple scrambles, the one that is expected to reach
+   * the target accuracy most quickly is chosen (see ScrambleCostModel).
    *
    * @param query
    * @return The number of scrambles present in the query. Note that this number not only includes
@@ -55,11 +86,19 @@ public class ScrambleTableReplacer {
    * @throws VerdictDBValueException
    */
   public int replaceQuery(SelectQuery query) throws VerdictDBValueException {
-    return replaceQuery(query, true, null);
+    return replaceQuery(query, true, null, null, true);
   }
 
+  /**
+   * @param isOuterAggregate True if the aggregates of the query (or of its outer query, if the
+   *     query is a projection) are not nested inside any other queries.
+   */
   private int replaceQuery(
-      SelectQuery query, boolean doReset, Triple<Boolean, Boolean, BaseColumn> outerInspectionInfo)
+      SelectQuery query,
+      boolean doReset,
+      Triple<Boolean, Boolean, BaseColumn> outerInspectionInfo,
+      ScrambleCostModel outerCostModel,
+      boolean isOuterAggregate)
       throws VerdictDBValueException {
     if (doReset) {
       replaceCount = 0;
@@ -79,10 +118,14 @@ public class ScrambleTableReplacer {
 
     // this is to handle the case that an outer query includes aggregate functions,
     // the current query is simply a projection.
+    ScrambleCostModel costModel;
     if (outerInspectionInfo != null && !containAggregatedItem && !containCountDistinctItem) {
       containAggregatedItem = outerInspectionInfo.getLeft();
       containCountDistinctItem = outerInspectionInfo.getMiddle();
       inspectionInfo = outerInspectionInfo;
+      costModel = outerCostModel;
+    } else {
+      costModel = new ScrambleCostModel(query);
     }
 
     // if both count-distinct and other aggregates appear
@@ -93,14 +136,20 @@ public class ScrambleTableReplacer {
     else if (containAggregatedItem) {
       List<AbstractRelation> fromList = query.getFromList();
       for (int i = 0; i < fromList.size(); i++) {
-        fromList.set(i, replaceTableForSimpleAggregates(fromList.get(i), inspectionInfo));
+        fromList.set(
+            i,
+            replaceTableForSimpleAggregates(
+                fromList.get(i), inspectionInfo, costModel, isOuterAggregate));
       }
     }
     // if only count-distinct appears
     else if (containCountDistinctItem) {
       List<AbstractRelation> fromList = query.getFromList();
       for (int i = 0; i < fromList.size(); i++) {
-        fromList.set(i, replaceTableForCountDistinct(fromList.get(i), inspectionInfo));
+        fromList.set(
+            i,
+            replaceTableForCountDistinct(
+                fromList.get(i), inspectionInfo, costModel, isOuterAggregate));
       }
     }
     // no aggregate appears; check any subqueries
@@ -111,11 +160,11 @@ public class ScrambleTableReplacer {
         if (rel instanceof JoinTable) {
           for (AbstractRelation joined : ((JoinTable) rel).getJoinList()) {
             if (joined instanceof SelectQuery) {
-              replaceQuery((SelectQuery) joined, false, null);
+              replaceQuery((SelectQuery) joined, false, null, null, false);
             }
           }
         } else if (rel instanceof SelectQuery) {
-          replaceQuery((SelectQuery) rel, false, null);
+          replaceQuery((SelectQuery) rel, false, null, null, false);
         }
       }
     }
@@ -124,106 +173,130 @@ public class ScrambleTableReplacer {
   }
 
   /**
-   * Replaces an original table if there exists a corresponding scramble. Use a hash scramble.
+   * Replaces an original table if there exists a corresponding scramble. Use a hash scramble built
+   * on the column inside the count-distinct function. If there is no such scramble, a single-tier
+   * scramble of any type that includes every row of the table is used for the outermost aggregate
+   * when sketches are enabled.
    *
    * @param table
    * @return
    * @throws VerdictDBValueException
    */
   private AbstractRelation replaceTableForCountDistinct(
-      AbstractRelation table, Triple<Boolean, Boolean, BaseColumn> inspectionInfo)
+      AbstractRelation table,
+      Triple<Boolean, Boolean, BaseColumn> inspectionInfo,
+      ScrambleCostModel costModel,
+      boolean isOuterAggregate)
       throws VerdictDBValueException {
 
     BaseColumn countDistinctColumn = inspectionInfo.getRight();
 
     if (table instanceof BaseTable) {
       BaseTable bt = (BaseTable) table;
-
-      for (ScrambleMeta meta : metaSet) {
-        // Detects scrambled tables.
-        // The scramble meta are expected to be retrieved from the recently created ones.
-        if (meta.getSchemaName().equals(bt.getSchemaName())
-            && meta.getTableName().equals(bt.getTableName())
-            && meta.getMethodWithDefault("uniform").equalsIgnoreCase("hash")
-            && countDistinctColumn.getColumnName().equals(meta.getHashColumn())) {
-          ++replaceCount;
-
-          log.info(
-              String.format("Scramble detected: %s.%s", meta.getSchemaName(), meta.getTableName()));
-
-          //          bt.setSchemaName(meta.getSchemaName());
-          //          bt.setTableName(meta.getTableName());
-
-          //          log.info(
-          //              String.format(
-          //                  "Automatic table replacement: %s.%s -> %s.%s",
-          //                  meta.getOriginalSchemaName(),
-          //                  meta.getOriginalTableName(),
-          //                  meta.getSchemaName(),
-          //                  meta.getTableName()));
-
-          break;
-        } else if (meta.getSchemaName().equals(bt.getSchemaName())
-            && meta.getTableName().equals(bt.getTableName())) {
-          // IF the scramble is directly specified.
-          ++replaceCount;
+      List<ScrambleMeta> candidates = new ArrayList<>();
+      for (ScrambleMeta meta : metaSet.getScramblesOf(bt.getSchemaName(), bt.getTableName())) {
+        if (meta.getMethodWithDefault("uniform").equalsIgnoreCase("hash")
+            && countDistinctColumn.getColumnName().equalsIgnoreCase(meta.getHashColumn())) {
+          candidates.add(meta);
         }
       }
+      if (candidates.isEmpty() && countDistinctSketchEnabled && isOuterAggregate) {
+        for (ScrambleMeta meta : metaSet.getScramblesOf(bt.getSchemaName(), bt.getTableName())) {
+          if (meta.getNumberOfTiers() == 1 && meta.getRelativeSize() >= 1.0) {
+            candidates.add(meta);
+          }
+        }
+      }
+      replaceWithCheapestScramble(bt, candidates, costModel);
     } else if (table instanceof JoinTable) {
       JoinTable jt = (JoinTable) table;
       for (AbstractRelation relation : jt.getJoinList()) {
-        this.replaceTableForCountDistinct(relation, inspectionInfo);
+        this.replaceTableForCountDistinct(relation, inspectionInfo, costModel, isOuterAggregate);
       }
     } else if (table instanceof SelectQuery) {
       SelectQuery subquery = (SelectQuery) table;
-      this.replaceQuery(subquery, false, inspectionInfo);
+      this.replaceQuery(subquery, false, inspectionInfo, costModel, isOuterAggregate);
     }
 
     return table;
   }
 
   private AbstractRelation replaceTableForSimpleAggregates(
-      AbstractRelation table, Triple<Boolean, Boolean, BaseColumn> inspectionInfo)
+      AbstractRelation table,
+      Triple<Boolean, Boolean, BaseColumn> inspectionInfo,
+      ScrambleCostModel costModel,
+      boolean isOuterAggregate)
       throws VerdictDBValueException {
     if (table instanceof BaseTable) {
       BaseTable bt = (BaseTable) table;
-
-      for (ScrambleMeta meta : metaSet) {
-        // Detects scrambled tables.
-        if (meta.getSchemaName().equals(bt.getSchemaName())
-            && meta.getTableName().equals(bt.getTableName())
-            && meta.isMethodCompatibleWithSimpleAggregates()) {
-          ++replaceCount;
-          log.info(
-              String.format("Scramble detected: %s.%s", meta.getSchemaName(), meta.getTableName()));
-
-          //          bt.setSchemaName(meta.getSchemaName());
-          //          bt.setTableName(meta.getTableName());
-          //
-          //          log.info(
-          //              String.format(
-          //                  "Automatic table replacement: %s.%s -> %s.%s",
-          //                  meta.getOriginalSchemaName(),
-          //                  meta.getOriginalTableName(),
-          //                  meta.getSchemaName(),
-          //                  meta.getTableName()));
-          break;
-        } else if (meta.getSchemaName().equals(bt.getSchemaName())
-            && meta.getTableName().equals(bt.getTableName())) {
-          // IF the scramble is directly specified.
-          ++replaceCount;
+      List<ScrambleMeta> candidates = new ArrayList<>();
+      for (ScrambleMeta meta : metaSet.getScramblesOf(bt.getSchemaName(), bt.getTableName())) {
+        if (meta.isMethodCompatibleWithSimpleAggregates()) {
+          candidates.add(meta);
         }
       }
+      replaceWithCheapestScramble(bt, candidates, costModel);
     } else if (table instanceof JoinTable) {
       JoinTable jt = (JoinTable) table;
       for (AbstractRelation relation : jt.getJoinList()) {
-        this.replaceTableForSimpleAggregates(relation, inspectionInfo);
+        this.replaceTableForSimpleAggregates(
+            relation, inspectionInfo, costModel, isOuterAggregate);
       }
     } else if (table instanceof SelectQuery) {
       SelectQuery subquery = (SelectQuery) table;
-      this.replaceQuery(subquery, false, inspectionInfo);
+      this.replaceQuery(subquery, false, inspectionInfo, costModel, isOuterAggregate);
     }
 
     return table;
   }
+
+  /**
+   * Counts the table if it is a scramble specified by users. Otherwise, if the automatic
+   * replacement is enabled, replaces it with the cheapest of the candidate scrambles (if any) and
+   * explains the choice in the debug output.
+   */
+  private void replaceWithCheapestScramble(
+      BaseTable bt, List<ScrambleMeta> candidates, ScrambleCostModel costModel) {
+    if (metaSet.isScrambled(bt.getSchemaName(), bt.getTableName())) {
+      // IF the scramble is directly specified.
+      ++replaceCount;
+      log.info(String.format("Scramble detected: %s.%s", bt.getSchemaName(), bt.getTableName()));
+      return;
+    }
+    if (!automaticReplacementEnabled) {
+      return;
+    }
+
+    ScrambleMeta chosen = costModel.choose(candidates);
+    if (chosen == null) {
+      return;
+    }
+
+    if (log.isDebugEnabled()) {
+      StringBuilder explanation = new StringBuilder();
+      explanation.append(
+          String.format(
+              "Scramble chosen for %s.%s: %s.%s among %d candidate(s):",
+              bt.getSchemaName(),
+              bt.getTableName(),
+              chosen.getSchemaName(),
+              chosen.getTableName(),
+              candidates.size()));
+      for (ScrambleMeta meta : candidates) {
+        explanation.append("\n  ").append(costModel.explain(meta));
+      }
+      log.debug(explanation.toString());
+    }
+
+    ++replaceCount;
+    bt.setSchemaName(chosen.getSchemaName());
+    bt.setTableName(chosen.getTableName());
+    log.info(
+        String.format(
+            "Automatic table replacement: %s.%s -> %s.%s",
+            chosen.getOriginalSchemaName(),
+            chosen.getOriginalTableName(),
+            chosen.getSchemaName(),
+            chosen.getTableName()));
+  }
 }
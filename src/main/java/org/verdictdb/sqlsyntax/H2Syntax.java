@@ -120,4 +120,11 @@ public class H2Syntax extends SqlSyntax {
     // TODO Auto-generated method stub
     return null;
   }
+
+  /** The new name cannot be qualified; the table stays in its schema. */
+  @Override
+  public String getRenameTableCommand(String schema, String table, String newTable) {
+    return String.format(
+        "alter table %s.%s rename to %s", quoteName(schema), quoteName(table), quoteName(newTable));
+  }
 }
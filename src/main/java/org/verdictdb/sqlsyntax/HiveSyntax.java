@@ -34,6 +34,11 @@ public class HiveSyntax extends SqlSyntax {
     return true;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -166,4 +171,25 @@ public class HiveSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return f;
   }
+
+  @Override
+  public String getTableSampleClause(double samplingPercent) {
+    return String.format("tablesample (%f percent)", samplingPercent);
+  }
+
+  @Override
+  public boolean isTableSampleBeforeAlias() {
+    return true;
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("cast(conv(substr(md5(%s), 1, 8), 16, 10) as bigint)", column);
+  }
+
+  /** A backslash starts an escape sequence in the string literals of this dialect. */
+  @Override
+  public String quoteStringLiteral(String value) {
+    return quoteStringLiteralWithBackslashes(value);
+  }
 }
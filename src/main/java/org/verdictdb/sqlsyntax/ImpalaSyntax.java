@@ -38,6 +38,11 @@ public class ImpalaSyntax extends SqlSyntax {
     return true;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -174,4 +179,27 @@ public class ImpalaSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return f;
   }
+
+  /**
+   * Impala only accepts an integer percentage; other percentages are not rounded (which would bias
+   * the estimates scaled by the percentage) but sampled by filtering rows.
+   */
+  @Override
+  public String getTableSampleClause(double samplingPercent) {
+    if (samplingPercent < 1 || samplingPercent != Math.floor(samplingPercent)) {
+      return null;
+    }
+    return String.format("tablesample system (%d)", (int) samplingPercent);
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("pmod(fnv_hash(%s), 4294967296)", column);
+  }
+
+  /** A backslash starts an escape sequence in the string literals of this dialect. */
+  @Override
+  public String quoteStringLiteral(String value) {
+    return quoteStringLiteralWithBackslashes(value);
+  }
 }
@@ -23,6 +23,8 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 
+import org.verdictdb.exception.VerdictDBValueException;
+
 public class MysqlSyntax extends SqlSyntax {
 
   @Override
@@ -229,5 +231,27 @@ public class MysqlSyntax extends SqlSyntax {
     return f;
   }
 
+  /** For InnoDB tables, the value is an estimate. */
+  @Override
+  public String getTableRowCountCommand(String schema, String table) {
+    return String.format(
+        "select table_rows from information_schema.tables "
+            + "where table_schema = '%s' and table_name = '%s'",
+        schema, table);
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("cast(conv(substr(md5(%s), 1, 8), 16, 10) as unsigned)", column);
+  }
 
+  /**
+   * A backslash starts an escape sequence unless NO_BACKSLASH_ESCAPES is set, in which case the
+   * escaped value would be read with extra backslashes; thus, the backslashes are rejected and
+   * only the single quotes are doubled.
+   */
+  @Override
+  public String quoteStringLiteral(String value) throws VerdictDBValueException {
+    return quoteStringLiteralWithoutBackslashes(value);
+  }
 }
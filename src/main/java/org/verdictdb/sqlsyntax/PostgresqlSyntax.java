@@ -21,6 +21,8 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 
+import org.verdictdb.exception.VerdictDBValueException;
+
 public class PostgresqlSyntax extends SqlSyntax {
 
   public static final String CHILD_PARTITION_TABLE_SUFFIX = "_vpart%05d";
@@ -73,6 +75,11 @@ public class PostgresqlSyntax extends SqlSyntax {
     return true;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public String randFunction() {
     return "random()";
@@ -167,4 +174,37 @@ public class PostgresqlSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return f;
   }
+
+  @Override
+  public String getTableSampleClause(double samplingPercent) {
+    return String.format("tablesample system (%f)", samplingPercent);
+  }
+
+  /** reltuples is updated by vacuum and analyze; zero or a negative value means unknown. */
+  @Override
+  public String getTableRowCountCommand(String schema, String table) {
+    return String.format(
+        "select c.reltuples from pg_catalog.pg_class c "
+            + "join pg_catalog.pg_namespace n on c.relnamespace = n.oid "
+            + "where n.nspname = '%s' and c.relname = '%s'",
+        schema, table);
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("('x' || lpad(substr(md5(cast(%s as varchar)), 1, 8), 16, '0'))::bit(64)::bigint", column);
+  }
+
+  /** Whether a backslash escapes depends on standard_conforming_strings; it is rejected. */
+  @Override
+  public String quoteStringLiteral(String value) throws VerdictDBValueException {
+    return quoteStringLiteralWithoutBackslashes(value);
+  }
+
+  /** The new name cannot be qualified; the table stays in its schema. */
+  @Override
+  public String getRenameTableCommand(String schema, String table, String newTable) {
+    return String.format(
+        "alter table %s.%s rename to %s", quoteName(schema), quoteName(table), quoteName(newTable));
+  }
 }
@@ -34,6 +34,11 @@ public class PrestoSyntax extends SqlSyntax {
     return false;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -174,4 +179,14 @@ public class PrestoSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return f;
   }
+
+  @Override
+  public String getTableSampleClause(double samplingPercent) {
+    return String.format("tablesample system (%f)", samplingPercent);
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("from_base(substr(to_hex(xxhash64(to_utf8(cast(%s as varchar)))), 1, 8), 16)", column);
+  }
 }
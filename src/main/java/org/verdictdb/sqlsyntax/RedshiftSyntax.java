@@ -23,6 +23,8 @@ import java.util.Map;
 
 import com.google.common.collect.Lists;
 
+import org.verdictdb.exception.VerdictDBValueException;
+
 public class RedshiftSyntax extends SqlSyntax {
 
   private static final Map<String, String> typeMap;
@@ -36,6 +38,11 @@ public class RedshiftSyntax extends SqlSyntax {
     return true;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -233,4 +240,29 @@ public class RedshiftSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return f;
   }
+
+  @Override
+  public String getTableRowCountCommand(String schema, String table) {
+    return String.format(
+        "select tbl_rows from svv_table_info where \"schema\" = '%s' and \"table\" = '%s'",
+        schema, table);
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("strtol(substring(md5(cast(%s as varchar)), 0, 8), 16)", column);
+  }
+
+  /** Whether a backslash escapes depends on standard_conforming_strings; it is rejected. */
+  @Override
+  public String quoteStringLiteral(String value) throws VerdictDBValueException {
+    return quoteStringLiteralWithoutBackslashes(value);
+  }
+
+  /** The new name cannot be qualified; the table stays in its schema. */
+  @Override
+  public String getRenameTableCommand(String schema, String table, String newTable) {
+    return String.format(
+        "alter table %s.%s rename to %s", quoteName(schema), quoteName(table), quoteName(newTable));
+  }
 }
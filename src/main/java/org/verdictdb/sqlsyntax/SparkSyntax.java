@@ -25,6 +25,11 @@ public class SparkSyntax extends SqlSyntax {
     return true;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -160,4 +165,25 @@ public class SparkSyntax extends SqlSyntax {
         column, hashPrecision, hashPrecision);
     return func;
   }
+
+  @Override
+  public String getTableSampleClause(double samplingPercent) {
+    return String.format("tablesample (%f percent)", samplingPercent);
+  }
+
+  @Override
+  public boolean isTableSampleBeforeAlias() {
+    return true;
+  }
+
+  @Override
+  public String getHllHashFunction(String column) {
+    return String.format("cast(conv(substr(md5(cast(%s as string)), 1, 8), 16, 10) as bigint)", column);
+  }
+
+  /** A backslash starts an escape sequence in the string literals of this dialect. */
+  @Override
+  public String quoteStringLiteral(String value) {
+    return quoteStringLiteralWithBackslashes(value);
+  }
 }
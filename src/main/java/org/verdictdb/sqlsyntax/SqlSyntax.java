@@ -20,6 +20,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import org.verdictdb.exception.VerdictDBValueException;
+
 public abstract class SqlSyntax {
 
   public abstract boolean doesSupportTablePartitioning();
@@ -92,6 +94,46 @@ public abstract class SqlSyntax {
     return quoteString + name + quoteString;
   }
 
+  /**
+   * Writes the value as a string literal. By default, the single quotes in the value are doubled,
+   * which is safe only if a backslash has no special meaning in the string literals of the
+   * dialect; the dialects in which it may have one override this method.
+   *
+   * @param value A string value; null is written as NULL.
+   * @return A quoted string literal
+   * @throws VerdictDBValueException If the value cannot be written safely in this dialect
+   */
+  public String quoteStringLiteral(String value) throws VerdictDBValueException {
+    if (value == null) {
+      return "NULL";
+    }
+    return "'" + value.replace("'", "''") + "'";
+  }
+
+  /** Escapes the backslashes and the single quotes with backslashes (e.g., Hive and Spark). */
+  static String quoteStringLiteralWithBackslashes(String value) {
+    if (value == null) {
+      return "NULL";
+    }
+    return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+  }
+
+  /**
+   * Rejects the backslashes, whose meaning in string literals depends on the settings of the
+   * database (e.g., standard_conforming_strings of PostgreSQL); the single quotes are doubled.
+   */
+  static String quoteStringLiteralWithoutBackslashes(String value)
+      throws VerdictDBValueException {
+    if (value != null && value.indexOf('\\') >= 0) {
+      throw new VerdictDBValueException(
+          "A string value with a backslash cannot be written safely for this database: " + value);
+    }
+    if (value == null) {
+      return "NULL";
+    }
+    return "'" + value.replace("'", "''") + "'";
+  }
+
   public String substituteTypeName(String type) {
     return type;
   }
@@ -127,4 +169,67 @@ public abstract class SqlSyntax {
   public String getPrimaryKey(String schema, String table) {
     return null;
   }
+
+  /**
+   * Whether common table expressions (i.e., "with t as (select ...) select ...") can be used in a
+   * select query and in a "create table ... as select ..." query. If true, the subqueries
+   * consolidated into their parents are written as with clauses instead of inline subqueries.
+   *
+   * @return True if with clauses are supported.
+   */
+  public boolean doesSupportWithClause() {
+    return false;
+  }
+
+  /**
+   * The clause that reads a random subset of the blocks (or pages) of a table instead of the
+   * entire table, e.g., "tablesample system (1.0)". Unlike filtering rows with a random number, the
+   * other blocks are not read at all.
+   *
+   * @param samplingPercent A value between 0 and 100
+   * @return The clause; null if the database does not support sampling tables.
+   */
+  public String getTableSampleClause(double samplingPercent) {
+    return null;
+  }
+
+  /**
+   * Whether the table sample clause appears between a table name and its alias (e.g., Hive) or
+   * after the alias (e.g., Postgres).
+   */
+  public boolean isTableSampleBeforeAlias() {
+    return false;
+  }
+
+  /**
+   * The query that retrieves the (approximate) number of the rows of a table from the catalog of
+   * the database, without scanning the table. The first column of the result is the count.
+   *
+   * @return The query; null if the database does not keep the statistic.
+   */
+  public String getTableRowCountCommand(String schema, String table) {
+    return null;
+  }
+
+  /**
+   * An integer hash of a column that is uniformly distributed in [0, 2^32). Used for the
+   * HyperLogLog sketches of count-distinct aggregates, which need more bits than hashFunction().
+   *
+   * @param column The column name (already quoted)
+   * @return The expression; null if the database does not support the hash.
+   */
+  public String getHllHashFunction(String column) {
+    return null;
+  }
+
+  /**
+   * The statement that renames a table within its schema. By default, the new name is qualified
+   * with the schema because an unqualified one moves the table to the default schema in some
+   * databases (e.g., Hive); the databases that reject a qualified new name override this method.
+   */
+  public String getRenameTableCommand(String schema, String table, String newTable) {
+    return String.format(
+        "alter table %s.%s rename to %s.%s",
+        quoteName(schema), quoteName(table), quoteName(schema), quoteName(newTable));
+  }
 }
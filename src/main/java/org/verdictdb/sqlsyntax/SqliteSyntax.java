@@ -26,6 +26,11 @@ public class SqliteSyntax extends SqlSyntax {
     return false;
   }
 
+  @Override
+  public boolean doesSupportWithClause() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {
     // TODO Auto-generated method stub
@@ -127,4 +132,11 @@ public class SqliteSyntax extends SqlSyntax {
   public String hashFunction(String column) {
     return null;
   }
+
+  /** The new name cannot be qualified; the table stays in its schema. */
+  @Override
+  public String getRenameTableCommand(String schema, String table, String newTable) {
+    return String.format(
+        "alter table %s.%s rename to %s", quoteName(schema), quoteName(table), quoteName(newTable));
+  }
 }
@@ -34,7 +34,12 @@ public class CreateSchemaToSql {
     if (query.isIfNotExists()) {
       sql.append("if not exists ");
     }
-    sql.append(query.getSchemaName());
+    sql.append(quoteName(query.getSchemaName()));
     return sql.toString();
   }
+
+  String quoteName(String name) {
+    String quoteString = syntax.getQuoteString();
+    return quoteString + name + quoteString;
+  }
 }
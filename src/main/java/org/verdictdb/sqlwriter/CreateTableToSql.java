@@ -284,7 +284,7 @@ public class CreateTableToSql {
         sql.append("SELECT * FROM (");
         sql.append(selectSql);
         sql.append(") tmp ");
-        sql.append(String.format("WHERE %s < %d", q.getBlockColumnName(), actualBlockCount));
+        sql.append(String.format("WHERE %s < %d", quoteName(q.getBlockColumnName()), actualBlockCount));
       } else {
         sql.append(selectSql);
       }
@@ -49,8 +49,14 @@ public class InsertQueryToSql {
 
     SelectQueryToSql selectWriter = new SelectQueryToSql(syntax);
     List<String> selectItemStrList = new ArrayList<>();
-    for (SelectItem item : query.getSelectQuery().getSelectList()) {
-      selectItemStrList.add(selectWriter.selectItemToSqlPart(item));
+    if (query.getColumnNames() != null) {
+      for (String column : query.getColumnNames()) {
+        selectItemStrList.add(quoteName(column));
+      }
+    } else {
+      for (SelectItem item : query.getSelectQuery().getSelectList()) {
+        selectItemStrList.add(selectWriter.selectItemToSqlPart(item));
+      }
     }
 
     if (!(selectItemStrList.size() == 1 && selectItemStrList.get(0).equals("*"))) {
@@ -35,6 +35,7 @@ import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.SetOperationRelation;
 import org.verdictdb.core.sqlobject.SubqueryColumn;
 import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.core.sqlobject.WithClause;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBTypeException;
 import org.verdictdb.exception.VerdictDBValueException;
@@ -318,6 +319,8 @@ public class SelectQueryToSql {
         return syntax.randFunction();
       } else if (columnOp.getOpType().equals("hash")) {
         return syntax.hashFunction(withParentheses(columnOp.getOperand()));
+      } else if (columnOp.getOpType().equals("hllhash")) {
+        return syntax.getHllHashFunction(withParentheses(columnOp.getOperand()));
       } else if (columnOp.getOpType().equals("cast")) {
         // MySQL cast as int should be replaced by cast as unsigned
         if (syntax instanceof MysqlSyntax
@@ -410,6 +413,26 @@ public class SelectQueryToSql {
   String selectQueryToSql(SelectQuery sel) throws VerdictDBException {
     StringBuilder sql = new StringBuilder();
 
+    // with
+    List<WithClause> withList = sel.getWithList();
+    if (withList.size() > 0) {
+      if (!syntax.doesSupportWithClause()) {
+        throw new VerdictDBValueException("The with clause is not supported by this syntax.");
+      }
+      sql.append("with");
+      boolean isFirstWith = true;
+      for (WithClause w : withList) {
+        if (isFirstWith) {
+          isFirstWith = false;
+        } else {
+          sql.append(",");
+        }
+        sql.append(" " + quoteName(w.getTableName()));
+        sql.append(" as (" + selectQueryToSql(w.getSelectQuery()) + ")");
+      }
+      sql.append(" ");
+    }
+
     // select
     sql.append("select");
     List<SelectItem> columns = sel.getSelectList();
@@ -500,14 +523,36 @@ public class SelectQueryToSql {
 
     if (relation instanceof BaseTable) {
       BaseTable base = (BaseTable) relation;
+      String tableName;
       if (base.getSchemaName().isEmpty()) {
-        sql.append(quoteName(base.getTableName()));
+        tableName = quoteName(base.getTableName());
       } else {
-        sql.append(quoteName(base.getSchemaName()) + "." + quoteName(base.getTableName()));
+        tableName = quoteName(base.getSchemaName()) + "." + quoteName(base.getTableName());
+      }
+
+      Double samplingPercent = base.getSamplingPercent();
+      String sampleClause =
+          (samplingPercent == null) ? null : syntax.getTableSampleClause(samplingPercent);
+      if (samplingPercent != null && sampleClause == null) {
+        // the rows are filtered randomly if the database does not support sampling tables.
+        sql.append(
+            String.format(
+                "(select * from %s where %s < %s)",
+                tableName, syntax.randFunction(), samplingPercent / 100.0));
+        sql.append(" as " + base.getAliasName().or(base.getTableName()));
+        return sql.toString();
+      }
+
+      sql.append(tableName);
+      if (sampleClause != null && syntax.isTableSampleBeforeAlias()) {
+        sql.append(" " + sampleClause);
       }
       if (base.getAliasName().isPresent()) {
         sql.append(" as " + base.getAliasName().get());
       }
+      if (sampleClause != null && !syntax.isTableSampleBeforeAlias()) {
+        sql.append(" " + sampleClause);
+      }
       return sql.toString();
     }
 
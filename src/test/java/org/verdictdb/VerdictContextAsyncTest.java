@@ -0,0 +1,207 @@
+package org.verdictdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class VerdictContextAsyncTest {
+
+  static Connection h2conn;
+
+  static VerdictContext vc;
+
+  static final int ROW_COUNT = 1000;
+
+  // the sum of i % 7 for i < 1000
+  static final double EXACT_SUM = 142 * 21 + 15;
+
+  static final String SCRAMBLE = "\"asyncschema\".\"t_scrambled\"";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:verdictasynctest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute("CREATE SCHEMA \"asyncschema\"");
+    stmt.execute("CREATE TABLE \"asyncschema\".\"t\" (\"a\" int, \"b\" double)");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      stmt.execute(String.format("INSERT INTO \"asyncschema\".\"t\" VALUES (%d, %d.0)", i, i % 7));
+    }
+    stmt.close();
+
+    vc = new VerdictContext(new JdbcConnection(h2conn, new H2Syntax()));
+    vc.sql(
+        "create scramble \"asyncschema\".\"t_scrambled\" from \"asyncschema\".\"t\" "
+            + "blocksize 100");
+  }
+
+  @AfterClass
+  public static void tearDown() throws SQLException {
+    vc.close();
+    h2conn.close();
+  }
+
+  /** Waits until the execution contexts of the finished queries are removed. */
+  private void assertExecutionContextsRemoved() throws InterruptedException {
+    for (int i = 0; i < 100 && vc.getExecutionContextCount() > 0; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(0, vc.getExecutionContextCount());
+  }
+
+  @Test
+  public void testSqlAsync() throws Exception {
+    VerdictSingleResult result =
+        vc.sqlAsync("select count(*) from " + SCRAMBLE).get(60, TimeUnit.SECONDS);
+    result.next();
+    assertTrue(result.getDouble(0) > 0);
+    assertExecutionContextsRemoved();
+  }
+
+  @Test
+  public void testSqlAsyncNonSelectQuery() throws Exception {
+    VerdictSingleResult result = vc.sqlAsync("show scrambles").get(60, TimeUnit.SECONDS);
+    assertEquals(1, result.getRowCount());
+    assertExecutionContextsRemoved();
+  }
+
+  @Test
+  public void testSqlAsyncError() throws Exception {
+    try {
+      vc.sqlAsync("select count(*) from \"asyncschema\".\"missing\"").get(60, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      // expected
+    }
+    assertExecutionContextsRemoved();
+  }
+
+  /** Requests answers only when told to; records the signals it receives. */
+  static class RecordingSubscriber implements VerdictResultSubscriber {
+
+    volatile VerdictResultSubscription subscription;
+
+    final List<VerdictSingleResult> answers = new ArrayList<>();
+
+    volatile Throwable error = null;
+
+    volatile boolean completed = false;
+
+    final CountDownLatch firstAnswer = new CountDownLatch(1);
+
+    final CountDownLatch terminated = new CountDownLatch(1);
+
+    @Override
+    public void onSubscribe(VerdictResultSubscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public synchronized void onNext(VerdictSingleResult result) {
+      answers.add(result);
+      firstAnswer.countDown();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+      terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      terminated.countDown();
+    }
+
+    synchronized int getAnswerCount() {
+      return answers.size();
+    }
+  }
+
+  @Test
+  public void testPublisherBackpressure() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    vc.streamsqlAsync("select sum(\"b\") from " + SCRAMBLE).subscribe(subscriber);
+
+    // nothing is sent before requested
+    assertFalse(subscriber.firstAnswer.await(500, TimeUnit.MILLISECONDS));
+    assertEquals(0, subscriber.getAnswerCount());
+
+    // only one answer is sent however many answers are produced meanwhile
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.firstAnswer.await(60, TimeUnit.SECONDS));
+    subscriber.terminated.await(1, TimeUnit.SECONDS);
+    assertEquals(1, subscriber.getAnswerCount());
+
+    // the last answer, which is computed from every block, is sent before completion
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertTrue(subscriber.terminated.await(60, TimeUnit.SECONDS));
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    VerdictSingleResult last = subscriber.answers.get(subscriber.getAnswerCount() - 1);
+    last.next();
+    assertEquals(EXACT_SUM, last.getDouble(0), 1e-6);
+    assertExecutionContextsRemoved();
+  }
+
+  @Test
+  public void testPublisherCancel() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    vc.streamsqlAsync("select sum(\"b\") from " + SCRAMBLE).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.firstAnswer.await(60, TimeUnit.SECONDS));
+
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertFalse(subscriber.terminated.await(500, TimeUnit.MILLISECONDS));
+    assertEquals(1, subscriber.getAnswerCount());
+    assertExecutionContextsRemoved();
+  }
+
+  @Test
+  public void testPublisherError() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    vc.streamsqlAsync("select sum(\"b\") from \"asyncschema\".\"missing\"")
+        .subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.terminated.await(60, TimeUnit.SECONDS));
+    assertFalse(subscriber.completed);
+    assertTrue(subscriber.error instanceof VerdictDBException);
+    assertEquals(0, subscriber.getAnswerCount());
+    assertExecutionContextsRemoved();
+  }
+
+  @Test
+  public void testPublisherAcceptsOneSubscriber() throws Exception {
+    VerdictResultPublisher publisher = vc.streamsqlAsync("select count(*) from " + SCRAMBLE);
+    RecordingSubscriber first = new RecordingSubscriber();
+    RecordingSubscriber second = new RecordingSubscriber();
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+    assertTrue(second.error instanceof IllegalStateException);
+
+    first.subscription.request(Long.MAX_VALUE);
+    assertTrue(first.terminated.await(60, TimeUnit.SECONDS));
+    assertTrue(first.completed);
+    assertExecutionContextsRemoved();
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NormalDistributionTest {
+
+  @Test
+  public void testInverseCdf() {
+    assertEquals(0.0, NormalDistribution.inverseCdf(0.5), 1e-9);
+    assertEquals(1.644853627, NormalDistribution.inverseCdf(0.95), 1e-6);
+    assertEquals(-2.326347874, NormalDistribution.inverseCdf(0.01), 1e-6);
+    assertEquals(3.090232306, NormalDistribution.inverseCdf(0.999), 1e-6);
+  }
+
+  @Test
+  public void testZScore() {
+    assertEquals(1.959963985, NormalDistribution.zScore(0.95), 1e-6);
+    assertEquals(2.575829304, NormalDistribution.zScore(0.99), 1e-6);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConfidenceLevel() {
+    NormalDistribution.zScore(1.0);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StudentTDistributionTest {
+
+  @Test
+  public void testTScore() {
+    assertEquals(12.70620474, StudentTDistribution.tScore(0.95, 1), 1e-6);
+    assertEquals(4.302652730, StudentTDistribution.tScore(0.95, 2), 1e-6);
+    assertEquals(3.182446305, StudentTDistribution.tScore(0.95, 3), 1e-4);
+    assertEquals(2.228138852, StudentTDistribution.tScore(0.95, 10), 1e-4);
+    assertEquals(3.169272673, StudentTDistribution.tScore(0.99, 10), 1e-4);
+  }
+
+  @Test
+  public void testApproachesZScore() {
+    assertEquals(
+        NormalDistribution.zScore(0.95), StudentTDistribution.tScore(0.95, 100000), 1e-4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDegreesOfFreedom() {
+    StudentTDistribution.tScore(0.95, 0);
+  }
+}
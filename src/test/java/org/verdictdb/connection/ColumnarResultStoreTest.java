@@ -0,0 +1,121 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.connection.ColumnarResultStore.StorageType;
+
+public class ColumnarResultStoreTest {
+
+  @Test
+  public void testValuesKeepTheirClasses() {
+    ColumnarResultStore store = new ColumnarResultStore(6);
+    store.addRow(new Object[] {1, 2L, 1.5, 2.5f, "a", new BigDecimal("1.25")});
+    store.addRow(new Object[] {null, null, null, null, null, null});
+    store.addRow(new Object[] {3, 4L, 3.5, 4.5f, "b", new BigDecimal("2.50")});
+
+    assertEquals(3, store.getRowCount());
+    assertEquals(StorageType.LONG, store.getStorageType(0));
+    assertEquals(StorageType.LONG, store.getStorageType(1));
+    assertEquals(StorageType.DOUBLE, store.getStorageType(2));
+    assertEquals(StorageType.DOUBLE, store.getStorageType(3));
+    assertEquals(StorageType.DICTIONARY, store.getStorageType(4));
+    assertEquals(StorageType.OBJECT, store.getStorageType(5));
+
+    assertEquals(Integer.valueOf(3), store.getValue(2, 0));
+    assertEquals(Long.valueOf(4L), store.getValue(2, 1));
+    assertEquals(Double.valueOf(3.5), store.getValue(2, 2));
+    assertEquals(Float.valueOf(4.5f), store.getValue(2, 3));
+    assertEquals("b", store.getValue(2, 4));
+    assertEquals(new BigDecimal("2.50"), store.getValue(2, 5));
+
+    for (int i = 0; i < 6; i++) {
+      assertTrue(store.isNull(1, i));
+      assertNull(store.getValue(1, i));
+      assertFalse(store.isNull(0, i));
+    }
+
+    assertEquals(1L, store.getLong(0, 0));
+    assertEquals(1.0, store.getDouble(0, 0), 1e-9);
+    assertEquals(1L, store.getLong(0, 2));
+    assertEquals(1.5, store.getDouble(0, 2), 1e-9);
+    assertEquals(0L, store.getLong(1, 0));
+  }
+
+  @Test
+  public void testLeadingNulls() {
+    ColumnarResultStore store = new ColumnarResultStore(1);
+    for (int i = 0; i < 100; i++) {
+      store.addRow(new Object[] {null});
+    }
+    assertEquals(StorageType.UNDECIDED, store.getStorageType(0));
+    store.addRow(new Object[] {7L});
+    assertEquals(StorageType.LONG, store.getStorageType(0));
+    assertNull(store.getValue(99, 0));
+    assertEquals(7L, store.getValue(100, 0));
+  }
+
+  @Test
+  public void testMixedClassesFallBackToObjects() {
+    ColumnarResultStore store = new ColumnarResultStore(1);
+    store.addRow(new Object[] {1});
+    store.addRow(new Object[] {null});
+    store.addRow(new Object[] {2L});
+    store.addRow(new Object[] {"c"});
+    assertEquals(StorageType.OBJECT, store.getStorageType(0));
+    assertEquals(Integer.valueOf(1), store.getValue(0, 0));
+    assertNull(store.getValue(1, 0));
+    assertEquals(Long.valueOf(2L), store.getValue(2, 0));
+    assertEquals("c", store.getValue(3, 0));
+    assertFalse(store.isNumericColumn(0));
+  }
+
+  @Test
+  public void testHighCardinalityStringsFallBackToObjects() {
+    ColumnarResultStore store = new ColumnarResultStore(1);
+    for (int i = 0; i < 10000; i++) {
+      store.addRow(new Object[] {"value" + i});
+    }
+    assertEquals(StorageType.OBJECT, store.getStorageType(0));
+    for (int i = 0; i < 10000; i++) {
+      assertEquals("value" + i, store.getValue(i, 0));
+    }
+
+    ColumnarResultStore lowCardinality = new ColumnarResultStore(1);
+    for (int i = 0; i < 10000; i++) {
+      lowCardinality.addRow(new Object[] {"group" + (i % 10)});
+    }
+    assertEquals(StorageType.DICTIONARY, lowCardinality.getStorageType(0));
+    assertEquals("group3", lowCardinality.getValue(9993, 0));
+  }
+
+  @Test
+  public void testAsRows() {
+    ColumnarResultStore store = new ColumnarResultStore(3);
+    store.addRow(new Object[] {1, "a", 0.5});
+    store.addRow(new Object[] {2, null, 1.5});
+    List<List<Object>> rows = store.asRows(2);
+    assertEquals(2, rows.size());
+    assertEquals(Arrays.<Object>asList(1, "a"), rows.get(0));
+    assertEquals(Arrays.<Object>asList(2, null), rows.get(1));
+
+    // the rows are not copied
+    store.addRow(new Object[] {3, "c", 2.5});
+    assertEquals(3, rows.size());
+    assertEquals(Arrays.<Object>asList(3, "c"), rows.get(2));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAsRowsIsReadOnly() {
+    ColumnarResultStore store = new ColumnarResultStore(1);
+    store.addRow(new Object[] {1});
+    store.asRows(1).get(0).set(0, 2);
+  }
+}
@@ -0,0 +1,168 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+
+import org.junit.Test;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+public class JdbcConnectionPoolTest {
+
+  static final String URL = "jdbc:h2:mem:testconnectionpool;DB_CLOSE_DELAY=-1";
+
+  private JdbcConnectionPool newPool(int min, int max, long idleTimeout, long waitTimeout)
+      throws VerdictDBDbmsException {
+    return new JdbcConnectionPool(URL, null, min, max, idleTimeout, waitTimeout, "select 1");
+  }
+
+  @Test
+  public void testLazyGrowth() throws VerdictDBDbmsException {
+    JdbcConnectionPool pool = newPool(1, 3, 0, 1000);
+    assertEquals(1, pool.getTotalCount());
+
+    JdbcConnection c1 = pool.checkout();
+    JdbcConnection c2 = pool.checkout();
+    assertNotSame(c1, c2);
+    assertEquals(2, pool.getTotalCount());
+    assertEquals(2, pool.getBusyCount());
+    assertEquals(0, pool.getIdleCount());
+
+    pool.checkin(c2);
+    assertEquals(1, pool.getBusyCount());
+    assertEquals(1, pool.getIdleCount());
+
+    // the most recently used connection is reused
+    JdbcConnection c3 = pool.checkout();
+    assertSame(c2, c3);
+    assertEquals(2, pool.getTotalCount());
+
+    pool.checkin(c1);
+    pool.checkin(c3);
+    pool.close();
+  }
+
+  @Test
+  public void testWaitTimeout() throws VerdictDBDbmsException {
+    JdbcConnectionPool pool = newPool(0, 1, 0, 100);
+    JdbcConnection c = pool.checkout();
+    long start = System.currentTimeMillis();
+    try {
+      pool.checkout();
+      fail();
+    } catch (VerdictDBDbmsException e) {
+      assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+    pool.checkin(c);
+    assertSame(c, pool.checkout());
+    pool.close();
+  }
+
+  @Test
+  public void testWaitForCheckin() throws Exception {
+    final JdbcConnectionPool pool = newPool(0, 1, 0, 10000);
+    final JdbcConnection c = pool.checkout();
+    Thread t =
+        new Thread() {
+          @Override
+          public void run() {
+            try {
+              Thread.sleep(200);
+            } catch (InterruptedException e) {
+            }
+            pool.checkin(c);
+          }
+        };
+    t.start();
+    assertSame(c, pool.checkout());
+    t.join();
+    pool.close();
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception {
+    JdbcConnectionPool pool = newPool(1, 3, 100, 1000);
+    JdbcConnection c1 = pool.checkout();
+    JdbcConnection c2 = pool.checkout();
+    JdbcConnection c3 = pool.checkout();
+    pool.checkin(c1);
+    pool.checkin(c2);
+    pool.checkin(c3);
+    assertEquals(3, pool.getTotalCount());
+
+    Thread.sleep(200);
+    JdbcConnection c = pool.checkout();
+    pool.checkin(c);
+
+    // shrinks to the minimum size
+    assertEquals(1, pool.getTotalCount());
+    pool.close();
+  }
+
+  @Test
+  public void testInvalidConnectionIsReplaced() throws Exception {
+    JdbcConnectionPool pool = newPool(1, 1, 0, 1000);
+    JdbcConnection c = pool.checkout();
+    c.getConnection().close();
+    pool.checkin(c);
+
+    pool.revalidateIdleConnections();
+    JdbcConnection replaced = pool.checkout();
+    assertNotSame(c, replaced);
+    assertTrue(replaced.getConnection().isValid(1));
+    pool.checkin(replaced);
+    pool.close();
+  }
+
+  @Test
+  public void testConcurrentConnectionHoldsCheckedOutConnection()
+      throws VerdictDBDbmsException, SQLException {
+    ConcurrentJdbcConnection conn =
+        new ConcurrentJdbcConnection(URL, null, null, new VerdictOption());
+    DbmsConnection leased = conn.checkout();
+    assertNotSame(conn, leased);
+    assertEquals(1, conn.getPool().getBusyCount());
+
+    // the calls from the same thread use the checked-out connection.
+    conn.execute("select 1");
+    assertEquals(1, conn.getPool().getBusyCount());
+    assertEquals(1, conn.getPool().getTotalCount());
+
+    conn.checkin(leased);
+    assertEquals(0, conn.getPool().getBusyCount());
+
+    // a streamed result holds its connection until it is read to its end.
+    DbmsQueryResult rs = conn.executeStreaming("select 1", 10);
+    assertEquals(1, conn.getPool().getBusyCount());
+    while (rs.next()) {}
+    assertEquals(0, conn.getPool().getBusyCount());
+    conn.close();
+  }
+
+  @Test
+  public void testMetadataReadsBorrowConnection() throws VerdictDBDbmsException {
+    ConcurrentJdbcConnection conn =
+        new ConcurrentJdbcConnection(URL, null, null, new VerdictOption());
+    assertTrue(conn.getMetadata() != null);
+    assertTrue(conn.getSyntax() != null);
+    conn.getDefaultSchema();
+    assertEquals(0, conn.getPool().getBusyCount());
+
+    // the calls from a thread holding a connection use that connection.
+    DbmsConnection leased = conn.checkout();
+    int totalCount = conn.getPool().getTotalCount();
+    conn.getMetadata();
+    conn.getDefaultSchema();
+    assertEquals(1, conn.getPool().getBusyCount());
+    assertEquals(totalCount, conn.getPool().getTotalCount());
+
+    conn.checkin(leased);
+    assertEquals(0, conn.getPool().getBusyCount());
+    conn.close();
+  }
+}
@@ -1,6 +1,7 @@
 package org.verdictdb.connection;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
@@ -66,4 +67,25 @@ public class JdbcQueryResultTest {
     assertTrue("alias1".equalsIgnoreCase(rs.getColumnName(0)));
   }
 
+  @Test
+  public void testSnapshotHasIndependentCursor() throws VerdictDBDbmsException {
+    JdbcQueryResult rs = (JdbcQueryResult) jdbc.executeQuery("SELECT * FROM PERSON ORDER BY id");
+    assertTrue(rs.next());
+    assertTrue(rs.next());
+
+    // the snapshot starts before the first row
+    JdbcQueryResult snapshot = rs.snapshot();
+    assertEquals(3, snapshot.getRowCount());
+    assertEquals(rs.getColumnName(1), snapshot.getColumnName(1));
+    assertTrue(snapshot.next());
+    assertEquals(1, snapshot.getInt(0));
+
+    // the original cursor has not moved
+    assertEquals(2, rs.getInt(0));
+    while (snapshot.next()) {}
+    assertTrue(rs.next());
+    assertEquals("Asha", rs.getString(1));
+    assertFalse(rs.next());
+  }
+
 }
@@ -0,0 +1,171 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+public class MetaDataCacheTest {
+
+  /** Returns a fixed set of metadata and counts the number of retrievals. */
+  static class CountingMetaDataProvider implements MetaDataProvider {
+
+    AtomicInteger tableRetrievals = new AtomicInteger(0);
+
+    AtomicInteger columnRetrievals = new AtomicInteger(0);
+
+    List<String> tables = new ArrayList<>(Arrays.asList("t1", "t2"));
+
+    @Override
+    public List<String> getSchemas() {
+      return Arrays.asList("s1", "s2");
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+      tableRetrievals.incrementAndGet();
+      if (schema.equals("empty")) {
+        return new ArrayList<>();
+      }
+      return new ArrayList<>(tables);
+    }
+
+    @Override
+    public List<Pair<String, String>> getColumns(String schema, String table) {
+      columnRetrievals.incrementAndGet();
+      List<Pair<String, String>> columns = new ArrayList<>();
+      columns.add(new ImmutablePair<>(table + "_c1", "int"));
+      return columns;
+    }
+
+    @Override
+    public List<String> getPartitionColumns(String schema, String table) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public String getDefaultSchema() {
+      return "s1";
+    }
+
+    @Override
+    public void setDefaultSchema(String schema) {}
+
+    @Override
+    public List<String> getPrimaryKey(String schema, String table) {
+      return Collections.emptyList();
+    }
+  }
+
+  @Test
+  public void testHitsAndMisses() throws VerdictDBDbmsException {
+    CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    MetaDataCache cache = new MetaDataCache(provider, 0, 100, false);
+
+    assertEquals(Arrays.asList("t1", "t2"), cache.getTables("s1"));
+    assertEquals(Arrays.asList("t1", "t2"), cache.getTables("s1"));
+    assertEquals(1, provider.tableRetrievals.get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    // the returned lists are copies
+    cache.getTables("s1").clear();
+    assertEquals(2, cache.getTables("s1").size());
+  }
+
+  @Test
+  public void testEmptyListsAreNotKept() throws VerdictDBDbmsException {
+    CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    MetaDataCache cache = new MetaDataCache(provider, 0, 100, false);
+    cache.getTables("empty");
+    cache.getTables("empty");
+    assertEquals(2, provider.tableRetrievals.get());
+  }
+
+  @Test
+  public void testTargetedInvalidation() throws VerdictDBDbmsException {
+    CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    MetaDataCache cache = new MetaDataCache(provider, 0, 100, false);
+    cache.getColumns("s1", "t1");
+    cache.getColumns("s1", "t2");
+    cache.getTables("s1");
+
+    provider.tables.add("t3");
+    cache.invalidate("s1", "t1");
+    assertEquals(3, cache.getTables("s1").size());
+    cache.getColumns("s1", "t1");
+    cache.getColumns("s1", "t2");
+    assertEquals(3, provider.columnRetrievals.get());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMaximumSize() throws VerdictDBDbmsException {
+    CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    MetaDataCache cache = new MetaDataCache(provider, 0, 10, false);
+    for (int i = 0; i < 100; i++) {
+      cache.getColumns("s1", "t" + i);
+    }
+    assertTrue(cache.size() <= 10);
+  }
+
+  @Test
+  public void testExpiration() throws VerdictDBDbmsException, InterruptedException {
+    CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    MetaDataCache cache = new MetaDataCache(provider, 1, 100, false);
+    cache.getTables("s1");
+    cache.getTables("s1");
+    assertEquals(1, provider.tableRetrievals.get());
+    Thread.sleep(1100);
+    cache.getTables("s1");
+    assertEquals(2, provider.tableRetrievals.get());
+  }
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    final CountingMetaDataProvider provider = new CountingMetaDataProvider();
+    final MetaDataCache cache = new MetaDataCache(provider, 0, 100, false);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      final int tableNumber = i % 4;
+      futures.add(
+          executor.submit(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    List<Pair<String, String>> columns =
+                        cache.getColumns("s1", "t" + tableNumber);
+                    assertEquals("t" + tableNumber + "_c1", columns.get(0).getLeft());
+                  } catch (VerdictDBDbmsException e) {
+                    throw new RuntimeException(e);
+                  }
+                }
+              }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    // each entry is loaded only once
+    assertEquals(4, provider.columnRetrievals.get());
+  }
+}
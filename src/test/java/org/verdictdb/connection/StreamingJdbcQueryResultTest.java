@@ -0,0 +1,155 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.coordinator.QueryContext;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class StreamingJdbcQueryResultTest {
+
+  static Connection conn;
+
+  static JdbcConnection jdbc;
+
+  static final int ROW_COUNT = 1000;
+
+  @BeforeClass
+  public static void setupH2Database() throws VerdictDBDbmsException, SQLException {
+    conn =
+        DriverManager.getConnection("jdbc:h2:mem:teststreamingresult;DB_CLOSE_DELAY=-1", "", "");
+    jdbc = new JdbcConnection(conn, new H2Syntax());
+    jdbc.execute("CREATE TABLE NUMBERS(id int, name varchar(255))");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      jdbc.execute(String.format("INSERT INTO NUMBERS(id, name) VALUES(%d, 'name%d')", i, i));
+    }
+  }
+
+  @Test
+  public void testStreamedValues() throws VerdictDBDbmsException {
+    DbmsQueryResult rs = jdbc.executeStreaming("SELECT id, name FROM NUMBERS ORDER BY id", 10);
+    assertTrue(rs instanceof StreamingJdbcQueryResult);
+    assertEquals(2, rs.getColumnCount());
+    assertTrue("id".equalsIgnoreCase(rs.getColumnName(0)));
+
+    // rewinding a result that has not been read is allowed
+    rs.rewind();
+
+    int index = 0;
+    while (rs.next()) {
+      assertEquals(index, rs.getInt(0));
+      assertEquals("name" + index, rs.getString(1));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertTrue(((StreamingJdbcQueryResult) rs).isMaterialized());
+  }
+
+  @Test
+  public void testMaterializationBeforeReading() throws VerdictDBDbmsException {
+    StreamingJdbcQueryResult rs =
+        (StreamingJdbcQueryResult)
+            jdbc.executeStreaming("SELECT id FROM NUMBERS ORDER BY id", 10);
+    assertFalse(rs.isMaterialized());
+    assertEquals(ROW_COUNT, rs.getRowCount());
+    assertTrue(rs.isMaterialized());
+
+    int index = 0;
+    while (rs.next()) {
+      assertEquals(index, rs.getInt(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+
+    rs.rewind();
+    assertTrue(rs.next());
+    assertEquals(0, rs.getInt(0));
+  }
+
+  @Test
+  public void testMaterializationAfterPartialRead() throws VerdictDBDbmsException {
+    StreamingJdbcQueryResult rs =
+        (StreamingJdbcQueryResult)
+            jdbc.executeStreaming("SELECT id FROM NUMBERS ORDER BY id", 10);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rs.next());
+    }
+    assertEquals(4, rs.getInt(0));
+
+    // the current row and the remaining rows are kept
+    assertEquals(ROW_COUNT, rs.getRowCount());
+    assertEquals(4, rs.getInt(0));
+    assertTrue(rs.next());
+    assertEquals(5, rs.getInt(0));
+  }
+
+  @Test
+  public void testRewindAfterReadingCurrentRow() throws VerdictDBDbmsException {
+    DbmsQueryResult rs = jdbc.executeStreaming("SELECT id FROM NUMBERS ORDER BY id", 10);
+    assertTrue(rs.next());
+
+    // no row but the current one has been consumed; thus, every row is kept
+    rs.rewind();
+    assertEquals(ROW_COUNT, rs.getRowCount());
+    assertTrue(rs.next());
+    assertEquals(0, rs.getInt(0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRewindAfterReading() throws VerdictDBDbmsException {
+    DbmsQueryResult rs = jdbc.executeStreaming("SELECT id FROM NUMBERS", 10);
+    rs.next();
+    rs.next();
+    rs.rewind();
+  }
+
+  @Test
+  public void testClose() throws VerdictDBDbmsException {
+    StreamingJdbcQueryResult rs =
+        (StreamingJdbcQueryResult) jdbc.executeStreaming("SELECT id FROM NUMBERS", 10);
+    assertTrue(rs.next());
+    rs.close();
+    assertTrue(rs.isMaterialized());
+  }
+
+  @Test
+  public void testAbortCancelsStreamingResult() throws VerdictDBDbmsException, SQLException {
+    Connection c = DriverManager.getConnection("jdbc:h2:mem:teststreamingresult", "", "");
+    JdbcConnection abortedJdbc = new JdbcConnection(c, new H2Syntax());
+    StreamingJdbcQueryResult rs =
+        (StreamingJdbcQueryResult) abortedJdbc.executeStreaming("SELECT id FROM NUMBERS", 10);
+    assertTrue(rs.next());
+    abortedJdbc.abort();
+    assertTrue(rs.isMaterialized());
+    c.close();
+  }
+
+  @Test
+  public void testTerminatedContextClosesStreamingResult() throws VerdictDBDbmsException {
+    QueryContext context = new QueryContext("streamingtest", 0L);
+    StreamingJdbcQueryResult closed =
+        (StreamingJdbcQueryResult) jdbc.executeStreaming("SELECT id FROM NUMBERS", 10);
+    StreamingJdbcQueryResult open =
+        (StreamingJdbcQueryResult) jdbc.executeStreaming("SELECT id FROM NUMBERS", 10);
+    context.addStreamingResult(closed);
+    context.addStreamingResult(open);
+    closed.close();
+    assertTrue(open.next());
+
+    context.closeStreamingResults();
+    assertTrue(open.isMaterialized());
+  }
+
+  @Test
+  public void testNoResult() throws VerdictDBDbmsException {
+    assertEquals(null, jdbc.executeStreaming("CREATE TABLE EMPTYSTREAMTEST(id int)", 10));
+  }
+}
@@ -0,0 +1,68 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictSingleResult;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+public class AnswerConvergenceCheckerTest {
+
+  static Connection h2conn;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:convergencetest;DB_CLOSE_DELAY=-1");
+  }
+
+  @AfterClass
+  public static void closeH2Connection() throws SQLException {
+    h2conn.close();
+  }
+
+  private SelectQuery countDistinctQuery() {
+    return SelectQuery.create(
+        Arrays.<SelectItem>asList(
+            new AliasedColumn(
+                new ColumnOp("countdistinct", new BaseColumn("t", "x")), "c")),
+        new BaseTable("s", "t", "t"));
+  }
+
+  private JdbcQueryResult createAnswer() throws SQLException {
+    return new JdbcQueryResult(h2conn.createStatement().executeQuery("SELECT 100"));
+  }
+
+  @Test
+  public void testSameAnswersConverge() throws SQLException {
+    AnswerConvergenceChecker checker =
+        new AnswerConvergenceChecker(countDistinctQuery(), null, null);
+    assertFalse(checker.isFinalAnswer(new VerdictSingleResultFromDbmsQueryResult(createAnswer())));
+    assertTrue(checker.isFinalAnswer(new VerdictSingleResultFromDbmsQueryResult(createAnswer())));
+  }
+
+  @Test
+  public void testPartialSketchEstimatesNeverConverge() throws SQLException {
+    AnswerConvergenceChecker checker =
+        new AnswerConvergenceChecker(countDistinctQuery(), null, null);
+    for (int i = 0; i < 5; i++) {
+      VerdictSingleResult rs =
+          new VerdictSingleResultFromDbmsQueryResult(createAnswer().withPartialSketchEstimates());
+      assertTrue(rs.hasPartialSketchEstimates());
+      assertFalse(checker.isFinalAnswer(rs));
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.CreateScrambleQuery;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.metastore.ScrambleMetaStore;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.MysqlSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class BulkScramblingCoordinatorTest {
+
+  static Connection h2conn;
+
+  static final String ORIGINAL_SCHEMA = "bulkoriginal";
+
+  static final String SCRAMBLE_SCHEMA = "bulkscramble";
+
+  static final String META_SCHEMA = "bulkmeta";
+
+  // 3 years x 3 regions (one of which is null)
+  static final int ROW_COUNT = 360;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:bulkscramblingtest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA \"%s\"", ORIGINAL_SCHEMA));
+    stmt.execute(String.format("CREATE SCHEMA \"%s\"", SCRAMBLE_SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"t\" (\"a\" int, \"year\" int, \"region\" varchar(10))",
+            ORIGINAL_SCHEMA));
+    for (int i = 0; i < ROW_COUNT; i++) {
+      String region = (i % 3 == 0) ? "NULL" : ((i % 3 == 1) ? "'east'" : "'O''Hare'");
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"t\" VALUES (%d, %d, %s)",
+              ORIGINAL_SCHEMA, i, 2017 + (i / 3) % 3, region));
+    }
+    stmt.close();
+  }
+
+  @AfterClass
+  public static void closeH2Connection() throws SQLException {
+    h2conn.close();
+  }
+
+  /** Fails the first statement that contains all the given strings. */
+  static class FailingConnection extends JdbcConnection {
+
+    volatile String[] failOn = null;
+
+    FailingConnection() {
+      super(h2conn, new H2Syntax());
+    }
+
+    @Override
+    public DbmsQueryResult execute(String sql) throws VerdictDBDbmsException {
+      String[] toFail = failOn;
+      if (toFail != null) {
+        boolean matches = true;
+        for (String s : toFail) {
+          matches &= sql.toLowerCase().contains(s);
+        }
+        if (matches) {
+          failOn = null;
+          throw new VerdictDBDbmsException("Injected failure: " + sql);
+        }
+      }
+      return super.execute(sql);
+    }
+  }
+
+  private CreateScrambleQuery createQuery(UnnamedColumn where) {
+    return new CreateScrambleQuery(
+        "newschema", "t_scrambled", "myschema", "t", "uniform", 1.0, 100L, null, where);
+  }
+
+  private CreateScrambleQuery createPartitionedQuery(String scrambleTable, double size) {
+    CreateScrambleQuery query =
+        new CreateScrambleQuery(
+            SCRAMBLE_SCHEMA, scrambleTable, ORIGINAL_SCHEMA, "t", "uniform", size, 50L, null, null);
+    query.setExistingPartitionColumns(Arrays.asList("year", "region"));
+    return query;
+  }
+
+  private String toWhereClause(UnnamedColumn filter) throws VerdictDBException {
+    SelectQuery query = SelectQuery.create(new BaseColumn("a"), new BaseTable("s", "t"));
+    query.addFilterByAnd(filter);
+    String sql = QueryToSql.convert(new H2Syntax(), query);
+    return sql.substring(sql.indexOf(" where ") + " where ".length());
+  }
+
+  private long countRows(String table) throws SQLException {
+    ResultSet rs =
+        h2conn
+            .createStatement()
+            .executeQuery(String.format("SELECT COUNT(*) FROM \"%s\".\"%s\"", SCRAMBLE_SCHEMA, table));
+    rs.next();
+    return rs.getLong(1);
+  }
+
+  @Test
+  public void testPartitionColumns() {
+    CreateScrambleQuery query = createQuery(null);
+    assertNull(BulkScramblingCoordinator.getPartitionColumns(query));
+
+    query.setExistingPartitionColumns(Collections.<String>emptyList());
+    assertNull(BulkScramblingCoordinator.getPartitionColumns(query));
+
+    query.setExistingPartitionColumns(Arrays.asList("year", "month"));
+    assertEquals(
+        Arrays.asList("year", "month"), BulkScramblingCoordinator.getPartitionColumns(query));
+
+    // the tables scrambled partially are not scrambled partition by partition.
+    CreateScrambleQuery partialQuery =
+        createQuery(ColumnOp.equal(new BaseColumn("a"), new BaseColumn("b")));
+    partialQuery.setExistingPartitionColumns(Arrays.asList("year"));
+    assertNull(BulkScramblingCoordinator.getPartitionColumns(partialQuery));
+  }
+
+  @Test
+  public void testPartitionFilter() throws VerdictDBException {
+    H2Syntax syntax = new H2Syntax();
+    assertEquals(
+        "\"year\" = 2018",
+        toWhereClause(BulkScramblingCoordinator.partitionFilter("year", 2018, syntax)));
+    assertEquals(
+        "\"region\" = 'O''Hare'",
+        toWhereClause(BulkScramblingCoordinator.partitionFilter("region", "O'Hare", syntax)));
+    assertEquals(
+        "\"region\" is null",
+        toWhereClause(BulkScramblingCoordinator.partitionFilter("region", null, syntax)));
+    assertEquals(
+        "(\"year\" = 2018) and (\"region\" = 'east')",
+        toWhereClause(
+            BulkScramblingCoordinator.partitionFilter(
+                Arrays.asList("year", "region"), Arrays.<Object>asList(2018, "east"), syntax)));
+  }
+
+  @Test
+  public void testPartitionFilterRejectsBackslash() {
+    try {
+      BulkScramblingCoordinator.partitionFilter("region", "a\\' or 1=1", new MysqlSyntax());
+      fail();
+    } catch (VerdictDBException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPartitionKey() {
+    assertEquals(
+        "year=2018/region=O%27Hare",
+        BulkScramblingCoordinator.partitionKey(
+            Arrays.asList("year", "region"), Arrays.<Object>asList(2018, "O'Hare")));
+    assertEquals(
+        "year=2018/region",
+        BulkScramblingCoordinator.partitionKey(
+            Arrays.asList("year", "region"), Arrays.<Object>asList(2018, null)));
+    assertEquals(
+        "year=2018/region=",
+        BulkScramblingCoordinator.partitionKey(
+            Arrays.asList("year", "region"), Arrays.<Object>asList(2018, "")));
+  }
+
+  @Test
+  public void testScramblePartitions() throws VerdictDBException, SQLException {
+    JdbcConnection conn = new JdbcConnection(h2conn, new H2Syntax());
+    ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, META_SCHEMA);
+    BulkScramblingCoordinator coordinator =
+        new BulkScramblingCoordinator(conn, "bulktemp", metaStore, 2);
+
+    coordinator.scramble(Arrays.asList(createPartitionedQuery("t_all", 1.0)));
+    assertEquals(ROW_COUNT, countRows("t_all"));
+
+    // every combination of the two partition columns is logged
+    Pair<String, Set<String>> completed =
+        metaStore.retrieveCompletedPartitions(SCRAMBLE_SCHEMA, "t_all");
+    assertEquals(9, completed.getRight().size());
+    assertTrue(completed.getRight().contains("year=2018/region"));
+    assertTrue(completed.getRight().contains("year=2019/region=O%27Hare"));
+
+    // nothing is appended again
+    coordinator.scramble(Arrays.asList(createPartitionedQuery("t_all", 1.0)));
+    assertEquals(ROW_COUNT, countRows("t_all"));
+  }
+
+  @Test
+  public void testResumeAfterFailedAppend() throws VerdictDBException, SQLException {
+    FailingConnection conn = new FailingConnection();
+    ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, META_SCHEMA);
+    BulkScramblingCoordinator coordinator =
+        new BulkScramblingCoordinator(conn, "bulktemp", metaStore, 2);
+
+    conn.failOn = new String[] {"insert into", "t_resume", "\"year\" = 2018", "'east'"};
+    try {
+      coordinator.scramble(Arrays.asList(createPartitionedQuery("t_resume", 1.0)));
+      fail();
+    } catch (VerdictDBException e) {
+      // expected
+    }
+    assertEquals(ROW_COUNT - ROW_COUNT / 9, countRows("t_resume"));
+
+    coordinator.scramble(Arrays.asList(createPartitionedQuery("t_resume", 1.0)));
+    assertEquals(ROW_COUNT, countRows("t_resume"));
+  }
+
+  @Test
+  public void testPartiallyAppendedPartitionIsReported() throws VerdictDBException, SQLException {
+    FailingConnection conn = new FailingConnection();
+    ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, META_SCHEMA);
+    BulkScramblingCoordinator coordinator =
+        new BulkScramblingCoordinator(conn, "bulktemp", metaStore, 2);
+
+    // the rows are appended, but the partition is not logged
+    conn.failOn =
+        new String[] {ScrambleMetaStore.getPartitionTableName(), "t_partial", "year=2018/region="};
+    try {
+      coordinator.scramble(Arrays.asList(createPartitionedQuery("t_partial", 1.0)));
+      fail();
+    } catch (VerdictDBException e) {
+      // expected
+    }
+    assertEquals(ROW_COUNT, countRows("t_partial"));
+
+    // the partition is neither skipped nor appended again
+    try {
+      coordinator.scramble(Arrays.asList(createPartitionedQuery("t_partial", 1.0)));
+      fail();
+    } catch (VerdictDBException e) {
+      assertTrue(e.getMessage().contains("partially"));
+    }
+    assertEquals(ROW_COUNT, countRows("t_partial"));
+  }
+
+  @Test
+  public void testEmptySamplesAreNotAppendedAgain() throws VerdictDBException, SQLException {
+    JdbcConnection conn = new JdbcConnection(h2conn, new H2Syntax());
+    ScrambleMetaStore metaStore = new ScrambleMetaStore(conn, META_SCHEMA);
+    BulkScramblingCoordinator coordinator =
+        new BulkScramblingCoordinator(conn, "bulktemp", metaStore, 2);
+
+    // most partitions sample no rows at all
+    coordinator.scramble(Arrays.asList(createPartitionedQuery("t_sample", 0.01)));
+    long rowCount = countRows("t_sample");
+    assertEquals(
+        9, metaStore.retrieveCompletedPartitions(SCRAMBLE_SCHEMA, "t_sample").getRight().size());
+
+    coordinator.scramble(Arrays.asList(createPartitionedQuery("t_sample", 0.01)));
+    assertEquals(rowCount, countRows("t_sample"));
+  }
+}
@@ -31,5 +31,16 @@ public class CreateScrambleSyntaxTest {
     QueryType type = ExecutionContext.identifyQueryType(createScrambleSql);
     assertEquals(ExecutionContext.QueryType.scrambling, type);
   }
-  
+
+  @Test
+  public void bulkScrambleSyntaxTest() throws SQLException, VerdictDBException {
+    String createScramblesSql =
+        "CREATE SCRAMBLES INTO tpch_scrambles "
+            + "FROM tpch.lineitem, tpch.orders, tpch.customer "
+            + "METHOD uniform "
+            + "BLOCKSIZE 1000000 "
+            + "PARALLELISM 8";
+    QueryType type = ExecutionContext.identifyQueryType(createScramblesSql);
+    assertEquals(ExecutionContext.QueryType.bulk_scrambling, type);
+  }
 }
@@ -0,0 +1,81 @@
+package org.verdictdb.coordinator;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.VARCHAR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlwriter.SelectQueryToSql;
+
+public class PreparedQueryTest {
+
+  private SelectQuery standardize(String sql) throws VerdictDBException {
+    StaticMetaData meta = new StaticMetaData();
+    meta.setDefaultSchema("s");
+    List<Pair<String, Integer>> columns =
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("a", BIGINT), new ImmutablePair<>("b", VARCHAR));
+    meta.addTableData(new StaticMetaData.TableInfo("s", "t"), columns);
+    RelationStandardizer.resetItemID();
+    return RelationStandardizer.standardizeSelectQuery(
+        NonValidatingSQLParser.toSelectQuery(sql), meta, new H2Syntax());
+  }
+
+  @Test
+  public void testCountPlaceholders() {
+    assertEquals(2, PreparedQuery.countPlaceholders("select a from t where a > ? and b = ?"));
+    assertEquals(
+        1,
+        PreparedQuery.countPlaceholders(
+            "select a, '?' from t /* ? */ where a > ? -- ?\n and b = \"?\""));
+  }
+
+  @Test
+  public void testBindToString() throws VerdictDBValueException {
+    PreparedQuery query = PreparedQuery.fromStatement("insert into t values (?, '?', ?)", "s");
+    assertFalse(query.isSelectQuery());
+    assertEquals(2, query.getParameterCount());
+    assertEquals(
+        "insert into t values (1, '?', 'x')", query.bindToString(Arrays.asList("1", "'x'")));
+  }
+
+  @Test
+  public void testBindToSelectQuery() throws VerdictDBException {
+    String sql = "select a, count(*) from t where a > ? and b = ? group by a";
+    PreparedQuery query = PreparedQuery.fromSelectQuery(sql, "s", standardize(sql));
+    assertTrue(query.isSelectQuery());
+    assertEquals(2, query.getParameterCount());
+
+    SelectQueryToSql toSql = new SelectQueryToSql(new H2Syntax());
+    String bound1 = toSql.toSql(query.bind(Arrays.asList("10", "'abc'")));
+    assertTrue(bound1.contains("> 10"));
+    assertTrue(bound1.contains("= 'abc'"));
+
+    // the prepared query is not changed by binding
+    String bound2 = toSql.toSql(query.bind(Arrays.asList("20", "NULL")));
+    assertTrue(bound2.contains("> 20"));
+    assertTrue(bound2.contains("= NULL"));
+    assertFalse(bound2.contains("abc"));
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testWrongNumberOfParameters() throws VerdictDBException {
+    String sql = "select a from t where a > ?";
+    PreparedQuery query = PreparedQuery.fromSelectQuery(sql, "s", standardize(sql));
+    query.bind(Arrays.asList("1", "2"));
+  }
+}
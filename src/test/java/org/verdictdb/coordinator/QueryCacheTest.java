@@ -0,0 +1,105 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+import com.google.common.base.Optional;
+
+public class QueryCacheTest {
+
+  @Test
+  public void testNormalization() {
+    assertEquals(
+        "select a, b from t where c = 'x   y'",
+        QueryCache.normalize("  select a,  b\n  from t\twhere c = 'x   y'  "));
+
+    QueryCache.Key key1 = QueryCache.createKey("select * from t", "s", 1);
+    QueryCache.Key key2 = QueryCache.createKey("select *\n  from t ", "s", 1);
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+
+    // the default schema and the scramble version are parts of the key
+    assertNotEquals(key1, QueryCache.createKey("select * from t", "s2", 1));
+    assertNotEquals(key1, QueryCache.createKey("select * from t", "s", 2));
+    assertNotEquals(key1, QueryCache.createKey("select * from t", null, 1));
+  }
+
+  @Test
+  public void testStandardizedQueryIsCopied() {
+    QueryCache cache = new QueryCache(10, 0);
+    QueryCache.Key key = QueryCache.createKey("select a from t order by a limit 10", "s", 1);
+    assertNull(cache.getStandardizedQuery(key));
+
+    SelectQuery query = NonValidatingSQLParser.toSelectQuery("select a from t order by a limit 10");
+    cache.putStandardizedQuery(key, query);
+
+    // changes made by the caller do not affect the cached query
+    query.addTableSource(new BaseTable("s", "u"));
+
+    SelectQuery cached = cache.getStandardizedQuery(key);
+    assertNotSame(query, cached);
+    assertEquals(1, cached.getFromList().size());
+    assertEquals(1, cached.getOrderby().size());
+    assertTrue(cached.getLimit().isPresent());
+    assertNotSame(cached, cache.getStandardizedQuery(key));
+
+    assertEquals(2, cache.getStandardizedQueryStats().hitCount());
+    assertEquals(1, cache.getStandardizedQueryStats().missCount());
+  }
+
+  @Test
+  public void testScrambledQuery() {
+    QueryCache cache = new QueryCache(10, 0);
+    QueryCache.Key noScramble = QueryCache.createKey("select a from t", "s", 1);
+    QueryCache.Key withScramble = QueryCache.createKey("select count(*) from t", "s", 1);
+    assertNull(cache.getScrambledQuery(noScramble));
+
+    cache.putScrambledQuery(noScramble, null);
+    Optional<SelectQuery> cached = cache.getScrambledQuery(noScramble);
+    assertFalse(cached.isPresent());
+
+    cache.putScrambledQuery(
+        withScramble, NonValidatingSQLParser.toSelectQuery("select count(*) from s.t_scrambled"));
+    assertTrue(cache.getScrambledQuery(withScramble).isPresent());
+  }
+
+  @Test
+  public void testUnknownScrambleVersionIsNotCached() {
+    QueryCache cache = new QueryCache(10, 0);
+    QueryCache.Key key = QueryCache.createKey("select a from t", "s", -1);
+    cache.putScrambledQuery(key, null);
+    assertNull(cache.getScrambledQuery(key));
+  }
+
+  @Test
+  public void testInvalidation() {
+    QueryCache cache = new QueryCache(10, 0);
+    QueryCache.Key key = QueryCache.createKey("select a from t", "s", 1);
+    cache.putStandardizedQuery(key, NonValidatingSQLParser.toSelectQuery("select a from t"));
+    cache.putScrambledQuery(key, null);
+    assertEquals(2, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertNull(cache.getStandardizedQuery(key));
+  }
+
+  @Test
+  public void testFromOption() {
+    VerdictOption options = new VerdictOption();
+    assertTrue(QueryCache.fromOption(options) != null);
+
+    options.parseConnectionString("jdbc:mysql://localhost?query_cache_size=0");
+    assertNull(QueryCache.fromOption(options));
+  }
+}
@@ -0,0 +1,105 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictSingleResult;
+import org.verdictdb.commons.StudentTDistribution;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+public class QueryResultAccuracyEstimatorFromErrorBoundTest {
+
+  static Connection h2conn;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:errorboundtest;DB_CLOSE_DELAY=-1");
+  }
+
+  @AfterClass
+  public static void closeH2Connection() throws SQLException {
+    h2conn.close();
+  }
+
+  /** select g, sum(x), [lastItem] from s.t group by g */
+  private SelectQuery createQuery(SelectItem lastItem) {
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn("t", "g"),
+                new AliasedColumn(new ColumnOp("sum", new BaseColumn("t", "x")), "s"),
+                lastItem),
+            new BaseTable("s", "t", "t"));
+    query.addGroupby(new BaseColumn("t", "g"));
+    return query;
+  }
+
+  private SelectQuery createQuery() {
+    return createQuery(new BaseColumn("t", "y"));
+  }
+
+  /** An answer of a single group whose sum is 100 and whose standard error is 1. */
+  private VerdictSingleResult createAnswer(int blockCount) throws SQLException {
+    JdbcQueryResult result =
+        new JdbcQueryResult(h2conn.createStatement().executeQuery("SELECT 'a', 100.0, 7.0, 1.0"));
+    return new VerdictSingleResultFromDbmsQueryResult(
+        result.withStandardErrors(3, new int[] {-1, 3, -1}, blockCount));
+  }
+
+  @Test
+  public void testStudentTBound() throws SQLException {
+    QueryResultAccuracyEstimatorFromErrorBound estimator =
+        new QueryResultAccuracyEstimatorFromErrorBound(createQuery(), 0.95);
+    int minBlockCount = QueryResultAccuracyEstimatorFromErrorBound.MIN_BLOCK_COUNT;
+
+    // too few blocks to trust the standard errors
+    estimator.add(createAnswer(minBlockCount - 1));
+    assertTrue(Double.isInfinite(estimator.getLastRelativeError()));
+
+    estimator.add(createAnswer(minBlockCount));
+    double expected = StudentTDistribution.tScore(0.95, minBlockCount - 1) / 100.0;
+    assertEquals(expected, estimator.getLastRelativeError(), 1e-9);
+
+    estimator.setRelativeErrorBound(expected * 1.01);
+    assertTrue(estimator.isLastResultAccurate());
+    estimator.setRelativeErrorBound(expected * 0.99);
+    assertFalse(estimator.isLastResultAccurate());
+  }
+
+  @Test
+  public void testErrorBoundOfAnswer() throws SQLException {
+    VerdictSingleResult answer = createAnswer(11);
+    answer.next();
+    assertEquals(11, answer.getStandardErrorBlockCount());
+    assertEquals(2.228138852, answer.getErrorBound(1, 0.95), 1e-5);
+  }
+
+  @Test
+  public void testAggregatesWithoutStandardErrors() throws SQLException {
+    QueryResultAccuracyEstimatorFromErrorBound estimator =
+        new QueryResultAccuracyEstimatorFromErrorBound(createQuery(), 0.95);
+    estimator.add(createAnswer(10));
+    assertFalse(estimator.hasUncoveredAggregates());
+
+    // the max has no standard errors
+    SelectItem max = new AliasedColumn(new ColumnOp("max", new BaseColumn("t", "x")), "m");
+    estimator = new QueryResultAccuracyEstimatorFromErrorBound(createQuery(max), 0.95);
+    estimator.add(createAnswer(10));
+    assertTrue(estimator.hasUncoveredAggregates());
+  }
+}
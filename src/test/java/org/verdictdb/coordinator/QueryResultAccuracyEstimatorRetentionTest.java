@@ -0,0 +1,54 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.VerdictSingleResult;
+
+public class QueryResultAccuracyEstimatorRetentionTest {
+
+  private VerdictSingleResult answer(int value) {
+    return VerdictSingleResultFromListData.createWithSingleColumn(
+        Arrays.asList("c"), Arrays.<Object>asList(value));
+  }
+
+  @Test
+  public void testRetainAllAnswers() {
+    QueryResultAccuracyEstimator accEst = new QueryResultAccuracyEstimatorWithGroupSize(5, null);
+    for (int i = 0; i < 4; i++) {
+      accEst.add(answer(i));
+    }
+    assertEquals(4, accEst.getAnswerCount());
+    assertEquals(4, accEst.getAnswers().size());
+    assertFalse(accEst.isLastResultAccurate());
+  }
+
+  @Test
+  public void testRetainLastTwoAnswers() {
+    QueryResultAccuracyEstimator accEst = new QueryResultAccuracyEstimatorWithGroupSize(5, null);
+    accEst.setRetainsAllAnswers(false);
+    assertNull(accEst.getLastAnswer());
+
+    List<VerdictSingleResult> added = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      VerdictSingleResult rs = answer(i);
+      added.add(rs);
+      accEst.add(rs);
+    }
+
+    // the count includes the dropped answers
+    assertEquals(5, accEst.getAnswerCount());
+    assertEquals(2, accEst.getAnswers().size());
+    assertSame(added.get(4), accEst.getLastAnswer());
+    assertSame(added.get(3), accEst.getPreviousAnswer());
+    assertTrue(accEst.isLastResultAccurate());
+  }
+}
@@ -0,0 +1,98 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class ScratchpadManagerTest {
+
+  static DbmsConnection conn;
+
+  static final String SCHEMA = "scratchpadmanagertest";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    conn =
+        new JdbcConnection(
+            DriverManager.getConnection("jdbc:h2:mem:scratchpadmanagertest;DB_CLOSE_DELAY=-1"),
+            new H2Syntax());
+  }
+
+  private void createTable(String table) throws VerdictDBException {
+    conn.execute(String.format("CREATE TABLE \"%s\".\"%s\" (\"a\" int)", SCHEMA, table));
+  }
+
+  @Test
+  public void testCreationTime() {
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    String table = "verdictdbtemptable_abcde_1_2_3" + ScratchpadManager.getCreationTimeSuffix();
+    assertTrue(ScratchpadManager.getCreationTimeSeconds(table) >= now);
+
+    // the names without creation times
+    assertEquals(-1, ScratchpadManager.getCreationTimeSeconds("verdictdbtemptable_12_3"));
+    assertEquals(-1, ScratchpadManager.getCreationTimeSeconds("verdictdbtemptable_tabcd_1_2_3"));
+  }
+
+  @Test
+  public void testDropTempTables() throws Exception {
+    ScratchpadManager manager = new ScratchpadManager(conn, 0);
+    manager.ensureSchemaExists(SCHEMA);
+    createTable("verdictdbtemptable_drop_1");
+    createTable("verdictdbtemptable_drop_2");
+
+    List<Pair<String, String>> tables =
+        Arrays.asList(
+            Pair.of(SCHEMA, "verdictdbtemptable_drop_1"),
+            Pair.of(SCHEMA, "verdictdbtemptable_drop_2"),
+            Pair.of(SCHEMA, "verdictdbtemptable_drop_never_created"));
+    manager.dropTablesInBackground(tables).get();
+
+    List<String> remaining = conn.getTables(SCHEMA);
+    assertFalse(remaining.contains("verdictdbtemptable_drop_1"));
+    assertFalse(remaining.contains("verdictdbtemptable_drop_2"));
+
+    // after the shutdown, the tables are dropped on the calling thread.
+    manager.shutdown();
+    createTable("verdictdbtemptable_drop_3");
+    assertNull(
+        manager.dropTablesInBackground(
+            Arrays.asList(Pair.of(SCHEMA, "verdictdbtemptable_drop_3"))));
+    assertFalse(conn.getTables(SCHEMA).contains("verdictdbtemptable_drop_3"));
+  }
+
+  @Test
+  public void testDropOrphanedTables() throws Exception {
+    ScratchpadManager manager = new ScratchpadManager(conn, 3600);
+    manager.ensureSchemaExists(SCHEMA);
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    String oldTable = String.format("verdictdbtemptable_old_1_2_3_t%d", now - 7200);
+    String newTable = String.format("verdictdbtemptable_new_1_2_3_t%d", now);
+    String tableWithoutTime = "verdictdbtemptable_12_3";
+    createTable(oldTable);
+    createTable(newTable);
+    createTable(tableWithoutTime);
+
+    manager.dropOrphanedTablesInBackground(SCHEMA).get();
+
+    List<String> remaining = conn.getTables(SCHEMA);
+    assertFalse(remaining.contains(oldTable));
+    assertTrue(remaining.contains(newTable));
+    assertTrue(remaining.contains(tableWithoutTime));
+    manager.shutdown();
+  }
+}
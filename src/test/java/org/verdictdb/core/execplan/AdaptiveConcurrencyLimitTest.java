@@ -0,0 +1,158 @@
+package org.verdictdb.core.execplan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.commons.VerdictOption;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private static final long MILLIS = 1000000L;
+
+  private void runBlocks(AdaptiveConcurrencyLimit limit, int count, long latencyNanos) {
+    runBlocks(limit, count, latencyNanos, new AdaptiveConcurrencyLimit.LatencyBaseline());
+  }
+
+  private void runBlocks(
+      AdaptiveConcurrencyLimit limit,
+      int count,
+      long latencyNanos,
+      AdaptiveConcurrencyLimit.LatencyBaseline baseline) {
+    for (int i = 0; i < count; i++) {
+      // keep the limit in use so that it can grow
+      while (limit.getInFlightCount() < limit.getLimit()) {
+        limit.onStart();
+      }
+      limit.onSuccess(limit.onStart(), latencyNanos, baseline);
+      limit.onCancel();
+    }
+  }
+
+  @Test
+  public void testAdditiveIncrease() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 8, true);
+    // about one more after a limit's worth of blocks
+    runBlocks(limit, 5, 10 * MILLIS);
+    assertEquals(5, limit.getLimit());
+
+    runBlocks(limit, 1000, 10 * MILLIS);
+    assertEquals(8, limit.getLimit());
+  }
+
+  @Test
+  public void testNoIncreaseWhenLimitIsNotUsed() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 8, true);
+    AdaptiveConcurrencyLimit.LatencyBaseline baseline =
+        new AdaptiveConcurrencyLimit.LatencyBaseline();
+    for (int i = 0; i < 100; i++) {
+      limit.onSuccess(limit.onStart(), 10 * MILLIS, baseline);
+    }
+    assertEquals(4, limit.getLimit());
+  }
+
+  @Test
+  public void testDecreaseOnHighLatency() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 32, true);
+    AdaptiveConcurrencyLimit.LatencyBaseline baseline =
+        new AdaptiveConcurrencyLimit.LatencyBaseline();
+    runBlocks(limit, 1, 10 * MILLIS, baseline);
+    int before = limit.getLimit();
+    limit.onSuccess(limit.onStart(), 100 * MILLIS, baseline);
+    assertTrue(limit.getLimit() < before);
+  }
+
+  @Test
+  public void testDecreaseOncePerRoundTrip() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 32, true);
+    AdaptiveConcurrencyLimit.LatencyBaseline baseline =
+        new AdaptiveConcurrencyLimit.LatencyBaseline();
+    runBlocks(limit, 1, 10 * MILLIS, baseline);
+    int before = limit.getLimit();
+
+    // the blocks running together are slow; only the first completion decreases the limit.
+    long[] starts = new long[10];
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = limit.onStart();
+    }
+    for (long start : starts) {
+      limit.onSuccess(start, 100 * MILLIS, baseline);
+    }
+    assertEquals((int) (before * 0.9), limit.getLimit());
+
+    // a block issued after the decrease may decrease it again.
+    limit.onSuccess(limit.onStart(), 100 * MILLIS, baseline);
+    assertTrue(limit.getLimit() < (int) (before * 0.9));
+  }
+
+  @Test
+  public void testBaselineIsKeptPerAggregation() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 32, true);
+    runBlocks(limit, 10, 10 * MILLIS, new AdaptiveConcurrencyLimit.LatencyBaseline());
+    int before = limit.getLimit();
+
+    // the blocks of another query are slower but not slower than each other
+    AdaptiveConcurrencyLimit.LatencyBaseline other =
+        new AdaptiveConcurrencyLimit.LatencyBaseline();
+    runBlocks(limit, 10, 500 * MILLIS, other);
+    assertTrue(limit.getLimit() >= before);
+    assertEquals(500 * MILLIS, other.getMinLatencyNanos());
+  }
+
+  @Test
+  public void testCancelledBlockDoesNotChangeLimit() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 32, true);
+    limit.onStart();
+    limit.onCancel();
+    assertEquals(10, limit.getLimit());
+    assertEquals(0, limit.getSuccessCount());
+    assertEquals(0, limit.getInFlightCount());
+  }
+
+  @Test
+  public void testDecreaseOnError() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 32, true);
+    limit.onError(limit.onStart());
+    assertEquals(5, limit.getLimit());
+    limit.onError(limit.onStart());
+    limit.onError(limit.onStart());
+    assertEquals(2, limit.getLimit());
+    assertEquals(3, limit.getErrorCount());
+    assertEquals(0, limit.getInFlightCount());
+  }
+
+  @Test
+  public void testFixedLimit() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 32, false);
+    runBlocks(limit, 100, 10 * MILLIS);
+    limit.onError(limit.onStart());
+    assertEquals(3, limit.getLimit());
+    assertFalse(limit.isAdaptive());
+  }
+
+  @Test
+  public void testHistory() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 32, true);
+    limit.onError(limit.onStart());
+    List<Pair<Long, Integer>> history = limit.getLimitHistory();
+    assertEquals(2, history.size());
+    assertEquals(10, (int) history.get(0).getRight());
+    assertEquals(5, (int) history.get(1).getRight());
+  }
+
+  @Test
+  public void testFromOption() {
+    VerdictOption option = new VerdictOption();
+    option.parseConnectionString(
+        "jdbc:mysql://localhost?block_concurrency=4&block_concurrency_max=6"
+            + "&adaptive_block_concurrency=false");
+    AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.fromOption(option);
+    assertEquals(4, limit.getLimit());
+    assertFalse(limit.isAdaptive());
+    assertEquals(4, NodeExecutionService.fromOption(option).getBlockConcurrencyLimit().getLimit());
+  }
+}
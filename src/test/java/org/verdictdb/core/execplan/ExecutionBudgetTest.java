@@ -0,0 +1,81 @@
+package org.verdictdb.core.execplan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.verdictdb.commons.VerdictOption;
+import org.verdictdb.core.execplan.ExecutionBudget.BlockDecision;
+
+public class ExecutionBudgetTest {
+
+  @Test
+  public void testNoBudgetByDefault() {
+    assertNull(ExecutionBudget.fromOption(new VerdictOption()));
+  }
+
+  @Test
+  public void testFirstBlockIsAlwaysLaunched() {
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    budget.markTargetReached();
+    assertEquals(BlockDecision.LAUNCH, budget.decideNextBlock(0));
+    assertEquals(BlockDecision.STOP, budget.decideNextBlock(1));
+  }
+
+  @Test
+  public void testExpectedRelativeError() {
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    assertEquals(BlockDecision.LAUNCH, budget.decideNextBlock(4));
+
+    // 0.02 after 4 blocks is expected to become 0.01 after 16 blocks
+    budget.reportAnswer(4, 0.02);
+    assertEquals(BlockDecision.LAUNCH, budget.decideNextBlock(8));
+    assertEquals(BlockDecision.DEFER, budget.decideNextBlock(16));
+
+    // the prediction is not borne out by the later answers
+    budget.reportAnswer(16, 0.015);
+    assertEquals(BlockDecision.LAUNCH, budget.decideNextBlock(16));
+
+    // unknown errors never hold back the blocks
+    budget.reportAnswer(17, Double.POSITIVE_INFINITY);
+    assertEquals(BlockDecision.LAUNCH, budget.decideNextBlock(100));
+  }
+
+  @Test
+  public void testAnswerListener() {
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    final AtomicInteger notified = new AtomicInteger(0);
+    budget.addAnswerListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            notified.incrementAndGet();
+          }
+        });
+    budget.reportAnswer(1, 0.02);
+    assertEquals(1, notified.get());
+    budget.markTargetReached();
+    assertEquals(2, notified.get());
+  }
+
+  @Test
+  public void testTimeLimit() throws InterruptedException {
+    ExecutionBudget budget = new ExecutionBudget(0, 10);
+    Thread.sleep(20);
+    assertTrue(budget.isTimeLimitPassed());
+    assertEquals(BlockDecision.STOP, budget.decideNextBlock(1));
+  }
+
+  @Test
+  public void testParseOptions() {
+    VerdictOption options = new VerdictOption();
+    options.parseConnectionString("jdbc:db://localhost:3306;target_error=0.05;time_limit=3000");
+    ExecutionBudget budget = ExecutionBudget.fromOption(options);
+    assertTrue(budget.hasTargetRelativeError());
+    assertTrue(budget.getTargetRelativeError() == 0.05);
+    assertTrue(budget.getTimeLimitMillis() == 3000);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.aggresult.AggregateFrame;
+import org.verdictdb.core.aggresult.AggregateFrameQueryResult;
+import org.verdictdb.core.aggresult.AggregateGroup;
+import org.verdictdb.core.aggresult.AggregateMeasures;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class ExecutionInfoTokenTest {
+
+  static JdbcConnection jdbc;
+
+  static final int ROW_COUNT = 10000;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBDbmsException {
+    Connection conn =
+        DriverManager.getConnection("jdbc:h2:mem:executioninfotokentest;DB_CLOSE_DELAY=-1", "", "");
+    jdbc = new JdbcConnection(conn, new H2Syntax());
+    jdbc.execute("CREATE TABLE T(id int, grp varchar(20), price double)");
+    StringBuilder insert = new StringBuilder("INSERT INTO T(id, grp, price) VALUES ");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      if (i > 0) {
+        insert.append(", ");
+      }
+      insert.append(String.format("(%d, 'group%d', %f)", i, i % 100, i * 1.5));
+    }
+    jdbc.execute(insert.toString());
+  }
+
+  @Test
+  public void testShallowCopySharesValues() {
+    List<String> value = new ArrayList<>();
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("list", value);
+
+    ExecutionInfoToken copied = token.shallowCopy();
+    assertSame(value, copied.getValue("list"));
+
+    // the maps are independent
+    copied.setKeyValue("channel", 1);
+    assertFalse(token.containsKey("channel"));
+  }
+
+  @Test
+  public void testCopyForSubscriberCopiesQueryResultsOnly() throws VerdictDBDbmsException {
+    DbmsQueryResult result = jdbc.executeQuery("SELECT * FROM T");
+    List<String> value = new ArrayList<>();
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("queryResult", result);
+    token.setKeyValue("list", value);
+
+    ExecutionInfoToken copied = token.copyForSubscriber();
+    assertSame(value, copied.getValue("list"));
+    assertNotSame(result, copied.getValue("queryResult"));
+
+    // consuming the copy does not move the cursor of the original
+    DbmsQueryResult copiedResult = (DbmsQueryResult) copied.getValue("queryResult");
+    int count = 0;
+    while (copiedResult.next()) {
+      count++;
+    }
+    assertEquals(ROW_COUNT, count);
+    assertTrue(result.next());
+    assertEquals(0, result.getInt(0));
+  }
+
+  /** A broadcast shares the rows of a query result instead of copying them per subscriber. */
+  @Test
+  public void testCopyForSubscriberSharesRows() throws VerdictDBDbmsException {
+    DbmsQueryResult result = jdbc.executeQuery("SELECT * FROM T");
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("queryResult", result);
+
+    ExecutionInfoToken first = token.copyForSubscriber();
+    ExecutionInfoToken second = token.copyForSubscriber();
+    DbmsQueryResult firstResult = (DbmsQueryResult) first.getValue("queryResult");
+    DbmsQueryResult secondResult = (DbmsQueryResult) second.getValue("queryResult");
+    assertNotSame(firstResult, secondResult);
+    assertSame(result.getMetaData(), firstResult.getMetaData());
+    assertSame(result.getMetaData(), secondResult.getMetaData());
+
+    // the values are the same objects, not copies
+    assertTrue(result.next());
+    assertTrue(firstResult.next());
+    assertTrue(secondResult.next());
+    assertSame(result.getValue(1), firstResult.getValue(1));
+    assertSame(result.getValue(1), secondResult.getValue(1));
+  }
+
+  @Test
+  public void testCopyForSubscriberSharesAggregateFrame() throws VerdictDBValueException {
+    AggregateFrame frame = new AggregateFrame(Arrays.asList("grp", "cnt"));
+    frame.addRow(
+        new AggregateGroup(Arrays.asList("grp"), Arrays.<Object>asList("group1")),
+        new AggregateMeasures(Arrays.asList("cnt"), Arrays.<Object>asList(10)));
+    AggregateFrameQueryResult result = (AggregateFrameQueryResult) frame.toDbmsQueryResult();
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("queryResult", result);
+
+    AggregateFrameQueryResult copied =
+        (AggregateFrameQueryResult) token.copyForSubscriber().getValue("queryResult");
+    assertNotSame(result, copied);
+    assertSame(frame, copied.getAggregateFrame());
+
+    // the cursors are independent
+    assertTrue(copied.next());
+    assertFalse(copied.next());
+    assertTrue(result.next());
+    assertEquals("group1", result.getString(0));
+  }
+}
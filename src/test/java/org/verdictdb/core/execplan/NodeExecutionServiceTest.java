@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.execplan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.commons.VerdictOption;
+
+public class NodeExecutionServiceTest {
+
+  @Test
+  public void testNumberOfConcurrentRunsIsBounded() throws InterruptedException {
+    final int poolSize = 3;
+    final int taskCount = 50;
+    NodeExecutionService service = new NodeExecutionService(poolSize);
+    final AtomicInteger running = new AtomicInteger(0);
+    final AtomicInteger maxRunning = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(taskCount);
+
+    for (int i = 0; i < taskCount; i++) {
+      service.submit(
+          new Runnable() {
+            @Override
+            public void run() {
+              int current = running.incrementAndGet();
+              synchronized (maxRunning) {
+                maxRunning.set(Math.max(maxRunning.get(), current));
+              }
+              try {
+                Thread.sleep(2);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              running.decrementAndGet();
+              done.countDown();
+            }
+          });
+    }
+
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertTrue(maxRunning.get() <= poolSize);
+    service.shutdown();
+    assertTrue(service.isShutdown());
+  }
+
+  @Test
+  public void testCreationFromOption() {
+    VerdictOption option = new VerdictOption();
+    option.parseConnectionString("jdbc:db://localhost:3306?execution_threads=5");
+    NodeExecutionService service = NodeExecutionService.fromOption(option);
+    assertEquals(5, service.getPoolSize());
+    service.shutdown();
+  }
+
+  @Test
+  public void testDefaultServiceIsNotShutDown() {
+    NodeExecutionService service = NodeExecutionService.getDefault();
+    service.shutdown();
+    assertTrue(!service.isShutdown());
+    assertEquals(VerdictOption.getDefaultNodeExecutionPoolSize(), service.getPoolSize());
+  }
+
+  @Test
+  public void testQueryIdIsPropagated() throws InterruptedException, ExecutionException {
+    NodeExecutionService service = new NodeExecutionService(1);
+    final AtomicReference<String> seen = new AtomicReference<>();
+    Runnable readQueryId =
+        new Runnable() {
+          @Override
+          public void run() {
+            seen.set(MDC.get(VerdictDBLogger.QUERY_ID_MDC_KEY));
+          }
+        };
+
+    MDC.put(VerdictDBLogger.QUERY_ID_MDC_KEY, "abcde-1-1");
+    try {
+      service.submit(readQueryId).get();
+    } finally {
+      MDC.remove(VerdictDBLogger.QUERY_ID_MDC_KEY);
+    }
+    assertEquals("abcde-1-1", seen.get());
+
+    // the pooled thread does not keep the id of the previous task
+    service.submit(readQueryId).get();
+    assertNull(seen.get());
+    service.shutdown();
+  }
+}
@@ -0,0 +1,85 @@
+package org.verdictdb.core.querying;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.simplifier.QueryExecutionPlanSimplifier;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SqlConvertible;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.PostgresqlSyntax;
+import org.verdictdb.sqlsyntax.SqlSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class QueryExecutionPlanSimplifierWithClauseTest {
+
+  // select m.a as v
+  // from (select avg(t.value) as a
+  //       from (select o.value as value from originalschema.originaltable as o where o.value > 5)
+  //       as t) as m
+  private SelectQuery nestedQuery() {
+    SelectQuery inner =
+        SelectQuery.create(
+            new AliasedColumn(new BaseColumn("o", "value"), "value"),
+            new BaseTable("originalschema", "originaltable", "o"));
+    inner.addFilterByAnd(
+        new ColumnOp(
+            "greater",
+            Arrays.<UnnamedColumn>asList(new BaseColumn("o", "value"), ConstantColumn.valueOf(5))));
+    inner.setAliasName("t");
+    SelectQuery agg =
+        SelectQuery.create(
+            new AliasedColumn(new ColumnOp("avg", new BaseColumn("t", "value")), "a"), inner);
+    agg.setAliasName("m");
+    return SelectQuery.create(new AliasedColumn(new BaseColumn("m", "a"), "v"), agg);
+  }
+
+  private String simplifyAndConvert(SqlSyntax syntax) throws VerdictDBException {
+    QueryExecutionPlan plan = QueryExecutionPlanFactory.create("newschema", null, nestedQuery());
+    QueryExecutionPlanSimplifier.simplify2(plan, syntax);
+
+    // every node is consolidated into the root
+    assertEquals(0, plan.getRootNode().getSourceCount());
+    SqlConvertible query =
+        plan.getRootNode().createQuery(new ArrayList<ExecutionInfoToken>());
+    return QueryToSql.convert(syntax, query);
+  }
+
+  @Test
+  public void testInlineSubqueries() throws VerdictDBException {
+    String sql = simplifyAndConvert(new H2Syntax());
+    assertEquals(
+        "select m.\"a\" as \"v\" from "
+            + "(select avg(t.\"value\") as \"a\" from "
+            + "(select o.\"value\" as \"value\" from \"originalschema\".\"originaltable\" as o "
+            + "where o.\"value\" > 5) as t) as m",
+        sql);
+  }
+
+  @Test
+  public void testWithClauses() throws VerdictDBException {
+    String sql = simplifyAndConvert(new PostgresqlSyntax());
+    assertTrue(sql.startsWith("with "));
+
+    // the innermost query is defined first, and no temporary table is referred to
+    int innerIndex = sql.indexOf("from \"originalschema\".\"originaltable\" as o");
+    int aggIndex = sql.indexOf("select avg(t.\"value\") as \"a\" from \"verdictdb_with_");
+    int rootIndex = sql.indexOf("select m.\"a\" as \"v\" from \"verdictdb_with_");
+    assertTrue(innerIndex > 0);
+    assertTrue(aggIndex > innerIndex);
+    assertTrue(rootIndex > aggIndex);
+    assertTrue(!sql.contains("placeholder"));
+  }
+}
@@ -1,11 +1,15 @@
 package org.verdictdb.core.querying.ola;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -16,12 +20,16 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.verdictdb.connection.JdbcConnection;
 import org.verdictdb.core.execplan.ExecutableNode;
+import org.verdictdb.core.execplan.AdaptiveConcurrencyLimit;
 import org.verdictdb.core.execplan.ExecutablePlanRunner;
+import org.verdictdb.core.execplan.ExecutionBudget;
+import org.verdictdb.core.execplan.NodeExecutionService;
 import org.verdictdb.core.querying.AggExecutionNode;
 import org.verdictdb.core.querying.ExecutableNodeBase;
 import org.verdictdb.core.querying.QueryExecutionPlan;
 import org.verdictdb.core.querying.QueryExecutionPlanFactory;
 import org.verdictdb.core.querying.QueryNodeBase;
+import org.verdictdb.core.resulthandler.ExecutionTokenReader;
 import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
 import org.verdictdb.core.scrambling.SimpleTreePlan;
@@ -138,6 +146,199 @@ public class AsyncQueryExecutionPlanTest {
     }
   }
   
+  @Test
+  public void testConvertToProgressiveAggInTree() throws VerdictDBException {
+    // five blocks are combined as ((0, 1), (2, 3)), 4
+    int blockCount = 5;
+    ScrambleMetaSet metaSet = createMetaSet(blockCount);
+    ExecutableNodeBase converted = convertInTree(metaSet);
+
+    // the answers are produced after 1, 2, 4, and 5 blocks
+    assertTrue(converted instanceof AsyncAggExecutionNode);
+    assertEquals(
+        AggCombiningStrategy.TREE, ((AsyncAggExecutionNode) converted).getCombiningStrategy());
+    assertTrue(converted.toString().contains("combiningStrategy=TREE"));
+    assertEquals(4, converted.getSources().size());
+    assertTrue(converted.getExecutableNodeBaseDependent(0) instanceof AggExecutionNode);
+    ExecutableNodeBase first = converted.getExecutableNodeBaseDependent(1);
+    ExecutableNodeBase second = converted.getExecutableNodeBaseDependent(2);
+    ExecutableNodeBase third = converted.getExecutableNodeBaseDependent(3);
+    assertTrue(first.getExecutableNodeBaseDependent(0) instanceof AggExecutionNode);
+    assertTrue(first.getExecutableNodeBaseDependent(1) instanceof AggExecutionNode);
+    assertSame(first, second.getExecutableNodeBaseDependent(0));
+    assertTrue(second.getExecutableNodeBaseDependent(1) instanceof AggCombinerExecutionNode);
+    assertSame(second, third.getExecutableNodeBaseDependent(0));
+    assertTrue(third.getExecutableNodeBaseDependent(1) instanceof AggExecutionNode);
+    assertEquals(2, first.getAggMeta().getCubes().size());
+    assertEquals(4, second.getAggMeta().getCubes().size());
+    assertEquals(blockCount, third.getAggMeta().getCubes().size());
+  }
+
+  @Test
+  public void testTreeBlocksRunWithinConcurrencyLimit() throws VerdictDBException {
+    int blockCount = 5;
+    ScrambleMetaSet metaSet = createMetaSet(blockCount);
+    ExecutableNodeBase converted = convertInTree(metaSet);
+    ((AsyncAggExecutionNode) converted).setScrambleMetaSet(metaSet);
+
+    // the combiners must not run the blocks that the aggregation has not launched
+    MaxInFlightLimit limit = new MaxInFlightLimit();
+    NodeExecutionService service = new NodeExecutionService(4, false, limit);
+    ExecutablePlanRunner.runTillEnd(
+        new JdbcConnection(conn, new H2Syntax()), new SimpleTreePlan(converted), service);
+    service.shutdown();
+
+    assertEquals(1, limit.maxInFlight);
+    assertEquals(blockCount, limit.getSuccessCount());
+  }
+
+  @Test(timeout = 60000)
+  public void testTreeBlocksSkippedByBudget() throws VerdictDBException {
+    int blockCount = 5;
+    ScrambleMetaSet metaSet = createMetaSet(blockCount);
+    ExecutableNodeBase converted = convertInTree(metaSet);
+    ((AsyncAggExecutionNode) converted).setScrambleMetaSet(metaSet);
+
+    // only the first block is launched; the prefixes including the other blocks never complete.
+    MaxInFlightLimit limit = new MaxInFlightLimit();
+    NodeExecutionService service = new NodeExecutionService(4, false, limit);
+    ExecutionBudget budget = new ExecutionBudget(0, 0);
+    budget.markTargetReached();
+    ExecutionTokenReader reader =
+        new ExecutablePlanRunner(
+                new JdbcConnection(conn, new H2Syntax()),
+                new SimpleTreePlan(converted),
+                service,
+                budget)
+            .getTokenReader();
+    while (reader.next() != null) {}
+    service.shutdown();
+
+    assertEquals(1, limit.getSuccessCount());
+  }
+
+  @Test(timeout = 60000)
+  public void testBlocksDeferredByBudgetAreLaunchedLater() throws VerdictDBException {
+    int blockCount = 5;
+    MaxInFlightLimit limit = new MaxInFlightLimit();
+    NodeExecutionService service = new NodeExecutionService(4, false, limit);
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    // as if an answer had been read, the third block is deferred until the next answer.
+    budget.reportAnswer(1, 0.011);
+    ExecutionTokenReader reader = createReader(blockCount, service, budget);
+
+    // each answer is expected to reach the target after one more block, but none does.
+    int answerCount = 1;
+    while (reader.next() != null) {
+      budget.reportAnswer(++answerCount, 0.011);
+    }
+    service.shutdown();
+
+    assertEquals(blockCount, limit.getSuccessCount());
+  }
+
+  @Test(timeout = 60000)
+  public void testDeferredBlocksSkippedOnceTargetReached() throws VerdictDBException {
+    int blockCount = 5;
+    MaxInFlightLimit limit = new MaxInFlightLimit();
+    NodeExecutionService service = new NodeExecutionService(4, false, limit);
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    budget.reportAnswer(1, 0.011);
+    ExecutionTokenReader reader = createReader(blockCount, service, budget);
+
+    // the deferred blocks are skipped (and the aggregation completes) when the target is reached.
+    while (reader.next() != null) {
+      budget.markTargetReached();
+    }
+    service.shutdown();
+
+    assertTrue(limit.getSuccessCount() < blockCount);
+  }
+
+  @Test(timeout = 60000)
+  public void testTargetReachedWhileBlocksAreDeferred()
+      throws VerdictDBException, InterruptedException {
+    int blockCount = 5;
+    MaxInFlightLimit limit = new MaxInFlightLimit();
+    NodeExecutionService service = new NodeExecutionService(4, false, limit);
+    ExecutionBudget budget = new ExecutionBudget(0.01, 0);
+    budget.reportAnswer(1, 0.011);
+    ExecutionTokenReader reader = createReader(blockCount, service, budget);
+
+    // the third block waits for another answer; no runner of the plan is running any more.
+    assertNotNull(reader.next());
+    Thread.sleep(200);
+    assertEquals(2, limit.getSuccessCount());
+
+    // the target is reached on this thread; the aggregation must still complete.
+    budget.markTargetReached();
+    while (reader.next() != null) {}
+    service.shutdown();
+
+    assertEquals(2, limit.getSuccessCount());
+  }
+
+  private ExecutionTokenReader createReader(
+      int blockCount, NodeExecutionService service, ExecutionBudget budget)
+      throws VerdictDBException {
+    ScrambleMetaSet metaSet = createMetaSet(blockCount);
+    ExecutableNodeBase converted = convertInTree(metaSet);
+    ((AsyncAggExecutionNode) converted).setScrambleMetaSet(metaSet);
+    return new ExecutablePlanRunner(
+            new JdbcConnection(conn, new H2Syntax()),
+            new SimpleTreePlan(converted),
+            service,
+            budget)
+        .getTokenReader();
+  }
+
+  /** Allows a single block at a time and records how many blocks have ever run together. */
+  static class MaxInFlightLimit extends AdaptiveConcurrencyLimit {
+
+    int maxInFlight = 0;
+
+    MaxInFlightLimit() {
+      super(1, 1, 1, false);
+    }
+
+    @Override
+    public synchronized long onStart() {
+      long startNanos = super.onStart();
+      maxInFlight = Math.max(maxInFlight, getInFlightCount());
+      return startNanos;
+    }
+  }
+
+  private static ScrambleMetaSet createMetaSet(int blockCount) {
+    UniformScrambler scrambler =
+        new UniformScrambler(originalSchema, originalTable, newSchema, newTable, blockCount);
+    ScrambleMeta metaEntry = scrambler.generateMeta();
+    metaEntry.setNumberOfTiers(1);
+    List<Double> cumulative = new ArrayList<>();
+    for (int i = 1; i <= blockCount; i++) {
+      cumulative.add(i / (double) blockCount);
+    }
+    HashMap<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, cumulative);
+    metaEntry.setCumulativeDistributionForTier(distribution);
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(metaEntry);
+    return metaSet;
+  }
+
+  private static ExecutableNodeBase convertInTree(ScrambleMetaSet metaSet)
+      throws VerdictDBException {
+    SelectQuery aggQuery = SelectQuery.create(
+        new AliasedColumn(ColumnOp.count(), "agg"),
+        new BaseTable(newSchema, newTable, "t"));
+    QueryExecutionPlan plan = QueryExecutionPlanFactory.create(newSchema, metaSet, aggQuery);
+    AggExecutionNode aggnode = AggExecutionNode.create(plan, aggQuery);
+    AsyncQueryExecutionPlan asyncPlan =
+        AsyncQueryExecutionPlan.create(plan, AggCombiningStrategy.TREE);
+    AggExecutionNodeBlock block = new AggExecutionNodeBlock(aggnode);
+    return asyncPlan.convertToProgressiveAgg(metaSet, block);
+  }
+
   static void populateRandomData(Connection conn, String schemaName, String tableName) throws SQLException {
     Statement stmt = conn.createStatement();
     stmt.execute(String.format("CREATE TABLE \"%s\".\"%s\"(\"id\" int, \"value\" double)", schemaName, tableName));
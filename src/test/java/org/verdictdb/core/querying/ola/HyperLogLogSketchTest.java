@@ -0,0 +1,126 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.ColumnOp;
+
+public class HyperLogLogSketchTest {
+
+  /** A 32-bit hash of a value; stands for SqlSyntax.getHllHashFunction(). */
+  static long hash(long value) {
+    long h = value * 0x9E3779B97F4A7C15L;
+    h ^= (h >>> 33);
+    h *= 0xC2B2AE3D27D4EB4FL;
+    h ^= (h >>> 29);
+    return h & 0xFFFFFFFFL;
+  }
+
+  @Test
+  public void testEmptySketch() {
+    assertEquals(0L, new HyperLogLogSketch().estimate());
+  }
+
+  @Test
+  public void testEstimateIsAccurate() {
+    for (int distinctCount : new int[] {100, 10000, 1000000}) {
+      HyperLogLogSketch sketch = new HyperLogLogSketch();
+      for (int i = 0; i < distinctCount; i++) {
+        // duplicates must not change the estimate
+        sketch.addHash(hash(i));
+        sketch.addHash(hash(i));
+      }
+      double relativeError = Math.abs(sketch.estimate() - distinctCount) / (double) distinctCount;
+      assertTrue(relativeError < 0.1);
+    }
+  }
+
+  @Test
+  public void testMergeIsUnion() {
+    HyperLogLogSketch first = new HyperLogLogSketch();
+    HyperLogLogSketch second = new HyperLogLogSketch();
+    HyperLogLogSketch union = new HyperLogLogSketch();
+    for (int i = 0; i < 50000; i++) {
+      first.addHash(hash(i));
+      union.addHash(hash(i));
+    }
+    for (int i = 30000; i < 80000; i++) {
+      second.addHash(hash(i));
+      union.addHash(hash(i));
+    }
+
+    HyperLogLogSketch merged = first.copy();
+    merged.merge(second);
+    assertArrayEquals(union.toBytes(), merged.toBytes());
+    assertEquals(union.estimate(), merged.estimate());
+
+    // copy() is independent of the original
+    assertFalse(first.estimate() == merged.estimate());
+  }
+
+  @Test
+  public void testRegisterMinimumsAreEquivalentToHashes() {
+    HyperLogLogSketch direct = new HyperLogLogSketch();
+    Map<Long, Long> registerToMinimum = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      long h = hash(i);
+      direct.addHash(h);
+
+      // what a block query computes: min(hash) group by floor(hash / divisor)
+      long register = h / HyperLogLogSketch.REGISTER_DIVISOR;
+      Long minimum = registerToMinimum.get(register);
+      if (minimum == null || h < minimum) {
+        registerToMinimum.put(register, h);
+      }
+    }
+
+    HyperLogLogSketch fromRegisters = new HyperLogLogSketch();
+    for (Map.Entry<Long, Long> entry : registerToMinimum.entrySet()) {
+      fromRegisters.addRegisterMinimum(entry.getKey().intValue(), entry.getValue());
+    }
+    assertArrayEquals(direct.toBytes(), fromRegisters.toBytes());
+  }
+
+  @Test
+  public void testBytesRoundTrip() {
+    HyperLogLogSketch sketch = new HyperLogLogSketch();
+    for (int i = 0; i < 1000; i++) {
+      sketch.addHash(hash(i));
+    }
+    HyperLogLogSketch restored = HyperLogLogSketch.fromBytes(sketch.toBytes());
+    assertEquals(sketch.estimate(), restored.estimate());
+  }
+
+  @Test
+  public void testBlockQueryColumns() {
+    BaseColumn column = new BaseColumn("t", "cid");
+    ColumnOp minimumHash = HyperLogLogSketch.minimumHashOf(column);
+    assertTrue(HyperLogLogSketch.isMinimumHash(minimumHash));
+    assertTrue(minimumHash.isAggregateColumn());
+    assertFalse(HyperLogLogSketch.isMinimumHash(new ColumnOp("min", column)));
+    assertFalse(HyperLogLogSketch.registerOf(column).isAggregateColumn());
+  }
+}
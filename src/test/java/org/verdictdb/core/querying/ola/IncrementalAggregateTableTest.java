@@ -0,0 +1,273 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class IncrementalAggregateTableTest {
+
+  static JdbcConnection jdbc;
+
+  static SelectQuery blockQuery;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBDbmsException {
+    Connection conn =
+        DriverManager.getConnection(
+            "jdbc:h2:mem:incrementalaggregatetabletest;DB_CLOSE_DELAY=-1", "", "");
+    jdbc = new JdbcConnection(conn, new H2Syntax());
+    jdbc.execute("CREATE TABLE T(block int, grp varchar(20), price double, qty int)");
+    jdbc.execute(
+        "INSERT INTO T(block, grp, price, qty) VALUES "
+            + "(0, 'a', 1.5, 1), (0, 'a', 2.5, 2), (0, 'b', 3.0, 3), "
+            + "(1, 'a', 4.0, 4), (1, 'c', 5.0, 5), (1, 'c', NULL, 6)");
+
+    BaseTable base = new BaseTable("PUBLIC", "T", "t");
+    blockQuery =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new AliasedColumn(new BaseColumn("t", "grp"), "grp"),
+                new AliasedColumn(ColumnOp.sum(new BaseColumn("t", "price")), "s"),
+                new AliasedColumn(ColumnOp.count(), "c"),
+                new AliasedColumn(new ColumnOp("max", new BaseColumn("t", "qty")), "mx"),
+                new AliasedColumn(new ColumnOp("min", new BaseColumn("t", "qty")), "mn")),
+            base);
+  }
+
+  private DbmsQueryResult runBlock(int block) throws VerdictDBDbmsException {
+    return jdbc.executeQuery(
+        "SELECT grp, sum(price) AS s, count(*) AS c, max(qty) AS mx, min(qty) AS mn "
+            + "FROM T WHERE block = "
+            + block
+            + " GROUP BY grp");
+  }
+
+  @Test
+  public void testMergeOfTwoBlocks() throws VerdictDBDbmsException {
+    IncrementalAggregateTable block0 =
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(0));
+    IncrementalAggregateTable block1 =
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(1));
+    assertEquals(2, block0.getRowCount());
+    assertEquals(2, block1.getRowCount());
+
+    IncrementalAggregateTable combined = IncrementalAggregateTable.emptyLike(block0);
+    combined.merge(block0);
+    combined.merge(block1);
+    assertEquals(3, combined.getRowCount());
+    assertEquals(Types.DOUBLE, combined.getColumnType(1));
+    assertEquals(Types.BIGINT, combined.getColumnType(2));
+
+    Map<Object, Integer> groupToRow = new HashMap<>();
+    for (int row = 0; row < combined.getRowCount(); row++) {
+      groupToRow.put(combined.getValue(row, 0), row);
+    }
+
+    int a = groupToRow.get("a");
+    assertEquals(8.0, combined.getDouble(a, 1), 1e-9);
+    assertEquals(3L, combined.getLong(a, 2));
+    assertEquals(4L, combined.getLong(a, 3));
+    assertEquals(1L, combined.getLong(a, 4));
+
+    int b = groupToRow.get("b");
+    assertEquals(3.0, combined.getDouble(b, 1), 1e-9);
+    assertEquals(1L, combined.getLong(b, 2));
+
+    // sum ignores nulls
+    int c = groupToRow.get("c");
+    assertEquals(5.0, combined.getDouble(c, 1), 1e-9);
+    assertEquals(2L, combined.getLong(c, 2));
+    assertEquals(6L, combined.getLong(c, 3));
+    assertEquals(5L, combined.getLong(c, 4));
+  }
+
+  @Test
+  public void testVarianceOfSum() throws VerdictDBDbmsException {
+    IncrementalAggregateTable combined =
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(0));
+    assertEquals(1, combined.getBlockCount());
+    assertTrue(Double.isNaN(combined.getVarianceOfSum(0, 1)));
+
+    combined.merge(IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(1)));
+    assertEquals(2, combined.getBlockCount());
+
+    Map<Object, Integer> groupToRow = new HashMap<>();
+    for (int row = 0; row < combined.getRowCount(); row++) {
+      groupToRow.put(combined.getValue(row, 0), row);
+    }
+
+    // the per-block sums of a are 4.0 and 4.0; its count is 2 and 1.
+    int a = groupToRow.get("a");
+    assertEquals(0.0, combined.getVarianceOfSum(a, 1), 1e-9);
+    assertEquals(1.0, combined.getVarianceOfSum(a, 2), 1e-9);
+
+    // the blocks without a group contribute zeros: (3.0, 0) and (0, 5.0)
+    assertEquals(9.0, combined.getVarianceOfSum(groupToRow.get("b"), 1), 1e-9);
+    assertEquals(25.0, combined.getVarianceOfSum(groupToRow.get("c"), 1), 1e-9);
+
+    // max and min have no variances
+    assertTrue(Double.isNaN(combined.getVarianceOfSum(a, 3)));
+  }
+
+  @Test
+  public void testVarianceOfSumOverSpans() throws VerdictDBDbmsException {
+    IncrementalAggregateTable combined =
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(0), 1);
+    combined.merge(IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(1), 3));
+    assertEquals(2, combined.getBlockCount());
+    assertEquals(4, combined.getCoveredBlockCount());
+
+    Map<Object, Integer> groupToRow = new HashMap<>();
+    for (int row = 0; row < combined.getRowCount(); row++) {
+      groupToRow.put(combined.getValue(row, 0), row);
+    }
+
+    // (4 * (s_1^2 / 1 + s_2^2 / 3) - (s_1 + s_2)^2) / (2 - 1)
+    assertEquals(
+        4 * (16.0 + 16.0 / 3) - 64.0, combined.getVarianceOfSum(groupToRow.get("a"), 1), 1e-9);
+    assertEquals(4 * 9.0 - 9.0, combined.getVarianceOfSum(groupToRow.get("b"), 1), 1e-9);
+    assertEquals(
+        4 * (25.0 / 3) - 25.0, combined.getVarianceOfSum(groupToRow.get("c"), 1), 1e-9);
+  }
+
+  private Map<Object, Object[]> readTable(InMemoryAggregate inMemoryAggregate, String table)
+      throws VerdictDBException, SQLException {
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn("r", "GRP"),
+                new BaseColumn("r", "S"),
+                new BaseColumn("r", IncrementalAggregateTable.getSquareSumColumnName("S"))),
+            new BaseTable("PUBLIC", table, "r"));
+    // the block results of H2 have upper-case column names
+    DbmsQueryResult result = inMemoryAggregate.executeQuery(query);
+    Map<Object, Object[]> rows = new HashMap<>();
+    while (result.next()) {
+      rows.put(result.getValue(0), new Object[] {result.getDouble(1), result.getDouble(2)});
+    }
+    return rows;
+  }
+
+  @Test
+  public void testMaterializeUpdatesTableOfRunningAggregates()
+      throws VerdictDBException, SQLException {
+    InMemoryAggregate inMemoryAggregate = InMemoryAggregate.create();
+    assertNull(inMemoryAggregate.materialize());
+
+    inMemoryAggregate.combineBlock(
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(0)));
+    String table = inMemoryAggregate.materialize();
+    Map<Object, Object[]> rows = readTable(inMemoryAggregate, table);
+    assertEquals(2, rows.size());
+    assertEquals(4.0, (double) rows.get("a")[0], 1e-9);
+
+    // the same table is updated in place; only a and c are changed by the second block
+    inMemoryAggregate.combineBlock(
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(1)));
+    assertEquals(table, inMemoryAggregate.materialize());
+    assertEquals(2, inMemoryAggregate.getBlockCount());
+    rows = readTable(inMemoryAggregate, table);
+    assertEquals(3, rows.size());
+    assertEquals(8.0, (double) rows.get("a")[0], 1e-9);
+    assertEquals(32.0, (double) rows.get("a")[1], 1e-9);
+    assertEquals(3.0, (double) rows.get("b")[0], 1e-9);
+    assertEquals(5.0, (double) rows.get("c")[0], 1e-9);
+
+    // nothing is materialized after an abort
+    inMemoryAggregate.abort();
+    inMemoryAggregate.combineBlock(
+        IncrementalAggregateTable.fromBlockResult(blockQuery, runBlock(0)));
+    assertNull(inMemoryAggregate.materialize());
+  }
+
+  @Test
+  public void testSketchesAreMergedAcrossBlocks() throws VerdictDBDbmsException {
+    // the hashes of the values 0, ..., 999 in block 0 and 500, ..., 1499 in block 1
+    jdbc.execute("CREATE TABLE S(block int, grp varchar(20), h bigint)");
+    HyperLogLogSketch expected = new HyperLogLogSketch();
+    for (int block = 0; block < 2; block++) {
+      StringBuilder values = new StringBuilder();
+      for (int i = block * 500; i < block * 500 + 1000; i++) {
+        long h = HyperLogLogSketchTest.hash(i);
+        expected.addHash(h);
+        values.append((values.length() == 0) ? "" : ", ");
+        values.append(String.format("(%d, 'a', %d)", block, h));
+      }
+      jdbc.execute("INSERT INTO S(block, grp, h) VALUES " + values);
+    }
+
+    BaseColumn h = new BaseColumn("s", "h");
+    SelectQuery sketchQuery =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new AliasedColumn(new BaseColumn("s", "grp"), "grp"),
+                new AliasedColumn(HyperLogLogSketch.minimumHashOf(h), "d"),
+                new AliasedColumn(
+                    HyperLogLogSketch.registerOf(h), HyperLogLogSketch.REGISTER_COLUMN_ALIAS)),
+            new BaseTable("PUBLIC", "S", "s"));
+
+    IncrementalAggregateTable combined = null;
+    for (int block = 0; block < 2; block++) {
+      DbmsQueryResult result =
+          jdbc.executeQuery(
+              String.format(
+                  "SELECT grp, min(h) AS d, floor(h / %d) AS %s FROM S WHERE block = %d "
+                      + "GROUP BY grp, floor(h / %d)",
+                  HyperLogLogSketch.REGISTER_DIVISOR,
+                  HyperLogLogSketch.REGISTER_COLUMN_ALIAS,
+                  block,
+                  HyperLogLogSketch.REGISTER_DIVISOR));
+      IncrementalAggregateTable blockTable =
+          IncrementalAggregateTable.fromBlockResult(sketchQuery, result);
+      if (combined == null) {
+        combined = IncrementalAggregateTable.emptyLike(blockTable);
+      }
+      combined.merge(blockTable);
+    }
+
+    // the register column is not a column of the table; the groups are not split by registers.
+    assertEquals(2, combined.getColumnCount());
+    assertEquals(1, combined.getRowCount());
+    assertEquals(Types.BIGINT, combined.getColumnType(1));
+    assertEquals(expected.estimate(), combined.getValue(0, 1));
+    jdbc.execute("DROP TABLE S");
+  }
+}
@@ -0,0 +1,60 @@
+package org.verdictdb.core.resulthandler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+
+public class ExecutionResultDispatcherTest {
+
+  static class RecordingListener implements ExecutionResultListener {
+
+    List<String> events = new ArrayList<>();
+
+    @Override
+    public void onResult(DbmsQueryResult result) {
+      events.add("result");
+    }
+
+    @Override
+    public void onCompleted() {
+      events.add("completed");
+    }
+
+    @Override
+    public void onError(Exception e) {
+      events.add("error:" + e.getMessage());
+    }
+  }
+
+  @Test
+  public void testResultsThenCompletion() {
+    RecordingListener listener = new RecordingListener();
+    ExecutionResultDispatcher dispatcher = new ExecutionResultDispatcher(listener);
+    dispatcher.onToken(ExecutionInfoToken.empty());
+    dispatcher.onToken(ExecutionInfoToken.empty());
+    dispatcher.onToken(ExecutionInfoToken.successToken());
+    assertTrue(dispatcher.isFinished());
+
+    // the tokens after the first status token are ignored
+    dispatcher.onToken(ExecutionInfoToken.empty());
+    dispatcher.onToken(ExecutionInfoToken.successToken());
+    assertEquals(3, listener.events.size());
+    assertEquals("completed", listener.events.get(2));
+  }
+
+  @Test
+  public void testFailure() {
+    RecordingListener listener = new RecordingListener();
+    ExecutionResultDispatcher dispatcher = new ExecutionResultDispatcher(listener);
+    dispatcher.onToken(ExecutionInfoToken.empty());
+    dispatcher.onToken(ExecutionInfoToken.failureToken(new RuntimeException("failed")));
+    assertEquals(2, listener.events.size());
+    assertEquals("error:failed", listener.events.get(1));
+  }
+}
@@ -238,4 +238,25 @@ public class FastConvergeScramblingMethodTest {
     assertEquals("is_null", ((ColumnOp) tiers.get(1)).getOpType());
   }
 
+  @Test
+  public void testOutlierBoundsAreReused() throws VerdictDBDbmsException {
+    int blockSize = 10;
+    String scratchpadSchemaName = "test";
+    FastConvergeScramblingMethod method =
+        new FastConvergeScramblingMethod(blockSize, scratchpadSchemaName);
+
+    String sql = "select avg(t.\"age\") as \"verdictdbavgAGE\", "
+        + "stddev_pop(t.\"age\") as \"verdictdbstddevAGE\", "
+        + "count(*) as \"verdictdbtotalcount\" "
+        + "from \"test\".\"people\" as t";
+    DbmsConnection conn = JdbcConnection.create(h2conn);
+    Map<String, Object> metaData = new HashMap<>();
+    metaData.put(PercentilesAndCountNode.class.getSimpleName(), conn.execute(sql));
+    UnnamedColumn tier0 = method.getTierExpressions(metaData).get(0);
+
+    // the statistics are not needed once computed
+    UnnamedColumn reused = method.getTierExpressions(new HashMap<String, Object>()).get(0);
+    assertEquals(tier0, reused);
+  }
+
 }
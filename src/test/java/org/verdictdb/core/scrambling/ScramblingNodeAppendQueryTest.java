@@ -0,0 +1,82 @@
+package org.verdictdb.core.scrambling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.InsertIntoSelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.MysqlSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class ScramblingNodeAppendQueryTest {
+
+  private Map<String, String> options() {
+    Map<String, String> options = new HashMap<>();
+    options.put("tierColumnName", "tiercolumn");
+    options.put("blockColumnName", "blockcolumn");
+    return options;
+  }
+
+  private List<Pair<String, String>> columns() {
+    return Arrays.asList(Pair.of("id", "int"), Pair.of("value", "double"));
+  }
+
+  private Map<Integer, List<Double>> distribution(Double... cumulativeProbabilities) {
+    Map<Integer, List<Double>> dist = new HashMap<>();
+    dist.put(0, Arrays.asList(cumulativeProbabilities));
+    return dist;
+  }
+
+  @Test
+  public void testAppendWithStoredDistribution() throws VerdictDBException {
+    ScramblingMethod method = new UniformScramblingMethod(distribution(0.25, 0.5, 0.75, 1.0));
+    InsertIntoSelectQuery query =
+        ScramblingNode.createAppendQuery(
+            "newschema",
+            "newtable",
+            "oldschema",
+            "oldtable",
+            method,
+            ColumnOp.equal(new BaseColumn("t", "id"), ConstantColumn.valueOf(3)),
+            columns(),
+            options());
+
+    // the target columns do not depend on how the select items are written.
+    assertEquals(
+        Arrays.asList("id", "value", "tiercolumn", "blockcolumn"), query.getColumnNames());
+
+    // no statistics are needed, and the existing blocks are reused.
+    String expected =
+        "insert into `newschema`.`newtable`(`id`,`value`,`tiercolumn`,`blockcolumn`) "
+            + "select `id`, `value`, `tiercolumn`, `blockcolumn` from ("
+            + "select t.`id`, t.`value`, 0 as `tiercolumn`, "
+            + "cast(floor(rand() * 4) as unsigned) as `blockcolumn` "
+            + "from `oldschema`.`oldtable` as t "
+            + "where t.`id` = 3) as verdictdbappend";
+    assertEquals(expected, QueryToSql.convert(new MysqlSyntax(), query));
+  }
+
+  @Test
+  public void testAppendToReducedScramble() throws VerdictDBException {
+    // the scramble keeps two out of four blocks (i.e., relative size = 0.5)
+    ScramblingMethod method = new HashScramblingMethod(distribution(0.25, 0.5), "id");
+    InsertIntoSelectQuery query =
+        ScramblingNode.createAppendQuery(
+            "newschema", "newtable", "oldschema", "oldtable", method, null, columns(), options());
+
+    String sql = QueryToSql.convert(new MysqlSyntax(), query);
+    assertEquals(4, method.getBlockCount());
+    assertEquals(2, method.getActualBlockCount());
+    assertTrue(sql.endsWith("as verdictdbappend where `blockcolumn` < 2"));
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.metastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+
+public class CachedScrambleMetaStoreTest {
+
+  /** A store whose version and changes are set by the tests; no dbms is involved. */
+  static class StubScrambleMetaStore extends ScrambleMetaStore {
+
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+    long storeVersion = 0;
+
+    ScrambleMetaChanges changes = null;
+
+    int retrieveCount = 0;
+
+    int versionCount = 0;
+
+    List<Long> changesRequested = new ArrayList<>();
+
+    StubScrambleMetaStore() {
+      super(null, "verdictdbmetadata");
+    }
+
+    @Override
+    public ScrambleMetaSet retrieve() {
+      retrieveCount++;
+      return metaSet;
+    }
+
+    @Override
+    public long getVersion() {
+      versionCount++;
+      return storeVersion;
+    }
+
+    @Override
+    public ScrambleMetaChanges retrieveChangesSince(long version) {
+      changesRequested.add(version);
+      return changes;
+    }
+  }
+
+  private static ScrambleMeta scramble(String name) {
+    ScrambleMeta meta = new ScrambleMeta();
+    meta.setSchemaName("s");
+    meta.setTableName(name);
+    meta.setOriginalSchemaName("s");
+    meta.setOriginalTableName("sales");
+    meta.setMethod("uniform");
+    return meta;
+  }
+
+  private static List<String> tableNames(ScrambleMetaSet metaSet) {
+    List<String> names = new ArrayList<>();
+    for (ScrambleMeta meta : metaSet) {
+      names.add(meta.getTableName());
+    }
+    return names;
+  }
+
+  @Test
+  public void testChangesAreApplied() {
+    StubScrambleMetaStore store = new StubScrambleMetaStore();
+    store.metaSet.addScrambleMeta(scramble("b"));
+    store.metaSet.addScrambleMeta(scramble("a"));
+    store.storeVersion = 3;
+    CachedScrambleMetaStore cached = new CachedScrambleMetaStore(store, 0);
+    cached.refreshCache();
+    assertEquals(1, store.retrieveCount);
+    long localVersion = cached.getVersion();
+
+    // c is added and a is dropped by another process
+    store.storeVersion = 5;
+    store.changes = new ScrambleMetaChanges(5);
+    store.changes.addScrambleMeta(scramble("c"));
+    store.changes.addDroppedScramble("s", "a");
+    ScrambleMetaSet retrieved = cached.retrieve();
+
+    assertEquals(1, store.retrieveCount);
+    assertEquals(3L, (long) store.changesRequested.get(0));
+    assertEquals(2, tableNames(retrieved).size());
+    assertEquals("c", tableNames(retrieved).get(0));
+    assertEquals("b", tableNames(retrieved).get(1));
+    assertEquals(localVersion + 1, cached.getVersion());
+
+    // the store has not changed since
+    assertSame(retrieved, cached.retrieve());
+    assertEquals(1, store.changesRequested.size());
+    assertEquals(localVersion + 1, cached.getVersion());
+  }
+
+  @Test
+  public void testEmptyChangesKeepVersion() {
+    StubScrambleMetaStore store = new StubScrambleMetaStore();
+    store.metaSet.addScrambleMeta(scramble("a"));
+    CachedScrambleMetaStore cached = new CachedScrambleMetaStore(store, 0);
+    ScrambleMetaSet retrieved = cached.retrieve();
+    long localVersion = cached.getVersion();
+
+    store.storeVersion = 1;
+    store.changes = new ScrambleMetaChanges(1);
+    assertSame(retrieved, cached.retrieve());
+    assertEquals(localVersion, cached.getVersion());
+
+    // the next check starts from the version read last
+    store.storeVersion = 2;
+    store.changes = new ScrambleMetaChanges(2);
+    cached.retrieve();
+    assertEquals(1L, (long) store.changesRequested.get(1));
+  }
+
+  @Test
+  public void testUnknownChangesReloadStore() {
+    StubScrambleMetaStore store = new StubScrambleMetaStore();
+    store.metaSet.addScrambleMeta(scramble("a"));
+    CachedScrambleMetaStore cached = new CachedScrambleMetaStore(store, 0);
+    cached.retrieve();
+    long localVersion = cached.getVersion();
+
+    // e.g., the store has been compacted
+    store.storeVersion = 7;
+    store.changes = null;
+    store.metaSet = new ScrambleMetaSet();
+    store.metaSet.addScrambleMeta(scramble("b"));
+    ScrambleMetaSet retrieved = cached.retrieve();
+
+    assertEquals(2, store.retrieveCount);
+    assertEquals("b", tableNames(retrieved).get(0));
+    assertEquals(localVersion + 1, cached.getVersion());
+  }
+
+  @Test
+  public void testVersionIsNotCheckedWithinInterval() {
+    StubScrambleMetaStore store = new StubScrambleMetaStore();
+    CachedScrambleMetaStore cached = new CachedScrambleMetaStore(store, 60000);
+    cached.retrieve();
+    int versionCount = store.versionCount;
+
+    store.storeVersion = 1;
+    for (int i = 0; i < 10; i++) {
+      cached.retrieve();
+    }
+    assertEquals(versionCount, store.versionCount);
+    assertEquals(1, store.retrieveCount);
+    assertEquals(0, store.changesRequested.size());
+  }
+}
@@ -0,0 +1,197 @@
+package org.verdictdb.metastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class ScrambleMetaStoreH2Test {
+
+  static Connection h2conn;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:scramblemetastoretest;DB_CLOSE_DELAY=-1");
+    h2conn.createStatement().execute("CREATE SCHEMA \"s\"");
+  }
+
+  @AfterClass
+  public static void closeH2Connection() throws SQLException {
+    h2conn.close();
+  }
+
+  private ScrambleMetaStore createStore(String storeSchema) throws VerdictDBException {
+    ScrambleMetaStore store =
+        new ScrambleMetaStore(new JdbcConnection(h2conn, new H2Syntax()), storeSchema);
+    store.remove();
+    return store;
+  }
+
+  private static ScrambleMeta createScrambleMeta(String table) throws VerdictDBException {
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(1.0));
+    return new ScrambleMeta(
+        "s", table, "s", "original", "verdictdbblock", 1, "verdictdbtier", 1, distribution,
+        "uniform", null);
+  }
+
+  private List<Object> readColumn(String storeSchema, String table, String column)
+      throws SQLException {
+    ResultSet rs =
+        h2conn
+            .createStatement()
+            .executeQuery(
+                String.format("SELECT \"%s\" FROM \"%s\".\"%s\"", column, storeSchema, table));
+    List<Object> values = new ArrayList<>();
+    while (rs.next()) {
+      values.add(rs.getObject(1));
+    }
+    return values;
+  }
+
+  private Set<String> tablesOf(String storeSchema) throws SQLException {
+    ResultSet rs =
+        h2conn
+            .createStatement()
+            .executeQuery(
+                String.format(
+                    "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = '%s'",
+                    storeSchema));
+    Set<String> tables = new HashSet<>();
+    while (rs.next()) {
+      tables.add(rs.getString(1));
+    }
+    return tables;
+  }
+
+  @Test
+  public void testConcurrentWritersLogDistinctVersions() throws Exception {
+    final ScrambleMetaStore store = createStore("metaversions");
+    final int threadCount = 4;
+    final int addCount = 5;
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      final int thread = i;
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                for (int j = 0; j < addCount; j++) {
+                  store.addToStore(createScrambleMeta("t_" + thread + "_" + j));
+                }
+              } catch (Exception e) {
+                error.set(e);
+              }
+            }
+          });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertNull(error.get());
+
+    List<Object> versions =
+        readColumn("metaversions", ScrambleMetaStore.getVersionTableName(), "store_version");
+    assertEquals(threadCount * addCount, versions.size());
+    assertEquals(threadCount * addCount, new HashSet<>(versions).size());
+    assertEquals(threadCount * addCount, store.getVersion());
+  }
+
+  @Test
+  public void testCompact() throws VerdictDBException, SQLException {
+    ScrambleMetaStore store = createStore("metacompact");
+    store.addToStore(createScrambleMeta("t_kept"));
+    store.addToStore(createScrambleMeta("t_dropped"));
+    store.addToStore(createScrambleMeta("t_kept"));
+    store.dropScrambleTable(new BaseTable("s", "original"), new BaseTable("s", "t_dropped"));
+    long version = store.getVersion();
+    assertEquals(4, version);
+
+    store.compact();
+    assertEquals(
+        1, readColumn("metacompact", store.getMetaStoreTableName(), "scramble_table").size());
+    ScrambleMetaSet metaSet = store.retrieve();
+    assertNotNull(metaSet.getMetaForTable("s", "t_kept"));
+    assertFalse(metaSet.isScrambled("s", "t_dropped"));
+
+    // the caches that have read an older version reload the store
+    assertEquals(version + 1, store.getVersion());
+    assertNull(store.retrieveChangesSince(version));
+    assertTrue(store.retrieveChangesSince(version + 1).isEmpty());
+
+    // no table is left behind by the renaming
+    assertEquals(
+        new HashSet<>(
+            Arrays.asList(store.getMetaStoreTableName(), ScrambleMetaStore.getVersionTableName())),
+        tablesOf("metacompact"));
+
+    // the versions logged after the compaction follow the marker
+    store.addToStore(createScrambleMeta("t_new"));
+    assertEquals(version + 2, store.getVersion());
+  }
+
+  @Test
+  public void testCompactPartitionLog() throws VerdictDBException, InterruptedException {
+    ScrambleMetaStore store = createStore("metapartition");
+    store.addToStore(createScrambleMeta("t_kept"));
+
+    String oldCreation = store.addScrambleCreation("s", "t_kept");
+    store.addCompletedPartition("s", "t_kept", oldCreation, "year=2017");
+    Thread.sleep(10);
+    String creation = store.addScrambleCreation("s", "t_kept");
+    store.addCompletedPartition("s", "t_kept", creation, "year=2018");
+    store.addCompletedPartition("s", "t_kept", creation, "year=2019");
+
+    // an interrupted scrambling, whose scramble is not in the store yet
+    String pending = store.addScrambleCreation("s", "t_pending");
+    store.addCompletedPartition("s", "t_pending", pending, "year=2018");
+
+    String dropped = store.addScrambleCreation("s", "t_dropped");
+    store.addCompletedPartition("s", "t_dropped", dropped, "year=2018");
+    store.addToStore(createScrambleMeta("t_dropped"));
+    Thread.sleep(10);
+    store.dropScrambleTable(new BaseTable("s", "original"), new BaseTable("s", "t_dropped"));
+
+    Pair<String, Set<String>> kept = store.retrieveCompletedPartitions("s", "t_kept");
+    Pair<String, Set<String>> pendingPartitions =
+        store.retrieveCompletedPartitions("s", "t_pending");
+    store.compact();
+
+    assertEquals(kept, store.retrieveCompletedPartitions("s", "t_kept"));
+    assertEquals(
+        new HashSet<>(Arrays.asList("year=2018", "year=2019")),
+        store.retrieveCompletedPartitions("s", "t_kept").getRight());
+    assertEquals(pendingPartitions, store.retrieveCompletedPartitions("s", "t_pending"));
+    assertNull(store.retrieveCompletedPartitions("s", "t_dropped"));
+  }
+}
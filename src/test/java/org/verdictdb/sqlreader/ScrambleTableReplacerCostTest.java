@@ -0,0 +1,174 @@
+package org.verdictdb.sqlreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.verdictdb.core.scrambling.FastConvergeScramblingMethod;
+import org.verdictdb.core.scrambling.HashScramblingMethod;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.ScramblingMethodBase;
+import org.verdictdb.core.scrambling.UniformScramblingMethod;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBValueException;
+
+public class ScrambleTableReplacerCostTest {
+
+  private static ScrambleMeta scramble(
+      String name, String method, int blockCount, ScramblingMethodBase scramblingMethod) {
+    ScrambleMeta meta = new ScrambleMeta();
+    meta.setSchemaName("s");
+    meta.setTableName(name);
+    meta.setOriginalSchemaName("s");
+    meta.setOriginalTableName("sales");
+    meta.setMethod(method);
+    meta.setAggregationBlockCount(blockCount);
+    meta.setScramblingMethod(scramblingMethod);
+    return meta;
+  }
+
+  private static ScrambleMeta uniform(String name, double relativeSize, int blockCount) {
+    return scramble(
+        name, "uniform", blockCount, new UniformScramblingMethod(1000, blockCount, relativeSize));
+  }
+
+  private static SelectQuery sumQuery() {
+    BaseTable table = new BaseTable("s", "sales", "t");
+    return SelectQuery.create(
+        Arrays.<SelectItem>asList(
+            new AliasedColumn(ColumnOp.sum(new BaseColumn("t", "price")), "a")),
+        table);
+  }
+
+  private static String replacedTable(ScrambleMetaSet metaSet, SelectQuery query)
+      throws VerdictDBValueException {
+    ScrambleTableReplacer replacer = new ScrambleTableReplacer(metaSet);
+    replacer.setAutomaticReplacementEnabled(true);
+    assertEquals(1, replacer.replaceQuery(query));
+    return ((BaseTable) query.getFromList().get(0)).getTableName();
+  }
+
+  @Test
+  public void testScramblesAreIndexedByOriginalTable() {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_a", 0.1, 10));
+    metaSet.addScrambleMeta(uniform("sales_b", 0.01, 10));
+
+    assertEquals(2, metaSet.getScramblesOf("s", "sales").size());
+    assertEquals("sales_a", metaSet.getScramblesOf("s", "sales").get(0).getTableName());
+    assertTrue(metaSet.getScramblesOf("s", "orders").isEmpty());
+    assertTrue(metaSet.isScrambled("s", "sales_b"));
+  }
+
+  @Test
+  public void testNoReplacementByDefault() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_a", 0.1, 10));
+
+    SelectQuery query = sumQuery();
+    assertEquals(0, new ScrambleTableReplacer(metaSet).replaceQuery(query));
+    assertEquals("sales", ((BaseTable) query.getFromList().get(0)).getTableName());
+
+    // the scrambles named directly are still counted
+    SelectQuery scrambleQuery = sumQuery();
+    ((BaseTable) scrambleQuery.getFromList().get(0)).setTableName("sales_a");
+    assertEquals(1, new ScrambleTableReplacer(metaSet).replaceQuery(scrambleQuery));
+  }
+
+  @Test
+  public void testSmallScrambleForUngroupedQuery() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_large", 1.0, 10));
+    metaSet.addScrambleMeta(uniform("sales_small", 0.02, 10));
+
+    // 1% of the table suffices: five blocks of the small scramble, one block of the large one
+    assertEquals("sales_small", replacedTable(metaSet, sumQuery()));
+  }
+
+  @Test
+  public void testLargeScrambleForSelectiveQuery() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_small", 0.02, 10));
+    metaSet.addScrambleMeta(uniform("sales_large", 1.0, 100));
+
+    SelectQuery query = sumQuery();
+    query.addFilterByAnd(
+        ColumnOp.greater(new BaseColumn("t", "price"), ConstantColumn.valueOf(10)));
+    query.addFilterByAnd(
+        ColumnOp.less(new BaseColumn("t", "price"), ConstantColumn.valueOf(20)));
+
+    // the small scramble cannot reach the target accuracy
+    assertEquals("sales_large", replacedTable(metaSet, query));
+  }
+
+  @Test
+  public void testStratifiedScrambleForGroupbyQuery() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_uniform", 1.0, 100));
+    ScrambleMeta stratified =
+        scramble("sales_fc", "fastconverge", 100, new FastConvergeScramblingMethod(1000, "tmp"));
+    stratified.setHashColumn("region");
+    metaSet.addScrambleMeta(stratified);
+
+    SelectQuery query = sumQuery();
+    query.addGroupby(new BaseColumn("t", "region"));
+    assertEquals("sales_fc", replacedTable(metaSet, query));
+
+    query = sumQuery();
+    query.addGroupby(new BaseColumn("t", "product"));
+    assertEquals("sales_uniform", replacedTable(metaSet, query));
+  }
+
+  @Test
+  public void testHashScrambleOnCountDistinctColumn() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(uniform("sales_uniform", 0.01, 10));
+    ScrambleMeta onCustomer =
+        scramble("sales_customer", "hash", 10, new HashScramblingMethod(1000, 10, 0.1, "cid"));
+    onCustomer.setHashColumn("cid");
+    metaSet.addScrambleMeta(onCustomer);
+    ScrambleMeta onProduct =
+        scramble("sales_product", "hash", 10, new HashScramblingMethod(1000, 10, 0.01, "pid"));
+    onProduct.setHashColumn("pid");
+    metaSet.addScrambleMeta(onProduct);
+
+    ColumnOp countDistinct = new ColumnOp("countdistinct", new BaseColumn("t", "cid"));
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(new AliasedColumn(countDistinct, "a")),
+            new BaseTable("s", "sales", "t"));
+    assertEquals("sales_customer", replacedTable(metaSet, query));
+  }
+
+  @Test
+  public void testSketchOnlyOnFullScrambles() throws VerdictDBValueException {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    ScrambleMeta sampled = uniform("sales_sampled", 0.1, 10);
+    sampled.setNumberOfTiers(1);
+    metaSet.addScrambleMeta(sampled);
+    ScrambleMeta full = uniform("sales_full", 1.0, 100);
+    full.setNumberOfTiers(1);
+    metaSet.addScrambleMeta(full);
+
+    // the distinct values of a sample cannot be scaled up
+    ColumnOp countDistinct = new ColumnOp("countdistinct", new BaseColumn("t", "cid"));
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(new AliasedColumn(countDistinct, "a")),
+            new BaseTable("s", "sales", "t"));
+    ScrambleTableReplacer replacer = new ScrambleTableReplacer(metaSet);
+    replacer.setAutomaticReplacementEnabled(true);
+    replacer.setCountDistinctSketchEnabled(true);
+    assertEquals(1, replacer.replaceQuery(query));
+    assertEquals("sales_full", ((BaseTable) query.getFromList().get(0)).getTableName());
+  }
+}
@@ -1,14 +1,17 @@
 package org.verdictdb.sqlsyntax;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import org.junit.Test;
 import org.verdictdb.connection.JdbcConnection;
 import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.exception.VerdictDBValueException;
 
 public class SqlSyntaxTest {
 
@@ -82,4 +85,39 @@ public class SqlSyntaxTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void testQuoteStringLiteral() throws VerdictDBValueException {
+    String value = "it's a \\' or 1=1 --";
+    assertEquals("'it''s a \\'' or 1=1 --'", new H2Syntax().quoteStringLiteral(value));
+    assertEquals("'it\\'s a \\\\\\' or 1=1 --'", new HiveSyntax().quoteStringLiteral(value));
+    assertEquals("'it\\'s a \\\\\\' or 1=1 --'", new SparkSyntax().quoteStringLiteral(value));
+    assertEquals("'it\\'s a \\\\\\' or 1=1 --'", new ImpalaSyntax().quoteStringLiteral(value));
+    assertEquals("'it''s'", new MysqlSyntax().quoteStringLiteral("it's"));
+    assertEquals("'it''s'", new PostgresqlSyntax().quoteStringLiteral("it's"));
+    assertEquals("NULL", new MysqlSyntax().quoteStringLiteral(null));
+  }
+
+  @Test
+  public void testQuoteStringLiteralRejectsBackslash() {
+    SqlSyntax[] syntaxes = {new MysqlSyntax(), new PostgresqlSyntax(), new RedshiftSyntax()};
+    for (SqlSyntax syntax : syntaxes) {
+      try {
+        syntax.quoteStringLiteral("\\' or 1=1 --");
+        fail("A backslash should be rejected by " + syntax.getClass().getSimpleName());
+      } catch (VerdictDBValueException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testQuotedStringLiteralIsReadBack() throws SQLException, VerdictDBValueException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:sqlsyntaxliteral", "", "");
+    String value = "it's a \\' or 1=1 --";
+    ResultSet rs =
+        conn.createStatement().executeQuery("select " + new H2Syntax().quoteStringLiteral(value));
+    rs.next();
+    assertEquals(value, rs.getString(1));
+    conn.close();
+  }
 }
@@ -18,6 +18,8 @@ import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.UnnamedColumn;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.sqlsyntax.HiveSyntax;
+import org.verdictdb.sqlsyntax.MysqlSyntax;
+import org.verdictdb.sqlsyntax.PostgresqlSyntax;
 
 public class SelectQueryToSqlTest {
 
@@ -234,5 +236,24 @@ public class SelectQueryToSqlTest {
     String expected = "select abc";
     assertEquals(expected, actual);
   }
-  
+
+  @Test
+  public void testSampledBaseTable() throws VerdictDBException {
+    BaseTable base = new BaseTable("myschema", "mytable", "t");
+    base.setSamplingPercent(1.0);
+    SelectQuery relation =
+        SelectQuery.create(Arrays.<SelectItem>asList(new AsteriskColumn()), base);
+
+    // the sampling clause comes before the alias
+    String expected = "select * from `myschema`.`mytable` tablesample (1.000000 percent) as t";
+    assertEquals(expected, new SelectQueryToSql(new HiveSyntax()).toSql(relation));
+
+    // the sampling clause comes after the alias
+    expected = "select * from \"myschema\".\"mytable\" as t tablesample system (1.000000)";
+    assertEquals(expected, new SelectQueryToSql(new PostgresqlSyntax()).toSql(relation));
+
+    // rows are filtered randomly if sampling tables is not supported
+    expected = "select * from (select * from `myschema`.`mytable` where rand() < 0.01) as t";
+    assertEquals(expected, new SelectQueryToSql(new MysqlSyntax()).toSql(relation));
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.apache.commons.lang3.RandomStringUtils;
+
+/**
+ * In-memory databases (H2 and SQLite) that provide the query results used by the benchmarks, so
+ * that no external database is needed.
+ */
+public class EmbeddedDatabase {
+
+  public static final String H2 = "h2";
+
+  public static final String SQLITE = "sqlite";
+
+  /**
+   * @param backend Either h2 or sqlite
+   * @return A connection to a new in-memory database
+   */
+  public static Connection connect(String backend) throws SQLException {
+    if (backend.equals(H2)) {
+      String name = "verdictdb_bench_" + RandomStringUtils.randomAlphanumeric(8).toLowerCase();
+      return DriverManager.getConnection(
+          String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", name), "", "");
+    } else if (backend.equals(SQLITE)) {
+      // every connection to :memory: opens its own database.
+      return DriverManager.getConnection("jdbc:sqlite::memory:");
+    } else {
+      throw new IllegalArgumentException("Unknown backend: " + backend);
+    }
+  }
+
+  /**
+   * Creates a table (g int, n bigint, v double, s varchar) whose rows are evenly spread over the
+   * given number of groups, in the shape of the results of block aggregate queries.
+   *
+   * @param conn A connection to the database
+   * @param tableName The name of the table to create
+   * @param rowCount The number of rows
+   * @param groupCount The number of distinct values of g
+   */
+  public static void createTable(Connection conn, String tableName, int rowCount, int groupCount)
+      throws SQLException {
+    Statement stmt = conn.createStatement();
+    stmt.execute("DROP TABLE IF EXISTS " + tableName);
+    stmt.execute(
+        "CREATE TABLE " + tableName + " (g int, n bigint, v double precision, s varchar(20))");
+    stmt.close();
+
+    boolean autoCommit = conn.getAutoCommit();
+    conn.setAutoCommit(false);
+    PreparedStatement pstmt =
+        conn.prepareStatement("INSERT INTO " + tableName + " (g, n, v, s) VALUES (?, ?, ?, ?)");
+    // a fixed seed so that every run reads the same data
+    Random random = new Random(0);
+    for (int i = 0; i < rowCount; i++) {
+      pstmt.setInt(1, i % groupCount);
+      pstmt.setLong(2, random.nextInt(1000));
+      pstmt.setDouble(3, random.nextDouble() * 1000);
+      pstmt.setString(4, "value" + random.nextInt(1000));
+      pstmt.addBatch();
+      if ((i + 1) % 1000 == 0) {
+        pstmt.executeBatch();
+      }
+    }
+    pstmt.executeBatch();
+    pstmt.close();
+    conn.commit();
+    conn.setAutoCommit(autoCommit);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+
+/**
+ * Copying the tokens passed between the nodes of a plan. A token carrying a query result is the
+ * most expensive case; deepcopy copies every value while copyForSubscriber (which the nodes use
+ * when a token is sent to multiple subscribers) copies only the query result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionInfoTokenBenchmark {
+
+  private static final String TABLE_NAME = "tokentable";
+
+  /** The number of rows of the query result in the token. */
+  @Param({"10", "1000"})
+  public int rowCount;
+
+  private ExecutionInfoToken token;
+
+  @Setup
+  public void setup() throws SQLException, VerdictDBException {
+    Connection conn = EmbeddedDatabase.connect(EmbeddedDatabase.H2);
+    EmbeddedDatabase.createTable(conn, TABLE_NAME, rowCount, rowCount);
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT g, n, v, s FROM " + TABLE_NAME);
+    JdbcQueryResult queryResult = new JdbcQueryResult(rs);
+    rs.close();
+    stmt.close();
+    conn.close();
+
+    SelectQuery dependentQuery =
+        TpchFixture.standardize(TpchFixture.Q1, TpchFixture.createMetaData());
+    token = new ExecutionInfoToken();
+    token.setKeyValue("schemaName", TpchFixture.SCRATCHPAD_SCHEMA);
+    token.setKeyValue("tableName", "verdictdbtemptable_0_1");
+    token.setKeyValue("dependentQuery", dependentQuery);
+    token.setKeyValue("queryResult", queryResult);
+  }
+
+  @Benchmark
+  public ExecutionInfoToken deepcopy() {
+    return token.deepcopy();
+  }
+
+  @Benchmark
+  public ExecutionInfoToken copyForSubscriber() {
+    return token.copyForSubscriber();
+  }
+}
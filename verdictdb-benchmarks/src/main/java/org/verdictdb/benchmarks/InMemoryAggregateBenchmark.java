@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.core.querying.ola.InMemoryAggregate;
+import org.verdictdb.core.querying.ola.IncrementalAggregateTable;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+/**
+ * Combining the answer of a new block with the answers of the previous blocks, which
+ * SelectAsyncAggExecutionNode does for every block. The aggregates of a block are merged into the
+ * running aggregates, and the groups they change are written to the in-memory H2 database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryAggregateBenchmark {
+
+  private static final String TABLE_NAME = "blocktable";
+
+  private static final String BLOCK_QUERY =
+      "select g, count(*) as cnt, sum(v) as sumv, min(v) as minv, max(n) as maxn "
+          + "from "
+          + TABLE_NAME
+          + " group by g";
+
+  /** The number of groups in the answer of each block. */
+  @Param({"10", "1000"})
+  public int groupCount;
+
+  private IncrementalAggregateTable block;
+
+  private InMemoryAggregate inMemoryAggregate;
+
+  private IncrementalAggregateTable runningAggregate;
+
+  @Setup
+  public void setup() throws SQLException {
+    Connection conn = EmbeddedDatabase.connect(EmbeddedDatabase.H2);
+    EmbeddedDatabase.createTable(conn, TABLE_NAME, groupCount * 10, groupCount);
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery(BLOCK_QUERY);
+    SelectQuery dependentQuery = NonValidatingSQLParser.toSelectQuery(BLOCK_QUERY);
+    block = IncrementalAggregateTable.fromBlockResult(dependentQuery, new JdbcQueryResult(rs));
+    rs.close();
+    stmt.close();
+    conn.close();
+  }
+
+  // Every iteration starts from an empty answer; since every block has the same groups, the number
+  // of groups of the running aggregates stays the same after the first block.
+  @Setup(Level.Iteration)
+  public void createAggregate() {
+    inMemoryAggregate = InMemoryAggregate.create();
+    runningAggregate = IncrementalAggregateTable.emptyLike(block);
+  }
+
+  @TearDown(Level.Iteration)
+  public void dropAggregate() {
+    inMemoryAggregate.abort();
+  }
+
+  @Benchmark
+  public String combineBlock() throws SQLException {
+    inMemoryAggregate.combineBlock(block);
+    return inMemoryAggregate.materialize();
+  }
+
+  /** Only the merge of the aggregates, without writing them to the in-memory database. */
+  @Benchmark
+  public IncrementalAggregateTable mergeBlock() {
+    runningAggregate.merge(block);
+    return runningAggregate;
+  }
+}
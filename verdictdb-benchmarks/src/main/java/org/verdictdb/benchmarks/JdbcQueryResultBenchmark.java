@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.verdictdb.connection.JdbcQueryResult;
+
+/**
+ * Materializing a JDBC result set into a JdbcQueryResult, which is done for every block query. The
+ * time includes the execution of the query by the embedded database; comparing it with readOnly
+ * shows the overhead of the materialization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcQueryResultBenchmark {
+
+  private static final String TABLE_NAME = "benchtable";
+
+  @Param({EmbeddedDatabase.H2, EmbeddedDatabase.SQLITE})
+  public String backend;
+
+  @Param({"100", "10000"})
+  public int rowCount;
+
+  private Connection conn;
+
+  @Setup
+  public void setup() throws SQLException {
+    conn = EmbeddedDatabase.connect(backend);
+    EmbeddedDatabase.createTable(conn, TABLE_NAME, rowCount, 100);
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    conn.close();
+  }
+
+  @Benchmark
+  public JdbcQueryResult construct() throws SQLException {
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT g, n, v, s FROM " + TABLE_NAME);
+    JdbcQueryResult result = new JdbcQueryResult(rs);
+    rs.close();
+    stmt.close();
+    return result;
+  }
+
+  /** Reads the same result set without materializing it; the baseline for construct. */
+  @Benchmark
+  public int readOnly() throws SQLException {
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT g, n, v, s FROM " + TABLE_NAME);
+    int columnCount = rs.getMetaData().getColumnCount();
+    int hash = 0;
+    while (rs.next()) {
+      for (int i = 1; i <= columnCount; i++) {
+        Object value = rs.getObject(i);
+        hash += (value == null) ? 0 : value.hashCode();
+      }
+    }
+    rs.close();
+    stmt.close();
+    return hash;
+  }
+}
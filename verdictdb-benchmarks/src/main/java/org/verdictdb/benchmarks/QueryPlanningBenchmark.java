@@ -0,0 +1,97 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryExecutionPlanFactory;
+import org.verdictdb.core.querying.ola.AsyncQueryExecutionPlan;
+import org.verdictdb.core.querying.simplifier.QueryExecutionPlanSimplifier;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+
+import com.rits.cloning.Cloner;
+
+/**
+ * Building the execution plan of a standardized query in the same steps as SelectQueryCoordinator:
+ * the plan from the query, its asynchronous (i.e., block-by-block) version, and its simplification.
+ * The size of the asynchronous plan grows with the number of aggregation blocks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryPlanningBenchmark {
+
+  @Param({"q1", "q3", "q6"})
+  public String query;
+
+  @Param({"10", "100"})
+  public int blockCount;
+
+  private ScrambleMetaSet scrambleMeta;
+
+  private SelectQuery standardized;
+
+  private SelectQuery input;
+
+  private Cloner cloner = new Cloner();
+
+  @Setup
+  public void setup() throws VerdictDBException {
+    scrambleMeta = TpchFixture.createScrambleMeta(blockCount);
+    standardized =
+        TpchFixture.standardize(TpchFixture.getQuery(query), TpchFixture.createMetaData());
+  }
+
+  // The plan takes the ownership of the query and modifies it; thus, a copy is made for every
+  // invocation (which is not measured).
+  @Setup(Level.Invocation)
+  public void copyQuery() {
+    input = cloner.deepClone(standardized);
+  }
+
+  @Benchmark
+  public QueryExecutionPlan createPlan() throws VerdictDBException {
+    return QueryExecutionPlanFactory.create(TpchFixture.SCRATCHPAD_SCHEMA, scrambleMeta, input);
+  }
+
+  @Benchmark
+  public QueryExecutionPlan createSimplifiedAsyncPlan() throws VerdictDBException {
+    QueryExecutionPlan plan =
+        QueryExecutionPlanFactory.create(TpchFixture.SCRATCHPAD_SCHEMA, scrambleMeta, input);
+    QueryExecutionPlan asyncPlan = AsyncQueryExecutionPlan.create(plan);
+    QueryExecutionPlanSimplifier.simplify2(asyncPlan);
+    return asyncPlan;
+  }
+}
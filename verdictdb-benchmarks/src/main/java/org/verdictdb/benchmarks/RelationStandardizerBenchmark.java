@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.SqlSyntax;
+
+/**
+ * Resolving the tables and columns of a parsed query and assigning aliases. The metadata is served
+ * from memory as if it were cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RelationStandardizerBenchmark {
+
+  @Param({"q1", "q3", "q6"})
+  public String query;
+
+  private StaticMetaData meta;
+
+  private SqlSyntax syntax = new H2Syntax();
+
+  private String sql;
+
+  private SelectQuery parsed;
+
+  @Setup
+  public void setup() {
+    meta = TpchFixture.createMetaData();
+    sql = TpchFixture.getQuery(query);
+  }
+
+  // The standardization modifies the from list of the given query; thus, a new query is parsed for
+  // every invocation (which is not measured).
+  @Setup(Level.Invocation)
+  public void parse() {
+    RelationStandardizer.resetItemID();
+    parsed = NonValidatingSQLParser.toSelectQuery(sql);
+  }
+
+  @Benchmark
+  public SelectQuery standardizeSelectQuery() throws VerdictDBException {
+    return RelationStandardizer.standardizeSelectQuery(parsed, meta, syntax);
+  }
+}
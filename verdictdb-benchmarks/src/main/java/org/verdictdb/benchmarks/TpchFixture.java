@@ -0,0 +1,229 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.benchmarks;
+
+import static java.sql.Types.CHAR;
+import static java.sql.Types.DATE;
+import static java.sql.Types.DECIMAL;
+import static java.sql.Types.INTEGER;
+import static java.sql.Types.VARCHAR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.UniformScrambler;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+/**
+ * The tables and the queries shared by the benchmarks. The metadata of the TPC-H tables and their
+ * scrambles is kept in memory (i.e., StaticMetaData and ScrambleMetaSet) so that the planning
+ * benchmarks measure VerdictDB itself rather than the metadata retrieval from a database.
+ */
+public class TpchFixture {
+
+  public static final String SCHEMA = "tpch";
+
+  public static final String SCRATCHPAD_SCHEMA = "verdictdb_temp";
+
+  /** TPC-H Q1: a single-table aggregate with groups. */
+  public static final String Q1 =
+      "select "
+          + " l_returnflag, "
+          + " l_linestatus, "
+          + " sum(l_quantity) as sum_qty, "
+          + " sum(l_extendedprice) as sum_base_price, "
+          + " sum(l_extendedprice * (1 - l_discount)) as sum_disc_price, "
+          + " sum(l_extendedprice * (1 - l_discount) * (1 + l_tax)) as sum_charge, "
+          + " avg(l_quantity) as avg_qty, "
+          + " avg(l_extendedprice) as avg_price, "
+          + " avg(l_discount) as avg_disc, "
+          + " count(*) as count_order "
+          + "from "
+          + " lineitem_scrambled "
+          + "where "
+          + " l_shipdate <= date '1998-12-01' "
+          + "group by "
+          + " l_returnflag, "
+          + " l_linestatus "
+          + "order by "
+          + " l_returnflag, "
+          + " l_linestatus";
+
+  /** TPC-H Q3: a join of two scrambles and a regular table. */
+  public static final String Q3 =
+      "select "
+          + " l_orderkey, "
+          + " sum(l_extendedprice * (1 - l_discount)) as revenue, "
+          + " o_orderdate, "
+          + " o_shippriority "
+          + "from "
+          + " customer, "
+          + " orders_scrambled, "
+          + " lineitem_scrambled "
+          + "where "
+          + " c_mktsegment = 'BUILDING' "
+          + " and c_custkey = o_custkey "
+          + " and l_orderkey = o_orderkey "
+          + " and o_orderdate < date '1995-03-15' "
+          + " and l_shipdate > date '1995-03-15' "
+          + "group by "
+          + " l_orderkey, "
+          + " o_orderdate, "
+          + " o_shippriority "
+          + "order by "
+          + " revenue desc, "
+          + " o_orderdate "
+          + "limit 10";
+
+  /** TPC-H Q6: a single-table aggregate without groups. */
+  public static final String Q6 =
+      "select "
+          + " sum(l_extendedprice * l_discount) as revenue "
+          + "from "
+          + " lineitem_scrambled "
+          + "where "
+          + " l_shipdate >= date '1994-01-01' "
+          + " and l_shipdate < date '1995-01-01' "
+          + " and l_discount between 0.06 - 0.01 and 0.06 + 0.01 "
+          + " and l_quantity < 24";
+
+  private static final Map<String, String> QUERIES = new HashMap<>();
+
+  static {
+    QUERIES.put("q1", Q1);
+    QUERIES.put("q3", Q3);
+    QUERIES.put("q6", Q6);
+  }
+
+  /**
+   * @param name One of q1, q3, and q6
+   * @return The query string
+   */
+  public static String getQuery(String name) {
+    String sql = QUERIES.get(name);
+    if (sql == null) {
+      throw new IllegalArgumentException("Unknown query: " + name);
+    }
+    return sql;
+  }
+
+  public static StaticMetaData createMetaData() {
+    StaticMetaData meta = new StaticMetaData();
+    meta.setDefaultSchema(SCHEMA);
+
+    List<Pair<String, Integer>> columns = new ArrayList<>();
+    columns.addAll(
+        Arrays.asList(
+            new ImmutablePair<>("c_custkey", INTEGER),
+            new ImmutablePair<>("c_name", VARCHAR),
+            new ImmutablePair<>("c_address", VARCHAR),
+            new ImmutablePair<>("c_nationkey", INTEGER),
+            new ImmutablePair<>("c_phone", CHAR),
+            new ImmutablePair<>("c_acctbal", DECIMAL),
+            new ImmutablePair<>("c_mktsegment", CHAR),
+            new ImmutablePair<>("c_comment", VARCHAR)));
+    meta.addTableData(new StaticMetaData.TableInfo(SCHEMA, "customer"), columns);
+
+    columns = new ArrayList<>();
+    columns.addAll(
+        Arrays.asList(
+            new ImmutablePair<>("o_orderkey", INTEGER),
+            new ImmutablePair<>("o_custkey", INTEGER),
+            new ImmutablePair<>("o_orderstatus", CHAR),
+            new ImmutablePair<>("o_totalprice", DECIMAL),
+            new ImmutablePair<>("o_orderdate", DATE),
+            new ImmutablePair<>("o_orderpriority", CHAR),
+            new ImmutablePair<>("o_clerk", CHAR),
+            new ImmutablePair<>("o_shippriority", INTEGER),
+            new ImmutablePair<>("o_comment", VARCHAR),
+            new ImmutablePair<>("verdictdbaggblock", INTEGER),
+            new ImmutablePair<>("verdictdbsid", INTEGER),
+            new ImmutablePair<>("verdictdbtier", INTEGER)));
+    meta.addTableData(new StaticMetaData.TableInfo(SCHEMA, "orders_scrambled"), columns);
+
+    columns = new ArrayList<>();
+    columns.addAll(
+        Arrays.asList(
+            new ImmutablePair<>("l_orderkey", INTEGER),
+            new ImmutablePair<>("l_partkey", INTEGER),
+            new ImmutablePair<>("l_suppkey", INTEGER),
+            new ImmutablePair<>("l_linenumber", INTEGER),
+            new ImmutablePair<>("l_quantity", DECIMAL),
+            new ImmutablePair<>("l_extendedprice", DECIMAL),
+            new ImmutablePair<>("l_discount", DECIMAL),
+            new ImmutablePair<>("l_tax", DECIMAL),
+            new ImmutablePair<>("l_returnflag", CHAR),
+            new ImmutablePair<>("l_linestatus", CHAR),
+            new ImmutablePair<>("l_shipdate", DATE),
+            new ImmutablePair<>("l_commitdate", DATE),
+            new ImmutablePair<>("l_receiptdate", DATE),
+            new ImmutablePair<>("l_shipinstruct", CHAR),
+            new ImmutablePair<>("l_shipmode", CHAR),
+            new ImmutablePair<>("l_comment", VARCHAR),
+            new ImmutablePair<>("verdictdbaggblock", INTEGER),
+            new ImmutablePair<>("verdictdbsid", INTEGER),
+            new ImmutablePair<>("verdictdbtier", INTEGER)));
+    meta.addTableData(new StaticMetaData.TableInfo(SCHEMA, "lineitem_scrambled"), columns);
+    return meta;
+  }
+
+  /**
+   * @param blockCount The number of aggregation blocks of each scramble
+   * @return The metadata of the scrambles of lineitem and orders (single-tier)
+   */
+  public static ScrambleMetaSet createScrambleMeta(int blockCount) {
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(createSingleScrambleMeta("lineitem", blockCount));
+    metaSet.addScrambleMeta(createSingleScrambleMeta("orders", blockCount));
+    return metaSet;
+  }
+
+  private static ScrambleMeta createSingleScrambleMeta(String tableName, int blockCount) {
+    UniformScrambler scrambler =
+        new UniformScrambler(SCHEMA, tableName, SCHEMA, tableName + "_scrambled", blockCount);
+    ScrambleMeta meta = scrambler.generateMeta();
+    meta.setNumberOfTiers(1);
+    List<Double> cumulativeDistribution = new ArrayList<>();
+    for (int i = 1; i <= blockCount; i++) {
+      cumulativeDistribution.add(i / (double) blockCount);
+    }
+    HashMap<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, cumulativeDistribution);
+    meta.setCumulativeDistributionForTier(distribution);
+    return meta;
+  }
+
+  /** Parses and standardizes a query as ExecutionContext does. */
+  public static SelectQuery standardize(String sql, StaticMetaData meta)
+      throws VerdictDBException {
+    RelationStandardizer.resetItemID();
+    SelectQuery query = NonValidatingSQLParser.toSelectQuery(sql);
+    return RelationStandardizer.standardizeSelectQuery(query, meta, new H2Syntax());
+  }
+}